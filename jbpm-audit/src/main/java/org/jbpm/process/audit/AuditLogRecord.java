@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit;
+
+import java.io.Serializable;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Single deferred write of an audit log entity, used by the buffered and journaled
+ * modes of {@link JPAWorkingMemoryDbLogger} to apply audit logs outside of the event listener.
+ */
+public class AuditLogRecord implements Serializable {
+
+    private static final long serialVersionUID = 7420398125703524331L;
+
+    public enum Operation {
+        /**
+         * new log entity to be persisted
+         */
+        PERSIST,
+        /**
+         * already persisted log entity that was updated
+         */
+        MERGE,
+        /**
+         * completion of process instance whose log entity is not at hand, the open
+         * process instance log is looked up when the record is applied
+         */
+        COMPLETE
+    }
+
+    private final Operation operation;
+    private final Object entity;
+
+    public AuditLogRecord(Operation operation, Object entity) {
+        this.operation = operation;
+        this.entity = entity;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Object getEntity() {
+        return entity;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void apply(EntityManager em) {
+        switch (operation) {
+            case PERSIST:
+                em.persist(entity);
+                break;
+            case MERGE:
+                em.merge(entity);
+                break;
+            case COMPLETE:
+                ProcessInstanceLog completed = (ProcessInstanceLog) entity;
+                List<ProcessInstanceLog> result = em.createQuery(
+                        "from ProcessInstanceLog as log where log.processInstanceId = :piId and log.end is null")
+                        .setParameter("piId", completed.getProcessInstanceId()).getResultList();
+                if (result != null && result.size() != 0) {
+                    ProcessInstanceLog log = result.get(result.size() - 1);
+                    log.setOutcome(completed.getOutcome());
+                    log.setStatus(completed.getStatus());
+                    log.setEnd(completed.getEnd());
+                    log.setDuration(completed.getEnd().getTime() - log.getStart().getTime());
+                    log.setProcessInstanceDescription(completed.getProcessInstanceDescription());
+                    em.merge(log);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AuditLogRecord [operation=" + operation + ", entity=" + entity + "]";
+    }
+}
@@ -25,6 +25,9 @@ import javax.naming.NamingException;
 import javax.persistence.EntityManagerFactory;
 
 import org.jbpm.process.audit.jms.AsyncAuditLogProducer;
+import org.jbpm.process.audit.journal.AuditLogJournal;
+import org.jbpm.process.audit.strategy.PersistenceStrategy;
+import org.jbpm.process.audit.strategy.PersistenceStrategyType;
 import org.kie.api.runtime.Environment;
 import org.kie.api.runtime.KieSession;
 
@@ -50,11 +53,17 @@ public class AuditLoggerFactory {
      * registers it directly in given ksession to receive its events.
      * Depending on the types several properties are supported:
      * <bold>JPA</bold>
-     * No properties are supported
+     * <ul>
+     * <li>jbpm.audit.jpa.buffered - determines if log entities are written together at the end of transaction - default false - type Boolean</li>
+     * <li>jbpm.audit.jpa.journal - journal that log entities are appended to before transaction completes - type org.jbpm.process.audit.journal.AuditLogJournal,
+     * its writer is started (unless already running) with standalone JTA persistence strategy of the ksession's entity manager factory
+     * or with the strategy given as jbpm.audit.jpa.journal.persistence - type org.jbpm.process.audit.strategy.PersistenceStrategy</li>
+     * </ul>
      * 
      * <bold>JMS</bold>
      * <ul>
      * <li>jbpm.audit.jms.transacted - determines if JMS session is transacted or not - default true - type Boolean</li>
+     * <li>jbpm.audit.jms.binary - determines if events of a transaction are sent as single binary message - default false - type Boolean</li>
      * <li>jbpm.audit.jms.connection.factory - connection factory instance - type javax.jms.ConnectionFactory</li>
      * <li>jbpm.audit.jms.queue - JMS queue instance - type javax.jms.Queue</li>
      * <li>jbpm.audit.jms.connection.factory.jndi - JNDI name of the connection factory to look up - type String</li>
@@ -70,6 +79,20 @@ public class AuditLoggerFactory {
         switch (type) {
             case JPA:
                 logger = new JPAWorkingMemoryDbLogger(ksession);
+                if (properties != null && properties.containsKey("jbpm.audit.jpa.buffered")) {
+                    ((JPAWorkingMemoryDbLogger) logger).setBuffered(Boolean.parseBoolean(properties.get("jbpm.audit.jpa.buffered").toString()));
+                }
+                if (properties != null && properties.containsKey("jbpm.audit.jpa.journal")) {
+                    AuditLogJournal journal = (AuditLogJournal) properties.get("jbpm.audit.jpa.journal");
+                    if (journal.getWriter() == null) {
+                        PersistenceStrategy persistenceStrategy = (PersistenceStrategy) properties.get("jbpm.audit.jpa.journal.persistence");
+                        if (persistenceStrategy == null) {
+                            persistenceStrategy = PersistenceStrategyType.getPersistenceStrategy(PersistenceStrategyType.STANDALONE_JTA, ksession.getEnvironment());
+                        }
+                        journal.startWriter(persistenceStrategy);
+                    }
+                    ((JPAWorkingMemoryDbLogger) logger).setJournal(journal);
+                }
                 break;
             case JMS:
                 boolean transacted = true;
@@ -78,6 +101,9 @@ public class AuditLoggerFactory {
                 }
                 
                 logger = new AsyncAuditLogProducer(ksession, transacted);
+                if (properties.containsKey("jbpm.audit.jms.binary")) {
+                    ((AsyncAuditLogProducer) logger).setBinary(Boolean.parseBoolean(properties.get("jbpm.audit.jms.binary").toString()));
+                }
                 // set connection factory and queue if given as property
                 if (properties.containsKey("jbpm.audit.jms.connection.factory")) {
                     ConnectionFactory connFactory = (ConnectionFactory) properties.get("jbpm.audit.jms.connection.factory"); 
@@ -136,6 +162,7 @@ public class AuditLoggerFactory {
      * Supported parameters are as follows:
      * <ul>
      * <li>jbpm.audit.jms.transacted - determines if JMS session is transacted or not - default true - type Boolean</li>
+     * <li>jbpm.audit.jms.binary - determines if events of a transaction are sent as single binary message - default false - type Boolean</li>
      * <li>jbpm.audit.jms.connection.factory - connection factory instance - type javax.jms.ConnectionFactory</li>
      * <li>jbpm.audit.jms.queue - JMS queue instance - type javax.jms.Queue</li>
      * <li>jbpm.audit.jms.connection.factory.jndi - JNDI name of the connection factory to look up - type String</li>
@@ -159,6 +186,9 @@ public class AuditLoggerFactory {
         }
         
         logger.setTransacted(transacted);
+        if (properties.containsKey("jbpm.audit.jms.binary")) {
+            logger.setBinary(Boolean.parseBoolean(properties.get("jbpm.audit.jms.binary").toString()));
+        }
         
         // set connection factory and queue if given as property
         if (properties.containsKey("jbpm.audit.jms.connection.factory")) {
@@ -95,6 +95,8 @@ public class JPAAuditLogService extends JPAService implements AuditLogService {
     private static final Logger logger = LoggerFactory.getLogger(JPAAuditLogService.class);
    
     private static final String AUDIT_LOG_PERSISTENCE_UNIT_NAME = "org.jbpm.persistence.jpa";
+
+    protected static final int CLEAR_RECORDS_PER_TRANSACTION = 1000;
     
     public JPAAuditLogService() {
         super(AUDIT_LOG_PERSISTENCE_UNIT_NAME);
@@ -292,21 +294,15 @@ public class JPAAuditLogService extends JPAService implements AuditLogService {
      */
     @Override
     public void clear() {
-        EntityManager em = getEntityManager();
-        Object newTx = joinTransaction(em);
-        try {
-            	        
-	        int deletedNodes = em.createQuery("delete FROM NodeInstanceLog WHERE processInstanceId in (select spl.processInstanceId FROM ProcessInstanceLog spl WHERE spl.status in (2, 3))").executeUpdate();
-	        logger.debug("CLEAR:: deleted node instances {}", deletedNodes);
-	        
-	        int deletedVariables = em.createQuery("delete FROM VariableInstanceLog WHERE processInstanceId in (select spl.processInstanceId FROM ProcessInstanceLog spl WHERE spl.status in (2, 3))").executeUpdate();
-	        logger.debug("CLEAR:: deleted variable instances {}", deletedVariables);
-	        
-	        int deletedProcesses = em.createQuery("delete FROM ProcessInstanceLog WHERE status in (2, 3)").executeUpdate();
-            logger.debug("CLEAR:: deleted process instances {}", deletedProcesses);
-        } finally {
-        	closeEntityManager(em, newTx);
-        }
+        int deletedNodes = new NodeInstanceLogDeleteBuilderImpl(this).buildChunked(CLEAR_RECORDS_PER_TRANSACTION).execute();
+        logger.debug("CLEAR:: deleted node instances {}", deletedNodes);
+
+        int deletedVariables = new VarInstanceLogDeleteBuilderImpl(this).buildChunked(CLEAR_RECORDS_PER_TRANSACTION).execute();
+        logger.debug("CLEAR:: deleted variable instances {}", deletedVariables);
+
+        int deletedProcesses = ((ProcessInstanceLogDeleteBuilderImpl) new ProcessInstanceLogDeleteBuilderImpl(this).status(2, 3))
+                .buildChunked(CLEAR_RECORDS_PER_TRANSACTION).execute();
+        logger.debug("CLEAR:: deleted process instances {}", deletedProcesses);
     }
     
     // query methods
@@ -437,7 +433,51 @@ public class JPAAuditLogService extends JPAService implements AuditLogService {
         return result;
     }
     
-    private static String createDeleteQuery(String queryBase, QueryWhere queryWhere, Map<String, Object> queryParams, boolean skipMetaParams, String subQuery) { 
+    /**
+     * Deletes (in a single transaction) at most <code>recordsPerTransaction</code> entries matching given criteria
+     * that have id greater than <code>afterId</code>. Entries are selected in id order (using the primary key index)
+     * and then removed by their ids, so the delete statement itself never scans the table.
+     * @param afterId id of the last entry removed by previous invocation, null to start from the beginning
+     * @return ids of removed entries in ascending order, empty list when there is nothing (more) to remove
+     */
+    public List<Long> doPartialDelete(String queryBase, QueryWhere queryData, String subQuery, Long afterId, int recordsPerTransaction) {
+        Map<String, Object> queryParams = new HashMap<String, Object>();
+        String selectBase = queryBase.replaceFirst("DELETE", "SELECT l.id");
+        String keysetClause = null;
+        if (afterId != null) {
+            keysetClause = "l.id > :lastDeletedId";
+            queryParams.put("lastDeletedId", afterId);
+        }
+        String selectString = createDeleteQuery(selectBase, queryData, queryParams, true, subQuery, keysetClause) + " ORDER BY l.id";
+        String deleteString = queryBase + " WHERE l.id IN (:ids)";
+
+        logger.debug("DELETE (partial) statement:\n {}", selectString);
+
+        EntityManager em = getEntityManager();
+        Object newTx = joinTransaction(em);
+        try {
+            Query selectQuery = em.createQuery(selectString);
+            applyMetaQueryParameters(queryParams, selectQuery);
+            selectQuery.setMaxResults(recordsPerTransaction);
+            List<Long> ids = new ArrayList<Long>();
+            for (Object id : selectQuery.getResultList()) {
+                ids.add(((Number) id).longValue());
+            }
+            if (!ids.isEmpty()) {
+                int result = em.createQuery(deleteString).setParameter("ids", ids).executeUpdate();
+                logger.debug("Deleted rows {} (ids {} - {})", result, ids.get(0), ids.get(ids.size() - 1));
+            }
+            return ids;
+        } finally {
+            closeEntityManager(em, newTx);
+        }
+    }
+
+    private static String createDeleteQuery(String queryBase, QueryWhere queryWhere, Map<String, Object> queryParams, boolean skipMetaParams, String subQuery) {
+        return createDeleteQuery(queryBase, queryWhere, queryParams, skipMetaParams, subQuery, null);
+    }
+
+    private static String createDeleteQuery(String queryBase, QueryWhere queryWhere, Map<String, Object> queryParams, boolean skipMetaParams, String subQuery, String keysetClause) { 
         // setup
         StringBuilder queryBuilder = new StringBuilder(queryBase);
         QueryAndParameterAppender queryAppender = new QueryAndParameterAppender(queryBuilder, queryParams);
@@ -502,6 +542,9 @@ public class JPAAuditLogService extends JPAService implements AuditLogService {
         if (subQuery != null && !subQuery.isEmpty()) {
             queryAppender.addToQueryBuilder(subQuery, false);
         }
+        if (keysetClause != null) {
+            queryAppender.addToQueryBuilder(keysetClause, false);
+        }
         
 
         // meta criteria (order, asc/desc) does not apply to delete queries 
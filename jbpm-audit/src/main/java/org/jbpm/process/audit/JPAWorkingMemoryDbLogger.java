@@ -16,7 +16,14 @@
 
 package org.jbpm.process.audit;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
@@ -33,6 +40,9 @@ import org.drools.core.WorkingMemory;
 import org.drools.core.common.InternalWorkingMemory;
 import org.drools.core.runtime.process.InternalProcessRuntime;
 import org.drools.persistence.api.TransactionManager;
+import org.drools.persistence.api.TransactionSynchronization;
+import org.jbpm.process.audit.AuditLogRecord.Operation;
+import org.jbpm.process.audit.journal.AuditLogJournal;
 import org.jbpm.process.audit.variable.ProcessIndexerManager;
 import org.jbpm.process.instance.impl.ProcessInstanceImpl;
 import org.jbpm.workflow.instance.impl.NodeInstanceImpl;
@@ -52,7 +62,20 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Enables history log via JPA.
- * 
+ * <p>
+ * By default every log entity is persisted as soon as the event is received. Logger can also be configured
+ * to collect log entities of a transaction and write them at once:
+ * <ul>
+ *  <li>buffered - log entities are persisted and flushed together just before the transaction completes, so they
+ *  can be sent to the database as JDBC batches (requires <code>hibernate.jdbc.batch_size</code> to be set). Enabled
+ *  by system property <code>org.jbpm.audit.jpa.buffered</code> or {@link #setBuffered(boolean)}</li>
+ *  <li>journaled - log entities are appended to local {@link AuditLogJournal} just before the transaction completes
+ *  (failure to append fails the transaction), their outcome is recorded once the transaction completed and committed ones
+ *  are written to the database by {@link org.jbpm.process.audit.journal.AuditLogJournalWriter} in the background, so audit
+ *  does not extend the engine transaction with database work. Enabled by {@link #setJournal(AuditLogJournal)}</li>
+ * </ul>
+ * Both modes need active transaction managed by <code>TransactionManager</code> found in the environment, otherwise
+ * log entities are persisted directly.
  */
 public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
 
@@ -66,6 +89,10 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
     private EntityManagerFactory emf;
     
     private ProcessIndexerManager indexManager = ProcessIndexerManager.get();
+    
+    private boolean buffered = Boolean.parseBoolean(System.getProperty("org.jbpm.audit.jpa.buffered", "false"));
+    private AuditLogJournal journal;
+    private final String bufferKey = "AuditLogBuffer@" + System.identityHashCode(this);
 
     /*
      * for backward compatibility
@@ -143,10 +170,25 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
     @Override
     public void afterProcessCompleted(ProcessCompletedEvent event) {
         long processInstanceId = event.getProcessInstance().getId();
+        ProcessInstanceLog log = (ProcessInstanceLog) ((ProcessInstanceImpl) event.getProcessInstance()).getMetaData().get("ProcessInstanceLog");
+        
+        TransactionBuffer buffer = getTransactionBuffer(event);
+        if (buffer != null) {
+            if (log != null && log.getId() != 0) {
+                buffer.add(new AuditLogRecord(Operation.MERGE, builder.buildEvent(event, log)));
+            } else if (log != null && buffer.contains(log)) {
+                // not written yet, will be persisted already completed 
+                builder.buildEvent(event, log);
+            } else {
+                // open log will be looked up when the buffer is written
+                buffer.add(new AuditLogRecord(Operation.COMPLETE, builder.buildEvent(event, null)));
+            }
+            return;
+        }
+        
         EntityManager em = getEntityManager(event);
         Object tx = joinTransaction(em);
         
-        ProcessInstanceLog log = (ProcessInstanceLog) ((ProcessInstanceImpl) event.getProcessInstance()).getMetaData().get("ProcessInstanceLog");
         if (log == null) {
 	        List<ProcessInstanceLog> result = em.createQuery(
 		        "from ProcessInstanceLog as log where log.processInstanceId = :piId and log.end is null")
@@ -191,6 +233,22 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
     public void dispose() {
     }
 
+    public boolean isBuffered() {
+        return buffered;
+    }
+
+    public void setBuffered(boolean buffered) {
+        this.buffered = buffered;
+    }
+
+    public AuditLogJournal getJournal() {
+        return journal;
+    }
+
+    public void setJournal(AuditLogJournal journal) {
+        this.journal = journal;
+    }
+
     /**
      * This method persists the entity given to it. 
      * </p>
@@ -198,6 +256,11 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
      * @param entity An entity to be persisted.
      */
     private void persist(Object entity, KieRuntimeEvent event) { 
+        TransactionBuffer buffer = getTransactionBuffer(event);
+        if (buffer != null) {
+            buffer.add(new AuditLogRecord(Operation.PERSIST, entity));
+            return;
+        }
         EntityManager em = getEntityManager(event);
         Object tx = joinTransaction(em);
         em.persist(entity);
@@ -208,8 +271,10 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
      * This method creates a entity manager. 
      */
     private EntityManager getEntityManager(KieRuntimeEvent event) {
-        
-        Environment env = event.getKieRuntime().getEnvironment();
+        return getEntityManager(event.getKieRuntime().getEnvironment());
+    }
+
+    private EntityManager getEntityManager(Environment env) {
         
         /**
          * It's important to set the sharedEM flag with _every_ operation
@@ -246,6 +311,31 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
         throw new RuntimeException("Could not find or create a new EntityManager!");
     }
 
+    /**
+     * Returns buffer of log entities for currently active transaction, registering new one if needed.
+     * @return transaction buffer or null when log entities should be persisted directly
+     */
+    protected TransactionBuffer getTransactionBuffer(KieRuntimeEvent event) {
+        if (!buffered && journal == null) {
+            return null;
+        }
+        Environment env = event.getKieRuntime().getEnvironment();
+        if (env == null || !(env.get(EnvironmentName.TRANSACTION_MANAGER) instanceof TransactionManager)) {
+            return null;
+        }
+        TransactionManager txm = (TransactionManager) env.get(EnvironmentName.TRANSACTION_MANAGER);
+        if (txm.getStatus() != TransactionManager.STATUS_ACTIVE) {
+            return null;
+        }
+        TransactionBuffer buffer = (TransactionBuffer) txm.getResource(bufferKey);
+        if (buffer == null) {
+            buffer = new TransactionBuffer(env, journal);
+            txm.putResource(bufferKey, buffer);
+            txm.registerTransactionSynchronization(buffer);
+        }
+        return buffer;
+    }
+
     protected EntityManager getEntityManagerFromTransaction(Environment env) {
         if (env.get(EnvironmentName.TRANSACTION_MANAGER) instanceof TransactionManager) {
             TransactionManager txm = (TransactionManager) env.get(EnvironmentName.TRANSACTION_MANAGER);
@@ -364,4 +454,100 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
         }
     }
 
+    /**
+     * Log entities of single transaction, written or appended to the journal just before the transaction completes.
+     */
+    protected class TransactionBuffer implements TransactionSynchronization {
+
+        private final Environment env;
+        private final AuditLogJournal journal;
+        private final List<AuditLogRecord> records = new ArrayList<AuditLogRecord>();
+        private final Set<Object> entities = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        private long journalEntry = -1;
+
+        TransactionBuffer(Environment env, AuditLogJournal journal) {
+            this.env = env;
+            this.journal = journal;
+        }
+
+        void add(AuditLogRecord record) {
+            if (record.getOperation() == Operation.COMPLETE || entities.add(record.getEntity())) {
+                records.add(record);
+            }
+        }
+
+        boolean contains(Object entity) {
+            return entities.contains(entity);
+        }
+
+        @Override
+        public void beforeCompletion() {
+            if (records.isEmpty()) {
+                return;
+            }
+            if (journal == null) {
+                write();
+                return;
+            }
+            try {
+                journalEntry = journal.prepare(records);
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to append " + records.size() + " audit log records to journal in " + journal.getDirectory(), e);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (journalEntry >= 0) {
+                try {
+                    if (status == TransactionManager.STATUS_COMMITTED) {
+                        journal.commit(journalEntry);
+                    } else {
+                        journal.abort(journalEntry);
+                    }
+                } catch (IOException e) {
+                    // entry without outcome is considered committed once the journal is opened again
+                    logger.error("Unable to record outcome of audit log journal entry {} in {}", journalEntry, journal.getDirectory(), e);
+                }
+            }
+            journalEntry = -1;
+            records.clear();
+            entities.clear();
+        }
+
+        protected void write() {
+            // new entities grouped by type so inserts into the same table can be batched
+            Map<Class<?>, List<AuditLogRecord>> persists = new LinkedHashMap<Class<?>, List<AuditLogRecord>>();
+            List<AuditLogRecord> updates = new ArrayList<AuditLogRecord>();
+            for (AuditLogRecord record : records) {
+                if (record.getOperation() == Operation.PERSIST) {
+                    List<AuditLogRecord> sameType = persists.get(record.getEntity().getClass());
+                    if (sameType == null) {
+                        sameType = new ArrayList<AuditLogRecord>();
+                        persists.put(record.getEntity().getClass(), sameType);
+                    }
+                    sameType.add(record);
+                } else {
+                    updates.add(record);
+                }
+            }
+            
+            EntityManager em = getEntityManager(env);
+            Object tx = joinTransaction(em);
+            for (List<AuditLogRecord> sameType : persists.values()) {
+                for (AuditLogRecord record : sameType) {
+                    record.apply(em);
+                }
+            }
+            for (AuditLogRecord record : updates) {
+                record.apply(em);
+            }
+            if (sharedEM) {
+                // transaction might have flushed the persistence context already
+                em.flush();
+            }
+            leaveTransaction(em, tx);
+        }
+    }
+
 }
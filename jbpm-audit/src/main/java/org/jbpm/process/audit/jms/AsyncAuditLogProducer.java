@@ -16,8 +16,13 @@
 
 package org.jbpm.process.audit.jms;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
@@ -26,16 +31,21 @@ import javax.jms.Queue;
 import javax.jms.Session;
 import javax.jms.TextMessage;
 
+import org.drools.persistence.api.TransactionManager;
+import org.drools.persistence.api.TransactionSynchronization;
 import org.jbpm.process.audit.AbstractAuditLogger;
 import org.jbpm.process.audit.NodeInstanceLog;
 import org.jbpm.process.audit.ProcessInstanceLog;
 import org.jbpm.process.audit.variable.ProcessIndexerManager;
 import org.jbpm.workflow.instance.impl.NodeInstanceImpl;
+import org.kie.api.event.KieRuntimeEvent;
 import org.kie.api.event.process.ProcessCompletedEvent;
 import org.kie.api.event.process.ProcessNodeLeftEvent;
 import org.kie.api.event.process.ProcessNodeTriggeredEvent;
 import org.kie.api.event.process.ProcessStartedEvent;
 import org.kie.api.event.process.ProcessVariableChangedEvent;
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.EnvironmentName;
 import org.kie.api.runtime.KieSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,6 +71,13 @@ import static org.kie.internal.xstream.XStreamUtils.createXStream;
  *  <li>use content based routing in more advanced scenarios</li>
  * </ul>
  * 
+ * Alternatively, when binary mode is enabled (see <code>setBinary</code>), audit events of a transaction are
+ * collected and sent as single BytesMessage encoded by <code>AuditLogCodec</code> once the transaction completes -
+ * within the transaction when the producer is transacted, after successful commit otherwise. Messages in binary
+ * mode carry <code>EventCount</code> property instead of <code>EventType</code>. Non transacted producer keeps
+ * its JMS connection open between messages, use <code>dispose</code> to close it. Log entities the codec does not
+ * support (e.g. produced by a custom <code>AuditEventBuilder</code>) are still sent as text messages right away.
+ * 
  * Default receiver is <code>AsyncAuditLogReceiver</code> class
  */
 public class AsyncAuditLogProducer extends AbstractAuditLogger {
@@ -70,6 +87,11 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
     private ConnectionFactory connectionFactory;    
     private Queue queue;
     private boolean transacted = true;
+    private boolean binary = false;
+    
+    private final String bufferKey = "AsyncAuditLogBuffer@" + System.identityHashCode(this);
+    private volatile XStream xstream;
+    private Connection sharedConnection;
     
     private ProcessIndexerManager indexManager = ProcessIndexerManager.get();
 
@@ -102,35 +124,35 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
     @Override
     public void beforeNodeTriggered(ProcessNodeTriggeredEvent event) {
         NodeInstanceLog log = (NodeInstanceLog) builder.buildEvent(event);
-        sendMessage(log, BEFORE_NODE_ENTER_EVENT_TYPE);
+        send(event, log, BEFORE_NODE_ENTER_EVENT_TYPE);
         ((NodeInstanceImpl) event.getNodeInstance()).getMetaData().put("NodeInstanceLog", log);
     }
 
     @Override
     public void afterNodeLeft(ProcessNodeLeftEvent event) {
         NodeInstanceLog log = (NodeInstanceLog) builder.buildEvent(event, null);
-        sendMessage(log, AFTER_NODE_LEFT_EVENT_TYPE);   
+        send(event, log, AFTER_NODE_LEFT_EVENT_TYPE);   
     }
 
     @Override
     public void afterVariableChanged(ProcessVariableChangedEvent event) {
         List<org.kie.api.runtime.manager.audit.VariableInstanceLog> variables = indexManager.index(getBuilder(), event);
         for (org.kie.api.runtime.manager.audit.VariableInstanceLog log : variables) {  
-            sendMessage(log, AFTER_VAR_CHANGE_EVENT_TYPE);   
+            send(event, log, AFTER_VAR_CHANGE_EVENT_TYPE);   
         }
     }
 
     @Override
     public void beforeProcessStarted(ProcessStartedEvent event) {
         ProcessInstanceLog log = (ProcessInstanceLog) builder.buildEvent(event);
-        sendMessage(log, BEFORE_START_EVENT_TYPE);
+        send(event, log, BEFORE_START_EVENT_TYPE);
         
     }
 
     @Override
     public void afterProcessCompleted(ProcessCompletedEvent event) {
         ProcessInstanceLog log = (ProcessInstanceLog) builder.buildEvent(event, null);
-        sendMessage(log, AFTER_COMPLETE_EVENT_TYPE);
+        send(event, log, AFTER_COMPLETE_EVENT_TYPE);
     }
     
     @Override
@@ -139,7 +161,12 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
     	NodeInstanceLog log = (NodeInstanceLog) ((NodeInstanceImpl) event.getNodeInstance()).getMetaData().get("NodeInstanceLog");
     	NodeInstanceLog logUpdated = (NodeInstanceLog) builder.buildEvent(event, log);
     	if (logUpdated != null) {
-    		sendMessage(log, AFTER_NODE_ENTER_EVENT_TYPE);
+    	    MessageBuffer buffer = getMessageBuffer(event);
+    	    if (buffer != null && buffer.contains(log)) {
+    	        // log was not sent yet so it already carries the updated data
+    	        return;
+    	    }
+    		send(event, log, AFTER_NODE_ENTER_EVENT_TYPE);
     	}
     }
 
@@ -161,6 +188,131 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
     public void beforeProcessCompleted(ProcessCompletedEvent event) {
     }
     
+    protected void send(KieRuntimeEvent event, Object messageContent, Integer eventType) {
+        if (!binary || !AuditLogCodec.isSupported(messageContent)) {
+            // custom log entities are sent as text messages, binary messages only carry the known entities
+            sendMessage(messageContent, eventType);
+            return;
+        }
+        MessageBuffer buffer = getMessageBuffer(event);
+        if (buffer != null) {
+            buffer.add(new AuditLogCodec.Entry(eventType, messageContent));
+        } else {
+            sendMessage(Collections.singletonList(new AuditLogCodec.Entry(eventType, messageContent)));
+        }
+    }
+    
+    /**
+     * Returns buffer of audit events for currently active transaction, registering new one if needed.
+     * @return message buffer or null when there is no active transaction
+     */
+    protected MessageBuffer getMessageBuffer(KieRuntimeEvent event) {
+        if (!binary) {
+            return null;
+        }
+        Environment env = event.getKieRuntime().getEnvironment();
+        if (env == null || !(env.get(EnvironmentName.TRANSACTION_MANAGER) instanceof TransactionManager)) {
+            return null;
+        }
+        TransactionManager txm = (TransactionManager) env.get(EnvironmentName.TRANSACTION_MANAGER);
+        if (txm.getStatus() != TransactionManager.STATUS_ACTIVE) {
+            return null;
+        }
+        MessageBuffer buffer = (MessageBuffer) txm.getResource(bufferKey);
+        if (buffer == null) {
+            buffer = new MessageBuffer();
+            txm.putResource(bufferKey, buffer);
+            txm.registerTransactionSynchronization(buffer);
+        }
+        return buffer;
+    }
+    
+    /**
+     * Sends given audit events as single BytesMessage.
+     */
+    protected void sendMessage(List<AuditLogCodec.Entry> entries) {
+        if (connectionFactory == null && queue == null) {
+            throw new IllegalStateException("ConnectionFactory and Queue cannot be null");
+        }
+        Connection queueConnection = null;
+        Session queueSession = null;
+        MessageProducer producer = null;
+        try {
+            byte[] content = AuditLogCodec.encode(entries);
+            queueConnection = transacted ? connectionFactory.createConnection() : getSharedConnection();
+            queueSession = queueConnection.createSession(transacted, Session.AUTO_ACKNOWLEDGE);
+            
+            BytesMessage message = queueSession.createBytesMessage();
+            message.writeBytes(content);
+            message.setIntProperty("EventCount", entries.size());
+            producer = queueSession.createProducer(queue);
+            producer.send(message);
+        } catch (Exception e) {
+            if (!transacted) {
+                // connection might be broken, open new one for next message
+                closeSharedConnection();
+            }
+            throw new RuntimeException("Error when sending JMS message with working memory events", e);
+        } finally {
+            if (producer != null) {
+                try {
+                    producer.close();
+                } catch (JMSException e) {
+                    logger.warn("Error when closing producer", e);
+                }
+            }
+            
+            if (queueSession != null) {
+                try {
+                    queueSession.close();
+                } catch (JMSException e) {
+                    logger.warn("Error when closing queue session", e);
+                }
+            }
+            
+            if (transacted && queueConnection != null) {
+                try {
+                    queueConnection.close();
+                } catch (JMSException e) {
+                    logger.warn("Error when closing queue connection", e);
+                }
+            }
+        }
+    }
+    
+    protected synchronized Connection getSharedConnection() throws JMSException {
+        if (sharedConnection == null) {
+            sharedConnection = connectionFactory.createConnection();
+        }
+        return sharedConnection;
+    }
+    
+    protected synchronized void closeSharedConnection() {
+        if (sharedConnection != null) {
+            try {
+                sharedConnection.close();
+            } catch (JMSException e) {
+                logger.warn("Error when closing queue connection", e);
+            }
+            sharedConnection = null;
+        }
+    }
+    
+    public void dispose() {
+        closeSharedConnection();
+    }
+    
+    protected XStream getXStream() {
+        if (xstream == null) {
+            // configured instance is thread safe and expensive to create
+            XStream newXStream = createXStream();
+            String[] voidDeny = {"void.class", "Void.class"};
+            newXStream.denyTypes(voidDeny);
+            xstream = newXStream;
+        }
+        return xstream;
+    }
+    
     protected void sendMessage(Object messageContent, Integer eventType) {
         if (connectionFactory == null && queue == null) {
             throw new IllegalStateException("ConnectionFactory and Queue cannot be null");
@@ -172,10 +324,7 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
             queueConnection = connectionFactory.createConnection();
             queueSession = queueConnection.createSession(transacted, Session.AUTO_ACKNOWLEDGE);
            
-            XStream xstream = createXStream();
-            String[] voidDeny = {"void.class", "Void.class"};
-            xstream.denyTypes(voidDeny);
-            String eventXml = xstream.toXML(messageContent);
+            String eventXml = getXStream().toXML(messageContent);
             TextMessage message = queueSession.createTextMessage(eventXml);
             message.setIntProperty("EventType", eventType);
             producer = queueSession.createProducer(queue);            
@@ -217,5 +366,53 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
         this.transacted = transacted;
     }
 
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * Audit events of single transaction, sent as one message before the transaction completes
+     * when producer is transacted or after it was committed otherwise.
+     */
+    protected class MessageBuffer implements TransactionSynchronization {
+        
+        private final List<AuditLogCodec.Entry> entries = new ArrayList<AuditLogCodec.Entry>();
+        private final Set<Object> logs = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        
+        void add(AuditLogCodec.Entry entry) {
+            entries.add(entry);
+            logs.add(entry.getLog());
+        }
+        
+        boolean contains(Object log) {
+            return logs.contains(log);
+        }
+
+        @Override
+        public void beforeCompletion() {
+            if (transacted && !entries.isEmpty()) {
+                sendMessage(entries);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            try {
+                if (!transacted && status == TransactionManager.STATUS_COMMITTED && !entries.isEmpty()) {
+                    sendMessage(entries);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Unable to send {} audit events after transaction completed", entries.size(), e);
+            } finally {
+                entries.clear();
+                logs.clear();
+            }
+        }
+    }
+
 
 }
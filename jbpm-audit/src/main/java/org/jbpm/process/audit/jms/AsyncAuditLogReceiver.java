@@ -16,8 +16,10 @@
 
 package org.jbpm.process.audit.jms;
 
+import java.io.IOException;
 import java.util.List;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
@@ -41,6 +43,9 @@ import static org.kie.internal.xstream.XStreamUtils.createXStream;
  * Thus it shares the same message format that is TextMessage with 
  * Xstream serialized *Log classes (ProcessInstanceLog,
  * NodeInstanceLog, VaraiableInstanceLog) as content.
+ * It also accepts BytesMessages sent by the producer in binary mode, all
+ * events of such message are stored with single entity manager and flush so
+ * they are part of the same transaction.
  * 
  * by default it uses entity manager factory and creates entity manager for each message
  * although it provides getEntityManager method that can be overloaded by extensions to supply 
@@ -56,12 +61,12 @@ import static org.kie.internal.xstream.XStreamUtils.createXStream;
 public class AsyncAuditLogReceiver implements MessageListener {
     
     private EntityManagerFactory entityManagerFactory;
+    private volatile XStream xstream;
     
     public AsyncAuditLogReceiver(EntityManagerFactory entityManagerFactory) {
         this.entityManagerFactory = entityManagerFactory;
     }
     
-    @SuppressWarnings("unchecked")
     @Override
     public void onMessage(Message message) {
         if (message instanceof TextMessage) {
@@ -70,59 +75,87 @@ public class AsyncAuditLogReceiver implements MessageListener {
             try {
                 String messageContent = textMessage.getText();
                 Integer eventType = textMessage.getIntProperty("EventType");
-                XStream xstream = createXStream();
-                String[] voidDeny = {"void.class", "Void.class"};
-                xstream.denyTypes(voidDeny);
-                Object event = xstream.fromXML(messageContent);
-                
-                switch (eventType) {
-                case AbstractAuditLogger.AFTER_NODE_ENTER_EVENT_TYPE:
-                    NodeInstanceLog nodeAfterEnterEvent = (NodeInstanceLog) event;
-                    if (nodeAfterEnterEvent.getWorkItemId() != null) {
-                    List<NodeInstanceLog> result = em.createQuery(
-                            "from NodeInstanceLog as log where log.nodeInstanceId = :nodeId and log.type = 0")
-                            .setParameter("nodeId", nodeAfterEnterEvent.getNodeInstanceId()).getResultList();
-                            
-                            if (result != null && result.size() != 0) {
-                            	NodeInstanceLog log = result.get(result.size() - 1);
-                               log.setWorkItemId(nodeAfterEnterEvent.getWorkItemId());
-                               
-                               
-                               em.merge(log);   
-                           }
-                    }
-                    break;
+                Object event = getXStream().fromXML(messageContent);
                 
-                case AbstractAuditLogger.AFTER_COMPLETE_EVENT_TYPE:
-                    ProcessInstanceLog processCompletedEvent = (ProcessInstanceLog) event;
-                    List<ProcessInstanceLog> result = em.createQuery(
-                            "from ProcessInstanceLog as log where log.processInstanceId = :piId and log.end is null")
-                            .setParameter("piId", processCompletedEvent.getProcessInstanceId()).getResultList();
-                            
-                            if (result != null && result.size() != 0) {
-                               ProcessInstanceLog log = result.get(result.size() - 1);
-                               log.setOutcome(processCompletedEvent.getOutcome());
-                               log.setStatus(processCompletedEvent.getStatus());
-                               log.setEnd(processCompletedEvent.getEnd());
-                               log.setDuration(processCompletedEvent.getDuration());
-                               
-                               em.merge(log);   
-                           }
-                    break;
-                default:
-                    em.persist(event);
-                    break;
-                }
+                processEvent(em, eventType, event);
                 em.flush();
                 em.close();
             } catch (JMSException e) {
                 e.printStackTrace();
                 throw new RuntimeException("Exception when receiving audit event event", e);
             }
+        } else if (message instanceof BytesMessage) {
+            BytesMessage bytesMessage = (BytesMessage) message;
+            try {
+                byte[] content = new byte[(int) bytesMessage.getBodyLength()];
+                bytesMessage.readBytes(content);
+                List<AuditLogCodec.Entry> entries = AuditLogCodec.decode(content);
+                
+                EntityManager em = getEntityManager();
+                for (AuditLogCodec.Entry entry : entries) {
+                    processEvent(em, entry.getEventType(), entry.getLog());
+                }
+                em.flush();
+                em.close();
+            } catch (JMSException | IOException e) {
+                throw new RuntimeException("Exception when receiving audit events", e);
+            }
         }
 
     }
 
+    @SuppressWarnings("unchecked")
+    protected void processEvent(EntityManager em, Integer eventType, Object event) {
+        switch (eventType) {
+        case AbstractAuditLogger.AFTER_NODE_ENTER_EVENT_TYPE:
+            NodeInstanceLog nodeAfterEnterEvent = (NodeInstanceLog) event;
+            if (nodeAfterEnterEvent.getWorkItemId() != null) {
+            List<NodeInstanceLog> result = em.createQuery(
+                    "from NodeInstanceLog as log where log.nodeInstanceId = :nodeId and log.type = 0")
+                    .setParameter("nodeId", nodeAfterEnterEvent.getNodeInstanceId()).getResultList();
+                    
+                    if (result != null && result.size() != 0) {
+                    	NodeInstanceLog log = result.get(result.size() - 1);
+                       log.setWorkItemId(nodeAfterEnterEvent.getWorkItemId());
+                       
+                       
+                       em.merge(log);   
+                   }
+            }
+            break;
+        
+        case AbstractAuditLogger.AFTER_COMPLETE_EVENT_TYPE:
+            ProcessInstanceLog processCompletedEvent = (ProcessInstanceLog) event;
+            List<ProcessInstanceLog> result = em.createQuery(
+                    "from ProcessInstanceLog as log where log.processInstanceId = :piId and log.end is null")
+                    .setParameter("piId", processCompletedEvent.getProcessInstanceId()).getResultList();
+                    
+                    if (result != null && result.size() != 0) {
+                       ProcessInstanceLog log = result.get(result.size() - 1);
+                       log.setOutcome(processCompletedEvent.getOutcome());
+                       log.setStatus(processCompletedEvent.getStatus());
+                       log.setEnd(processCompletedEvent.getEnd());
+                       log.setDuration(processCompletedEvent.getDuration());
+                       
+                       em.merge(log);   
+                   }
+            break;
+        default:
+            em.persist(event);
+            break;
+        }
+    }
+
+    protected XStream getXStream() {
+        if (xstream == null) {
+            XStream newXStream = createXStream();
+            String[] voidDeny = {"void.class", "Void.class"};
+            newXStream.denyTypes(voidDeny);
+            xstream = newXStream;
+        }
+        return xstream;
+    }
+
     public EntityManagerFactory getEntityManagerFactory() {
         return entityManagerFactory;
     }
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit.jms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.jbpm.process.audit.NodeInstanceLog;
+import org.jbpm.process.audit.ProcessInstanceLog;
+import org.jbpm.process.audit.VariableInstanceLog;
+
+/**
+ * Compact binary encoding of audit events used by <code>AsyncAuditLogProducer</code> in binary mode.
+ * <p>
+ * Encoded content is a list of entries - event type (as defined by <code>AbstractAuditLogger</code>) and the log
+ * entity. Only the known log entities (ProcessInstanceLog, NodeInstanceLog and VariableInstanceLog) are supported,
+ * they are written field by field. Content is never deserialized with java serialization, so messages from the queue
+ * cannot instantiate any other classes - see {@link #isSupported(Object)}.
+ */
+public class AuditLogCodec {
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte PROCESS_INSTANCE_LOG = 1;
+    private static final byte NODE_INSTANCE_LOG = 2;
+    private static final byte VARIABLE_INSTANCE_LOG = 3;
+
+    private AuditLogCodec() {
+    }
+
+    /**
+     * Tells whether given log entity can be encoded, other logs (e.g. subclasses of the known log entities)
+     * have to be sent in another way.
+     */
+    public static boolean isSupported(Object log) {
+        // exact class checks as subclasses might carry additional state
+        Class<?> logClass = log == null ? null : log.getClass();
+        return logClass == ProcessInstanceLog.class || logClass == NodeInstanceLog.class || logClass == VariableInstanceLog.class;
+    }
+
+    public static byte[] encode(List<Entry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 * entries.size());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            out.writeInt(entry.getEventType());
+            writeLog(out, entry.getLog());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static List<Entry> decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported audit log format version " + version);
+        }
+        int size = in.readInt();
+        List<Entry> entries = new ArrayList<Entry>(size);
+        for (int i = 0; i < size; i++) {
+            int eventType = in.readInt();
+            entries.add(new Entry(eventType, readLog(in)));
+        }
+        return entries;
+    }
+
+    private static void writeLog(DataOutputStream out, Object log) throws IOException {
+        if (!isSupported(log)) {
+            throw new IllegalArgumentException("Unsupported audit log " + (log == null ? null : log.getClass().getName()));
+        }
+        Class<?> logClass = log.getClass();
+        if (logClass == ProcessInstanceLog.class) {
+            ProcessInstanceLog pil = (ProcessInstanceLog) log;
+            out.writeByte(PROCESS_INSTANCE_LOG);
+            out.writeLong(pil.getProcessInstanceId());
+            writeString(out, pil.getProcessId());
+            writeDate(out, pil.getStart());
+            writeDate(out, pil.getEnd());
+            writeInteger(out, pil.getStatus());
+            writeLong(out, pil.getParentProcessInstanceId());
+            writeString(out, pil.getOutcome());
+            writeLong(out, pil.getDuration());
+            writeString(out, pil.getIdentity());
+            writeString(out, pil.getProcessVersion());
+            writeString(out, pil.getProcessName());
+            writeString(out, pil.getCorrelationKey());
+            writeInteger(out, pil.getProcessType());
+            writeString(out, pil.getExternalId());
+            writeString(out, pil.getProcessInstanceDescription());
+        } else if (logClass == NodeInstanceLog.class) {
+            NodeInstanceLog nil = (NodeInstanceLog) log;
+            out.writeByte(NODE_INSTANCE_LOG);
+            out.writeLong(nil.getProcessInstanceId());
+            writeString(out, nil.getProcessId());
+            writeDate(out, nil.getDate());
+            out.writeInt(nil.getType());
+            writeString(out, nil.getNodeInstanceId());
+            writeString(out, nil.getNodeId());
+            writeString(out, nil.getNodeName());
+            writeString(out, nil.getNodeType());
+            writeLong(out, nil.getWorkItemId());
+            writeString(out, nil.getConnection());
+            writeString(out, nil.getExternalId());
+            writeLong(out, nil.getReferenceId());
+            writeString(out, nil.getNodeContainerId());
+        } else if (logClass == VariableInstanceLog.class) {
+            VariableInstanceLog vil = (VariableInstanceLog) log;
+            out.writeByte(VARIABLE_INSTANCE_LOG);
+            out.writeLong(vil.getProcessInstanceId());
+            writeString(out, vil.getProcessId());
+            writeDate(out, vil.getDate());
+            writeString(out, vil.getVariableInstanceId());
+            writeString(out, vil.getVariableId());
+            writeString(out, vil.getValue());
+            writeString(out, vil.getOldValue());
+            writeString(out, vil.getExternalId());
+        }
+    }
+
+    private static Object readLog(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+            case PROCESS_INSTANCE_LOG:
+                ProcessInstanceLog pil = new ProcessInstanceLog(in.readLong(), readString(in));
+                pil.setStart(readDate(in));
+                pil.setEnd(readDate(in));
+                Integer status = readInteger(in);
+                if (status != null) {
+                    pil.setStatus(status);
+                }
+                Long parentProcessInstanceId = readLong(in);
+                if (parentProcessInstanceId != null) {
+                    pil.setParentProcessInstanceId(parentProcessInstanceId);
+                }
+                pil.setOutcome(readString(in));
+                pil.setDuration(readLong(in));
+                pil.setIdentity(readString(in));
+                pil.setProcessVersion(readString(in));
+                pil.setProcessName(readString(in));
+                pil.setCorrelationKey(readString(in));
+                pil.setProcessType(readInteger(in));
+                pil.setExternalId(readString(in));
+                pil.setProcessInstanceDescription(readString(in));
+                return pil;
+            case NODE_INSTANCE_LOG:
+                NodeInstanceLog nil = new NodeInstanceLog();
+                nil.setProcessInstanceId(in.readLong());
+                nil.setProcessId(readString(in));
+                nil.setDate(readDate(in));
+                nil.setType(in.readInt());
+                nil.setNodeInstanceId(readString(in));
+                nil.setNodeId(readString(in));
+                nil.setNodeName(readString(in));
+                nil.setNodeType(readString(in));
+                nil.setWorkItemId(readLong(in));
+                nil.setConnection(readString(in));
+                nil.setExternalId(readString(in));
+                nil.setReferenceId(readLong(in));
+                nil.setNodeContainerId(readString(in));
+                return nil;
+            case VARIABLE_INSTANCE_LOG:
+                VariableInstanceLog vil = new VariableInstanceLog();
+                vil.setProcessInstanceId(in.readLong());
+                vil.setProcessId(readString(in));
+                vil.setDate(readDate(in));
+                vil.setVariableInstanceId(readString(in));
+                vil.setVariableId(readString(in));
+                vil.setValue(readString(in));
+                vil.setOldValue(readString(in));
+                vil.setExternalId(readString(in));
+                return vil;
+            default:
+                throw new IOException("Unknown audit log type " + kind);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, Date value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getTime());
+        }
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new Date(in.readLong()) : null;
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    /**
+     * Single audit event - event type and the log entity.
+     */
+    public static class Entry {
+
+        private final int eventType;
+        private final Object log;
+
+        public Entry(int eventType, Object log) {
+            this.eventType = eventType;
+            this.log = log;
+        }
+
+        public int getEventType() {
+            return eventType;
+        }
+
+        public Object getLog() {
+            return log;
+        }
+    }
+}
@@ -0,0 +1,521 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.jbpm.process.audit.AuditLogRecord;
+import org.jbpm.process.audit.strategy.PersistenceStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local, file based write ahead log of audit log records.
+ * <p>
+ * Every append stores records of one transaction as a single entry of the journal file
+ * (length, checksum, entry type and java serialized records) so they are either read back completely or not at all.
+ * Records can be appended as already committed ({@link #append(List)}) or as prepared ({@link #prepare(List)}) before
+ * the transaction completes - prepared entry is handed to the consumer only once its transaction outcome was recorded by
+ * {@link #commit(long)} or {@link #abort(long)}. Prepared entries without recorded outcome found when the journal is opened
+ * (crash after the entry was written) are in doubt and are considered committed. The same applies to prepared entries
+ * that are left without outcome for longer than org.jbpm.audit.journal.undecided.timeout (in milliseconds, 300000 by default)
+ * so they do not hold back all entries appended after them; such entries are listed by {@link #getUndecidedEntries()}
+ * and can also be decided explicitly by {@link #commit(long)} or {@link #abort(long)}.
+ * Consumer (see {@link AuditLogJournalWriter}) reads entries in the order they were appended and acknowledges
+ * them once they are stored in the database, acknowledged position is kept in a separate checkpoint file so
+ * entries not yet acknowledged are read again after restart. Delivery is at least once, entries that were written
+ * to the database but not acknowledged before a crash will be written again.
+ * <p>
+ * Incomplete entry at the end of the journal (e.g. after a crash while appending) is discarded when the journal
+ * is opened. Once all entries are acknowledged and the journal grew over the compaction threshold it is truncated.
+ */
+public class AuditLogJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogJournal.class);
+
+    public static final String JOURNAL_FILE_NAME = "audit-log.journal";
+    public static final String CHECKPOINT_FILE_NAME = "audit-log.checkpoint";
+
+    private static final int HEADER_SIZE = 12;
+    
+    private static final byte COMMITTED_ENTRY = 0;
+    private static final byte PREPARED_ENTRY = 1;
+    private static final byte COMMIT_MARKER = 2;
+    private static final byte ABORT_MARKER = 3;
+    
+    private static final long WRITER_STOP_TIMEOUT = Long.parseLong(System.getProperty("org.jbpm.audit.journal.stop.timeout", "30000"));
+    private static final long DEFAULT_COMPACT_THRESHOLD = 1024 * 1024;
+
+    private long undecidedTimeout = Long.parseLong(System.getProperty("org.jbpm.audit.journal.undecided.timeout", "300000"));
+
+    private final File directory;
+    private final boolean sync;
+    private final long compactThreshold;
+
+    private RandomAccessFile journalFile;
+    private FileChannel journal;
+    private RandomAccessFile checkpointFile;
+
+    // position up to which entries are acknowledged
+    private long checkpoint;
+    // position up to which entries were handed to consumer
+    private long readPosition;
+    // end of the last complete entry
+    private long writePosition;
+
+    // recorded outcomes of prepared entries that are not acknowledged yet
+    private final TreeMap<Long, Boolean> outcomes = new TreeMap<Long, Boolean>();
+    // prepared entries without recorded outcome and the time (System.nanoTime) they were appended
+    private final TreeMap<Long, Long> undecided = new TreeMap<Long, Long>();
+
+    private AuditLogJournalWriter writer;
+    private boolean closed;
+
+    /**
+     * Opens (or creates) journal in given directory, appends are forced to disk before they return.
+     */
+    public AuditLogJournal(File directory) throws IOException {
+        this(directory, true, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    /**
+     * Opens (or creates) journal in given directory.
+     * @param directory directory to keep journal and checkpoint files in
+     * @param sync if true appends and acknowledges are forced to disk before they return
+     * @param compactThreshold size in bytes of fully acknowledged journal that makes it to be truncated
+     */
+    public AuditLogJournal(File directory, boolean sync, long compactThreshold) throws IOException {
+        this.directory = directory;
+        this.sync = sync;
+        this.compactThreshold = compactThreshold;
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create audit log journal directory " + directory);
+        }
+        this.journalFile = new RandomAccessFile(new File(directory, JOURNAL_FILE_NAME), "rw");
+        this.journal = journalFile.getChannel();
+        this.checkpointFile = new RandomAccessFile(new File(directory, CHECKPOINT_FILE_NAME), "rw");
+        recover();
+    }
+
+    /**
+     * Appends records of one already committed transaction to the journal.
+     */
+    public void append(List<AuditLogRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        write(serialize(COMMITTED_ENTRY, records), sync, null);
+    }
+
+    /**
+     * Appends records of one transaction that is about to complete. Records are not handed to the consumer
+     * until outcome of the transaction is recorded by {@link #commit(long)} or {@link #abort(long)}.
+     * @return identifier of the journal entry, -1 if there were no records to append
+     */
+    public long prepare(List<AuditLogRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return -1;
+        }
+        long entry = write(serialize(PREPARED_ENTRY, records), sync, null);
+        synchronized (this) {
+            if (!outcomes.containsKey(entry)) {
+                undecided.put(entry, System.nanoTime());
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Records that transaction of given prepared entry was committed. It does not need to be forced to disk
+     * as prepared entries without outcome are considered committed after restart. The outcome is taken into account
+     * by this journal instance even when the marker can not be written.
+     */
+    public void commit(long entry) throws IOException {
+        write(marker(COMMIT_MARKER, entry), false, entry);
+    }
+
+    /**
+     * Records that transaction of given prepared entry was rolled back so its records are never written.
+     * The outcome is taken into account by this journal instance even when the marker can not be written,
+     * though the entry is considered committed after restart in such case.
+     */
+    public void abort(long entry) throws IOException {
+        write(marker(ABORT_MARKER, entry), sync, entry);
+    }
+
+    private long write(byte[] data, boolean force, Long decidedEntry) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + data.length);
+        buffer.putInt(data.length);
+        buffer.putLong(crc.getValue());
+        buffer.put(data);
+        buffer.flip();
+
+        synchronized (this) {
+            ensureOpen();
+            if (decidedEntry != null) {
+                // recorded before the marker is written so a failed write does not leave the entry undecided
+                decide(decidedEntry, data[0] == COMMIT_MARKER);
+            }
+            try {
+                long start = writePosition;
+                long position = start;
+                while (buffer.hasRemaining()) {
+                    position += journal.write(buffer, position);
+                }
+                if (force) {
+                    journal.force(false);
+                }
+                writePosition = position;
+                return start;
+            } finally {
+                notifyAll();
+            }
+        }
+    }
+
+    private void decide(long entry, boolean committed) {
+        undecided.remove(entry);
+        if (entry < checkpoint) {
+            return;
+        }
+        Boolean previous = outcomes.put(entry, committed);
+        if (previous != null && previous != committed) {
+            logger.warn("Audit log journal entry at position {} in {} was already considered {}, now recorded as {}",
+                    entry, directory, previous ? "committed" : "rolled back", committed ? "committed" : "rolled back");
+        }
+    }
+
+    /**
+     * @return identifiers of prepared entries whose transaction outcome was not recorded yet
+     */
+    public synchronized List<Long> getUndecidedEntries() {
+        return new ArrayList<Long>(undecided.keySet());
+    }
+
+    /**
+     * Sets how long (in milliseconds) a prepared entry may stay without outcome before it is considered committed.
+     */
+    public synchronized void setUndecidedTimeout(long undecidedTimeout) {
+        this.undecidedTimeout = undecidedTimeout;
+    }
+
+    /**
+     * Reads entries that were not yet handed to consumer, waiting up to given time for new entries when there are none.
+     * @param maxEntries maximum number of journal entries (transactions) to read
+     * @return batch of records to be acknowledged once stored, empty if nothing was appended in given time
+     */
+    public synchronized Batch read(int maxEntries, long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        ensureOpen();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            List<AuditLogRecord> records = new ArrayList<AuditLogRecord>();
+            long position = readPosition;
+            int entries = 0;
+            while (position < writePosition && entries < maxEntries) {
+                byte[] data = readEntry(position, writePosition);
+                if (data == null) {
+                    throw new IOException("Corrupted audit log journal entry at position " + position);
+                }
+                if (data[0] == PREPARED_ENTRY) {
+                    Boolean committed = outcomes.get(position);
+                    if (committed == null && isUndecidedTimedOut(position)) {
+                        logger.warn("Outcome of transaction of audit log journal entry at position {} in {} was not recorded within {} ms, considering it committed",
+                                position, directory, undecidedTimeout);
+                        decide(position, true);
+                        committed = Boolean.TRUE;
+                    }
+                    if (committed == null) {
+                        // transaction still running, entries are handed out in order so wait for its outcome
+                        break;
+                    }
+                    if (committed) {
+                        records.addAll(deserialize(data));
+                        entries++;
+                    }
+                } else if (data[0] == COMMITTED_ENTRY) {
+                    records.addAll(deserialize(data));
+                    entries++;
+                }
+                // markers carry no records, they are only acknowledged together with other entries
+                position += HEADER_SIZE + data.length;
+            }
+            readPosition = position;
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (!records.isEmpty() || remaining <= 0) {
+                return new Batch(records, position);
+            }
+            wait(remaining);
+            ensureOpen();
+        }
+    }
+
+    private boolean isUndecidedTimedOut(long entry) {
+        Long preparedAt = undecided.get(entry);
+        if (preparedAt == null) {
+            // prepare() did not register it yet
+            return false;
+        }
+        return System.nanoTime() - preparedAt >= TimeUnit.MILLISECONDS.toNanos(undecidedTimeout);
+    }
+
+    /**
+     * Marks all entries up to the end of given batch as stored so they will not be read again.
+     */
+    public synchronized void acknowledge(Batch batch) throws IOException {
+        ensureOpen();
+        if (batch.getEndPosition() <= checkpoint) {
+            return;
+        }
+        if (batch.getEndPosition() == writePosition && readPosition == writePosition && writePosition >= compactThreshold) {
+            // everything was stored, start over with empty journal
+            journal.truncate(0);
+            writePosition = 0;
+            readPosition = 0;
+            outcomes.clear();
+            undecided.clear();
+            writeCheckpoint(0);
+            logger.debug("Audit log journal in {} compacted", directory);
+        } else {
+            writeCheckpoint(batch.getEndPosition());
+            outcomes.headMap(checkpoint).clear();
+            undecided.headMap(checkpoint).clear();
+        }
+    }
+
+    /**
+     * Makes entries that were read but not acknowledged available for reading again, e.g. when they failed to be stored.
+     */
+    public synchronized void reset() {
+        readPosition = checkpoint;
+    }
+
+    /**
+     * @return size in bytes of entries that are not acknowledged yet
+     */
+    public synchronized long getPendingSize() {
+        return writePosition - checkpoint;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Starts background writer that stores entries of this journal with given persistence strategy, unless one is
+     * running already. The writer is stopped when the journal is closed.
+     */
+    public synchronized AuditLogJournalWriter startWriter(PersistenceStrategy persistenceStrategy) {
+        if (writer == null) {
+            writer = new AuditLogJournalWriter(this, persistenceStrategy);
+        }
+        writer.start();
+        return writer;
+    }
+
+    public synchronized AuditLogJournalWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Closes the journal, writer started by {@link #startWriter(PersistenceStrategy)} is given time
+     * (org.jbpm.audit.journal.stop.timeout - default 30000 ms) to store pending entries first.
+     */
+    public void close() {
+        AuditLogJournalWriter current;
+        synchronized (this) {
+            current = writer;
+            writer = null;
+        }
+        if (current != null) {
+            // outside of the lock as the writer needs it to drain the journal
+            current.stop(WRITER_STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        closeJournal();
+    }
+
+    private synchronized void closeJournal() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        notifyAll();
+        try {
+            journal.close();
+            journalFile.close();
+            checkpointFile.close();
+        } catch (IOException e) {
+            logger.warn("Error when closing audit log journal in {}", directory, e);
+        }
+    }
+
+    protected void recover() throws IOException {
+        if (checkpointFile.length() >= 8) {
+            checkpointFile.seek(0);
+            checkpoint = checkpointFile.readLong();
+        }
+        long size = journal.size();
+        if (checkpoint > size) {
+            logger.warn("Audit log journal checkpoint {} is beyond end of journal {}, all entries are considered acknowledged", checkpoint, size);
+            checkpoint = size;
+        }
+        long position = checkpoint;
+        byte[] data;
+        Set<Long> inDoubt = new LinkedHashSet<Long>();
+        while (position < size && (data = readEntry(position, size)) != null) {
+            if (data[0] == PREPARED_ENTRY) {
+                inDoubt.add(position);
+            } else if (data[0] == COMMIT_MARKER || data[0] == ABORT_MARKER) {
+                long entry = ByteBuffer.wrap(data, 1, 8).getLong();
+                if (entry >= checkpoint) {
+                    outcomes.put(entry, data[0] == COMMIT_MARKER);
+                    inDoubt.remove(entry);
+                }
+            }
+            position += HEADER_SIZE + data.length;
+        }
+        for (Long entry : inDoubt) {
+            logger.warn("Outcome of transaction of audit log journal entry at position {} in {} is unknown, considering it committed", entry, directory);
+            outcomes.put(entry, Boolean.TRUE);
+        }
+        if (position < size) {
+            logger.warn("Discarding incomplete audit log journal entry at position {} in {}", position, directory);
+            journal.truncate(position);
+        }
+        writePosition = position;
+        readPosition = checkpoint;
+        logger.debug("Audit log journal in {} opened with {} bytes pending", directory, writePosition - checkpoint);
+    }
+
+    private byte[] readEntry(long position, long limit) throws IOException {
+        if (position + HEADER_SIZE > limit) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, position);
+        header.flip();
+        int length = header.getInt();
+        long checksum = header.getLong();
+        if (length < 0 || position + HEADER_SIZE + length > limit) {
+            return null;
+        }
+        ByteBuffer data = ByteBuffer.allocate(length);
+        readFully(data, position + HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(data.array());
+        if (crc.getValue() != checksum) {
+            return null;
+        }
+        return data.array();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = journal.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of audit log journal at position " + position);
+            }
+            position += read;
+        }
+    }
+
+    private void writeCheckpoint(long position) throws IOException {
+        checkpointFile.seek(0);
+        checkpointFile.writeLong(position);
+        if (sync) {
+            checkpointFile.getChannel().force(false);
+        }
+        checkpoint = position;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Audit log journal in " + directory + " is closed");
+        }
+    }
+
+    private byte[] marker(byte type, long entry) {
+        return ByteBuffer.allocate(9).put(type).putLong(entry).array();
+    }
+
+    protected byte[] serialize(byte type, List<AuditLogRecord> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(type);
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        try {
+            out.writeObject(new ArrayList<AuditLogRecord>(records));
+        } finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected List<AuditLogRecord> deserialize(byte[] data) throws IOException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data, 1, data.length - 1));
+        try {
+            return (List<AuditLogRecord>) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to read audit log journal entry", e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Records read from the journal together with the position that acknowledges them.
+     */
+    public static class Batch {
+
+        private final List<AuditLogRecord> records;
+        private final long endPosition;
+
+        Batch(List<AuditLogRecord> records, long endPosition) {
+            this.records = records;
+            this.endPosition = endPosition;
+        }
+
+        public List<AuditLogRecord> getRecords() {
+            return records;
+        }
+
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+
+        long getEndPosition() {
+            return endPosition;
+        }
+    }
+}
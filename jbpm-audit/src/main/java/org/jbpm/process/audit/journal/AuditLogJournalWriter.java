@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit.journal;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Status;
+import javax.transaction.UserTransaction;
+
+import org.jbpm.process.audit.AuditLogRecord;
+import org.jbpm.process.audit.strategy.PersistenceStrategy;
+import org.jbpm.process.audit.strategy.StandaloneJtaStrategy;
+import org.jbpm.process.audit.strategy.StandaloneLocalStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background writer that moves audit log records from {@link AuditLogJournal} to the database.
+ * <p>
+ * Records are written in batches - each batch is stored in its own transaction started through given
+ * {@link PersistenceStrategy} (standalone JTA or standalone local) and acknowledged in the journal only after
+ * the transaction committed. Batches that fail are rolled back and retried after a delay, so audit logs are never
+ * lost but are delayed until the database is available again. Usually started by
+ * {@link AuditLogJournal#startWriter(PersistenceStrategy)} which also stops it when the journal is closed.
+ * <p>
+ * Supported system properties:
+ * <ul>
+ *  <li>org.jbpm.audit.journal.batch.size - maximum number of journal entries (transactions) written at once - default 100</li>
+ *  <li>org.jbpm.audit.journal.poll.interval - how long (in milliseconds) to wait for new entries - default 1000</li>
+ *  <li>org.jbpm.audit.journal.retry.delay - delay (in milliseconds) before failed batch is retried - default 5000</li>
+ * </ul>
+ */
+public class AuditLogJournalWriter implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogJournalWriter.class);
+
+    private final AuditLogJournal journal;
+    private final PersistenceStrategy persistenceStrategy;
+
+    private int batchSize = Integer.parseInt(System.getProperty("org.jbpm.audit.journal.batch.size", "100"));
+    private long pollInterval = Long.parseLong(System.getProperty("org.jbpm.audit.journal.poll.interval", "1000"));
+    private long retryDelay = Long.parseLong(System.getProperty("org.jbpm.audit.journal.retry.delay", "5000"));
+
+    private volatile boolean active;
+    private Thread thread;
+
+    public AuditLogJournalWriter(AuditLogJournal journal, PersistenceStrategy persistenceStrategy) {
+        if (!(persistenceStrategy instanceof StandaloneJtaStrategy) && !(persistenceStrategy instanceof StandaloneLocalStrategy)) {
+            throw new IllegalArgumentException("Audit log journal writer requires standalone JTA or standalone local persistence strategy, got " + persistenceStrategy);
+        }
+        this.journal = journal;
+        this.persistenceStrategy = persistenceStrategy;
+    }
+
+    public synchronized void start() {
+        if (active) {
+            return;
+        }
+        active = true;
+        thread = new Thread(this, "jbpm-audit-log-journal-writer");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Audit log journal writer started for journal in {}", journal.getDirectory());
+    }
+
+    /**
+     * Stops the writer once all entries appended so far are written or given time elapsed.
+     */
+    public void stop(long timeout, TimeUnit unit) {
+        Thread current;
+        synchronized (this) {
+            if (!active) {
+                return;
+            }
+            active = false;
+            current = thread;
+            thread = null;
+        }
+        try {
+            current.join(unit.toMillis(timeout));
+            if (current.isAlive()) {
+                current.interrupt();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Audit log journal writer stopped for journal in {}", journal.getDirectory());
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                // keep draining the journal when stopped, stop only once it is empty
+                AuditLogJournal.Batch batch = journal.read(batchSize, active ? pollInterval : 0, TimeUnit.MILLISECONDS);
+                if (batch.isEmpty()) {
+                    // batch might still cover entries without records (e.g. rolled back transactions)
+                    journal.acknowledge(batch);
+                    if (!active) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    write(batch.getRecords());
+                    journal.acknowledge(batch);
+                } catch (Exception e) {
+                    logger.error("Unable to write {} audit log records, will retry in {} ms", batch.getRecords().size(), retryDelay, e);
+                    journal.reset();
+                    if (!active) {
+                        return;
+                    }
+                    Thread.sleep(retryDelay);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Unexpected error when reading audit log journal in {}, writer stopped", journal.getDirectory(), e);
+                active = false;
+                return;
+            }
+        }
+    }
+
+    protected void write(List<AuditLogRecord> records) throws Exception {
+        EntityManager em = persistenceStrategy.getEntityManager();
+        Object tx = persistenceStrategy.joinTransaction(em);
+        try {
+            if (!(tx instanceof UserTransaction) && !(persistenceStrategy instanceof StandaloneLocalStrategy)) {
+                throw new IllegalStateException("Audit log journal writer must not run within already active transaction");
+            }
+            for (AuditLogRecord record : records) {
+                record.apply(em);
+            }
+            em.flush();
+            // committed here instead of leaving the transaction to the strategy as it would only log commit failures
+            if (tx instanceof UserTransaction) {
+                ((UserTransaction) tx).commit();
+            } else {
+                em.getTransaction().commit();
+            }
+        } catch (Exception e) {
+            rollback(em, tx);
+            throw e;
+        } finally {
+            em.close();
+        }
+        logger.debug("Written {} audit log records from journal", records.size());
+    }
+
+    protected void rollback(EntityManager em, Object tx) {
+        try {
+            if (tx instanceof UserTransaction) {
+                UserTransaction ut = (UserTransaction) tx;
+                if (ut.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                    ut.rollback();
+                }
+            } else if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        } catch (Exception e) {
+            logger.warn("Unable to roll back transaction of failed audit log batch", e);
+        }
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setPollInterval(long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public void setRetryDelay(long retryDelay) {
+        this.retryDelay = retryDelay;
+    }
+}
@@ -166,4 +166,13 @@ public abstract class AbstractAuditDeleteBuilderImpl<T> extends AbstractDeleteBu
             }
         };
     }
+
+    /**
+     * Builds delete operation that removes matching entries in batches of given size, each batch in separate
+     * transaction, instead of single bulk delete statement.
+     */
+    public ChunkedAuditDelete buildChunked(int recordsPerTransaction) {
+        return new ChunkedAuditDelete(getJpaAuditLogService(), getQueryBase(), new QueryWhere(getQueryWhere()),
+                getSubQuery(), recordsPerTransaction);
+    }
 }
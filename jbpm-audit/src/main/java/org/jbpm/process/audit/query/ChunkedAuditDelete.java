@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit.query;
+
+import java.util.List;
+
+import org.jbpm.process.audit.JPAAuditLogService;
+import org.jbpm.query.jpa.data.QueryWhere;
+import org.kie.internal.query.ParametrizedUpdate;
+
+/**
+ * Delete operation that removes matching entries in bounded batches, each in its own transaction (unless
+ * there is already a transaction active). Entries are walked in id order so the operation can be stopped
+ * at any time - when given deadline passes - and later resumed from the last removed id (see {@link #getLastId()}
+ * and {@link #resumeAfter(Long)}).
+ * <p>
+ * Note that entries with id lower than the resume point that start to match the criteria afterwards
+ * (e.g. process instance completed in the meantime) are only removed by a run that starts from the beginning.
+ */
+public class ChunkedAuditDelete implements ParametrizedUpdate {
+
+    private final JPAAuditLogService jpaAuditLogService;
+    private final String queryBase;
+    private final QueryWhere queryWhere;
+    private final String subQuery;
+    private final int recordsPerTransaction;
+
+    private long deadline = Long.MAX_VALUE;
+    private Long lastId;
+
+    private long deleted;
+    private long duration;
+    private boolean completed;
+
+    public ChunkedAuditDelete(JPAAuditLogService jpaAuditLogService, String queryBase, QueryWhere queryWhere,
+            String subQuery, int recordsPerTransaction) {
+        if (recordsPerTransaction <= 0) {
+            throw new IllegalArgumentException("Records per transaction must be positive but was " + recordsPerTransaction);
+        }
+        this.jpaAuditLogService = jpaAuditLogService;
+        this.queryBase = queryBase;
+        this.queryWhere = queryWhere;
+        this.subQuery = subQuery;
+        this.recordsPerTransaction = recordsPerTransaction;
+    }
+
+    /**
+     * Continues removal after entry with given id (the value of {@link #getLastId()} of previous, incomplete run).
+     */
+    public ChunkedAuditDelete resumeAfter(Long lastId) {
+        this.lastId = lastId;
+        return this;
+    }
+
+    /**
+     * Time (in milliseconds, as given by <code>System.currentTimeMillis()</code>) after which no new batch is started.
+     */
+    public ChunkedAuditDelete deadline(long deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    @Override
+    public int execute() {
+        long start = System.currentTimeMillis();
+        completed = false;
+        int result = 0;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                List<Long> ids = jpaAuditLogService.doPartialDelete(queryBase, new QueryWhere(queryWhere), subQuery, lastId, recordsPerTransaction);
+                if (!ids.isEmpty()) {
+                    result += ids.size();
+                    lastId = ids.get(ids.size() - 1);
+                }
+                if (ids.size() < recordsPerTransaction) {
+                    completed = true;
+                    lastId = null;
+                    break;
+                }
+            }
+        } finally {
+            deleted += result;
+            duration += System.currentTimeMillis() - start;
+        }
+        return result;
+    }
+
+    /**
+     * Returns id of the last removed entry when the operation did not complete, null otherwise.
+     */
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public long getRowsPerSecond() {
+        return deleted * 1000 / Math.max(duration, 1);
+    }
+}
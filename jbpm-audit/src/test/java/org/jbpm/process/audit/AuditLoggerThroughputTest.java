@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit;
+
+import static org.jbpm.persistence.util.PersistenceUtil.JBPM_PERSISTENCE_UNIT_NAME;
+import static org.jbpm.persistence.util.PersistenceUtil.cleanUp;
+import static org.jbpm.persistence.util.PersistenceUtil.createEnvironment;
+import static org.jbpm.persistence.util.PersistenceUtil.setupWithPoolingDataSource;
+import static org.jbpm.process.audit.AbstractAuditLogServiceTest.createKieSession;
+import static org.jbpm.process.audit.AbstractWorkingMemoryDbLoggerTest.createKnowledgeBase;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.drools.core.impl.EnvironmentFactory;
+import org.jbpm.process.audit.journal.AuditLogJournal;
+import org.jbpm.process.audit.journal.AuditLogJournalWriter;
+import org.jbpm.process.audit.strategy.PersistenceStrategyType;
+import org.jbpm.process.instance.impl.demo.SystemOutWorkItemHandler;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kie.api.KieBase;
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.EnvironmentName;
+import org.kie.api.runtime.KieSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares throughput of the direct, buffered and journaled modes of {@link JPAWorkingMemoryDbLogger}.
+ */
+public class AuditLoggerThroughputTest extends AbstractBaseTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLoggerThroughputTest.class);
+
+    private static final int WARMUP = 20;
+    private static final int INSTANCES = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HashMap<String, Object> context;
+    private AuditLogService logService;
+    private KieBase kbase;
+
+    @Before
+    public void setUp() throws Exception {
+        context = setupWithPoolingDataSource(JBPM_PERSISTENCE_UNIT_NAME);
+        Environment env = EnvironmentFactory.newEnvironment();
+        env.set(EnvironmentName.ENTITY_MANAGER_FACTORY, context.get(EnvironmentName.ENTITY_MANAGER_FACTORY));
+        logService = new JPAAuditLogService(env);
+        kbase = createKnowledgeBase();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        logService.clear();
+        logService.dispose();
+        cleanUp(context);
+    }
+
+    @Test(timeout = 300000)
+    public void testThroughput() throws Exception {
+        KieSession ksession = newSession();
+        new JPAWorkingMemoryDbLogger(ksession);
+        run(ksession, WARMUP);
+        logService.clear();
+
+        long direct = run(ksession, INSTANCES);
+        assertLogs();
+        ksession.dispose();
+
+        ksession = newSession();
+        JPAWorkingMemoryDbLogger bufferedLogger = new JPAWorkingMemoryDbLogger(ksession);
+        bufferedLogger.setBuffered(true);
+        run(ksession, WARMUP);
+        logService.clear();
+
+        long buffered = run(ksession, INSTANCES);
+        assertLogs();
+        ksession.dispose();
+
+        AuditLogJournal journal = new AuditLogJournal(folder.getRoot());
+        try {
+            ksession = newSession();
+            JPAWorkingMemoryDbLogger journaledLogger = new JPAWorkingMemoryDbLogger(ksession);
+            journaledLogger.setJournal(journal);
+            AuditLogJournalWriter writer = journal.startWriter(PersistenceStrategyType.getPersistenceStrategy(
+                    PersistenceStrategyType.STANDALONE_JTA, (EntityManagerFactory) context.get(EnvironmentName.ENTITY_MANAGER_FACTORY)));
+            writer.setPollInterval(50);
+            run(ksession, WARMUP);
+            awaitJournal(journal);
+            logService.clear();
+
+            long journaled = run(ksession, INSTANCES);
+            long start = System.nanoTime();
+            awaitJournal(journal);
+            long drained = System.nanoTime() - start;
+            assertLogs();
+            ksession.dispose();
+
+            logger.info("{} process instances - direct: {} ms, buffered: {} ms, journaled: {} ms (+{} ms until written)",
+                    INSTANCES, TimeUnit.NANOSECONDS.toMillis(direct), TimeUnit.NANOSECONDS.toMillis(buffered),
+                    TimeUnit.NANOSECONDS.toMillis(journaled), TimeUnit.NANOSECONDS.toMillis(drained));
+        } finally {
+            // stops the writer too
+            journal.close();
+        }
+    }
+
+    private KieSession newSession() {
+        KieSession ksession = createKieSession(kbase, createEnvironment(context));
+        ksession.getWorkItemManager().registerWorkItemHandler("Human Task", new SystemOutWorkItemHandler());
+        return ksession;
+    }
+
+    private long run(KieSession ksession, int instances) {
+        long start = System.nanoTime();
+        for (int i = 0; i < instances; i++) {
+            ksession.startProcess("com.sample.ruleflow");
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void awaitJournal(AuditLogJournal journal) throws InterruptedException {
+        while (journal.getPendingSize() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void assertLogs() {
+        List<ProcessInstanceLog> processInstances = logService.findProcessInstances("com.sample.ruleflow");
+        assertEquals(INSTANCES, processInstances.size());
+        for (ProcessInstanceLog processInstance : processInstances) {
+            assertNotNull(processInstance.getEnd());
+            assertEquals(6, logService.findNodeInstances(processInstance.getProcessInstanceId()).size());
+        }
+    }
+}
@@ -32,6 +32,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.Message;
@@ -440,6 +441,113 @@ public class AsyncAuditLogProducerTest extends AbstractBaseTest {
         assertTrue(processInstances.isEmpty());
     }
     
+    @Test
+    public void testAsyncAuditProducerBinary() throws Exception {
+        Environment env = createEnvironment(context);
+        // load the process
+        KieBase kbase = createKnowledgeBase();
+        // create a new session
+        KieSession session = createSession(kbase, env);
+
+        Map<String, Object> jmsProps = new HashMap<String, Object>();
+        jmsProps.put("jbpm.audit.jms.transacted", false);
+        jmsProps.put("jbpm.audit.jms.binary", true);
+        jmsProps.put("jbpm.audit.jms.connection.factory", jmsServer.lookup("ConnectionFactory"));
+        jmsProps.put("jbpm.audit.jms.queue", queue);
+        AbstractAuditLogger logger = AuditLoggerFactory.newInstance(Type.JMS, session, jmsProps);
+        assertNotNull(logger);
+        assertTrue(((AsyncAuditLogProducer) logger).isBinary());
+
+        // start process instance twice, each in its own transaction
+        session.startProcess("com.sample.ruleflow");
+        session.startProcess("com.sample.ruleflow");
+        ((AsyncAuditLogProducer) logger).dispose();
+        
+        MessageReceiver receiver = new MessageReceiver();
+        List<Message> messages = receiver.receive(queue);
+        assertNotNull(messages);
+        // all events of a transaction are sent as single message
+        assertEquals(2, messages.size());
+        for (Message message : messages) {
+            assertTrue(message instanceof BytesMessage);
+            assertTrue(message.getIntProperty("EventCount") > 1);
+        }
+    }
+    
+    @Test
+    public void testAsyncAuditProducerBinaryTransactionalWithRollback() throws Exception {
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        ut.begin();
+        Environment env = createEnvironment(context);
+        // load the process
+        KieBase kbase = createKnowledgeBase();
+        // create a new session
+        KieSession session = createSession(kbase, env);
+        
+        Map<String, Object> jmsProps = new HashMap<String, Object>();
+        jmsProps.put("jbpm.audit.jms.transacted", true);
+        jmsProps.put("jbpm.audit.jms.binary", true);
+        jmsProps.put("jbpm.audit.jms.connection.factory", factory);
+        jmsProps.put("jbpm.audit.jms.queue", queue);
+        AbstractAuditLogger logger = AuditLoggerFactory.newInstance(Type.JMS, session, jmsProps);
+        assertNotNull(logger);
+
+        session.startProcess("com.sample.ruleflow");
+        
+        ut.rollback();
+        
+        MessageReceiver receiver = new MessageReceiver();
+        List<Message> messages = receiver.receive(queue);
+        assertNotNull(messages);
+        assertEquals(0, messages.size());
+    }
+    
+    @Test
+    public void testAsyncAuditLoggerCompleteBinary() throws Exception {
+        Environment env = createEnvironment(context);
+        // load the process
+        KieBase kbase = createKnowledgeBase();
+        // create a new session
+        KieSession session = createSession(kbase, env);
+        
+        Map<String, Object> jmsProps = new HashMap<String, Object>();
+        jmsProps.put("jbpm.audit.jms.transacted", true);
+        jmsProps.put("jbpm.audit.jms.binary", true);
+        jmsProps.put("jbpm.audit.jms.connection.factory", factory);
+        jmsProps.put("jbpm.audit.jms.queue", queue);
+        AbstractAuditLogger logger = AuditLoggerFactory.newInstance(Type.JMS, session, jmsProps);
+        assertNotNull(logger);
+
+        List<String> names = new LinkedList<String>();
+        names.add("john");
+        names.add("mary");
+        names.add("peter");
+        
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("list", names);
+
+        // start process instance
+        ProcessInstance processInstance = session.startProcess("com.sample.ruleflow3", params);
+        
+        MessageReceiver receiver = new MessageReceiver();
+        receiver.receiveAndProcess(queue, ((EntityManagerFactory)env.get(EnvironmentName.ENTITY_MANAGER_FACTORY)));
+     
+        // validate if everything is stored in db
+        AuditLogService logService = new JPAAuditLogService(env);
+        List<ProcessInstanceLog> processInstances = logService.findProcessInstances("com.sample.ruleflow3");
+        assertEquals(1, processInstances.size());
+        assertNotNull(processInstances.get(0).getEnd());
+        List<NodeInstanceLog> nodeInstances = logService.findNodeInstances(processInstance.getId());
+        assertEquals(12, nodeInstances.size());
+        List<VariableInstanceLog> variables = logService.findVariableInstances(processInstance.getId());
+        assertEquals(8, variables.size());
+        
+        logService.clear();
+        processInstances = logService.findProcessInstances("com.sample.ruleflow3");
+        logService.dispose();
+        assertTrue(processInstances.isEmpty());
+    }
+    
     public KieSession createSession(KieBase kbase, Environment env) {
         
         KieSession session = createKieSession(kbase, env);
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import org.jbpm.process.audit.AbstractAuditLogger;
+import org.jbpm.process.audit.NodeInstanceLog;
+import org.jbpm.process.audit.ProcessInstanceLog;
+import org.jbpm.process.audit.VariableInstanceLog;
+import org.junit.Test;
+
+public class AuditLogCodecTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ProcessInstanceLog processInstanceLog = new ProcessInstanceLog(10, "org.jbpm.codec");
+        processInstanceLog.setStatus(1);
+        processInstanceLog.setParentProcessInstanceId(5);
+        processInstanceLog.setProcessName("Codec");
+        processInstanceLog.setProcessVersion("1.0");
+        processInstanceLog.setIdentity("john");
+        processInstanceLog.setCorrelationKey("codec-10");
+        processInstanceLog.setProcessType(1);
+        processInstanceLog.setExternalId("deployment");
+        processInstanceLog.setProcessInstanceDescription("description with \u017elu\u0165ou\u010dk\u00fd k\u016f\u0148");
+
+        NodeInstanceLog nodeInstanceLog = new NodeInstanceLog(NodeInstanceLog.TYPE_ENTER, 10, "org.jbpm.codec", "1", "_1", "Task");
+        nodeInstanceLog.setNodeType("HumanTaskNode");
+        nodeInstanceLog.setWorkItemId(3L);
+        nodeInstanceLog.setConnection("_1-_2");
+        nodeInstanceLog.setNodeContainerId("_0");
+
+        VariableInstanceLog variableInstanceLog = new VariableInstanceLog(10, "org.jbpm.codec", "var", "var", "new", null);
+
+        List<AuditLogCodec.Entry> entries = new ArrayList<AuditLogCodec.Entry>();
+        entries.add(new AuditLogCodec.Entry(AbstractAuditLogger.BEFORE_START_EVENT_TYPE, processInstanceLog));
+        entries.add(new AuditLogCodec.Entry(AbstractAuditLogger.BEFORE_NODE_ENTER_EVENT_TYPE, nodeInstanceLog));
+        entries.add(new AuditLogCodec.Entry(AbstractAuditLogger.AFTER_VAR_CHANGE_EVENT_TYPE, variableInstanceLog));
+
+        List<AuditLogCodec.Entry> decoded = AuditLogCodec.decode(AuditLogCodec.encode(entries));
+        assertEquals(3, decoded.size());
+
+        assertEquals(AbstractAuditLogger.BEFORE_START_EVENT_TYPE, decoded.get(0).getEventType());
+        ProcessInstanceLog pil = (ProcessInstanceLog) decoded.get(0).getLog();
+        assertEquals(10L, pil.getProcessInstanceId().longValue());
+        assertEquals("org.jbpm.codec", pil.getProcessId());
+        assertEquals(processInstanceLog.getStart(), pil.getStart());
+        assertNull(pil.getEnd());
+        assertEquals(Integer.valueOf(1), pil.getStatus());
+        assertEquals(Long.valueOf(5), pil.getParentProcessInstanceId());
+        assertEquals("Codec", pil.getProcessName());
+        assertEquals("1.0", pil.getProcessVersion());
+        assertEquals("john", pil.getIdentity());
+        assertEquals("codec-10", pil.getCorrelationKey());
+        assertEquals(Integer.valueOf(1), pil.getProcessType());
+        assertEquals("deployment", pil.getExternalId());
+        assertEquals(processInstanceLog.getProcessInstanceDescription(), pil.getProcessInstanceDescription());
+        assertNull(pil.getDuration());
+
+        assertEquals(AbstractAuditLogger.BEFORE_NODE_ENTER_EVENT_TYPE, decoded.get(1).getEventType());
+        NodeInstanceLog nil = (NodeInstanceLog) decoded.get(1).getLog();
+        assertEquals(Integer.valueOf(NodeInstanceLog.TYPE_ENTER), nil.getType());
+        assertEquals("1", nil.getNodeInstanceId());
+        assertEquals("_1", nil.getNodeId());
+        assertEquals("Task", nil.getNodeName());
+        assertEquals("HumanTaskNode", nil.getNodeType());
+        assertEquals(Long.valueOf(3), nil.getWorkItemId());
+        assertEquals("_1-_2", nil.getConnection());
+        assertEquals("_0", nil.getNodeContainerId());
+        assertNull(nil.getReferenceId());
+        assertEquals(nodeInstanceLog.getDate(), nil.getDate());
+
+        assertEquals(AbstractAuditLogger.AFTER_VAR_CHANGE_EVENT_TYPE, decoded.get(2).getEventType());
+        VariableInstanceLog vil = (VariableInstanceLog) decoded.get(2).getLog();
+        assertEquals("var", vil.getVariableId());
+        assertEquals("var", vil.getVariableInstanceId());
+        assertEquals("new", vil.getValue());
+        assertNull(vil.getOldValue());
+        assertEquals(variableInstanceLog.getDate(), vil.getDate());
+    }
+
+    @Test
+    public void testCustomLogNotSupported() throws Exception {
+        assertFalse(AuditLogCodec.isSupported(new CustomVariableLog()));
+        List<AuditLogCodec.Entry> entries = new ArrayList<AuditLogCodec.Entry>();
+        entries.add(new AuditLogCodec.Entry(AbstractAuditLogger.AFTER_VAR_CHANGE_EVENT_TYPE, new CustomVariableLog()));
+        try {
+            AuditLogCodec.encode(entries);
+            fail("Custom log should not be encoded");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSerializedObjectRejected() throws Exception {
+        // serialized object that is not an audit log, written as the removed java serialization entry kind
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        ObjectOutputStream objectOut = new ObjectOutputStream(serialized);
+        objectOut.writeObject(new HashMap<String, String>());
+        objectOut.close();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(AuditLogCodec.FORMAT_VERSION);
+        out.writeInt(1);
+        out.writeInt(AbstractAuditLogger.AFTER_VAR_CHANGE_EVENT_TYPE);
+        out.writeByte(4);
+        out.writeInt(serialized.size());
+        serialized.writeTo(out);
+        out.flush();
+
+        try {
+            AuditLogCodec.decode(bytes.toByteArray());
+            fail("Serialized content should be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Unknown audit log type"));
+        }
+    }
+
+    public static class CustomVariableLog extends VariableInstanceLog {
+
+        private static final long serialVersionUID = 1L;
+
+        public CustomVariableLog() {
+            super(1, "org.jbpm.codec", "custom", "custom", "custom", null);
+            setDate(new Date());
+        }
+    }
+}
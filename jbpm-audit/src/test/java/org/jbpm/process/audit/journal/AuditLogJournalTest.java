@@ -0,0 +1,235 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jbpm.process.audit.AuditLogRecord;
+import org.jbpm.process.audit.AuditLogRecord.Operation;
+import org.jbpm.process.audit.NodeInstanceLog;
+import org.jbpm.process.audit.ProcessInstanceLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AuditLogJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendReadAndAcknowledge() throws Exception {
+        AuditLogJournal journal = new AuditLogJournal(folder.getRoot());
+        try {
+            journal.append(records(1, 3));
+            journal.append(records(2, 2));
+
+            AuditLogJournal.Batch batch = journal.read(10, 0, TimeUnit.MILLISECONDS);
+            assertEquals(5, batch.getRecords().size());
+            assertEquals(Long.valueOf(1), ((ProcessInstanceLog) batch.getRecords().get(0).getEntity()).getProcessInstanceId());
+            assertEquals(Operation.PERSIST, batch.getRecords().get(1).getOperation());
+            assertTrue(journal.getPendingSize() > 0);
+
+            // nothing new to read
+            assertTrue(journal.read(10, 10, TimeUnit.MILLISECONDS).isEmpty());
+
+            journal.acknowledge(batch);
+            assertEquals(0, journal.getPendingSize());
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testPreparedEntriesWaitForOutcome() throws Exception {
+        AuditLogJournal journal = new AuditLogJournal(folder.getRoot());
+        try {
+            long first = journal.prepare(records(1, 1));
+            journal.append(records(2, 1));
+            // entries are handed out in order, so nothing is available until the first transaction completes
+            assertTrue(journal.read(10, 10, TimeUnit.MILLISECONDS).isEmpty());
+
+            journal.commit(first);
+            AuditLogJournal.Batch batch = journal.read(10, 0, TimeUnit.MILLISECONDS);
+            assertEquals(4, batch.getRecords().size());
+            assertEquals(Long.valueOf(1), ((ProcessInstanceLog) batch.getRecords().get(0).getEntity()).getProcessInstanceId());
+            journal.acknowledge(batch);
+
+            long rolledBack = journal.prepare(records(3, 1));
+            journal.abort(rolledBack);
+            batch = journal.read(10, 0, TimeUnit.MILLISECONDS);
+            assertTrue(batch.isEmpty());
+            journal.acknowledge(batch);
+            assertEquals(0, journal.getPendingSize());
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testPreparedEntryWithoutOutcomeConsideredCommittedAfterRestart() throws Exception {
+        AuditLogJournal journal = new AuditLogJournal(folder.getRoot());
+        journal.prepare(records(1, 1));
+        journal.abort(journal.prepare(records(2, 1)));
+        journal.close();
+
+        journal = new AuditLogJournal(folder.getRoot());
+        try {
+            AuditLogJournal.Batch batch = journal.read(10, 0, TimeUnit.MILLISECONDS);
+            assertEquals(2, batch.getRecords().size());
+            assertEquals(Long.valueOf(1), ((ProcessInstanceLog) batch.getRecords().get(0).getEntity()).getProcessInstanceId());
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testPreparedEntryWithoutOutcomeConsideredCommittedAfterTimeout() throws Exception {
+        AuditLogJournal journal = new AuditLogJournal(folder.getRoot());
+        try {
+            long undecided = journal.prepare(records(1, 1));
+            journal.append(records(2, 1));
+            assertEquals(Arrays.asList(undecided), journal.getUndecidedEntries());
+            assertTrue(journal.read(10, 10, TimeUnit.MILLISECONDS).isEmpty());
+
+            journal.setUndecidedTimeout(0);
+            AuditLogJournal.Batch batch = journal.read(10, 0, TimeUnit.MILLISECONDS);
+            assertEquals(4, batch.getRecords().size());
+            assertTrue(journal.getUndecidedEntries().isEmpty());
+            journal.acknowledge(batch);
+            assertEquals(0, journal.getPendingSize());
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testReadLimitedByEntries() throws Exception {
+        AuditLogJournal journal = new AuditLogJournal(folder.getRoot());
+        try {
+            for (int i = 0; i < 5; i++) {
+                journal.append(records(i, 1));
+            }
+            assertEquals(4, journal.read(2, 0, TimeUnit.MILLISECONDS).getRecords().size());
+            assertEquals(4, journal.read(2, 0, TimeUnit.MILLISECONDS).getRecords().size());
+            assertEquals(2, journal.read(2, 0, TimeUnit.MILLISECONDS).getRecords().size());
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testResetReturnsUnacknowledgedEntries() throws Exception {
+        AuditLogJournal journal = new AuditLogJournal(folder.getRoot());
+        try {
+            journal.append(records(1, 1));
+            journal.acknowledge(journal.read(10, 0, TimeUnit.MILLISECONDS));
+            journal.append(records(2, 1));
+            assertEquals(2, journal.read(10, 0, TimeUnit.MILLISECONDS).getRecords().size());
+
+            journal.reset();
+            AuditLogJournal.Batch batch = journal.read(10, 0, TimeUnit.MILLISECONDS);
+            assertEquals(2, batch.getRecords().size());
+            assertEquals(Long.valueOf(2), ((ProcessInstanceLog) batch.getRecords().get(0).getEntity()).getProcessInstanceId());
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testUnacknowledgedEntriesSurviveRestart() throws Exception {
+        AuditLogJournal journal = new AuditLogJournal(folder.getRoot());
+        journal.append(records(1, 1));
+        journal.acknowledge(journal.read(10, 0, TimeUnit.MILLISECONDS));
+        journal.append(records(2, 1));
+        journal.read(10, 0, TimeUnit.MILLISECONDS);
+        journal.close();
+
+        journal = new AuditLogJournal(folder.getRoot());
+        try {
+            AuditLogJournal.Batch batch = journal.read(10, 0, TimeUnit.MILLISECONDS);
+            assertEquals(2, batch.getRecords().size());
+            assertEquals(Long.valueOf(2), ((ProcessInstanceLog) batch.getRecords().get(0).getEntity()).getProcessInstanceId());
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testIncompleteEntryDiscarded() throws Exception {
+        AuditLogJournal journal = new AuditLogJournal(folder.getRoot());
+        journal.append(records(1, 1));
+        journal.append(records(2, 1));
+        journal.close();
+
+        // simulate crash in the middle of the last append
+        File journalFile = new File(folder.getRoot(), AuditLogJournal.JOURNAL_FILE_NAME);
+        RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+        try {
+            file.setLength(file.length() - 10);
+        } finally {
+            file.close();
+        }
+
+        journal = new AuditLogJournal(folder.getRoot());
+        try {
+            AuditLogJournal.Batch batch = journal.read(10, 0, TimeUnit.MILLISECONDS);
+            assertEquals(2, batch.getRecords().size());
+            assertEquals(Long.valueOf(1), ((ProcessInstanceLog) batch.getRecords().get(0).getEntity()).getProcessInstanceId());
+
+            journal.append(records(3, 1));
+            batch = journal.read(10, 0, TimeUnit.MILLISECONDS);
+            assertEquals(Long.valueOf(3), ((ProcessInstanceLog) batch.getRecords().get(0).getEntity()).getProcessInstanceId());
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testCompactedWhenFullyAcknowledged() throws Exception {
+        AuditLogJournal journal = new AuditLogJournal(folder.getRoot(), false, 0);
+        try {
+            journal.append(records(1, 5));
+            journal.acknowledge(journal.read(10, 0, TimeUnit.MILLISECONDS));
+            assertEquals(0, new File(folder.getRoot(), AuditLogJournal.JOURNAL_FILE_NAME).length());
+
+            journal.append(records(2, 1));
+            assertEquals(2, journal.read(10, 0, TimeUnit.MILLISECONDS).getRecords().size());
+        } finally {
+            journal.close();
+        }
+    }
+
+    private List<AuditLogRecord> records(long processInstanceId, int nodes) {
+        List<AuditLogRecord> records = new ArrayList<AuditLogRecord>();
+        records.add(new AuditLogRecord(Operation.PERSIST, new ProcessInstanceLog(processInstanceId, "org.jbpm.journal")));
+        for (int i = 0; i < nodes; i++) {
+            NodeInstanceLog log = new NodeInstanceLog(NodeInstanceLog.TYPE_ENTER, processInstanceId, "org.jbpm.journal",
+                    String.valueOf(i), String.valueOf(i), "node" + i);
+            records.add(new AuditLogRecord(Operation.PERSIST, log));
+        }
+        return records;
+    }
+}
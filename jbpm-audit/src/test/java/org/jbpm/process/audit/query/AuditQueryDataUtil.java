@@ -20,6 +20,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Calendar;
+import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Random;
@@ -32,6 +33,7 @@ import org.jbpm.process.audit.NodeInstanceLog;
 import org.jbpm.process.audit.ProcessInstanceLog;
 import org.jbpm.process.audit.VariableInstanceLog;
 import org.jbpm.process.audit.strategy.StandaloneJtaStrategy;
+import org.kie.api.runtime.process.ProcessInstance;
 
 public class AuditQueryDataUtil {
     
@@ -252,6 +254,55 @@ public class AuditQueryDataUtil {
         return testData;
     }
 
+    /**
+     * Creates process instance logs with ids <code>1..numInstances</code> spread over <code>numProcesses</code> process ids,
+     * each with <code>nodesPerInstance</code> node instance logs. Odd process instances are completed, even ones are still active.
+     * Entries are persisted in batches so large data sets can be created.
+     */
+    static void createLargeTestData(EntityManagerFactory emf, int numInstances, int numProcesses, int nodesPerInstance) {
+        StandaloneJtaStrategy jtaHelper = new StandaloneJtaStrategy(emf);
+        int batchSize = Math.max(1000 / (nodesPerInstance + 1), 1);
+        for( int i = 1; i <= numInstances; i += batchSize ) {
+            EntityManager em = jtaHelper.getEntityManager();
+            Object tx = jtaHelper.joinTransaction(em);
+            for( int j = i; j < Math.min(i + batchSize, numInstances + 1); ++j ) {
+                String processId = "org.jbpm.test." + (j % numProcesses);
+                ProcessInstanceLog pil = new ProcessInstanceLog(j, processId);
+                if( j % 2 == 1 ) {
+                    pil.setStatus(ProcessInstance.STATE_COMPLETED);
+                    pil.setEnd(new Date());
+                } else {
+                    pil.setStatus(ProcessInstance.STATE_ACTIVE);
+                }
+                em.persist(pil);
+                for( int k = 0; k < nodesPerInstance; ++k ) {
+                    em.persist(new NodeInstanceLog(NodeInstanceLog.TYPE_ENTER, j, processId, String.valueOf(k), "_" + k, "node" + k));
+                }
+            }
+            jtaHelper.leaveTransaction(em, tx);
+        }
+    }
+
+    static long countEntities(EntityManagerFactory emf, Class<?> entity) {
+        StandaloneJtaStrategy jtaHelper = new StandaloneJtaStrategy(emf);
+        EntityManager em = jtaHelper.getEntityManager();
+        try {
+            return (Long) em.createQuery("SELECT COUNT(l) FROM " + entity.getSimpleName() + " l").getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    static void clearTables(EntityManagerFactory emf, Class<?>... entities) {
+        StandaloneJtaStrategy jtaHelper = new StandaloneJtaStrategy(emf);
+        EntityManager em = jtaHelper.getEntityManager();
+        Object tx = jtaHelper.joinTransaction(em);
+        for( Class<?> entity : entities ) {
+            em.createQuery("DELETE FROM " + entity.getSimpleName()).executeUpdate();
+        }
+        jtaHelper.leaveTransaction(em, tx);
+    }
+
     static int MAX = 2;
     static int MIN = 1;
     static int BOTH = 0;
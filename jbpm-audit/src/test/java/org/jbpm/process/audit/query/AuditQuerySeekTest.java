@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit.query;
+
+import static org.jbpm.persistence.util.PersistenceUtil.JBPM_PERSISTENCE_UNIT_NAME;
+import static org.jbpm.persistence.util.PersistenceUtil.cleanUp;
+import static org.jbpm.persistence.util.PersistenceUtil.setupWithPoolingDataSource;
+import static org.jbpm.process.audit.query.AuditQueryDataUtil.clearTables;
+import static org.jbpm.process.audit.query.AuditQueryDataUtil.createLargeTestData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.kie.api.runtime.EnvironmentName.ENTITY_MANAGER_FACTORY;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.jbpm.process.audit.JPAAuditLogService;
+import org.jbpm.process.audit.ProcessInstanceLog;
+import org.jbpm.process.audit.strategy.StandaloneJtaStrategy;
+import org.jbpm.query.jpa.data.QueryContinuation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.internal.runtime.manager.audit.query.AuditLogQueryBuilder.OrderBy;
+import org.kie.internal.runtime.manager.audit.query.ProcessInstanceLogQueryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares offset and keyset ("seek") pagination over a large audit table.
+ */
+public class AuditQuerySeekTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditQuerySeekTest.class);
+
+    private static final int PAGE_SIZE = 3;
+    private static final int DEEP_PAGE = 10000;
+    private static final int INSTANCES = PAGE_SIZE * DEEP_PAGE + PAGE_SIZE;
+    private static final int PROCESSES = 10;
+    private static final int REPETITIONS = 20;
+
+    private HashMap<String, Object> context;
+    private EntityManagerFactory emf;
+    private JPAAuditLogService auditLogService;
+
+    @Before
+    public void setUp() throws Exception {
+        context = setupWithPoolingDataSource(JBPM_PERSISTENCE_UNIT_NAME);
+        emf = (EntityManagerFactory) context.get(ENTITY_MANAGER_FACTORY);
+        auditLogService = new JPAAuditLogService(emf);
+        long start = System.currentTimeMillis();
+        createLargeTestData(emf, INSTANCES, PROCESSES, 0);
+        logger.debug("Created {} process instance logs in {} ms", INSTANCES, System.currentTimeMillis() - start);
+    }
+
+    @After
+    public void cleanup() {
+        clearTables(emf, ProcessInstanceLog.class);
+        cleanUp(context);
+    }
+
+    @Test
+    public void testSeekVisitsAllEntriesInOrder() {
+        // many entries share the same process id, so the order is only unique with the id
+        assertEquals((INSTANCES + 999) / 1000, seekThroughAll(true, 1000));
+        assertEquals((INSTANCES + 999) / 1000, seekThroughAll(false, 1000));
+    }
+
+    @Test
+    public void testSeekWithNullSortKeys() {
+        StandaloneJtaStrategy jtaHelper = new StandaloneJtaStrategy(emf);
+        EntityManager em = jtaHelper.getEntityManager();
+        Object tx = jtaHelper.joinTransaction(em);
+        em.createQuery("UPDATE ProcessInstanceLog l SET l.processId = null WHERE l.processInstanceId <= 2500").executeUpdate();
+        jtaHelper.leaveTransaction(em, tx);
+
+        // pages start and end among the null values as well as on the boundary between null and non null values
+        seekThroughAll(true, 1000);
+        seekThroughAll(false, 1000);
+        seekThroughAll(true, 2500);
+        seekThroughAll(false, INSTANCES - 2500);
+    }
+
+    /*
+     * Walks over all entries ordered by process id using continuation tokens, checks that each entry is returned
+     * exactly once and in order (null process ids first when ascending) and returns the number of pages.
+     */
+    private int seekThroughAll(boolean ascending, int pageSize) {
+        Set<Long> seen = new HashSet<Long>();
+        ProcessInstanceLog previous = null;
+        String token = null;
+        int pages = 0;
+        while( true ) {
+            ProcessInstanceLogQueryBuilder queryBuilder = auditLogService.processInstanceLogQuery().maxResults(pageSize);
+            queryBuilder = ascending ? queryBuilder.ascending(OrderBy.processId) : queryBuilder.descending(OrderBy.processId);
+            if( token != null ) {
+                ((ProcInstLogQueryBuilderImpl) queryBuilder).seekAfter(token);
+            }
+            List<org.kie.api.runtime.manager.audit.ProcessInstanceLog> page = queryBuilder.build().getResultList();
+            if( page.isEmpty() ) {
+                break;
+            }
+            ++pages;
+            for( org.kie.api.runtime.manager.audit.ProcessInstanceLog log : page ) {
+                ProcessInstanceLog current = (ProcessInstanceLog) log;
+                assertTrue( "Returned twice: " + log, seen.add(current.getId()) );
+                if( previous != null ) {
+                    int order = compareProcessIds(previous.getProcessId(), current.getProcessId());
+                    assertTrue( "Out of order: " + previous + ", " + current, ascending ? order <= 0 : order >= 0 );
+                }
+                previous = current;
+            }
+            token = new QueryContinuation(previous.getProcessId(), previous.getId()).toToken();
+        }
+        assertEquals(INSTANCES, seen.size());
+        return pages;
+    }
+
+    private static int compareProcessIds(String first, String second) {
+        if( first == null || second == null ) {
+            return first == second ? 0 : first == null ? -1 : 1;
+        }
+        return first.compareTo(second);
+    }
+
+    @Test
+    public void testDeepPageCost() {
+        // find the last entry of the page preceding the deep page
+        ProcessInstanceLog previous = (ProcessInstanceLog) processInstanceIdQuery()
+                .offset(DEEP_PAGE * PAGE_SIZE - 1)
+                .maxResults(1)
+                .build().getResultList().get(0);
+
+        List<org.kie.api.runtime.manager.audit.ProcessInstanceLog> offsetPage = offsetPage(DEEP_PAGE);
+        List<org.kie.api.runtime.manager.audit.ProcessInstanceLog> seekPage = seekPage(previous);
+        assertEquals(PAGE_SIZE, seekPage.size());
+        for( int i = 0; i < PAGE_SIZE; ++i ) {
+            assertEquals(offsetPage.get(i).getProcessInstanceId(), seekPage.get(i).getProcessInstanceId());
+        }
+
+        ProcessInstanceLog first = (ProcessInstanceLog) offsetPage(0).get(0);
+        long offsetFirst = 0, offsetDeep = 0, seekFirst = 0, seekDeep = 0;
+        for( int i = 0; i < REPETITIONS; ++i ) {
+            long start = System.nanoTime();
+            offsetPage(1);
+            offsetFirst += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            offsetPage(DEEP_PAGE);
+            offsetDeep += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            seekPage(first);
+            seekFirst += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            seekPage(previous);
+            seekDeep += System.nanoTime() - start;
+        }
+        logger.info("Average page cost over {} entries - offset: page 1 {} us, page {} {} us; seek: page 1 {} us, page {} {} us",
+                INSTANCES,
+                TimeUnit.NANOSECONDS.toMicros(offsetFirst / REPETITIONS), DEEP_PAGE, TimeUnit.NANOSECONDS.toMicros(offsetDeep / REPETITIONS),
+                TimeUnit.NANOSECONDS.toMicros(seekFirst / REPETITIONS), DEEP_PAGE, TimeUnit.NANOSECONDS.toMicros(seekDeep / REPETITIONS));
+    }
+
+    private ProcessInstanceLogQueryBuilder processInstanceIdQuery() {
+        return auditLogService.processInstanceLogQuery().ascending(OrderBy.processInstanceId);
+    }
+
+    private List<org.kie.api.runtime.manager.audit.ProcessInstanceLog> offsetPage(int page) {
+        return processInstanceIdQuery()
+                .offset(page * PAGE_SIZE)
+                .maxResults(PAGE_SIZE)
+                .build().getResultList();
+    }
+
+    private List<org.kie.api.runtime.manager.audit.ProcessInstanceLog> seekPage(ProcessInstanceLog previous) {
+        ProcessInstanceLogQueryBuilder queryBuilder = processInstanceIdQuery().maxResults(PAGE_SIZE);
+        ((ProcInstLogQueryBuilderImpl) queryBuilder).seekAfter(previous.getProcessInstanceId(), previous.getId());
+        return queryBuilder.build().getResultList();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit.query;
+
+import static org.jbpm.persistence.util.PersistenceUtil.JBPM_PERSISTENCE_UNIT_NAME;
+import static org.jbpm.persistence.util.PersistenceUtil.cleanUp;
+import static org.jbpm.persistence.util.PersistenceUtil.setupWithPoolingDataSource;
+import static org.jbpm.process.audit.query.AuditQueryDataUtil.clearTables;
+import static org.jbpm.process.audit.query.AuditQueryDataUtil.countEntities;
+import static org.jbpm.process.audit.query.AuditQueryDataUtil.createLargeTestData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.kie.api.runtime.EnvironmentName.ENTITY_MANAGER_FACTORY;
+
+import java.util.HashMap;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.jbpm.process.audit.JPAAuditLogService;
+import org.jbpm.process.audit.NodeInstanceLog;
+import org.jbpm.process.audit.ProcessInstanceLog;
+import org.jbpm.query.jpa.data.QueryWhere;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.runtime.process.ProcessInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ChunkedAuditDeleteTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedAuditDeleteTest.class);
+
+    private static final int INSTANCES = 200;
+    private static final int NODES_PER_INSTANCE = 100;
+    private static final int PROCESSES = 10;
+    private static final int COMPLETED_NODES = INSTANCES / 2 * NODES_PER_INSTANCE;
+
+    private HashMap<String, Object> context;
+    private EntityManagerFactory emf;
+
+    @Before
+    public void setUp() throws Exception {
+        context = setupWithPoolingDataSource(JBPM_PERSISTENCE_UNIT_NAME);
+        emf = (EntityManagerFactory) context.get(ENTITY_MANAGER_FACTORY);
+        long start = System.currentTimeMillis();
+        // odd process instances are completed, even ones are still active
+        createLargeTestData(emf, INSTANCES, PROCESSES, NODES_PER_INSTANCE);
+        logger.debug("Created {} node instance logs in {} ms", INSTANCES * NODES_PER_INSTANCE, System.currentTimeMillis() - start);
+    }
+
+    @After
+    public void cleanup() {
+        clearTables(emf, NodeInstanceLog.class, ProcessInstanceLog.class);
+        cleanUp(context);
+    }
+
+    @Test
+    public void testChunkedDeleteOfCompletedInstances() {
+        JPAAuditLogService auditLogService = new JPAAuditLogService(emf);
+
+        ChunkedAuditDelete delete = new NodeInstanceLogDeleteBuilderImpl(auditLogService).buildChunked(1000);
+        assertEquals(COMPLETED_NODES, delete.execute());
+        assertTrue(delete.isCompleted());
+        assertNull(delete.getLastId());
+        logger.info("Removed {} node instance logs in {} ms ({} rows/s)", delete.getDeleted(), delete.getDuration(), delete.getRowsPerSecond());
+
+        assertEquals(INSTANCES * NODES_PER_INSTANCE - COMPLETED_NODES, countNodeInstanceLogs());
+        assertEquals(0, auditLogService.nodeInstanceLogQuery().processInstanceId(1).build().getResultList().size());
+        assertEquals(NODES_PER_INSTANCE, auditLogService.nodeInstanceLogQuery().processInstanceId(2).build().getResultList().size());
+
+        // nothing left to remove
+        assertEquals(0, new NodeInstanceLogDeleteBuilderImpl(auditLogService).buildChunked(1000).execute());
+    }
+
+    @Test
+    public void testChunkedDeleteWithCriteria() {
+        JPAAuditLogService auditLogService = new JPAAuditLogService(emf);
+
+        int removed = ((NodeInstanceLogDeleteBuilderImpl) new NodeInstanceLogDeleteBuilderImpl(auditLogService)
+                .processInstanceId(1, 2, 3))
+                .buildChunked(7)
+                .execute();
+        // instance 2 is still active
+        assertEquals(2 * NODES_PER_INSTANCE, removed);
+        assertEquals(INSTANCES * NODES_PER_INSTANCE - removed, countNodeInstanceLogs());
+    }
+
+    @Test
+    public void testDeadlineAndResume() {
+        JPAAuditLogService auditLogService = new JPAAuditLogService(emf);
+
+        ChunkedAuditDelete delete = new NodeInstanceLogDeleteBuilderImpl(auditLogService).buildChunked(100)
+                .deadline(System.currentTimeMillis() - 1);
+        assertEquals(0, delete.execute());
+        assertFalse(delete.isCompleted());
+        assertNull(delete.getLastId());
+
+        // fail in the middle of the run - batches removed so far stay removed
+        final int[] batches = new int[1];
+        JPAAuditLogService failingService = new JPAAuditLogService(emf) {
+            @Override
+            public List<Long> doPartialDelete(String queryBase, QueryWhere queryData, String subQuery, Long afterId, int recordsPerTransaction) {
+                if (++batches[0] > 5) {
+                    throw new IllegalStateException("Simulated failure");
+                }
+                return super.doPartialDelete(queryBase, queryData, subQuery, afterId, recordsPerTransaction);
+            }
+        };
+        delete = new NodeInstanceLogDeleteBuilderImpl(failingService).buildChunked(100);
+        try {
+            delete.execute();
+            fail("Delete should fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(500, delete.getDeleted());
+        assertFalse(delete.isCompleted());
+        Long checkpoint = delete.getLastId();
+        assertNotNull(checkpoint);
+        assertEquals(INSTANCES * NODES_PER_INSTANCE - 500, countNodeInstanceLogs());
+
+        delete = new NodeInstanceLogDeleteBuilderImpl(auditLogService).buildChunked(100).resumeAfter(checkpoint);
+        assertEquals(COMPLETED_NODES - 500, delete.execute());
+        assertTrue(delete.isCompleted());
+        assertEquals(INSTANCES * NODES_PER_INSTANCE - COMPLETED_NODES, countNodeInstanceLogs());
+    }
+
+    @Test
+    public void testClear() {
+        JPAAuditLogService auditLogService = new JPAAuditLogService(emf);
+        auditLogService.clear();
+
+        assertEquals(INSTANCES * NODES_PER_INSTANCE - COMPLETED_NODES, countNodeInstanceLogs());
+        assertEquals(INSTANCES / 2, auditLogService.processInstanceLogQuery().build().getResultList().size());
+        assertEquals(0, auditLogService.processInstanceLogQuery().status(ProcessInstance.STATE_COMPLETED).build().getResultList().size());
+    }
+
+    private long countNodeInstanceLogs() {
+        return countEntities(emf, NodeInstanceLog.class);
+    }
+}
@@ -16,15 +16,12 @@
 
 package org.jbpm.bpmn2.xpath;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathFactory;
 
 import org.drools.core.process.instance.WorkItem;
 import org.jbpm.process.instance.impl.AssignmentAction;
+import org.jbpm.process.instance.impl.XPATHSupport;
 import org.jbpm.workflow.core.node.Assignment;
 import org.kie.api.runtime.process.ProcessContext;
 import org.w3c.dom.Attr;
@@ -40,6 +37,8 @@ public class XPATHAssignmentAction implements AssignmentAction {
 	private Assignment assignment;
 	private boolean isInput;
 	
+	private final ThreadLocal<XPathExpression[]> compiled = new ThreadLocal<XPathExpression[]>();
+	
 	public XPATHAssignmentAction(Assignment assignment, String sourceExpr, String targetExpr, boolean isInput) {
 		this.assignment = assignment;
 		this.sourceExpr = sourceExpr;
@@ -51,14 +50,14 @@ public class XPATHAssignmentAction implements AssignmentAction {
         String from = assignment.getFrom();
         String to = assignment.getTo();
         
-        XPathFactory factory = XPathFactory.newInstance();
-        XPath xpathFrom = factory.newXPath();
-
-        XPathExpression exprFrom = xpathFrom.compile(from);
-
-        XPath xpathTo = factory.newXPath();
-
-        XPathExpression exprTo = xpathTo.compile(to);
+        XPathExpression[] expressions = compiled.get();
+        if (expressions == null) {
+            // compiled expressions are not thread safe, compile once per thread
+            expressions = new XPathExpression[] {XPATHSupport.newXPath().compile(from), XPATHSupport.newXPath().compile(to)};
+            compiled.set(expressions);
+        }
+        XPathExpression exprFrom = expressions[0];
+        XPathExpression exprTo = expressions[1];
 
         Object target = null;
         Object source = null;
@@ -93,8 +92,7 @@ public class XPATHAssignmentAction implements AssignmentAction {
         if (source instanceof org.w3c.dom.Node) {
              nl = (NodeList) exprFrom.evaluate(source, XPathConstants.NODESET);
         } else if (source instanceof String) {
-            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-            Document doc = builder.newDocument();
+            Document doc = XPATHSupport.newDocument();
             //quirky: create a temporary element, use its nodelist
             Element temp = doc.createElementNS(null, "temp");
             temp.appendChild(doc.createTextNode((String) source));
@@ -115,8 +113,7 @@ public class XPATHAssignmentAction implements AssignmentAction {
                 } else if (nl.item(i) instanceof Text) {
                     targetElem = ((Text) nl.item(i)).getWholeText();
                 } else {
-                    DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-                    Document doc = builder.newDocument();
+                    Document doc = XPATHSupport.newDocument();
                     targetElem  = doc.importNode(nl.item(i), true);
                 }
                 target = targetElem;
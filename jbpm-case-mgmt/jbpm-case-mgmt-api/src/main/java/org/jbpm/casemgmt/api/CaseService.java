@@ -101,6 +101,21 @@ public interface CaseService {
      */
     CaseInstance getCaseInstance(String caseId, boolean withData, boolean withRoles, boolean withMilestones, boolean withStages) throws CaseNotFoundException;
 
+    /**
+     * Returns case instance (only if it's active) identified by given case id with options on what should be fetched. As opposed to
+     * {@link #getCaseInstance(String, boolean, boolean, boolean, boolean)} it is read from the case audit logs only - with fixed number of queries
+     * and without accessing the case runtime engine. Thus case file contains only data recorded in case file data log (data added to the case
+     * file via this service) in their string representation and it is a read only view that must not be used to modify the case.
+     * @param caseId unique case id in the format PREFIX-GENERATED_ID as described on startCase method
+     * @param withData determines if case file data should be loaded
+     * @param withRoles determines if role assignments should be loaded
+     * @param withMilestones determines if milestones should be loaded
+     * @param withStages determines with stages should be loaded
+     * @return returns current snapshot of CaseInstance
+     * @throws CaseNotFoundException thrown in case case was not found with given id
+     */
+    CaseInstance getCaseInstanceSnapshot(String caseId, boolean withData, boolean withRoles, boolean withMilestones, boolean withStages) throws CaseNotFoundException;
+
     /**
      * Cancels case with given case id (including all attached process instances if any).
      * Does not affect case file so in case it can still be used to reopen the case by starting new instances.
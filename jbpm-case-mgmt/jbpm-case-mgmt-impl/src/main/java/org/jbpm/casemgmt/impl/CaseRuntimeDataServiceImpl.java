@@ -30,6 +30,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -350,6 +351,19 @@ public class CaseRuntimeDataServiceImpl implements CaseRuntimeDataService, Deplo
                                                                                                 Arrays.asList("MilestoneNode"), 
                                                                                                 queryContext);
         
+        CaseDefinition caseDef = achievedOnly ? null : getCase(pi.getDeploymentId(), pi.getProcessId());
+        List<CaseMilestoneInstance> milestones = buildCaseMilestones(caseDef, nodes, achievedOnly);
+        
+        return applyPagination(milestones, queryContext);
+    }
+
+    /**
+     * Builds milestone instances from milestone node instances of the case
+     * @param caseDef case definition used to add not yet triggered milestones, not used when <code>achievedOnly</code> is set
+     * @param nodes node instances of milestone nodes
+     * @param achievedOnly determines if only achieved milestones should be returned
+     */
+    public static List<CaseMilestoneInstance> buildCaseMilestones(CaseDefinition caseDef, Collection<org.jbpm.services.api.model.NodeInstanceDesc> nodes, boolean achievedOnly) {
         Collection<Long> completedNodes = nodes.stream().filter(n -> ((NodeInstanceDesc)n).getType() == 1).map(n -> n.getId()).collect(toList());
         Predicate<org.jbpm.services.api.model.NodeInstanceDesc> filterNodes = null;
         if (achievedOnly) {            
@@ -369,14 +383,13 @@ public class CaseRuntimeDataServiceImpl implements CaseRuntimeDataService, Deplo
         
         if (!achievedOnly) {
             // add other milestones that are present in the definition
-            CaseDefinition caseDef = getCase(pi.getDeploymentId(), pi.getProcessId());
             caseDef.getCaseMilestones().stream()
             .filter(cm -> !foundMilestones.contains(cm.getName()))
             .map(cm -> new CaseMilestoneInstanceImpl(cm.getId(), cm.getName(), false, null))
             .forEach(cmi -> milestones.add(cmi));
         }
         
-        return applyPagination(milestones, queryContext);
+        return milestones;
     }
 
     @Override
@@ -616,6 +629,19 @@ public class CaseRuntimeDataServiceImpl implements CaseRuntimeDataService, Deplo
                                                                                             Arrays.asList(ProcessInstance.STATE_ACTIVE), 
                                                                                             Arrays.asList("DynamicNode"), 
                                                                                             queryContext);
+
+        return buildCaseStages(caseDef, nodes, activeOnly, stageId -> getActiveNodesForCaseAndStage(caseId, stageId, new QueryContext(0, 100)));
+    }
+
+    /**
+     * Builds stage instances from dynamic node instances of the case
+     * @param caseDef case definition the stages belong to
+     * @param nodes node instances of dynamic nodes
+     * @param activeOnly determines if only active stages should be returned
+     * @param activeNodesOfStage provides active node instances of a stage identified by its id
+     */
+    public static List<CaseStageInstance> buildCaseStages(CaseDefinition caseDef, Collection<org.jbpm.services.api.model.NodeInstanceDesc> nodes, boolean activeOnly,
+                                                          Function<String, Collection<org.jbpm.services.api.model.NodeInstanceDesc>> activeNodesOfStage) {
         Collection<Long> completedNodes = nodes.stream().filter(n -> ((NodeInstanceDesc)n).getType() == 1).map(n -> n.getId()).collect(toList());
         
         Map<String, CaseStage> stagesByName = caseDef.getCaseStages().stream()
@@ -637,7 +663,7 @@ public class CaseRuntimeDataServiceImpl implements CaseRuntimeDataService, Deplo
             if (completedNodes.contains(((NodeInstanceDesc)n).getId())) {
                 status = StageStatus.Completed;
             }
-            Collection<org.jbpm.services.api.model.NodeInstanceDesc> activeNodes = getActiveNodesForCaseAndStage(caseId, n.getNodeId(), new QueryContext(0, 100));
+            Collection<org.jbpm.services.api.model.NodeInstanceDesc> activeNodes = activeNodesOfStage.apply(n.getNodeId());
             return new CaseStageInstanceImpl(n.getNodeId(), n.getName(), stagesByName.get(n.getNodeId()).getAdHocFragments(), activeNodes, status);
             })
         .forEach(csi -> {
@@ -21,8 +21,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.drools.core.ClassObjectFilter;
@@ -45,6 +47,8 @@ import org.jbpm.casemgmt.api.model.instance.CaseRoleInstance;
 import org.jbpm.casemgmt.api.model.instance.CaseStageInstance;
 import org.jbpm.casemgmt.api.model.instance.CommentInstance;
 import org.jbpm.casemgmt.api.model.instance.CommentSortBy;
+import org.jbpm.casemgmt.impl.audit.CaseFileDataLog;
+import org.jbpm.casemgmt.impl.audit.CaseRoleAssignmentLog;
 import org.jbpm.casemgmt.impl.command.AddDataCaseFileInstanceCommand;
 import org.jbpm.casemgmt.impl.command.AddDynamicProcessCommand;
 import org.jbpm.casemgmt.impl.command.AddDynamicProcessToStageCommand;
@@ -61,11 +65,13 @@ import org.jbpm.casemgmt.impl.dynamic.WorkItemTaskSpecification;
 import org.jbpm.casemgmt.impl.event.CaseEventSupport;
 import org.jbpm.casemgmt.impl.model.instance.CaseFileInstanceImpl;
 import org.jbpm.casemgmt.impl.model.instance.CaseInstanceImpl;
+import org.jbpm.casemgmt.impl.model.instance.CaseRoleInstanceImpl;
 import org.jbpm.runtime.manager.impl.PerCaseRuntimeManager;
 import org.jbpm.services.api.DeploymentService;
 import org.jbpm.services.api.ProcessInstanceNotFoundException;
 import org.jbpm.services.api.ProcessService;
 import org.jbpm.services.api.RuntimeDataService;
+import org.jbpm.services.api.model.NodeInstanceDesc;
 import org.jbpm.services.api.model.ProcessInstanceDesc;
 import org.jbpm.services.api.service.ServiceRegistry;
 import org.jbpm.shared.services.impl.TransactionalCommandService;
@@ -80,6 +86,7 @@ import org.kie.api.task.model.OrganizationalEntity;
 import org.kie.api.task.model.User;
 import org.kie.internal.KieInternalServices;
 import org.kie.internal.identity.IdentityProvider;
+import org.kie.internal.process.CorrelationKey;
 import org.kie.internal.process.CorrelationKeyFactory;
 import org.kie.internal.runtime.manager.context.CaseContext;
 import org.kie.internal.runtime.manager.context.ProcessInstanceIdContext;
@@ -226,6 +233,91 @@ public class CaseServiceImpl implements CaseService {
         }
     }    
 
+    @Override
+    public CaseInstance getCaseInstanceSnapshot(String caseId, boolean withData, boolean withRoles, boolean withMilestones, boolean withStages) throws CaseNotFoundException {
+        authorizationManager.checkAuthorization(caseId);
+        // only active cases are found
+        CaseInstanceImpl caseInstance = (CaseInstanceImpl) caseRuntimeDataService.getCaseInstanceById(caseId);
+        CaseDefinition caseDef = caseRuntimeDataService.getCase(caseInstance.getDeploymentId(), caseInstance.getCaseDefinitionId());
+
+        CorrelationKey correlationKey = correlationKeyFactory.newCorrelationKey(caseId);
+        // each type has its own limit, same as when milestones and stages are loaded separately
+        if (withMilestones) {
+            Collection<NodeInstanceDesc> milestoneNodes = runtimeDataService.getNodeInstancesByCorrelationKeyNodeType(correlationKey,
+                                                                                                                      Arrays.asList(ProcessInstance.STATE_ACTIVE),
+                                                                                                                      Arrays.asList("MilestoneNode"),
+                                                                                                                      new org.kie.internal.query.QueryContext(0, 100));
+            List<CaseMilestoneInstance> milestones = CaseRuntimeDataServiceImpl.buildCaseMilestones(caseDef, milestoneNodes, false);
+            caseInstance.setCaseMilestones(milestones.size() > 100 ? new ArrayList<>(milestones.subList(0, 100)) : milestones);
+        }
+        if (withStages) {
+            Collection<NodeInstanceDesc> stageNodes = runtimeDataService.getNodeInstancesByCorrelationKeyNodeType(correlationKey,
+                                                                                                                  Arrays.asList(ProcessInstance.STATE_ACTIVE),
+                                                                                                                  Arrays.asList("DynamicNode"),
+                                                                                                                  new org.kie.internal.query.QueryContext(0, 100));
+            Map<String, List<NodeInstanceDesc>> activeNodesByStage = getActiveNodesByStage(caseId, stageNodes);
+            List<CaseStageInstance> stages = CaseRuntimeDataServiceImpl.buildCaseStages(caseDef, stageNodes, true,
+                                                                                        stageId -> activeNodesByStage.getOrDefault(stageId, new ArrayList<>()));
+            caseInstance.setCaseStages(stages.size() > 100 ? new ArrayList<>(stages.subList(0, 100)) : stages);
+        }
+
+        Map<String, CaseRoleInstance> roles = null;
+        if (withRoles) {
+            authorizationManager.checkOperationAuthorization(caseId, ProtectedOperation.MODIFY_ROLE_ASSIGNMENT);
+            roles = internalGetCaseRoleAssignments(caseId, caseDef);
+            caseInstance.setCaseRoles(roles.values());
+        }
+        if (withData) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("caseId", caseId);
+            List<CaseFileDataLog> dataLogs = commandService.execute(new QueryNameCommand<List<CaseFileDataLog>>("getCaseFileDataForCase", params));
+
+            Map<String, Object> data = new HashMap<>();
+            dataLogs.forEach(dataLog -> data.put(dataLog.getItemName(), dataLog.getItemValue()));
+
+            CaseFileInstanceImpl caseFile = new CaseFileInstanceImpl(caseId, caseInstance.getCaseDefinitionId(), data);
+            caseFile.setCaseStartDate(caseInstance.getStartedAt());
+            if (roles != null) {
+                caseFile.setRolesAssignments(roles);
+            }
+            caseInstance.setCaseFile(caseFile);
+        }
+
+        return caseInstance;
+    }
+
+    /*
+     * Loads active nodes of all stages with single query bounded by 100 nodes per stage, stages that might
+     * have been cut off by that bound are loaded one by one
+     */
+    protected Map<String, List<NodeInstanceDesc>> getActiveNodesByStage(String caseId, Collection<NodeInstanceDesc> stageNodes) {
+        Map<String, List<NodeInstanceDesc>> activeNodesByStage = new HashMap<>();
+        Set<String> stageIds = stageNodes.stream().map(NodeInstanceDesc::getNodeId).collect(Collectors.toSet());
+        if (stageIds.isEmpty()) {
+            return activeNodesByStage;
+        }
+        int limit = stageIds.size() * 100;
+        Collection<NodeInstanceDesc> activeNodes = caseRuntimeDataService.getActiveNodesForCase(caseId, new org.kie.internal.query.QueryContext(0, limit));
+        for (NodeInstanceDesc activeNode : activeNodes) {
+            if (activeNode.getNodeContainerId() != null) {
+                List<NodeInstanceDesc> stageActiveNodes = activeNodesByStage.computeIfAbsent(activeNode.getNodeContainerId(), id -> new ArrayList<>());
+                if (stageActiveNodes.size() < 100) {
+                    stageActiveNodes.add(activeNode);
+                }
+            }
+        }
+        if (activeNodes.size() >= limit && caseRuntimeDataService instanceof CaseRuntimeDataServiceImpl) {
+            for (String stageId : stageIds) {
+                List<NodeInstanceDesc> stageActiveNodes = activeNodesByStage.get(stageId);
+                if (stageActiveNodes == null || stageActiveNodes.size() < 100) {
+                    activeNodesByStage.put(stageId, new ArrayList<>(((CaseRuntimeDataServiceImpl) caseRuntimeDataService)
+                            .getActiveNodesForCaseAndStage(caseId, stageId, new org.kie.internal.query.QueryContext(0, 100))));
+                }
+            }
+        }
+        return activeNodesByStage;
+    }
+
     @Override
     public void cancelCase(String caseId) throws CaseNotFoundException {
         authorizationManager.checkOperationAuthorization(caseId, ProtectedOperation.CANCEL_CASE);
@@ -612,6 +704,27 @@ public class CaseServiceImpl implements CaseService {
         processService.signalProcessInstance(pi.getId(), fragmentName, data);
     }
     
+    protected Map<String, CaseRoleInstance> internalGetCaseRoleAssignments(String caseId, CaseDefinition caseDef) {
+        Map<String, CaseRoleInstance> roles = new LinkedHashMap<>();
+        if (caseDef != null && caseDef.getCaseRoles() != null) {
+            caseDef.getCaseRoles().forEach(r -> roles.put(r.getName(), new CaseRoleInstanceImpl(r.getName(), r.getCardinality())));
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("caseId", caseId);
+        List<CaseRoleAssignmentLog> assignments = commandService.execute(new QueryNameCommand<List<CaseRoleAssignmentLog>>("getCaseRoleAssignmentsForCase", params));
+        for (CaseRoleAssignmentLog assignment : assignments) {
+            if ("*".equals(assignment.getRoleName())) {
+                // public access marker of cases without role assignments
+                continue;
+            }
+            CaseRoleInstance role = roles.computeIfAbsent(assignment.getRoleName(), name -> new CaseRoleInstanceImpl(name, (Integer) null));
+            // logs reflect assignments that were already accepted so cardinality is not checked again
+            OrganizationalEntity entity = assignment.getType() == 2 ? newGroup(assignment.getEntityId()) : newUser(assignment.getEntityId());
+            role.getRoleAssignments().add(entity);
+        }
+        return roles;
+    }
+
     /*
      * helper method
      */
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.casemgmt.impl.marshalling;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Marshalled parts (chunks) of a case file - role assignments, comments and each data item - as they were last
+ * written or read by <code>CaseFileInstanceMarshallingStrategy</code>. Kept with the case file instance between flushes
+ * so that parts that did not change are not marshalled again.
+ */
+public class CaseFileChunks {
+
+    // marks chunks serialized directly by the case file strategy, their content does not depend on any strategy context
+    static final String INLINE_MARSHALLER = "inline";
+
+    Chunk roles;
+    Chunk comments;
+    Map<String, Chunk> data = new HashMap<>();
+
+    /**
+     * Single marshalled part of the case file together with its version and the source (value or its signature)
+     * it was marshalled from.
+     */
+    static class Chunk {
+
+        private final String marshaller;
+        private final byte[] content;
+        private final int version;
+        private final Object source;
+
+        Chunk(String marshaller, byte[] content, int version, Object source) {
+            this.marshaller = marshaller;
+            this.content = content;
+            this.version = version;
+            this.source = source;
+        }
+
+        /**
+         * Creates chunk with given content - its version is increased only if the content differs from this chunk.
+         * Content of other strategies might refer to their context so it is always considered changed.
+         */
+        Chunk update(String marshaller, byte[] content, Object source) {
+            if (isInline() && INLINE_MARSHALLER.equals(marshaller) && Arrays.equals(content, this.content)) {
+                return new Chunk(marshaller, this.content, version, source);
+            }
+            return new Chunk(marshaller, content, version + 1, source);
+        }
+
+        boolean isInline() {
+            return INLINE_MARSHALLER.equals(marshaller);
+        }
+
+        String getMarshaller() {
+            return marshaller;
+        }
+
+        byte[] getContent() {
+            return content;
+        }
+
+        int getVersion() {
+            return version;
+        }
+
+        Object getSource() {
+            return source;
+        }
+    }
+}
@@ -16,17 +16,35 @@
 
 package org.jbpm.casemgmt.impl.marshalling;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
+import org.drools.core.common.DroolsObjectInputStream;
 import org.drools.core.marshalling.impl.ClassObjectMarshallingStrategyAcceptor;
 import org.drools.core.marshalling.impl.SerializablePlaceholderResolverStrategy;
 import org.drools.persistence.api.TransactionAware;
@@ -35,10 +53,18 @@ import org.jbpm.casemgmt.api.model.instance.CaseRoleInstance;
 import org.jbpm.casemgmt.api.model.instance.CommentInstance;
 import org.jbpm.casemgmt.impl.model.instance.CaseFileInstanceImpl;
 import org.kie.api.marshalling.ObjectMarshallingStrategy;
+import org.kie.api.task.model.OrganizationalEntity;
 import org.kie.internal.runtime.Cacheable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Marshals case file instance in segmented format - role assignments, comments and every data item are written
+ * as separate chunks with their own version. Role assignments, comments and immutable data items that would be handled
+ * by the default strategy are serialized inline, so their content does not depend on the strategy context of the write.
+ * Such chunks that did not change since the case file was last marshalled or unmarshalled are reused instead of being
+ * serialized again. Case files written as single serialized map (before segmented format was introduced) are still readable.
+ */
 public class CaseFileInstanceMarshallingStrategy implements ObjectMarshallingStrategy, TransactionAware, Cacheable {
 
     private static final Logger logger = LoggerFactory.getLogger(CaseFileInstanceMarshallingStrategy.class);
@@ -52,6 +78,14 @@ public class CaseFileInstanceMarshallingStrategy implements ObjectMarshallingStr
     private static final String CASE_COMMENTS_KEY = "CaseComments";
     private static final String CASE_DATA_KEY = "CaseData";
     
+    // first bytes of segmented case file content, legacy content is a non negative index into the strategy context
+    static final int SEGMENTED_FORMAT_MAGIC = 0xCA5EF11E;
+    static final int SEGMENTED_FORMAT_VERSION = 1;
+    
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(String.class, Boolean.class, Character.class,
+            Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class,
+            LocalDate.class, LocalTime.class, LocalDateTime.class, Instant.class, ZonedDateTime.class, OffsetDateTime.class));
+    
     private Map<String, ObjectMarshallingStrategy> marshallersByName = new LinkedHashMap<String, ObjectMarshallingStrategy>();
     
     private SerializablePlaceholderResolverStrategy caseFileMarshaller = new SerializablePlaceholderResolverStrategy(ClassObjectMarshallingStrategyAcceptor.DEFAULT);
@@ -118,41 +152,75 @@ public class CaseFileInstanceMarshallingStrategy implements ObjectMarshallingStr
     public byte[] marshal(Context context, ObjectOutputStream os, Object object) throws IOException {
         logger.debug("About to marshal {}", object);
         CaseFileInstanceImpl caseFile = (CaseFileInstanceImpl) object;
-        Map<String, Object> caseFileContent = new HashMap<>();
-        caseFileContent.put(CASE_ID_KEY, caseFile.getCaseId());
-        caseFileContent.put(CASE_DEF_ID_KEY, caseFile.getDefinitionId());
-        caseFileContent.put(CASE_START_KEY, caseFile.getCaseStartDate());
-        caseFileContent.put(CASE_END_KEY, caseFile.getCaseEndDate());
-        caseFileContent.put(CASE_REOPEN_KEY, caseFile.getCaseReopenDate());
-        caseFileContent.put(CASE_ROLE_ASSIGNMENTS_KEY, new HashMap<>(caseFile.getRolesAssignments()));
-        caseFileContent.put(CASE_COMMENTS_KEY, new ArrayList<>(caseFile.getComments()));
+        CaseFileChunks previous = caseFile.getMarshalledChunks();
+        CaseFileChunks chunks = new CaseFileChunks();
         
-        logger.debug("CaseFileContent before case file data is {}", caseFileContent);
+        // role assignments and comments are serialized inline, and again only when their signature changed
+        List<Object> rolesSignature = rolesSignature(caseFile.getRolesAssignments());
+        chunks.roles = previous == null ? null : previous.roles;
+        if (chunks.roles == null || !rolesSignature.equals(chunks.roles.getSource())) {
+            byte[] content = serialize(new HashMap<>(caseFile.getRolesAssignments()));
+            chunks.roles = newChunk(chunks.roles, CaseFileChunks.INLINE_MARSHALLER, content, rolesSignature);
+        }
+        List<Object> commentsSignature = commentsSignature(caseFile.getComments());
+        chunks.comments = previous == null ? null : previous.comments;
+        if (chunks.comments == null || !commentsSignature.equals(chunks.comments.getSource())) {
+            byte[] content = serialize(new ArrayList<>(caseFile.getComments()));
+            chunks.comments = newChunk(chunks.comments, CaseFileChunks.INLINE_MARSHALLER, content, commentsSignature);
+        }
         
-        List<SerializedContent> caseDataContent = new ArrayList<>();
-        caseFileContent.put(CASE_DATA_KEY, caseDataContent);
         // transform with various strategies data that belong to a case
         for (Entry<String, Object> dataEntry : caseFile.getData().entrySet()) {
+            Object value = dataEntry.getValue();
+            CaseFileChunks.Chunk chunk = previous == null ? null : previous.data.get(dataEntry.getKey());
+            if (chunk != null && chunk.isInline() && isUnchanged(value, chunk.getSource())) {
+                logger.debug("Object {} not changed since last marshal, reusing its content", value);
+                chunks.data.put(dataEntry.getKey(), chunk);
+                continue;
+            }
             byte[] content = null;
             String marshallerName = null;
-            logger.debug("About to find marshaller for {}", dataEntry.getValue());
+            logger.debug("About to find marshaller for {}", value);
             for (ObjectMarshallingStrategy marshaller : marshallersByName.values()) {
                 
-                if (marshaller.accept(dataEntry.getValue())) {
-                    content = marshaller.marshal(context, os, dataEntry.getValue());
-                    marshallerName = marshaller.getClass().getName();
-                    logger.debug("Object {} marshalled by {}", dataEntry.getValue(), marshallerName);
+                if (marshaller.accept(value)) {
+                    if (marshaller == caseFileMarshaller && isImmutable(value)) {
+                        // default strategy only keeps the value in the context of the current write, serialize it inline instead
+                        // so the content does not depend on that context and can be reused by following writes
+                        content = serialize(value);
+                        marshallerName = CaseFileChunks.INLINE_MARSHALLER;
+                    } else {
+                        content = marshaller.marshal(context, os, value);
+                        marshallerName = marshaller.getClass().getName();
+                    }
+                    logger.debug("Object {} marshalled by {}", value, marshallerName);
                     break;
                 }
             }
-              
-            SerializedContent serializedContent = new SerializedContent(marshallerName, dataEntry.getKey(), content);
-            caseDataContent.add(serializedContent);
-            logger.debug("Serialized content for object {} is {}", dataEntry.getValue(), serializedContent);
+            chunks.data.put(dataEntry.getKey(), newChunk(chunk, marshallerName, content, value));
+        }
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SEGMENTED_FORMAT_MAGIC);
+        out.writeInt(SEGMENTED_FORMAT_VERSION);
+        writeString(out, caseFile.getCaseId());
+        writeString(out, caseFile.getDefinitionId());
+        writeDate(out, caseFile.getCaseStartDate());
+        writeDate(out, caseFile.getCaseEndDate());
+        writeDate(out, caseFile.getCaseReopenDate());
+        writeChunk(out, chunks.roles);
+        writeChunk(out, chunks.comments);
+        out.writeInt(chunks.data.size());
+        for (Entry<String, CaseFileChunks.Chunk> dataChunk : chunks.data.entrySet()) {
+            writeString(out, dataChunk.getKey());
+            writeChunk(out, dataChunk.getValue());
         }
+        out.flush();
+        caseFile.setMarshalledChunks(chunks);
         
-        byte[] caseFileBytes = caseFileMarshaller.marshal(context, os, caseFileContent);
-        logger.debug("Content of the case file instance after marshaller is of length {}", (caseFileBytes == null ? 0 : caseFileBytes.length));
+        byte[] caseFileBytes = bytes.toByteArray();
+        logger.debug("Content of the case file instance after marshaller is of length {}", caseFileBytes.length);
         return caseFileBytes;
     }
 
@@ -160,6 +228,58 @@ public class CaseFileInstanceMarshallingStrategy implements ObjectMarshallingStr
     @Override
     public Object unmarshal(Context context, ObjectInputStream is, byte[] object, ClassLoader classloader) throws IOException, ClassNotFoundException {
         logger.debug("About to read {} bytes to unmarshal CaseFileInstance", (object == null ? 0 : object.length));
+        if (!isSegmented(object)) {
+            return unmarshalLegacy(context, is, object, classloader);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(object));
+        in.readInt();
+        int version = in.readInt();
+        if (version != SEGMENTED_FORMAT_VERSION) {
+            throw new IOException("Unsupported case file format version " + version);
+        }
+        CaseFileChunks chunks = new CaseFileChunks();
+        CaseFileInstanceImpl caseFileInstance = new CaseFileInstanceImpl();
+        caseFileInstance.setCaseId(readString(in));
+        caseFileInstance.setDefinitionId(readString(in));
+        caseFileInstance.setCaseStartDate(readDate(in));
+        caseFileInstance.setCaseEndDate(readDate(in));
+        caseFileInstance.setCaseReopenDate(readDate(in));
+        
+        CaseFileChunks.Chunk roles = readChunk(in);
+        caseFileInstance.setRolesAssignments((Map<String, CaseRoleInstance>) deserialize(roles.getContent(), classloader));
+        chunks.roles = new CaseFileChunks.Chunk(roles.getMarshaller(), roles.getContent(), roles.getVersion(), rolesSignature(caseFileInstance.getRolesAssignments()));
+        CaseFileChunks.Chunk comments = readChunk(in);
+        caseFileInstance.setComments((List<CommentInstance>) deserialize(comments.getContent(), classloader));
+        chunks.comments = new CaseFileChunks.Chunk(comments.getMarshaller(), comments.getContent(), comments.getVersion(), commentsSignature(caseFileInstance.getComments()));
+        logger.debug("CaseFileInstance meta data unmarshalled properly into {}", caseFileInstance);
+        
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            String name = readString(in);
+            CaseFileChunks.Chunk chunk = readChunk(in);
+            Object value;
+            if (chunk.isInline()) {
+                value = deserialize(chunk.getContent(), classloader);
+            } else {
+                ObjectMarshallingStrategy marshaller = marshallersByName.get(chunk.getMarshaller());
+                logger.debug("Marshaller for {} is of type {}", name, marshaller);
+                value = marshaller.unmarshal(context, is, chunk.getContent(), classloader);
+            }
+            caseFileInstance.add(name, value);
+            chunks.data.put(name, new CaseFileChunks.Chunk(chunk.getMarshaller(), chunk.getContent(), chunk.getVersion(), value));
+            logger.debug("Data unmarshalled into {} and put into case file under '{}' name", value, name);
+        }
+        caseFileInstance.setMarshalledChunks(chunks);
+                
+        logger.debug("Unmarshal of CaseFileInstance completed - result {}", caseFileInstance);
+        return caseFileInstance;
+    }
+
+    /*
+     * Reads case file written as single serialized map - format used before segmented one was introduced.
+     */
+    @SuppressWarnings("unchecked")
+    private Object unmarshalLegacy(Context context, ObjectInputStream is, byte[] object, ClassLoader classloader) throws IOException, ClassNotFoundException {
         Map<String, Object> caseFileContent = (Map<String, Object>) caseFileMarshaller.unmarshal(context, is, object, classloader);
         
         CaseFileInstanceImpl caseFileInstance = new CaseFileInstanceImpl();
@@ -182,7 +302,7 @@ public class CaseFileInstanceMarshallingStrategy implements ObjectMarshallingStr
             logger.debug("Data unmarshalled into {} and put into case file under '{}' name", value, serializedContent.getName());
         }
                 
-        logger.debug("Unmarshal of CaseFileInstance completed - result {}", caseFileInstance);
+        logger.debug("Unmarshal of CaseFileInstance (legacy format) completed - result {}", caseFileInstance);
         return caseFileInstance;
     }
 
@@ -191,4 +311,136 @@ public class CaseFileInstanceMarshallingStrategy implements ObjectMarshallingStr
         return caseFileMarshaller.createContext();
     }
 
+    protected boolean isSegmented(byte[] object) {
+        return object != null && object.length > 8
+                && ((object[0] & 0xFF) << 24 | (object[1] & 0xFF) << 16 | (object[2] & 0xFF) << 8 | (object[3] & 0xFF)) == SEGMENTED_FORMAT_MAGIC;
+    }
+
+    /*
+     * Only values that cannot be changed in place can be compared with the value they were marshalled from,
+     * any other value is always marshalled again.
+     */
+    protected boolean isUnchanged(Object value, Object source) {
+        if (value == null || source == null || value.getClass() != source.getClass()) {
+            return false;
+        }
+        return isImmutable(value) && value.equals(source);
+    }
+
+    protected boolean isImmutable(Object value) {
+        return value != null && (IMMUTABLE_TYPES.contains(value.getClass()) || value instanceof Enum);
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        try {
+            out.writeObject(value);
+        } finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] content, ClassLoader classloader) throws IOException, ClassNotFoundException {
+        DroolsObjectInputStream in = new DroolsObjectInputStream(new ByteArrayInputStream(content), classloader);
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    protected List<Object> rolesSignature(Map<String, CaseRoleInstance> roles) {
+        List<Object> signature = new ArrayList<>();
+        for (Entry<String, CaseRoleInstance> role : roles.entrySet()) {
+            signature.add(role.getKey());
+            signature.add(role.getValue());
+            if (role.getValue() == null) {
+                continue;
+            }
+            Collection<OrganizationalEntity> assignments = role.getValue().getRoleAssignments();
+            signature.add(assignments.size());
+            for (OrganizationalEntity entity : assignments) {
+                signature.add(entity.getClass());
+                signature.add(entity.getId());
+            }
+        }
+        return signature;
+    }
+
+    protected List<Object> commentsSignature(Collection<CommentInstance> comments) {
+        List<Object> signature = new ArrayList<>();
+        for (CommentInstance comment : comments) {
+            signature.add(comment);
+            signature.add(comment.getId());
+            signature.add(comment.getAuthor());
+            signature.add(comment.getComment());
+            signature.add(comment.getCreatedAt() == null ? null : comment.getCreatedAt().getTime());
+        }
+        return signature;
+    }
+
+    private CaseFileChunks.Chunk newChunk(CaseFileChunks.Chunk previous, String marshaller, byte[] content, Object source) {
+        if (previous == null) {
+            return new CaseFileChunks.Chunk(marshaller, content, 1, source);
+        }
+        return previous.update(marshaller, content, source);
+    }
+
+    private static void writeChunk(DataOutputStream out, CaseFileChunks.Chunk chunk) throws IOException {
+        writeString(out, chunk.getMarshaller());
+        out.writeInt(chunk.getVersion());
+        byte[] content = chunk.getContent();
+        if (content == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(content.length);
+        out.write(content);
+    }
+
+    private static CaseFileChunks.Chunk readChunk(DataInputStream in) throws IOException {
+        String marshaller = readString(in);
+        int version = in.readInt();
+        int length = in.readInt();
+        byte[] content = null;
+        if (length >= 0) {
+            content = new byte[length];
+            in.readFully(content);
+        }
+        return new CaseFileChunks.Chunk(marshaller, content, version, null);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, Date value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getTime());
+        }
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new Date(in.readLong()) : null;
+    }
+
 }
@@ -31,6 +31,7 @@ import org.jbpm.casemgmt.api.model.instance.CaseFileDataFilter;
 import org.jbpm.casemgmt.api.model.instance.CaseFileInstance;
 import org.jbpm.casemgmt.api.model.instance.CaseRoleInstance;
 import org.jbpm.casemgmt.api.model.instance.CommentInstance;
+import org.jbpm.casemgmt.impl.marshalling.CaseFileChunks;
 import org.kie.api.runtime.process.CaseAssignment;
 import org.kie.api.task.model.OrganizationalEntity;
 import org.kie.api.task.model.User;
@@ -63,6 +64,9 @@ public class CaseFileInstanceImpl implements CaseFileInstance, CaseAssignment, S
     
     private TaskModelFactory factory = TaskModelProvider.getFactory();
     
+    // marshalled parts of this case file kept by the marshaller strategy between flushes
+    private transient CaseFileChunks marshalledChunks;
+    
     public CaseFileInstanceImpl() {
         
     }
@@ -268,6 +272,14 @@ public class CaseFileInstanceImpl implements CaseFileInstance, CaseAssignment, S
         return definitionId;
     }
 
+    public CaseFileChunks getMarshalledChunks() {
+        return marshalledChunks;
+    }
+
+    public void setMarshalledChunks(CaseFileChunks marshalledChunks) {
+        this.marshalledChunks = marshalledChunks;
+    }
+
     public void setDefinitionId(String caseDefinitionId) {
         this.definitionId = caseDefinitionId;
     }
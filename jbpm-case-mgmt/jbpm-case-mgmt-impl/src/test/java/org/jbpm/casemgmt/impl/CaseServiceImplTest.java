@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.assertj.core.api.Assertions;
 import org.jbpm.casemgmt.api.AdHocFragmentNotFoundException;
@@ -40,6 +41,7 @@ import org.jbpm.casemgmt.api.model.CaseStatus;
 import org.jbpm.casemgmt.api.model.instance.CaseFileInstance;
 import org.jbpm.casemgmt.api.model.instance.CaseInstance;
 import org.jbpm.casemgmt.api.model.instance.CaseMilestoneInstance;
+import org.jbpm.casemgmt.api.model.instance.CaseRoleInstance;
 import org.jbpm.casemgmt.api.model.instance.CaseStageInstance;
 import org.jbpm.casemgmt.api.model.instance.CommentInstance;
 import org.jbpm.casemgmt.api.model.instance.CommentSortBy;
@@ -769,6 +771,86 @@ public class CaseServiceImplTest extends AbstractCaseServicesBaseTest {
         }
     }
 
+    @Test
+    public void testCaseInstanceSnapshotMatchesCaseInstance() {
+        Map<String, OrganizationalEntity> roleAssignments = new HashMap<>();
+        roleAssignments.put("owner", new UserImpl("john"));
+
+        Map<String, Object> data = new HashMap<>();
+        CaseFileInstance caseFile = caseService.newCaseFileInstance(deploymentUnit.getIdentifier(), USER_TASK_STAGE_CASE_P_ID, data, roleAssignments);
+
+        String caseId = caseService.startCase(deploymentUnit.getIdentifier(), USER_TASK_STAGE_CASE_P_ID, caseFile);
+        assertNotNull(caseId);
+        try {
+            caseService.addDataToCaseFile(caseId, "name", "john");
+            caseService.assignToCaseRole(caseId, "contact", new GroupImpl("HR"));
+
+            CaseStage stage = caseRuntimeDataService.getCase(deploymentUnit.getIdentifier(), USER_TASK_STAGE_CASE_P_ID).getCaseStages().iterator().next();
+            caseService.addDynamicTaskToStage(caseId, stage.getId(), caseService.newHumanTaskSpec("First task", "test", "john", null, new HashMap<>()));
+
+            CaseInstance cInstance = caseService.getCaseInstance(caseId, true, true, true, true);
+            CaseInstance snapshot = caseService.getCaseInstanceSnapshot(caseId, true, true, true, true);
+            assertNotNull(snapshot);
+            assertEquals(cInstance.getCaseId(), snapshot.getCaseId());
+            assertEquals(cInstance.getDeploymentId(), snapshot.getDeploymentId());
+            assertEquals(cInstance.getCaseDefinitionId(), snapshot.getCaseDefinitionId());
+            assertEquals(cInstance.getOwner(), snapshot.getOwner());
+            assertEquals(cInstance.getStatus(), snapshot.getStatus());
+
+            assertEquals("john", snapshot.getCaseFile().getData("name"));
+            assertEquals(cInstance.getCaseFile().getData("name"), snapshot.getCaseFile().getData("name"));
+
+            assertEquals(mapRoles(cInstance.getCaseRoles()), mapRoles(snapshot.getCaseRoles()));
+
+            assertEquals(cInstance.getCaseMilestones().size(), snapshot.getCaseMilestones().size());
+            Iterator<CaseMilestoneInstance> milestones = snapshot.getCaseMilestones().iterator();
+            for (CaseMilestoneInstance milestone : cInstance.getCaseMilestones()) {
+                CaseMilestoneInstance snapshotMilestone = milestones.next();
+                assertEquals(milestone.getName(), snapshotMilestone.getName());
+                assertEquals(milestone.getStatus(), snapshotMilestone.getStatus());
+            }
+
+            assertEquals(1, snapshot.getCaseStages().size());
+            CaseStageInstance stageInstance = cInstance.getCaseStages().iterator().next();
+            CaseStageInstance snapshotStage = snapshot.getCaseStages().iterator().next();
+            assertEquals(stageInstance.getId(), snapshotStage.getId());
+            assertEquals(stageInstance.getStatus(), snapshotStage.getStatus());
+            assertEquals(stageInstance.getActiveNodes().size(), snapshotStage.getActiveNodes().size());
+
+            int iterations = 50;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                caseService.getCaseInstance(caseId, true, true, true, true);
+            }
+            long caseInstanceTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                caseService.getCaseInstanceSnapshot(caseId, true, true, true, true);
+            }
+            long snapshotTime = System.nanoTime() - start;
+            logger.info("{} case reads - case instance: {} ms, snapshot: {} ms", iterations,
+                        TimeUnit.NANOSECONDS.toMillis(caseInstanceTime), TimeUnit.NANOSECONDS.toMillis(snapshotTime));
+        } catch (Exception e) {
+            logger.error("Unexpected error {}", e.getMessage(), e);
+            fail("Unexpected exception " + e.getMessage());
+        } finally {
+            if (caseId != null) {
+                caseService.cancelCase(caseId);
+            }
+        }
+    }
+
+    private Map<String, List<String>> mapRoles(Collection<CaseRoleInstance> roles) {
+        Map<String, List<String>> mapped = new HashMap<>();
+        for (CaseRoleInstance role : roles) {
+            List<String> entities = new ArrayList<>();
+            role.getRoleAssignments().forEach(entity -> entities.add(entity.getId()));
+            Collections.sort(entities);
+            mapped.put(role.getRoleName(), entities);
+        }
+        return mapped;
+    }
+
     @Test
     public void testCaseWithStageAutoStartNodes() {
         Map<String, OrganizationalEntity> roleAssignments = new HashMap<>();
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.casemgmt.impl.marshalling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.core.marshalling.impl.ClassObjectMarshallingStrategyAcceptor;
+import org.drools.core.marshalling.impl.SerializablePlaceholderResolverStrategy;
+import org.jbpm.casemgmt.api.model.CaseRole;
+import org.jbpm.casemgmt.api.model.instance.CommentInstance;
+import org.jbpm.casemgmt.impl.model.CaseRoleImpl;
+import org.jbpm.casemgmt.impl.model.instance.CaseFileInstanceImpl;
+import org.jbpm.casemgmt.impl.model.instance.CommentInstanceImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.marshalling.ObjectMarshallingStrategy.Context;
+import org.kie.api.task.model.OrganizationalEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class CaseFileInstanceMarshallingStrategyTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaseFileInstanceMarshallingStrategyTest.class);
+
+    private CaseFileInstanceMarshallingStrategy strategy;
+
+    @Before
+    public void setUp() {
+        strategy = new CaseFileInstanceMarshallingStrategy();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        CaseFileInstanceImpl caseFile = createCaseFile(5);
+        caseFile.setCaseEndDate(new Date());
+
+        Flush flush = flush(caseFile);
+        assertTrue(strategy.isSegmented(flush.content));
+
+        CaseFileInstanceImpl unmarshalled = unmarshal(flush);
+        assertCaseFile(caseFile, unmarshalled);
+        assertNotNull(unmarshalled.getMarshalledChunks());
+    }
+
+    @Test
+    public void testUnmarshalLegacyFormat() throws Exception {
+        CaseFileInstanceImpl caseFile = createCaseFile(3);
+        SerializablePlaceholderResolverStrategy serializer = new SerializablePlaceholderResolverStrategy(ClassObjectMarshallingStrategyAcceptor.DEFAULT);
+        Context context = serializer.createContext();
+
+        List<SerializedContent> caseData = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : caseFile.getData().entrySet()) {
+            caseData.add(new SerializedContent(serializer.getClass().getName(), entry.getKey(), serializer.marshal(context, null, entry.getValue())));
+        }
+        Map<String, Object> caseFileContent = new HashMap<>();
+        caseFileContent.put("CaseId", caseFile.getCaseId());
+        caseFileContent.put("CaseDefId", caseFile.getDefinitionId());
+        caseFileContent.put("CaseStart", caseFile.getCaseStartDate());
+        caseFileContent.put("CaseEnd", caseFile.getCaseEndDate());
+        caseFileContent.put("CaseReopen", caseFile.getCaseReopenDate());
+        caseFileContent.put("CaseRoleAssignments", new HashMap<>(caseFile.getRolesAssignments()));
+        caseFileContent.put("CaseComments", new ArrayList<>(caseFile.getComments()));
+        caseFileContent.put("CaseData", caseData);
+        Flush legacy = new Flush(serializer.marshal(context, null, caseFileContent), write(context));
+        assertFalse(strategy.isSegmented(legacy.content));
+
+        CaseFileInstanceImpl unmarshalled = unmarshal(legacy);
+        assertCaseFile(caseFile, unmarshalled);
+
+        // written back in segmented format
+        Flush flush = flush(unmarshalled);
+        assertTrue(strategy.isSegmented(flush.content));
+        assertCaseFile(caseFile, unmarshal(flush));
+    }
+
+    @Test
+    public void testChangesInPlaceAreMarshalled() throws Exception {
+        CaseFileInstanceImpl caseFile = unmarshal(flush(createCaseFile(3)));
+        CaseFileChunks chunks = caseFile.getMarshalledChunks();
+
+        ((Note) caseFile.getData("note")).setText("updated");
+        ((CommentInstanceImpl) caseFile.getComments().iterator().next()).setComment("updated comment");
+        caseFile.assignUser("participant", "mary");
+
+        CaseFileInstanceImpl unmarshalled = unmarshal(flush(caseFile));
+        assertEquals("updated", ((Note) unmarshalled.getData("note")).getText());
+        assertEquals("updated comment", unmarshalled.getComments().iterator().next().getComment());
+        assertEquals(2, unmarshalled.getAssignments("participant").size());
+
+        CaseFileChunks updated = caseFile.getMarshalledChunks();
+        assertEquals(chunks.data.get("note").getVersion() + 1, updated.data.get("note").getVersion());
+        assertEquals(chunks.comments.getVersion() + 1, updated.comments.getVersion());
+        assertEquals(chunks.roles.getVersion() + 1, updated.roles.getVersion());
+    }
+
+    @Test
+    public void testLoadAndSaveWithNewContext() throws Exception {
+        CaseFileInstanceImpl caseFile = createCaseFile(3);
+        // every flush of the session uses new strategy context, reused chunks must not refer to the previous one
+        CaseFileInstanceImpl loaded = unmarshal(flush(caseFile));
+        CaseFileInstanceImpl reloaded = unmarshal(flush(loaded));
+        assertCaseFile(caseFile, reloaded);
+
+        reloaded.add("item1", "changed");
+        ((Note) reloaded.getData("note")).setText("changed");
+        CaseFileInstanceImpl changed = unmarshal(flush(reloaded));
+        assertCaseFile(reloaded, changed);
+        assertEquals("changed", ((Note) changed.getData("note")).getText());
+    }
+
+    @Test
+    public void testOnlyChangedChunksAreMarshalledAgain() throws Exception {
+        CaseFileInstanceImpl caseFile = createCaseFile(3);
+        flush(caseFile);
+        CaseFileChunks chunks = caseFile.getMarshalledChunks();
+
+        caseFile.add("item0", "changed");
+        caseFile.add("added", 42);
+        caseFile.remove("item2");
+        Flush flush = flush(caseFile);
+        CaseFileChunks updated = caseFile.getMarshalledChunks();
+
+        assertSame(chunks.roles, updated.roles);
+        assertSame(chunks.comments, updated.comments);
+        assertSame(chunks.data.get("item1"), updated.data.get("item1"));
+        assertEquals(2, updated.data.get("item0").getVersion());
+        assertEquals(1, updated.data.get("added").getVersion());
+        assertFalse(updated.data.containsKey("item2"));
+        assertTrue(updated.data.get("item1").isInline());
+        // mutable values are handed to the default strategy on every flush
+        assertFalse(updated.data.get("note").isInline());
+        assertEquals(chunks.data.get("note").getVersion() + 1, updated.data.get("note").getVersion());
+
+        CaseFileInstanceImpl unmarshalled = unmarshal(flush);
+        assertCaseFile(caseFile, unmarshalled);
+    }
+
+    @Test(timeout = 120000)
+    public void testIncrementalMarshalPerformance() throws Exception {
+        for (int items : Arrays.asList(10, 100, 500)) {
+            CaseFileInstanceImpl caseFile = createCaseFile(items);
+            for (int i = 0; i < items; i++) {
+                caseFile.addComment(new CommentInstanceImpl("john", "comment " + i));
+            }
+            int iterations = 50;
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                caseFile.setMarshalledChunks(null);
+                flush(caseFile);
+            }
+            long full = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                caseFile.add("item" + (i % items), "value " + i);
+                flush(caseFile);
+            }
+            long incremental = System.nanoTime() - start;
+
+            assertCaseFile(caseFile, unmarshal(flush(caseFile)));
+            logger.info("Case file with {} items and {} comments - full marshal: {} us, incremental marshal: {} us (average of {})",
+                    items, items, TimeUnit.NANOSECONDS.toMicros(full / iterations), TimeUnit.NANOSECONDS.toMicros(incremental / iterations), iterations);
+        }
+    }
+
+    private CaseFileInstanceImpl createCaseFile(int items) {
+        CaseFileInstanceImpl caseFile = new CaseFileInstanceImpl("CASE-0000000001", "my-case");
+        List<CaseRole> roles = new ArrayList<>();
+        roles.add(new CaseRoleImpl("participant", 2));
+        caseFile.setupRoles(roles);
+        caseFile.assignUser("owner", "john");
+        caseFile.assignUser("participant", "john");
+        caseFile.addComment(new CommentInstanceImpl("john", "first comment"));
+        for (int i = 0; i < items; i++) {
+            caseFile.add("item" + i, "value " + i);
+        }
+        caseFile.add("note", new Note("text"));
+        return caseFile;
+    }
+
+    /*
+     * Marshals the case file the way session persistence does - with new strategy context that is written after the content.
+     */
+    private Flush flush(CaseFileInstanceImpl caseFile) throws Exception {
+        Context context = strategy.createContext();
+        byte[] content = strategy.marshal(context, null, caseFile);
+        return new Flush(content, write(context));
+    }
+
+    private byte[] write(Context context) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        context.write(out);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private CaseFileInstanceImpl unmarshal(Flush flush) throws Exception {
+        Context context = strategy.createContext();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(flush.context));
+        try {
+            context.read(in);
+            return (CaseFileInstanceImpl) strategy.unmarshal(context, in, flush.content, getClass().getClassLoader());
+        } finally {
+            in.close();
+        }
+    }
+
+    private void assertCaseFile(CaseFileInstanceImpl expected, CaseFileInstanceImpl actual) {
+        assertEquals(expected.getCaseId(), actual.getCaseId());
+        assertEquals(expected.getDefinitionId(), actual.getDefinitionId());
+        assertEquals(expected.getCaseStartDate(), actual.getCaseStartDate());
+        assertEquals(expected.getCaseEndDate(), actual.getCaseEndDate());
+        assertEquals(expected.getCaseReopenDate(), actual.getCaseReopenDate());
+        assertEquals(expected.getData(), actual.getData());
+
+        assertEquals(expected.getRolesAssignments().keySet(), actual.getRolesAssignments().keySet());
+        for (String role : expected.getRolesAssignments().keySet()) {
+            assertEquals(ids(expected.getAssignments(role)), ids(actual.getAssignments(role)));
+        }
+
+        List<CommentInstance> expectedComments = new ArrayList<>(expected.getComments());
+        List<CommentInstance> actualComments = new ArrayList<>(actual.getComments());
+        assertEquals(expectedComments.size(), actualComments.size());
+        for (int i = 0; i < expectedComments.size(); i++) {
+            assertEquals(expectedComments.get(i).getId(), actualComments.get(i).getId());
+            assertEquals(expectedComments.get(i).getAuthor(), actualComments.get(i).getAuthor());
+            assertEquals(expectedComments.get(i).getComment(), actualComments.get(i).getComment());
+        }
+    }
+
+    private List<String> ids(Collection<OrganizationalEntity> entities) {
+        List<String> ids = new ArrayList<>();
+        entities.forEach(e -> ids.add(e.getId()));
+        return ids;
+    }
+
+    private static class Flush {
+
+        private final byte[] content;
+        private final byte[] context;
+
+        Flush(byte[] content, byte[] context) {
+            this.content = content;
+            this.context = context;
+        }
+    }
+
+    public static class Note implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String text;
+
+        public Note(String text) {
+            this.text = text;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int hashCode() {
+            return text == null ? 0 : text.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Note && Objects.equals(text, ((Note) obj).text);
+        }
+    }
+}
@@ -75,6 +75,9 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
         implements
         ProcessInstanceMarshaller {
 
+    // when enabled, variables are unmarshalled on first access and written back as they were read if never accessed
+    private static final boolean LAZY_VARIABLES = Boolean.parseBoolean(System.getProperty("org.jbpm.variables.lazy", "true"));
+
     // Output methods
     public JBPMMessages.ProcessInstance writeProcessInstance(MarshallerWriteContext context,
                                                              ProcessInstance processInstance) throws IOException {
@@ -142,7 +145,7 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
         }
 
         VariableScopeInstance variableScopeInstance = (VariableScopeInstance) workFlow.getContextInstance( VariableScope.VARIABLE_SCOPE );
-        List<Map.Entry<String, Object>> variables = new ArrayList<Map.Entry<String, Object>>( variableScopeInstance.getVariables().entrySet() );
+        List<Map.Entry<String, Object>> variables = new ArrayList<Map.Entry<String, Object>>( variableScopeInstance.getRawVariables().entrySet() );
         Collections.sort( variables,
                           new Comparator<Map.Entry<String, Object>>() {
                               public int compare(Map.Entry<String, Object> o1,
@@ -342,7 +345,7 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
             
             VariableScopeInstance variableScopeInstance = (VariableScopeInstance) forEachNodeInstance.getContextInstance( VariableScope.VARIABLE_SCOPE);
             if ( variableScopeInstance != null ) {
-                List<Map.Entry<String, Object>> variables = new ArrayList<Map.Entry<String, Object>>( variableScopeInstance.getVariables().entrySet() );
+                List<Map.Entry<String, Object>> variables = new ArrayList<Map.Entry<String, Object>>( variableScopeInstance.getRawVariables().entrySet() );
                 Collections.sort( variables,
                                   new Comparator<Map.Entry<String, Object>>() {
                                       public int compare(Map.Entry<String, Object> o1,
@@ -398,7 +401,7 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
             }
             VariableScopeInstance variableScopeInstance = (VariableScopeInstance) compositeNodeInstance.getContextInstance( VariableScope.VARIABLE_SCOPE );
             if ( variableScopeInstance != null ) {
-                List<Map.Entry<String, Object>> variables = new ArrayList<Map.Entry<String, Object>>( variableScopeInstance.getVariables().entrySet() );
+                List<Map.Entry<String, Object>> variables = new ArrayList<Map.Entry<String, Object>>( variableScopeInstance.getRawVariables().entrySet() );
                 Collections.sort( variables,
                                   new Comparator<Map.Entry<String, Object>>() {
                                       public int compare(Map.Entry<String, Object> o1,
@@ -549,7 +552,7 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
                     .getContextInstance( variableScope );
             for ( JBPMMessages.Variable _variable : _instance.getVariableList() ) {
                 try {
-                    Object _value = ProtobufProcessMarshaller.unmarshallVariableValue( context, _variable );
+                    Object _value = ProtobufProcessMarshaller.unmarshallVariableValue( context, _variable, LAZY_VARIABLES );
                     variableScopeInstance.internalSetVariable( _variable.getName(), 
                                                                _value );
                 } catch ( ClassNotFoundException e ) {
@@ -595,7 +598,7 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
                     VariableScopeInstance variableScopeInstance = (VariableScopeInstance) ((CompositeContextNodeInstance) nodeInstance).getContextInstance( variableScope );
                     for ( JBPMMessages.Variable _variable : _node.getContent().getComposite().getVariableList() ) {
                         try {
-                            Object _value = ProtobufProcessMarshaller.unmarshallVariableValue( context, _variable );
+                            Object _value = ProtobufProcessMarshaller.unmarshallVariableValue( context, _variable, LAZY_VARIABLES );
                             variableScopeInstance.internalSetVariable( _variable.getName(), _value );
                         } catch ( ClassNotFoundException e ) {
                             throw new IllegalArgumentException( "Could not reload variable " + _variable.getName() );
@@ -636,7 +639,7 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
                     VariableScopeInstance variableScopeInstance = (VariableScopeInstance) ((ForEachNodeInstance) nodeInstance).getContextInstance( VariableScope.VARIABLE_SCOPE );
                     for ( JBPMMessages.Variable _variable : _node.getContent().getForEach().getVariableList() ) {
                         try {
-                            Object _value = ProtobufProcessMarshaller.unmarshallVariableValue( context, _variable );
+                            Object _value = ProtobufProcessMarshaller.unmarshallVariableValue( context, _variable, LAZY_VARIABLES );
                             variableScopeInstance.internalSetVariable( _variable.getName(), _value );
                         } catch ( ClassNotFoundException e ) {
                             throw new IllegalArgumentException( "Could not reload variable " + _variable.getName() );
@@ -659,7 +662,7 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
                     VariableScopeInstance variableScopeInstance = (VariableScopeInstance) ((EventSubProcessNodeInstance) nodeInstance).getContextInstance( VariableScope.VARIABLE_SCOPE );
                     for ( JBPMMessages.Variable _variable : _node.getContent().getComposite().getVariableList() ) {
                         try {
-                            Object _value = ProtobufProcessMarshaller.unmarshallVariableValue( context, _variable );
+                            Object _value = ProtobufProcessMarshaller.unmarshallVariableValue( context, _variable, LAZY_VARIABLES );
                             variableScopeInstance.internalSetVariable( _variable.getName(), _value );
                         } catch ( ClassNotFoundException e ) {
                             throw new IllegalArgumentException( "Could not reload variable " + _variable.getName() );
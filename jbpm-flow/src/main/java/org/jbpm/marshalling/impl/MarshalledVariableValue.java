@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.marshalling.impl;
+
+import java.io.IOException;
+
+import org.drools.core.marshalling.impl.MarshallerReaderContext;
+import org.kie.api.marshalling.ObjectMarshallingStrategy;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Variable value that was read from marshalled process instance but not yet unmarshalled. It is kept as the raw
+ * value and the strategy that produced it until the variable is first accessed. If it is never accessed it is
+ * written back exactly as it was read.
+ * <p>
+ * Only values of strategies that do not keep any state in the marshalled stream (their strategy context is null)
+ * are kept in marshalled form, as their value is complete on its own.
+ */
+public class MarshalledVariableValue {
+
+    private final ObjectMarshallingStrategy strategy;
+    private final ByteString value;
+    private final ClassLoader classLoader;
+    private MarshallerReaderContext context;
+
+    public MarshalledVariableValue(ObjectMarshallingStrategy strategy, ByteString value, MarshallerReaderContext context) {
+        this.strategy = strategy;
+        this.value = value;
+        this.context = context;
+        this.classLoader = context.kBase == null ? null : context.kBase.getRootClassLoader();
+    }
+
+    public ObjectMarshallingStrategy getStrategy() {
+        return strategy;
+    }
+
+    public ByteString getValue() {
+        return value;
+    }
+
+    public Object unmarshal(String name) {
+        try {
+            return strategy.unmarshal(null, context, value.toByteArray(), classLoader);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("Could not reload variable " + name, e);
+        } finally {
+            // value is unmarshalled only once, do not hold the reader context any longer
+            context = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MarshalledVariableValue [strategy=" + strategy + ", size=" + value.size() + "]";
+    }
+}
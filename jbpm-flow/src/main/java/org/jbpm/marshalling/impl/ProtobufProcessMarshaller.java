@@ -260,7 +260,12 @@ public class ProtobufProcessMarshaller
                                             String name,
                                             Object value) throws IOException {
         JBPMMessages.Variable.Builder builder = JBPMMessages.Variable.newBuilder().setName( name );
-        if(value != null){
+        if(value instanceof MarshalledVariableValue){
+            // never accessed since it was read, write it back as it was
+            MarshalledVariableValue marshalledValue = (MarshalledVariableValue) value;
+            builder.setStrategyIndex( context.getStrategyIndex( marshalledValue.getStrategy() ) )
+                   .setValue( marshalledValue.getValue() );
+        } else if(value != null){
             ObjectMarshallingStrategy strategy = context.objectMarshallingStrategyStore.getStrategyObject( value );
             Integer index = context.getStrategyIndex( strategy );
             builder.setStrategyIndex( index )
@@ -315,6 +320,24 @@ public class ProtobufProcessMarshaller
         return vcbuilder.build();
     }
 
+    /**
+     * Unmarshalls variable value, if <code>lazy</code> is set and the strategy of the value does not keep any state
+     * in the marshalled stream the value is returned as {@link MarshalledVariableValue} to be unmarshalled on
+     * first access.
+     */
+    public static Object unmarshallVariableValue(MarshallerReaderContext context,
+                                                  JBPMMessages.Variable _variable,
+                                                  boolean lazy) throws IOException,
+                                                                       ClassNotFoundException {
+        if ( lazy && _variable.getValue() != null && !_variable.getValue().isEmpty() ) {
+            ObjectMarshallingStrategy strategy = context.usedStrategies.get( _variable.getStrategyIndex() );
+            if ( context.strategyContexts.get( strategy ) == null ) {
+                return new MarshalledVariableValue( strategy, _variable.getValue(), context );
+            }
+        }
+        return unmarshallVariableValue( context, _variable );
+    }
+
     public static Object unmarshallVariableValue(MarshallerReaderContext context,
                                                   JBPMMessages.Variable _variable) throws IOException,
                                                                                   ClassNotFoundException {
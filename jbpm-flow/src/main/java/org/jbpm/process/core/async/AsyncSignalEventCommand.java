@@ -16,6 +16,9 @@
 
 package org.jbpm.process.core.async;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.kie.api.executor.Command;
 import org.kie.api.executor.CommandContext;
 import org.kie.api.executor.ExecutionResults;
@@ -23,11 +26,16 @@ import org.kie.api.runtime.manager.RuntimeEngine;
 import org.kie.api.runtime.manager.RuntimeManager;
 import org.kie.internal.runtime.manager.RuntimeManagerRegistry;
 import org.kie.internal.runtime.manager.context.ProcessInstanceIdContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 public class AsyncSignalEventCommand implements Command {
 
+    private static final Logger logger = LoggerFactory.getLogger(AsyncSignalEventCommand.class);
+
     @Override
+    @SuppressWarnings("unchecked")
     public ExecutionResults execute(CommandContext ctx) throws Exception {
         String deploymentId = (String) ctx.getData("deploymentId");
         if (deploymentId == null) {
@@ -48,6 +56,10 @@ public class AsyncSignalEventCommand implements Command {
         if (runtimeManager == null) {
             throw new IllegalArgumentException("No runtime manager found for deployment id " + deploymentId);  
         }
+        List<Long> processInstanceIds = (List<Long>) ctx.getData("processInstanceIds");
+        if (processInstanceIds != null) {
+            return signalProcessInstances(runtimeManager, processInstanceIds, signal, event);
+        }
         RuntimeEngine engine = runtimeManager.getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId));        
         try {
             engine.getKieSession().signalEvent(signal, event, processInstanceId);
@@ -58,4 +70,31 @@ public class AsyncSignalEventCommand implements Command {
         }
     }
 
+    /*
+     * Signals each of the process instances separately so failure of one of them does not affect the others,
+     * ids of process instances that could not be signaled are returned as FailedProcessInstanceIds
+     */
+    protected ExecutionResults signalProcessInstances(RuntimeManager runtimeManager, List<Long> processInstanceIds, String signal, Object event) {
+        List<Long> failed = new ArrayList<Long>();
+        for (Long processInstanceId : processInstanceIds) {
+            RuntimeEngine engine = null;
+            try {
+                engine = runtimeManager.getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId));
+                engine.getKieSession().signalEvent(signal, event, processInstanceId);
+            } catch (Exception e) {
+                logger.warn("Unable to signal '{}' to process instance {} due to {}", signal, processInstanceId, e.getMessage());
+                logger.debug("Signal failure details", e);
+                failed.add(processInstanceId);
+            } finally {
+                if (engine != null) {
+                    runtimeManager.disposeRuntimeEngine(engine);
+                }
+            }
+        }
+        logger.debug("Signal '{}' delivered to {} out of {} process instances", signal, processInstanceIds.size() - failed.size(), processInstanceIds.size());
+        ExecutionResults results = new ExecutionResults();
+        results.setData("FailedProcessInstanceIds", failed);
+        return results;
+    }
+
 }
@@ -30,6 +30,7 @@ import org.jbpm.process.core.ContextContainer;
 import org.jbpm.process.core.ContextResolver;
 import org.jbpm.process.core.Process;
 import org.jbpm.process.core.context.AbstractContext;
+import org.jbpm.util.ProcessExpressionCache;
 import org.kie.api.io.Resource;
 
 /**
@@ -49,6 +50,7 @@ public class ProcessImpl implements Process, Serializable, ContextResolver {
     private ContextContainer contextContainer = new ContextContainerImpl();
     private Map<String, Object> metaData = new HashMap<String, Object>();
     private transient Map<String, Object> runtimeMetaData = new HashMap<String, Object>();
+    private transient volatile ProcessExpressionCache expressionCache;
     private Set<String> imports;
     private Map<String, String> globals;
     private List<String> functionImports;
@@ -211,6 +213,23 @@ public class ProcessImpl implements Process, Serializable, ContextResolver {
         this.runtimeMetaData = runtimeMetaData;
     }
     
+    /**
+     * Returns cache of expressions used by this process, shared by all its instances.
+     */
+    public ProcessExpressionCache getExpressionCache() {
+        ProcessExpressionCache cache = expressionCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = expressionCache;
+                if (cache == null) {
+                    cache = new ProcessExpressionCache();
+                    expressionCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+    
     /*
      * Special handling for serialization to initialize transient (runtime related) meta data
      */
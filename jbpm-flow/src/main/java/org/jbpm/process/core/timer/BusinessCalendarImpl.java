@@ -24,12 +24,16 @@ import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 
 import org.drools.core.time.TimeUtils;
@@ -66,6 +70,8 @@ import org.slf4j.LoggerFactory;
  * Weekend days should be given as integer that corresponds to <code>java.util.Calendar</code> constants.
  * <br/>
  * 
+ * Parsed holidays and weekend days are kept in an index that is shared by all calendars created with the same
+ * configuration, so creating a calendar per session does not parse the configuration over and over again.
  */
 public class BusinessCalendarImpl implements BusinessCalendar {
 	
@@ -81,9 +87,11 @@ public class BusinessCalendarImpl implements BusinessCalendar {
     private int endHour; 
     private  String timezone;
     
-    private List<TimePeriod> holidays;
+    private BusinessCalendarIndex index;
     private List<Integer> weekendDays= new ArrayList<Integer>();
     private SessionClock clock;
+
+    private static final Map<List<Object>, BusinessCalendarIndex> INDEX_CACHE = new ConcurrentHashMap<List<Object>, BusinessCalendarIndex>();
     
     private static final int     SIM_WEEK = 3;
     private static final int     SIM_DAY = 5;
@@ -150,9 +158,38 @@ public class BusinessCalendarImpl implements BusinessCalendar {
         hoursInDay = getPropertyAsInt(HOURS_PER_DAY, "8");
         startHour = getPropertyAsInt(START_HOUR, "9"); 
         endHour = getPropertyAsInt(END_HOUR, "17"); 
-        holidays = parseHolidays();
-        parseWeekendDays();
         this.timezone = businessCalendarConfiguration.getProperty(TIMEZONE);
+        parseWeekendDays();
+        index = buildIndex();
+    }
+
+    private BusinessCalendarIndex buildIndex() {
+        // subclasses may customize parsing so the index is only shared by calendars of the same class,
+        // holidays given with '*' as year and holiday dates without time zone depend on current year and time zone
+        List<Object> key = Arrays.asList(getClass().getName(),
+                                         businessCalendarConfiguration.getProperty(HOLIDAYS),
+                                         businessCalendarConfiguration.getProperty(HOLIDAY_DATE_FORMAT),
+                                         businessCalendarConfiguration.getProperty(WEEKEND_DAYS),
+                                         timezone,
+                                         Calendar.getInstance().get(Calendar.YEAR),
+                                         TimeZone.getDefault().getID());
+        BusinessCalendarIndex cached = INDEX_CACHE.get(key);
+        if (cached == null) {
+            cached = createIndex();
+            INDEX_CACHE.put(key, cached);
+        }
+        return cached;
+    }
+
+    private BusinessCalendarIndex createIndex() {
+        List<TimePeriod> holidays = parseHolidays();
+        long[] from = new long[holidays.size()];
+        long[] to = new long[holidays.size()];
+        for (int i = 0; i < holidays.size(); i++) {
+            from[i] = holidays.get(i).getFrom().getTime();
+            to[i] = holidays.get(i).getTo().getTime();
+        }
+        return new BusinessCalendarIndex(from, to, weekendDays);
     }
     
     protected String adoptISOFormat(String timeExpression) {
@@ -163,6 +200,9 @@ public class BusinessCalendarImpl implements BusinessCalendar {
                 p = Duration.parse(timeExpression);
             } else if (DateTimeUtils.isNumeric(timeExpression)) {
                 p = Duration.of(Long.valueOf(timeExpression), ChronoUnit.MILLIS);
+            } else if (timeExpression != null && PatternConstants.SIMPLE_TIME_DATE_MATCHER.matcher(timeExpression).matches()) {
+                // already in the simple format, don't let date time parsing fail on it
+                return timeExpression;
             } else {
                 OffsetDateTime dateTime = OffsetDateTime.parse(timeExpression, DateTimeFormatter.ISO_DATE_TIME);
                 p = Duration.between(OffsetDateTime.now(), dateTime);
@@ -206,6 +246,31 @@ public class BusinessCalendarImpl implements BusinessCalendar {
     }
     
     public Date calculateBusinessTimeAsDate(String timeExpression) {
+        return calculateBusinessTimeAsDate(timeExpression, getCurrentTime());
+    }
+
+    /**
+     * Calculates dates for all given time expressions at once, all of them relative to the same current time.
+     * Each distinct expression is calculated only once.
+     * @param timeExpressions time expressions as accepted by {@link #calculateBusinessTimeAsDate(String)}
+     * @return calculated dates in the same order as given expressions
+     */
+    public List<Date> calculateBusinessTimeAsDates(List<String> timeExpressions) {
+        long currentTime = getCurrentTime();
+        Map<String, Date> calculated = new HashMap<String, Date>();
+        List<Date> result = new ArrayList<Date>(timeExpressions.size());
+        for (String timeExpression : timeExpressions) {
+            Date date = calculated.get(timeExpression);
+            if (date == null) {
+                date = calculateBusinessTimeAsDate(timeExpression, currentTime);
+                calculated.put(timeExpression, date);
+            }
+            result.add(new Date(date.getTime()));
+        }
+        return result;
+    }
+
+    protected Date calculateBusinessTimeAsDate(String timeExpression, long currentTime) {
     	timeExpression = adoptISOFormat(timeExpression);
 
         String trimmed = timeExpression.trim();
@@ -231,9 +296,7 @@ public class BusinessCalendarImpl implements BusinessCalendar {
         if (timezone != null) {
             c.setTimeZone(TimeZone.getTimeZone(timezone));
         }
-        if (this.clock != null) {
-            c.setTimeInMillis(this.clock.getCurrentTime());
-        }
+        c.setTimeInMillis(currentTime);
         
         
         // calculate number of weeks
@@ -246,12 +309,19 @@ public class BusinessCalendarImpl implements BusinessCalendar {
         
         // calculate number of days
         int numberOfDays = hours/hoursInDay;
-        if (numberOfDays > 0) {
-            for (int i = 0; i < numberOfDays; i++) {
-                c.add(Calendar.DAY_OF_YEAR, 1);
-                handleWeekend(c);
-                handleHoliday(c);
+        // whole weeks without holidays can be skipped at once unless subclass customizes the day handling
+        boolean skipWeeks = isSkippingWorkingWeeks();
+        int remainingDays = numberOfDays;
+        while (remainingDays > 0) {
+            int skipped = skipWeeks ? index.skipWorkingWeeks(c, remainingDays) : 0;
+            if (skipped > 0) {
+                remainingDays -= skipped;
+                continue;
             }
+            c.add(Calendar.DAY_OF_YEAR, 1);
+            handleWeekend(c);
+            handleHoliday(c);
+            remainingDays--;
         }
 
         int currentCalHour = c.get(Calendar.HOUR_OF_DAY);
@@ -311,33 +381,37 @@ public class BusinessCalendarImpl implements BusinessCalendar {
         return c.getTime();
     }
     
+    /**
+     * Tells whether whole working weeks (with no holidays) can be skipped at once when adding days instead of
+     * calling {@link #handleWeekend(Calendar)} and {@link #handleHoliday(Calendar)} for every day.
+     * Subclasses that override either of these methods should return false.
+     */
+    protected boolean isSkippingWorkingWeeks() {
+        return true;
+    }
+
     protected void handleHoliday(Calendar c) {
-        if (!holidays.isEmpty()) {
-            Date current = c.getTime();
-            for (TimePeriod holiday : holidays) {
-                // check each holiday if it overlaps current date and break after first match
-                if (current.after(holiday.getFrom()) && current.before(holiday.getTo())) {
-                    
-                    Calendar tmp = new GregorianCalendar();
-                    tmp.setTime(holiday.getTo());   
-                    
-                    Calendar tmp2 = new GregorianCalendar();
-                    tmp2.setTime(current);
-                    tmp2.set(Calendar.HOUR_OF_DAY, 0);
-                    tmp2.set(Calendar.MINUTE, 0);
-                    tmp2.set(Calendar.SECOND, 0);
-                    tmp2.set(Calendar.MILLISECOND, 0);
-
-                    long difference = tmp.getTimeInMillis() - tmp2.getTimeInMillis();
-                    
-                    c.add(Calendar.HOUR_OF_DAY, (int) (difference/HOUR_IN_MILLIS));
-                    
-                    handleWeekend(c);
-                    break;
-                }
-            }
+        Date current = c.getTime();
+        // first configured holiday that overlaps current date
+        long holidayEnd = index.getHolidayEnd(current.getTime());
+        if (holidayEnd != BusinessCalendarIndex.NO_HOLIDAY) {
+
+            Calendar tmp = new GregorianCalendar();
+            tmp.setTimeInMillis(holidayEnd);
+
+            Calendar tmp2 = new GregorianCalendar();
+            tmp2.setTime(current);
+            tmp2.set(Calendar.HOUR_OF_DAY, 0);
+            tmp2.set(Calendar.MINUTE, 0);
+            tmp2.set(Calendar.SECOND, 0);
+            tmp2.set(Calendar.MILLISECOND, 0);
+
+            long difference = tmp.getTimeInMillis() - tmp2.getTimeInMillis();
+
+            c.add(Calendar.HOUR_OF_DAY, (int) (difference/HOUR_IN_MILLIS));
+
+            handleWeekend(c);
         }
-        
     }
 
     protected int getPropertyAsInt(String propertyName, String defaultValue) {
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.core.timer;
+
+import java.time.Instant;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Immutable, precomputed view of the holidays and weekend days of a <code>BusinessCalendarImpl</code>
+ * configuration. It is built once per configuration and shared by all calendar instances (and so all sessions)
+ * that use the same configuration.
+ * <p>
+ * Holidays are folded into sorted, non overlapping segments so that the holiday covering given time is found
+ * with binary search instead of scanning all configured holidays. Segments keep the holiday that was listed first
+ * in the configuration to preserve the semantics of the linear scan.
+ */
+final class BusinessCalendarIndex {
+
+    static final long NO_HOLIDAY = Long.MIN_VALUE;
+
+    private static final long WEEK_IN_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+
+    // sorted, distinct start and end times of all holidays
+    private final long[] boundaries;
+    // end of the holiday covering exactly given boundary
+    private final long[] boundaryHolidayEnd;
+    // end of the holiday covering the open segment between given boundary and the next one
+    private final long[] segmentHolidayEnd;
+    // sorted start times of all (non empty) holidays
+    private final long[] holidayStarts;
+
+    private final int workingDaysPerWeek;
+
+    /**
+     * @param from start of each holiday (exclusive), in the order holidays were configured
+     * @param to end of each holiday (exclusive), in the order holidays were configured
+     * @param weekendDays weekend days as <code>java.util.Calendar</code> day of week constants
+     */
+    BusinessCalendarIndex(long[] from, long[] to, Collection<Integer> weekendDays) {
+        TreeSet<Long> points = new TreeSet<Long>();
+        TreeSet<Long> starts = new TreeSet<Long>();
+        for (int i = 0; i < from.length; i++) {
+            points.add(from[i]);
+            points.add(to[i]);
+            if (from[i] < to[i]) {
+                starts.add(from[i]);
+            }
+        }
+        boundaries = toArray(points);
+        holidayStarts = toArray(starts);
+
+        boundaryHolidayEnd = new long[boundaries.length];
+        segmentHolidayEnd = new long[boundaries.length];
+        for (int k = 0; k < boundaries.length; k++) {
+            boundaryHolidayEnd[k] = NO_HOLIDAY;
+            segmentHolidayEnd[k] = NO_HOLIDAY;
+            for (int i = 0; i < from.length; i++) {
+                if (from[i] < boundaries[k] && boundaries[k] < to[i]) {
+                    boundaryHolidayEnd[k] = to[i];
+                    break;
+                }
+            }
+            if (k + 1 < boundaries.length) {
+                for (int i = 0; i < from.length; i++) {
+                    if (from[i] <= boundaries[k] && boundaries[k + 1] <= to[i]) {
+                        segmentHolidayEnd[k] = to[i];
+                        break;
+                    }
+                }
+            }
+        }
+
+        int workingDays = 0;
+        for (int day = Calendar.SUNDAY; day <= Calendar.SATURDAY; day++) {
+            if (!weekendDays.contains(day)) {
+                workingDays++;
+            }
+        }
+        this.workingDaysPerWeek = workingDays;
+    }
+
+    /**
+     * Returns end of the holiday that covers given time (both ends of the holiday excluded) or {@link #NO_HOLIDAY}
+     * when given time is not within any holiday.
+     */
+    long getHolidayEnd(long time) {
+        int k = Arrays.binarySearch(boundaries, time);
+        if (k >= 0) {
+            return boundaryHolidayEnd[k];
+        }
+        int segment = -k - 2;
+        if (segment < 0 || segment >= boundaries.length - 1) {
+            return NO_HOLIDAY;
+        }
+        return segmentHolidayEnd[segment];
+    }
+
+    /**
+     * Returns given time if it is within (or at the start of) any holiday, otherwise start of the next holiday
+     * or <code>Long.MAX_VALUE</code> when there is none.
+     */
+    long getNextHolidayStart(long time) {
+        if (getHolidayEnd(time) != NO_HOLIDAY) {
+            return time;
+        }
+        int k = Arrays.binarySearch(holidayStarts, time);
+        if (k >= 0) {
+            return time;
+        }
+        int next = -k - 1;
+        return next < holidayStarts.length ? holidayStarts[next] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Moves given calendar by as many whole weeks as possible while advancing it by at most given number of
+     * working days. Calendar is expected to be on a working day. Only weeks without any holiday and without any
+     * time zone offset change are skipped, so the outcome is the same as stepping day by day over weekends.
+     * @return number of working days the calendar was advanced by
+     */
+    int skipWorkingWeeks(Calendar c, int workingDays) {
+        if (workingDaysPerWeek == 0 || workingDays < workingDaysPerWeek) {
+            return 0;
+        }
+        long start = c.getTimeInMillis();
+        long limit = getNextHolidayStart(start);
+
+        ZoneRules rules = c.getTimeZone().toZoneId().getRules();
+        ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(start));
+        if (transition != null) {
+            limit = Math.min(limit, transition.getInstant().toEpochMilli());
+        }
+        if (limit <= start) {
+            return 0;
+        }
+        long weeks = Math.min(workingDays / workingDaysPerWeek, (limit - start) / WEEK_IN_MILLIS);
+        if (weeks > 0) {
+            c.add(Calendar.DAY_OF_YEAR, (int) weeks * 7);
+        }
+        return (int) weeks * workingDaysPerWeek;
+    }
+
+    int getWorkingDaysPerWeek() {
+        return workingDaysPerWeek;
+    }
+
+    private static long[] toArray(TreeSet<Long> values) {
+        long[] result = new long[values.size()];
+        int i = 0;
+        for (Long value : values) {
+            result[i++] = value;
+        }
+        return result;
+    }
+}
@@ -22,6 +22,7 @@ import org.jbpm.process.core.Context;
 import org.jbpm.process.instance.ContextInstance;
 import org.jbpm.process.instance.ContextInstanceContainer;
 import org.jbpm.process.instance.ProcessInstance;
+import org.jbpm.process.instance.impl.ProcessInstanceImpl;
 
 public abstract class AbstractContextInstance implements ContextInstance, Serializable {
 
@@ -56,5 +57,14 @@ public abstract class AbstractContextInstance implements ContextInstance, Serial
 	public void setProcessInstance(ProcessInstance processInstance) {
 		this.processInstance = processInstance;
 	}
+
+	/*
+	 * Marks owning process instance as modified, to be used whenever persistent state of this context instance changes
+	 */
+	protected void markProcessInstanceDirty() {
+		if (processInstance instanceof ProcessInstanceImpl) {
+			((ProcessInstanceImpl) processInstance).markDirty();
+		}
+	}
     
 }
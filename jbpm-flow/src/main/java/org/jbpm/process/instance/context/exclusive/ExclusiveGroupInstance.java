@@ -40,6 +40,7 @@ public class ExclusiveGroupInstance extends AbstractContextInstance {
     
     public void addNodeInstance(NodeInstance nodeInstance) {
     	nodeInstances.put(nodeInstance.getId(), nodeInstance);
+    	markProcessInstanceDirty();
     }
     
     public Collection<NodeInstance> getNodeInstances() {
@@ -42,6 +42,7 @@ public class SwimlaneContextInstance extends AbstractContextInstance {
 
     public void setActorId(String swimlane, String actorId) {
         swimlaneActors.put(swimlane, actorId);
+        markProcessInstanceDirty();
     }
     
     public Map<String, String> getSwimlaneActors() {
@@ -16,6 +16,10 @@
 
 package org.jbpm.process.instance.context.variable;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -23,6 +27,7 @@ import java.util.Map;
 
 import org.drools.core.ClassObjectFilter;
 import org.drools.core.event.ProcessEventSupport;
+import org.jbpm.marshalling.impl.MarshalledVariableValue;
 import org.jbpm.process.core.context.variable.Variable;
 import org.jbpm.process.core.context.variable.VariableScope;
 import org.jbpm.process.instance.ContextInstanceContainer;
@@ -48,10 +53,20 @@ public class VariableScopeInstance extends AbstractContextInstance {
         return VariableScope.VARIABLE_SCOPE;
     }
 
+    /**
+     * Reading a value that is not known to be immutable (see {@link #isImmutable(Object)}) marks the process instance
+     * dirty, as there is no cheap way to find out whether the caller modified it in place. So with dirty tracking enabled
+     * only process instances that read no or only immutable values skip marshalling. Values modified in place through
+     * a reference obtained before the process instance was last stored are not detected.
+     */
     public Object getVariable(String name) {
                 
-        Object value = variables.get(name);
+        Object value = loadVariable(name);
         if (value != null) {
+            if (!isImmutable(value)) {
+                // value might be modified in place by the caller
+                markProcessInstanceDirty();
+            }
             return value;
         }
 
@@ -87,15 +102,41 @@ public class VariableScopeInstance extends AbstractContextInstance {
     }
 
     public Map<String, Object> getVariables() {
+        loadVariables();
+        if (hasMutableValues()) {
+            // values might be modified in place by the caller
+            markProcessInstanceDirty();
+        }
+        return Collections.unmodifiableMap(variables);
+    }
+
+    /**
+     * Returns variables without unmarshalling values that were not accessed since the process instance was loaded,
+     * such values are represented by {@link MarshalledVariableValue}. Meant for marshalling only.
+     */
+    public Map<String, Object> getRawVariables() {
         return Collections.unmodifiableMap(variables);
     }
 
+    /**
+     * @return true if any of the variable values might be modified in place, values not yet unmarshalled
+     * are considered mutable
+     */
+    public boolean hasMutableValues() {
+        for (Object value : variables.values()) {
+            if (value != null && !isImmutable(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void setVariable(String name, Object value) {
         if (name == null) {
             throw new IllegalArgumentException(
                 "The name of a variable may not be null!");
         }
-        Object oldValue = variables.get(name);
+        Object oldValue = loadVariable(name);
         if (oldValue == null) {
         	if (value == null) {
         		return;
@@ -134,6 +175,41 @@ public class VariableScopeInstance extends AbstractContextInstance {
         }
         // not a case, store it in normal variables
     	variables.put(name, value);
+    	markProcessInstanceDirty();
+    }
+
+    /*
+     * unmarshals the value on first access, the process instance is not marked dirty
+     * as its marshalled form stays the same
+     */
+    private Object loadVariable(String name) {
+        Object value = variables.get(name);
+        if (value instanceof MarshalledVariableValue) {
+            value = ((MarshalledVariableValue) value).unmarshal(name);
+            variables.put(name, value);
+        }
+        return value;
+    }
+
+    private void loadVariables() {
+        for (Map.Entry<String, Object> entry : variables.entrySet()) {
+            if (entry.getValue() instanceof MarshalledVariableValue) {
+                entry.setValue(((MarshalledVariableValue) entry.getValue()).unmarshal(entry.getKey()));
+            }
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // marshalled values are bound to the stream they were read from
+        loadVariables();
+        out.defaultWriteObject();
+    }
+
+    protected static boolean isImmutable(Object value) {
+        return value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof Double || value instanceof Float || value instanceof BigDecimal || value instanceof BigInteger
+                || value instanceof Enum;
     }
     
     public VariableScope getVariableScope() {
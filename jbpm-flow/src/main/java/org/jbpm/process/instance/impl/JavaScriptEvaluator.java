@@ -0,0 +1,300 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.instance.impl;
+
+import java.lang.ref.SoftReference;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
+
+import org.jbpm.process.core.context.variable.VariableScope;
+import org.jbpm.process.instance.context.variable.VariableScopeInstance;
+import org.jbpm.workflow.instance.WorkflowProcessInstance;
+import org.kie.api.runtime.Globals;
+import org.kie.api.runtime.process.ProcessContext;
+
+/**
+ * Evaluates JavaScript actions and constraints.
+ * <p>
+ * Script engines are pooled per class loader (the context class loader of the evaluating thread). An engine is used
+ * by one evaluation at a time and keeps the scripts it compiled, so a script is compiled once per engine instead of
+ * on every evaluation. Number of compiled scripts kept per engine is bounded by
+ * <code>org.jbpm.javascript.cache.size</code> system property (200 by default).
+ * <p>
+ * Every engine keeps its engine scope bindings (the script global object) between evaluations, process data is
+ * exposed in global scope bindings that resolve <code>kcontext</code>, process variables and globals on demand.
+ * Names a script defines in the global object are removed once it completes, should that not be possible
+ * (e.g. top level <code>var</code> declarations) new engine scope bindings are created.
+ * <p>
+ * Pools are released with {@link #clear(ClassLoader)} once the class loader is no longer used (e.g. deployment
+ * is undeployed), pools never cleared are only softly reachable.
+ */
+public class JavaScriptEvaluator {
+
+    private static final int CACHE_SIZE = Integer.parseInt(System.getProperty("org.jbpm.javascript.cache.size", "200"));
+
+    private static final Map<ClassLoader, SoftReference<Deque<EngineHolder>>> ENGINES =
+            Collections.synchronizedMap(new WeakHashMap<ClassLoader, SoftReference<Deque<EngineHolder>>>());
+
+    private JavaScriptEvaluator() {
+    }
+
+    public static Object eval(String expr, ProcessContext context) throws ScriptException {
+        ClassLoader classLoader = getClassLoader();
+        Deque<EngineHolder> pool = getPool(classLoader);
+        // most recently used engine first, its compiled scripts are most likely to be reused
+        EngineHolder holder = pool.pollFirst();
+        if (holder == null) {
+            holder = new EngineHolder(classLoader);
+        }
+        try {
+            return holder.eval(expr, context);
+        } finally {
+            pool.offerFirst(holder);
+        }
+    }
+
+    /**
+     * Releases all script engines (and compiled scripts) created for given class loader.
+     */
+    public static void clear(ClassLoader classLoader) {
+        if (classLoader != null) {
+            ENGINES.remove(classLoader);
+        }
+    }
+
+    private static ClassLoader getClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader != null ? classLoader : JavaScriptEvaluator.class.getClassLoader();
+    }
+
+    private static Deque<EngineHolder> getPool(ClassLoader classLoader) {
+        synchronized (ENGINES) {
+            SoftReference<Deque<EngineHolder>> reference = ENGINES.get(classLoader);
+            Deque<EngineHolder> pool = reference == null ? null : reference.get();
+            if (pool == null) {
+                pool = new ConcurrentLinkedDeque<EngineHolder>();
+                ENGINES.put(classLoader, new SoftReference<Deque<EngineHolder>>(pool));
+            }
+            return pool;
+        }
+    }
+
+    private static class EngineHolder {
+
+        private final ScriptEngine engine;
+        private final Map<String, CompiledScript> scripts = new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        private Bindings engineBindings;
+        private Set<String> engineKeys;
+
+        EngineHolder(ClassLoader classLoader) {
+            this.engine = new ScriptEngineManager(classLoader).getEngineByName("JavaScript");
+            if (engine == null) {
+                throw new IllegalStateException("No JavaScript engine available");
+            }
+            newEngineBindings();
+        }
+
+        Object eval(String expr, ProcessContext context) throws ScriptException {
+            ScriptContext scriptContext = new SimpleScriptContext();
+            scriptContext.setBindings(engineBindings, ScriptContext.ENGINE_SCOPE);
+            scriptContext.setBindings(new ProcessContextBindings(context), ScriptContext.GLOBAL_SCOPE);
+            try {
+                CompiledScript script = getScript(expr);
+                if (script != null) {
+                    return script.eval(scriptContext);
+                }
+                return engine.eval(expr, scriptContext);
+            } finally {
+                resetEngineBindings();
+            }
+        }
+
+        /*
+         * Removes names defined by the last script so that they neither leak into nor shadow process data
+         * of following evaluations.
+         */
+        private void resetEngineBindings() {
+            if (engineKeys.equals(engineBindings.keySet())) {
+                return;
+            }
+            for (String key : new ArrayList<String>(engineBindings.keySet())) {
+                if (!engineKeys.contains(key)) {
+                    engineBindings.remove(key);
+                }
+            }
+            if (!engineKeys.equals(engineBindings.keySet())) {
+                newEngineBindings();
+            }
+        }
+
+        private void newEngineBindings() {
+            engineBindings = engine.createBindings();
+            engineKeys = new HashSet<String>(engineBindings.keySet());
+        }
+
+        CompiledScript getScript(String expr) throws ScriptException {
+            if (!(engine instanceof Compilable) || CACHE_SIZE <= 0) {
+                return null;
+            }
+            CompiledScript script = scripts.get(expr);
+            if (script == null) {
+                script = ((Compilable) engine).compile(expr);
+                scripts.put(expr, script);
+            }
+            return script;
+        }
+    }
+
+    /**
+     * Global scope bindings resolving <code>kcontext</code>, process variables and globals when accessed. Values
+     * stored by the script engine are kept locally and take precedence.
+     */
+    private static class ProcessContextBindings extends AbstractMap<String, Object> implements Bindings {
+
+        private final ProcessContext context;
+        private final Map<String, Object> values = new HashMap<String, Object>();
+        private VariableScopeInstance variableScope;
+        private Globals globals;
+        private Set<String> globalKeys;
+
+        ProcessContextBindings(ProcessContext context) {
+            this.context = context;
+            if (context.getProcessInstance() != null && context.getProcessInstance().getProcess() != null) {
+                this.variableScope = (VariableScopeInstance) ((WorkflowProcessInstance) context.getProcessInstance())
+                        .getContextInstance(VariableScope.VARIABLE_SCOPE);
+            }
+            if (context.getKieRuntime() != null) {
+                this.globals = context.getKieRuntime().getGlobals();
+            }
+        }
+
+        @Override
+        public Object put(String name, Object value) {
+            return values.put(name, value);
+        }
+
+        @Override
+        public Object remove(Object key) {
+            return values.remove(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            if (values.containsKey(key)) {
+                return true;
+            }
+            String name = (String) key;
+            if (isEngineKey(name)) {
+                return false;
+            }
+            if ("kcontext".equals(name)) {
+                return true;
+            }
+            if (variableScope != null && variableScope.getVariableScope().findVariable(name) != null) {
+                return true;
+            }
+            return getGlobalKeys().contains(name) || resolve(name) != null;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (values.containsKey(key)) {
+                return values.get(key);
+            }
+            if (isEngineKey((String) key)) {
+                return null;
+            }
+            Object value = resolve((String) key);
+            if (value != null) {
+                // resolve every name only once, engine usually checks presence before reading the value
+                values.put((String) key, value);
+            }
+            return value;
+        }
+
+        // engine internal names (e.g. nashorn.global) are never process data
+        private boolean isEngineKey(String name) {
+            return name.startsWith("nashorn.") || name.startsWith("javax.script.");
+        }
+
+        private Object resolve(String name) {
+            if ("kcontext".equals(name)) {
+                return context;
+            }
+            if (variableScope != null) {
+                Object value = variableScope.getVariable(name);
+                if (value != null) {
+                    return value;
+                }
+            }
+            if (globals != null) {
+                return globals.get(name);
+            }
+            return null;
+        }
+
+        private Set<String> getGlobalKeys() {
+            if (globalKeys == null) {
+                globalKeys = new HashSet<String>();
+                if (globals != null && globals.getGlobalKeys() != null) {
+                    globalKeys.addAll(globals.getGlobalKeys());
+                }
+            }
+            return globalKeys;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            Map<String, Object> all = new HashMap<String, Object>();
+            for (String gKey : getGlobalKeys()) {
+                all.put(gKey, globals.get(gKey));
+            }
+            all.put("kcontext", context);
+            if (variableScope != null) {
+                all.putAll(variableScope.getVariables());
+            }
+            all.putAll(values);
+            return all.entrySet();
+        }
+    }
+}
@@ -60,6 +60,8 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     private String outcome;
     private long parentProcessInstanceId;
     private String description;
+    // set whenever persistent state of the process instance might have changed since it was last stored
+    private boolean dirty = true;
 
     public void setId(final long id) {
         this.id = id;
@@ -70,12 +72,16 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     }
 
     public void setProcess(final Process process) {
+        if (this.processId != null && !this.processId.equals(process.getId())) {
+            markDirty();
+        }
         this.processId = process.getId();
         this.process = ( Process ) process;
     }
     
     public void updateProcess(final Process process) {
     	setProcess(process);
+    	markDirty();
     	XmlProcessDumper dumper = XmlProcessDumperFactory.newXmlProcessDumperFactory();
     	this.processXml = dumper.dumpProcess(process);
     }
@@ -87,6 +93,7 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     public void setProcessXml(String processXml) {
     	if (processXml != null && processXml.trim().length() > 0) {
     		this.processXml = processXml;
+    		markDirty();
     	}
     }
 
@@ -106,6 +113,9 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     }
     
     public void setProcessId(String processId) {
+    	if (this.processId != null && !this.processId.equals(processId)) {
+    	    markDirty();
+    	}
     	this.processId = processId;
     }
     
@@ -123,11 +133,13 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     
     public void setState(final int state, String outcome) {
         this.outcome = outcome;
+        markDirty();
         internalSetState(state);
     }
     
     public void internalSetState(final int state) {
     	this.state = state;
+    	markDirty();
     }
 
     public int getState() {
@@ -158,6 +170,7 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     
     public void setContextInstance(String contextId, ContextInstance contextInstance) {
         this.contextInstances.put(contextId, contextInstance);
+        markDirty();
     }
     
     public ContextInstance getContextInstance(String contextId) {
@@ -184,12 +197,14 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
             this.subContextInstances.put(contextId, list);
         }
         list.add(contextInstance);
+        markDirty();
     }
 
     public void removeContextInstance(String contextId, ContextInstance contextInstance) {
         List<ContextInstance> list = this.subContextInstances.get(contextId);
         if (list != null) {
             list.remove(contextInstance);
+            markDirty();
         }
     }
 
@@ -271,6 +286,7 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
 
     public void setOutcome(String outcome) {
         this.outcome = outcome;
+        markDirty();
     }
 
     public String getOutcome() {
@@ -283,6 +299,7 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
 
     public void setParentProcessInstanceId(long parentProcessInstanceId) {
         this.parentProcessInstanceId = parentProcessInstanceId;
+        markDirty();
     }
     
     public String getDescription() {
@@ -321,5 +338,28 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     
     public void setDescription(String description) {
     	this.description = description;
+    	markDirty();
+    }
+
+    /**
+     * Marks this process instance as modified so it will be marshalled again when it is stored.
+     * Any change to the state of the process instance that is persisted should call this method.
+     */
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    /**
+     * @return true if the process instance might have been modified since it was last stored or loaded
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Clears the modification flag, invoked once the process instance has been stored or loaded.
+     */
+    public void clearDirty() {
+        this.dirty = false;
     }
 }
@@ -26,17 +26,17 @@ import java.util.List;
 
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.namespace.QName;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFunction;
 import javax.xml.xpath.XPathFunctionException;
 import javax.xml.xpath.XPathFunctionResolver;
 import javax.xml.xpath.XPathVariableResolver;
 
 import org.kie.api.runtime.process.ProcessContext;
+import org.w3c.dom.Document;
 
 public class XPATHReturnValueEvaluator
     implements
@@ -44,9 +44,36 @@ public class XPATHReturnValueEvaluator
     Externalizable {
     private static final long   serialVersionUID = 510l;
 
+    private static final NamespaceContext NAMESPACE_CONTEXT = new NamespaceContext() {
+        private static final String DROOLS_NAMESPACE_URI = "http://www.jboss.org/drools";
+        private String[] prefixes = {"drools", "bpmn2"};
+        @Override
+        public Iterator getPrefixes(String namespaceURI) {
+            return Arrays.asList(prefixes).iterator();
+        }
+
+        @Override
+        public String getPrefix(String namespaceURI) {
+            if (DROOLS_NAMESPACE_URI.equalsIgnoreCase(namespaceURI)) {
+                return "bpmn2";
+            }
+            return null;
+        }
+
+        @Override
+        public String getNamespaceURI(String prefix) {
+            if ("bpmn2".equalsIgnoreCase(prefix)) {
+                return DROOLS_NAMESPACE_URI;
+            }
+            return null;
+        }
+    };
+
     private String              expression;
     private String              id;
 
+    private final transient ThreadLocal<CompiledExpression> compiled = new ThreadLocal<CompiledExpression>();
+
     public XPATHReturnValueEvaluator() {
     }
 
@@ -71,68 +98,68 @@ public class XPATHReturnValueEvaluator
         return this.id;
     }
 
-    public Object evaluate(final ProcessContext context) throws Exception {        
-    	XPathFactory factory = XPathFactory.newInstance();
-    	XPath xpathEvaluator = factory.newXPath();
-    	xpathEvaluator.setXPathFunctionResolver( 
-    			new  XPathFunctionResolver() {
-    				public XPathFunction resolveFunction(QName functionName, int arity)
-    				{
-    					String localName = functionName.getLocalPart();
-    					if ("getVariable".equals(localName)) {
-    						return new GetVariableData();
-    					}
-    					else {
-                            throw new IllegalArgumentException("Unknown BPMN function: " + functionName);
-    					}
-    				}
-
-    				class GetVariableData implements XPathFunction {
-    					public Object evaluate(List args) throws XPathFunctionException {
-    						String varname = (String) args.get(0);
-    						return context.getVariable(varname);
-    					}
-    				}
-    			}
-    	);
-    	xpathEvaluator.setXPathVariableResolver(new XPathVariableResolver() {
-            
-            public Object resolveVariable(QName variableName) {
-                return context.getVariable(variableName.getLocalPart());
-            }
-        });
-    	
-    	xpathEvaluator.setNamespaceContext(new NamespaceContext() {
-			private static final String DROOLS_NAMESPACE_URI = "http://www.jboss.org/drools";
-			private String[] prefixes = {"drools", "bpmn2"};
-			@Override
-			public Iterator getPrefixes(String namespaceURI) {
-				return Arrays.asList(prefixes).iterator();
-			}
-			
-			@Override
-			public String getPrefix(String namespaceURI) {
-				if (DROOLS_NAMESPACE_URI.equalsIgnoreCase(namespaceURI)) {
-					return "bpmn2";
-				}
-				return null;
-			}
-			
-			@Override
-			public String getNamespaceURI(String prefix) {
-				if ("bpmn2".equalsIgnoreCase(prefix)) {
-					return DROOLS_NAMESPACE_URI;
-				}
-				return null;
-			}
-		});
-
-		DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-        return xpathEvaluator.evaluate(this.expression, builder.newDocument(), XPathConstants.BOOLEAN);
+    public Object evaluate(final ProcessContext context) throws Exception {
+        CompiledExpression compiledExpression = compiled.get();
+        if (compiledExpression == null) {
+            // compiled expressions are not thread safe, compile once per thread
+            compiledExpression = new CompiledExpression(this.expression);
+            compiled.set(compiledExpression);
+        }
+        return compiledExpression.evaluate(context);
     }
 
     public String toString() {
         return this.expression;
     }
 
+    /**
+     * Expression compiled for a single thread, variables and functions are resolved against
+     * the process context of the current evaluation.
+     */
+    private static class CompiledExpression implements XPathFunctionResolver, XPathVariableResolver {
+
+        private final XPathExpression expression;
+        private final Document document;
+        private ProcessContext context;
+
+        CompiledExpression(String expression) throws Exception {
+            XPath xpath = XPATHSupport.newXPath();
+            xpath.setXPathFunctionResolver(this);
+            xpath.setXPathVariableResolver(this);
+            xpath.setNamespaceContext(NAMESPACE_CONTEXT);
+            this.expression = xpath.compile(expression);
+            this.document = XPATHSupport.newDocument();
+        }
+
+        Object evaluate(ProcessContext context) throws XPathExpressionException {
+            this.context = context;
+            try {
+                return expression.evaluate(document, XPathConstants.BOOLEAN);
+            } finally {
+                this.context = null;
+            }
+        }
+
+        public XPathFunction resolveFunction(QName functionName, int arity) {
+            String localName = functionName.getLocalPart();
+            if ("getVariable".equals(localName)) {
+                return new GetVariableData();
+            }
+            else {
+                throw new IllegalArgumentException("Unknown BPMN function: " + functionName);
+            }
+        }
+
+        public Object resolveVariable(QName variableName) {
+            return context.getVariable(variableName.getLocalPart());
+        }
+
+        class GetVariableData implements XPathFunction {
+            public Object evaluate(List args) throws XPathFunctionException {
+                String varname = (String) args.get(0);
+                return context.getVariable(varname);
+            }
+        }
+    }
+
 }
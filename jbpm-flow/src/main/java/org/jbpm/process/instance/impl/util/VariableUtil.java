@@ -17,11 +17,11 @@ package org.jbpm.process.instance.impl.util;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
 
 import org.jbpm.process.core.context.variable.VariableScope;
 import org.jbpm.process.instance.context.variable.VariableScopeInstance;
-import org.jbpm.util.PatternConstants;
+import org.jbpm.util.ParameterTemplate;
+import org.jbpm.util.ProcessExpressionCache;
 import org.kie.api.runtime.process.NodeInstance;
 
 
@@ -33,9 +33,8 @@ public class VariableUtil {
         }
         
         Map<String, String> replacements = new HashMap<String, String>();
-        Matcher matcher = PatternConstants.PARAMETER_MATCHER.matcher(s);
-        while (matcher.find()) {
-            String paramName = matcher.group(1);
+        ParameterTemplate template = ProcessExpressionCache.get(nodeInstance).getTemplate(s);
+        for (String paramName : template.getParameterNames()) {
             if (replacements.get(paramName) == null) {
                 VariableScopeInstance variableScopeInstance = (VariableScopeInstance)
                         ((org.jbpm.workflow.instance.NodeInstance)nodeInstance).resolveContextInstance(VariableScope.VARIABLE_SCOPE, paramName);
@@ -46,9 +45,7 @@ public class VariableUtil {
                 }
             }
         }
-        for (Map.Entry<String, String> replacement: replacements.entrySet()) {
-            s = s.replace("#{" + replacement.getKey() + "}", replacement.getValue());
-        }
+        s = template.resolve(replacements);
         
         return s;
     }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * String with <code>#{expression}</code> parameters parsed into literal parts and parameter names.
+ * <p>
+ * Parameters are recognized the same way as by {@link PatternConstants#PARAMETER_MATCHER} - <code>#{</code>
+ * followed by at least one character up to the closest <code>}</code>. Parsed templates are immutable and
+ * can be shared, see {@link ProcessExpressionCache}.
+ */
+public final class ParameterTemplate {
+
+    private static final String PREFIX = "#{";
+    private static final char SUFFIX = '}';
+
+    private final String template;
+    // literals.length == parameters.length + 1
+    private final String[] literals;
+    private final String[] parameters;
+    private final List<String> parameterNames;
+
+    private ParameterTemplate(String template, String[] literals, String[] parameters, List<String> parameterNames) {
+        this.template = template;
+        this.literals = literals;
+        this.parameters = parameters;
+        this.parameterNames = parameterNames;
+    }
+
+    public static ParameterTemplate parse(String template) {
+        List<String> literals = new ArrayList<String>();
+        List<String> parameters = new ArrayList<String>();
+        List<String> parameterNames = new ArrayList<String>();
+
+        int literalStart = 0;
+        int index = template.indexOf(PREFIX);
+        while (index >= 0) {
+            int end = template.indexOf(SUFFIX, index + PREFIX.length());
+            if (end < 0) {
+                break;
+            }
+            if (end == index + PREFIX.length()) {
+                // empty expression is not a parameter
+                index = template.indexOf(PREFIX, index + 1);
+                continue;
+            }
+            String parameter = template.substring(index + PREFIX.length(), end);
+            literals.add(template.substring(literalStart, index));
+            parameters.add(parameter);
+            if (!parameterNames.contains(parameter)) {
+                parameterNames.add(parameter);
+            }
+            literalStart = end + 1;
+            index = template.indexOf(PREFIX, literalStart);
+        }
+        literals.add(template.substring(literalStart));
+
+        return new ParameterTemplate(template, literals.toArray(new String[literals.size()]),
+                parameters.toArray(new String[parameters.size()]), Collections.unmodifiableList(parameterNames));
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public boolean hasParameters() {
+        return parameters.length > 0;
+    }
+
+    /**
+     * @return distinct parameter names in order of their first occurrence
+     */
+    public List<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * Replaces parameters with given values, parameters without value are kept as they are.
+     */
+    public String resolve(Map<String, String> replacements) {
+        if (parameters.length == 0) {
+            return template;
+        }
+        StringBuilder result = new StringBuilder(template.length() + 16);
+        for (int i = 0; i < parameters.length; i++) {
+            result.append(literals[i]);
+            String value = replacements.get(parameters[i]);
+            if (value != null) {
+                result.append(value);
+            } else {
+                result.append(PREFIX).append(parameters[i]).append(SUFFIX);
+            }
+        }
+        result.append(literals[parameters.length]);
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.util;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.drools.core.util.MVELSafeHelper;
+import org.jbpm.process.core.impl.ProcessImpl;
+import org.kie.api.definition.process.Process;
+import org.kie.api.runtime.process.NodeInstance;
+import org.mvel2.MVEL;
+import org.mvel2.integration.VariableResolverFactory;
+
+/**
+ * Cache of parsed <code>#{expression}</code> templates and compiled MVEL expressions used by data associations
+ * of a process definition. It is kept by the process definition (see {@link ProcessImpl#getExpressionCache()})
+ * so it is shared by all its instances and populated on first use.
+ * <p>
+ * Strings handled by the cache might also come from process variables, so number of cached entries is bounded
+ * by <code>org.jbpm.expression.cache.size</code> system property (500 by default, 0 disables the cache), once
+ * the limit is reached new strings are parsed and evaluated without caching.
+ */
+public class ProcessExpressionCache {
+
+    private static final int MAX_SIZE = Integer.parseInt(System.getProperty("org.jbpm.expression.cache.size", "500"));
+
+    private static final ProcessExpressionCache NO_CACHE = new ProcessExpressionCache(0);
+
+    private final int maxSize;
+    private final ConcurrentMap<String, ParameterTemplate> templates = new ConcurrentHashMap<String, ParameterTemplate>();
+    private final ConcurrentMap<String, Serializable> expressions = new ConcurrentHashMap<String, Serializable>();
+
+    public ProcessExpressionCache() {
+        this(MAX_SIZE);
+    }
+
+    public ProcessExpressionCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public static ProcessExpressionCache get(Process process) {
+        if (process instanceof ProcessImpl) {
+            return ((ProcessImpl) process).getExpressionCache();
+        }
+        return NO_CACHE;
+    }
+
+    public static ProcessExpressionCache get(NodeInstance nodeInstance) {
+        if (nodeInstance == null || nodeInstance.getProcessInstance() == null) {
+            return NO_CACHE;
+        }
+        return get(nodeInstance.getProcessInstance().getProcess());
+    }
+
+    /**
+     * Returns parsed template for given string.
+     */
+    public ParameterTemplate getTemplate(String s) {
+        ParameterTemplate template = templates.get(s);
+        if (template == null) {
+            template = ParameterTemplate.parse(s);
+            if (templates.size() < maxSize) {
+                templates.putIfAbsent(s, template);
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Evaluates given MVEL expression, compiling it on first use.
+     * <p>
+     * Expressions that cannot be compiled are interpreted so errors are reported the same way as with
+     * <code>MVELSafeHelper.getEvaluator().eval(expression, factory)</code>. Errors of the compiled expression
+     * itself are propagated as is, the expression is never evaluated twice.
+     */
+    public Object evaluate(String expression, VariableResolverFactory factory) {
+        Serializable compiled = expressions.get(expression);
+        if (compiled == null) {
+            if (expressions.size() >= maxSize) {
+                return MVELSafeHelper.getEvaluator().eval(expression, factory);
+            }
+            try {
+                compiled = MVEL.compileExpression(expression);
+            } catch (RuntimeException e) {
+                // report the error the same way as interpreted expression does
+                return MVELSafeHelper.getEvaluator().eval(expression, factory);
+            }
+            Serializable existing = expressions.putIfAbsent(expression, compiled);
+            if (existing != null) {
+                compiled = existing;
+            }
+        }
+        return MVELSafeHelper.getEvaluator().executeExpression(compiled, null, factory);
+    }
+
+    public int size() {
+        return templates.size() + expressions.size();
+    }
+
+    public void clear() {
+        templates.clear();
+        expressions.clear();
+    }
+}
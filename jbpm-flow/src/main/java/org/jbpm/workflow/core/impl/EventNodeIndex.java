@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workflow.core.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jbpm.process.core.event.EventFilter;
+import org.jbpm.process.core.event.EventTypeFilter;
+import org.jbpm.process.core.event.NonAcceptingEventTypeFilter;
+import org.jbpm.workflow.core.node.BoundaryEventNode;
+import org.jbpm.workflow.core.node.CompositeContextNode;
+import org.jbpm.workflow.core.node.CompositeNode;
+import org.jbpm.workflow.core.node.DynamicNode;
+import org.jbpm.workflow.core.node.EventNode;
+import org.jbpm.workflow.core.node.EventNodeInterface;
+import org.jbpm.workflow.core.node.EventSubProcessNode;
+import org.jbpm.workflow.core.node.ForEachNode;
+import org.jbpm.workflow.core.node.StateNode;
+import org.kie.api.definition.process.Node;
+
+/**
+ * Index of the top level event nodes of a process by the event types they can accept.
+ * <p>
+ * Event types are collected statically from the event filters of the nodes (and their children
+ * for composite nodes). Nodes whose accepted types cannot be determined up front - event types
+ * given as <code>#{expression}</code>, filters other than plain type filters or node types not
+ * known to this index - are considered dynamic and are returned as candidates for every event type.
+ * <p>
+ * Candidates are returned in the same order as the nodes of the process and callers are still
+ * expected to verify them with <code>acceptsEvent</code>, the index only narrows down the nodes
+ * that need to be checked.
+ */
+public class EventNodeIndex {
+
+    private static final String EXPRESSION_PREFIX = "#{";
+
+    private final Map<String, List<Node>> nodesByType = new HashMap<String, List<Node>>();
+    private final List<Node> dynamicNodes = new ArrayList<Node>();
+
+    public EventNodeIndex(Node[] nodes) {
+        List<Node> eventNodes = new ArrayList<Node>();
+        List<Set<String>> eventTypes = new ArrayList<Set<String>>();
+        Set<String> knownTypes = new HashSet<String>();
+
+        for (Node node : nodes) {
+            if (node instanceof EventNodeInterface) {
+                Set<String> types = collectEventTypes(node);
+                eventNodes.add(node);
+                eventTypes.add(types);
+                if (types == null) {
+                    dynamicNodes.add(node);
+                } else {
+                    knownTypes.addAll(types);
+                }
+            }
+        }
+
+        for (String type : knownTypes) {
+            List<Node> candidates = new ArrayList<Node>();
+            for (int i = 0; i < eventNodes.size(); i++) {
+                Set<String> types = eventTypes.get(i);
+                if (types == null || types.contains(type)) {
+                    candidates.add(eventNodes.get(i));
+                }
+            }
+            nodesByType.put(type, Collections.unmodifiableList(candidates));
+        }
+    }
+
+    /**
+     * Returns nodes that might accept given event type, in the order they are defined in the process.
+     * @param type event type
+     * @return candidate nodes, never null
+     */
+    public List<Node> getEventNodes(String type) {
+        List<Node> candidates = nodesByType.get(type);
+        if (candidates != null) {
+            return candidates;
+        }
+        return Collections.unmodifiableList(dynamicNodes);
+    }
+
+    public Collection<String> getEventTypes() {
+        return Collections.unmodifiableSet(nodesByType.keySet());
+    }
+
+    public boolean isDynamic(Node node) {
+        return dynamicNodes.contains(node);
+    }
+
+    /**
+     * Collects all event types given node can accept.
+     * @return set of event types or null if they cannot be determined statically
+     */
+    protected static Set<String> collectEventTypes(Node node) {
+        Set<String> types = new HashSet<String>();
+        if (collectEventTypes(node, types)) {
+            return types;
+        }
+        return null;
+    }
+
+    private static boolean collectEventTypes(Node node, Set<String> types) {
+        // exact class checks on purpose as subclasses might override acceptsEvent
+        Class<?> nodeClass = node.getClass();
+        if (nodeClass == EventNode.class || nodeClass == BoundaryEventNode.class) {
+            List<EventFilter> filters = ((EventNode) node).getEventFilters();
+            if (filters == null || filters.isEmpty()) {
+                // event node without filters accepts any event
+                return false;
+            }
+            for (EventFilter filter : filters) {
+                if (!collectFilterType(filter, types)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (nodeClass == EventSubProcessNode.class) {
+            for (EventTypeFilter filter : ((EventSubProcessNode) node).getEventTypeFilters()) {
+                if (!collectFilterType(filter, types)) {
+                    return false;
+                }
+            }
+            return collectChildEventTypes((CompositeNode) node, types);
+        } else if (nodeClass == DynamicNode.class) {
+            for (Node child : ((DynamicNode) node).getNodes()) {
+                if (child.getName() != null && child.getIncomingConnections().isEmpty()) {
+                    types.add(child.getName());
+                }
+            }
+            return collectChildEventTypes((CompositeNode) node, types);
+        } else if (nodeClass == CompositeNode.class || nodeClass == CompositeContextNode.class
+                || nodeClass == StateNode.class || nodeClass == ForEachNode.class) {
+            return collectChildEventTypes((CompositeNode) node, types);
+        }
+        return false;
+    }
+
+    private static boolean collectChildEventTypes(CompositeNode compositeNode, Set<String> types) {
+        for (Node child : compositeNode.internalGetNodes()) {
+            if (child instanceof EventNodeInterface && !collectEventTypes(child, types)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean collectFilterType(EventFilter filter, Set<String> types) {
+        if (filter instanceof NonAcceptingEventTypeFilter) {
+            // never accepts any event
+            return true;
+        }
+        if (filter == null || filter.getClass() != EventTypeFilter.class) {
+            return false;
+        }
+        String type = ((EventTypeFilter) filter).getType();
+        if (type == null) {
+            return true;
+        }
+        if (type.contains(EXPRESSION_PREFIX)) {
+            return false;
+        }
+        types.add(type);
+        return true;
+    }
+}
@@ -41,6 +41,7 @@ import org.jbpm.process.instance.context.variable.VariableScopeInstance;
 import org.jbpm.process.instance.impl.Action;
 import org.jbpm.process.instance.impl.ConstraintEvaluator;
 import org.jbpm.process.instance.impl.NoOpExecutionErrorHandler;
+import org.jbpm.process.instance.impl.ProcessInstanceImpl;
 import org.jbpm.workflow.core.impl.NodeImpl;
 import org.jbpm.workflow.instance.WorkflowProcessInstance;
 import org.jbpm.workflow.instance.WorkflowRuntimeException;
@@ -111,6 +112,16 @@ public abstract class NodeInstanceImpl implements org.jbpm.workflow.instance.Nod
         return this.processInstance;
     }
 
+    /*
+     * Marks owning process instance as modified, to be used when persistent state of this node instance
+     * changes outside of regular node instance add/remove
+     */
+    protected void markProcessInstanceDirty() {
+        if (this.processInstance instanceof ProcessInstanceImpl) {
+            ((ProcessInstanceImpl) this.processInstance).markDirty();
+        }
+    }
+
     public NodeInstanceContainer getNodeInstanceContainer() {
         return this.nodeInstanceContainer;
     }
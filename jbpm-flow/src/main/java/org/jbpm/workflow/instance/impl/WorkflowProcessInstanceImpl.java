@@ -17,6 +17,7 @@
 package org.jbpm.workflow.instance.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -25,11 +26,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 
 import org.drools.core.common.InternalKnowledgeRuntime;
-import org.drools.core.util.MVELSafeHelper;
 import org.jbpm.process.core.ContextContainer;
 import org.jbpm.process.core.context.variable.VariableScope;
 import org.jbpm.process.core.timer.Timer;
@@ -38,9 +37,11 @@ import org.jbpm.process.instance.InternalProcessRuntime;
 import org.jbpm.process.instance.ProcessInstance;
 import org.jbpm.process.instance.context.variable.VariableScopeInstance;
 import org.jbpm.process.instance.impl.ProcessInstanceImpl;
-import org.jbpm.util.PatternConstants;
+import org.jbpm.util.ParameterTemplate;
+import org.jbpm.util.ProcessExpressionCache;
 import org.jbpm.workflow.core.DroolsAction;
 import org.jbpm.workflow.core.impl.NodeImpl;
+import org.jbpm.workflow.core.impl.WorkflowProcessImpl;
 import org.jbpm.workflow.core.node.AsyncEventNode;
 import org.jbpm.workflow.core.node.EventNode;
 import org.jbpm.workflow.core.node.EventNodeInterface;
@@ -85,6 +86,8 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	private static final Logger logger = LoggerFactory.getLogger(WorkflowProcessInstanceImpl.class);
 
 	private final List<NodeInstance> nodeInstances = new ArrayList<NodeInstance>();;
+	// active node instances grouped by node id, kept in sync with nodeInstances
+	private final Map<Long, List<NodeInstance>> nodeInstancesByNodeId = new HashMap<Long, List<NodeInstance>>();
 
 	private AtomicLong singleNodeInstanceCounter = new AtomicLong(0);
 
@@ -115,6 +118,8 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
     		((NodeInstanceImpl) nodeInstance).setId(id);
 	    }
 		this.nodeInstances.add(nodeInstance);
+		indexNodeInstance(nodeInstance);
+		markDirty();
 	}
 
     @Override
@@ -133,6 +138,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
         }
 
         iterationLevels.put(uniqueID, value);
+        markDirty();
         return value;
     }
 
@@ -142,6 +148,48 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 					getKnowledgeRuntime().getFactHandle(nodeInstance));
 		}
 		this.nodeInstances.remove(nodeInstance);
+		unindexNodeInstance(nodeInstance);
+		markDirty();
+	}
+
+	protected void indexNodeInstance(NodeInstance nodeInstance) {
+		List<NodeInstance> instances = nodeInstancesByNodeId.get(nodeInstance.getNodeId());
+		if (instances == null) {
+			instances = new ArrayList<NodeInstance>(1);
+			nodeInstancesByNodeId.put(nodeInstance.getNodeId(), instances);
+		}
+		instances.add(nodeInstance);
+	}
+
+	protected void unindexNodeInstance(NodeInstance nodeInstance) {
+		List<NodeInstance> instances = nodeInstancesByNodeId.get(nodeInstance.getNodeId());
+		if (instances != null && instances.remove(nodeInstance)) {
+			if (instances.isEmpty()) {
+				nodeInstancesByNodeId.remove(nodeInstance.getNodeId());
+			}
+			return;
+		}
+		// node id might have been changed (e.g. by migration) since the node instance was indexed
+		for (Iterator<List<NodeInstance>> iterator = nodeInstancesByNodeId.values().iterator(); iterator.hasNext();) {
+			instances = iterator.next();
+			if (instances.remove(nodeInstance)) {
+				if (instances.isEmpty()) {
+					iterator.remove();
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds node id index of active node instances, needs to be invoked whenever node ids
+	 * of already added node instances are changed e.g. as part of process instance migration.
+	 */
+	public void rebuildNodeInstanceIndex() {
+		nodeInstancesByNodeId.clear();
+		for (NodeInstance nodeInstance : nodeInstances) {
+			indexNodeInstance(nodeInstance);
+		}
 	}
 
 	public Collection<org.kie.api.runtime.process.NodeInstance> getNodeInstances() {
@@ -199,10 +247,12 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	}
 
 	public NodeInstance getFirstNodeInstance(final long nodeId) {
-		for (final Iterator<NodeInstance> iterator = this.nodeInstances
-				.iterator(); iterator.hasNext();) {
-			final NodeInstance nodeInstance = iterator.next();
-			if (nodeInstance.getNodeId() == nodeId && nodeInstance.getLevel() == getCurrentLevel()) {
+		List<NodeInstance> instances = nodeInstancesByNodeId.get(nodeId);
+		if (instances == null) {
+			return null;
+		}
+		for (NodeInstance nodeInstance : instances) {
+			if (nodeInstance.getLevel() == getCurrentLevel()) {
 				return nodeInstance;
 			}
 		}
@@ -210,15 +260,11 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	}
 
 	public List<NodeInstance> getNodeInstances(final long nodeId) {
-		List<NodeInstance> result = new ArrayList<NodeInstance>();
-		for (final Iterator<NodeInstance> iterator = this.nodeInstances
-				.iterator(); iterator.hasNext();) {
-			final NodeInstance nodeInstance = iterator.next();
-			if (nodeInstance.getNodeId() == nodeId) {
-				result.add(nodeInstance);
-			}
+		List<NodeInstance> instances = nodeInstancesByNodeId.get(nodeId);
+		if (instances == null) {
+			return new ArrayList<NodeInstance>();
 		}
-		return result;
+		return new ArrayList<NodeInstance>(instances);
 	}
 
 	public List<NodeInstance> getNodeInstances(final long nodeId, final List<NodeInstance> currentView) {
@@ -265,6 +311,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
 	public void internalSetNodeInstanceCounter(long nodeInstanceCounter) {
 	    this.singleNodeInstanceCounter = new AtomicLong(nodeInstanceCounter);
+	    markDirty();
 	}
 
 	public AtomicLong internalGetNodeInstanceCounter() {
@@ -404,6 +451,8 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
 	public void reconnect() {
 		super.reconnect();
+		// node ids of node instances might have changed while disconnected
+		rebuildNodeInstanceIndex();
 		for (NodeInstance nodeInstance : nodeInstances) {
 			if (nodeInstance instanceof EventBasedNodeInstanceInterface) {
 				((EventBasedNodeInstanceInterface) nodeInstance)
@@ -489,7 +538,17 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	                return;
 	            }
 	        }
-			List<NodeInstance> currentView = new ArrayList<NodeInstance>(this.nodeInstances);
+	        // node instances might change their internal state when signaled
+	        markDirty();
+			List<Node> eventNodes = getEventNodes(type);
+			// snapshot of node instances of candidate nodes so instances created while signaling are not signaled
+			Map<Long, List<NodeInstance>> currentView = new HashMap<Long, List<NodeInstance>>();
+			for (Node node : eventNodes) {
+				List<NodeInstance> instances = nodeInstancesByNodeId.get(node.getId());
+				if (instances != null) {
+					currentView.put(node.getId(), new ArrayList<NodeInstance>(instances));
+				}
+			}
 
 			try {
 				this.activatingNodeIds = new ArrayList<String>();
@@ -505,7 +564,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 						listener.signalEvent(type, event);
 					}
 				}
-				for (Node node : getWorkflowProcess().getNodes()) {
+				for (Node node : eventNodes) {
 			        if (node instanceof EventNodeInterface) {
 			            if (((EventNodeInterface) node).acceptsEvent(type, event, (e) -> resolveVariable(e) )) {
 			                if (node instanceof EventNode && ((EventNode) node).getFrom() == null) {
@@ -516,7 +575,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
     			                    EventSubProcessNodeInstance eventNodeInstance = (EventSubProcessNodeInstance) getNodeInstance(node);
     			                    eventNodeInstance.signalEvent(type, event);
 			                    } else {
-    								List<NodeInstance> nodeInstances = getNodeInstances(node.getId(), currentView);
+    								List<NodeInstance> nodeInstances = currentView.get(node.getId());
     			                    if (nodeInstances != null && !nodeInstances.isEmpty()) {
     			                        for (NodeInstance nodeInstance : nodeInstances) {
     										((EventNodeInstanceInterface) nodeInstance).signalEvent(type, event);
@@ -554,15 +613,22 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 		}
 	}
 
+	protected List<Node> getEventNodes(String type) {
+		WorkflowProcess process = getWorkflowProcess();
+		if (process instanceof WorkflowProcessImpl) {
+			return ((WorkflowProcessImpl) process).getEventNodes(type);
+		}
+		return Arrays.asList(process.getNodes());
+	}
+
 	protected List<String> resolveVariables(List<String> events) {
 	    return events.stream().map( event -> resolveVariable(event)).collect(Collectors.toList());
 	}
 
     private String resolveVariable(String s) {
         Map<String, String> replacements = new HashMap<String, String>();
-        Matcher matcher = PatternConstants.PARAMETER_MATCHER.matcher(s);
-        while (matcher.find()) {
-            String paramName = matcher.group(1);
+        ParameterTemplate template = ProcessExpressionCache.get(getProcess()).getTemplate(s);
+        for (String paramName : template.getParameterNames()) {
             if (replacements.get(paramName) == null) {
 
                 Object variableValue = getVariable(paramName);
@@ -571,7 +637,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
                     replacements.put(paramName, variableValueString);
                 } else {
                     try {
-                        variableValue = MVELSafeHelper.getEvaluator().eval(paramName, new ProcessInstanceResolverFactory(this));
+                        variableValue = ProcessExpressionCache.get(getProcess()).evaluate(paramName, new ProcessInstanceResolverFactory(this));
                         String variableValueString = variableValue == null ? "" : variableValue.toString();
                         replacements.put(paramName, variableValueString);
                     } catch (Throwable t) {
@@ -580,9 +646,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
                 }
             }
         }
-        for (Map.Entry<String, String> replacement: replacements.entrySet()) {
-            s = s.replace("#{" + replacement.getKey() + "}", replacement.getValue());
-        }
+        s = template.resolve(replacements);
         return s;
     }
 
@@ -673,6 +737,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
 	public void addCompletedNodeId(String uniqueId) {
 	    this.completedNodeIds.add(uniqueId.intern());
+	    markDirty();
 	}
 
 	public List<String> getCompletedNodeIds() {
@@ -685,6 +750,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
     public void setCurrentLevel(int currentLevel) {
         this.currentLevel = currentLevel;
+        markDirty();
     }
 
     public Map<String, Integer> getIterationLevels() {
@@ -723,6 +789,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
     public void setSignalCompletion(boolean signalCompletion) {
         this.signalCompletion = signalCompletion;
+        markDirty();
     }
 
     public String getDeploymentId() {
@@ -731,6 +798,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
     public void setDeploymentId(String deploymentId) {
         this.deploymentId = deploymentId;
+        markDirty();
     }
     
     public String getCorrelationKey() {
@@ -742,6 +810,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
     public void setCorrelationKey(String correlationKey) {
         this.correlationKey = correlationKey;
+        markDirty();
     }
 
     protected boolean hasDeploymentId() {
@@ -187,10 +187,12 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
             ((NodeInstanceImpl) nodeInstance).setId(id);
         }
         this.nodeInstances.add(nodeInstance);
+        markProcessInstanceDirty();
     }
 
     public void removeNodeInstance(final NodeInstance nodeInstance) {
         this.nodeInstances.remove(nodeInstance);
+        markProcessInstanceDirty();
     }
 
     public Collection<org.kie.api.runtime.process.NodeInstance> getNodeInstances() {
@@ -19,12 +19,12 @@ package org.jbpm.workflow.instance.node;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
 
 import org.jbpm.process.core.context.variable.VariableScope;
 import org.jbpm.process.core.event.EventTransformer;
 import org.jbpm.process.instance.context.variable.VariableScopeInstance;
-import org.jbpm.util.PatternConstants;
+import org.jbpm.util.ParameterTemplate;
+import org.jbpm.util.ProcessExpressionCache;
 import org.jbpm.workflow.core.node.EventNode;
 import org.jbpm.workflow.instance.impl.ExtendedNodeInstanceImpl;
 import org.kie.api.runtime.process.EventListener;
@@ -128,12 +128,7 @@ public class EventNodeInstance extends ExtendedNodeInstanceImpl implements Event
 	    if (eventType == null ){
 	        return false;
 	    }
-	    Matcher matcher = PatternConstants.PARAMETER_MATCHER.matcher(eventType);
-	    if (matcher.find()) {
-	        return true;
-	    }
-
-	    return false;
+	    return ProcessExpressionCache.get(this).getTemplate(eventType).hasParameters();
 	}
 
 	private String resolveVariable(String s) {
@@ -142,9 +137,8 @@ public class EventNodeInstance extends ExtendedNodeInstanceImpl implements Event
         }
 
         Map<String, String> replacements = new HashMap<String, String>();
-        Matcher matcher = PatternConstants.PARAMETER_MATCHER.matcher(s);
-        while (matcher.find()) {
-            String paramName = matcher.group(1);
+        ParameterTemplate template = ProcessExpressionCache.get(this).getTemplate(s);
+        for (String paramName : template.getParameterNames()) {
             if (replacements.get(paramName) == null) {
                 VariableScopeInstance variableScopeInstance = (VariableScopeInstance)
                     resolveContextInstance(VariableScope.VARIABLE_SCOPE, paramName);
@@ -155,9 +149,7 @@ public class EventNodeInstance extends ExtendedNodeInstanceImpl implements Event
                 }
             }
         }
-        for (Map.Entry<String, String> replacement: replacements.entrySet()) {
-            s = s.replace("#{" + replacement.getKey() + "}", replacement.getValue());
-        }
+        s = template.resolve(replacements);
 
         return s;
     }
@@ -21,7 +21,6 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
 
 import org.drools.core.common.InternalAgenda;
 import org.drools.core.common.InternalFactHandle;
@@ -30,7 +29,6 @@ import org.drools.core.rule.Declaration;
 import org.drools.core.spi.Activation;
 import org.drools.core.time.TimeUtils;
 import org.drools.core.time.impl.CronExpression;
-import org.drools.core.util.MVELSafeHelper;
 import org.jbpm.process.core.context.variable.VariableScope;
 import org.jbpm.process.core.timer.BusinessCalendar;
 import org.jbpm.process.core.timer.DateTimeUtils;
@@ -41,7 +39,8 @@ import org.jbpm.process.instance.context.variable.VariableScopeInstance;
 import org.jbpm.process.instance.impl.Action;
 import org.jbpm.process.instance.timer.TimerInstance;
 import org.jbpm.process.instance.timer.TimerManager;
-import org.jbpm.util.PatternConstants;
+import org.jbpm.util.ParameterTemplate;
+import org.jbpm.util.ProcessExpressionCache;
 import org.jbpm.workflow.core.DroolsAction;
 import org.jbpm.workflow.core.node.StateBasedNode;
 import org.jbpm.workflow.instance.WorkflowProcessInstance;
@@ -254,9 +253,8 @@ public abstract class StateBasedNodeInstance extends ExtendedNodeInstanceImpl im
     	}
     	// cannot parse delay, trying to interpret it
 		Map<String, String> replacements = new HashMap<String, String>();
-		Matcher matcher = PatternConstants.PARAMETER_MATCHER.matcher(s);
-        while (matcher.find()) {
-        	String paramName = matcher.group(1);
+		ParameterTemplate template = ProcessExpressionCache.get(this).getTemplate(s);
+        for (String paramName : template.getParameterNames()) {
         	if (replacements.get(paramName) == null) {
             	VariableScopeInstance variableScopeInstance = (VariableScopeInstance)
                 	resolveContextInstance(VariableScope.VARIABLE_SCOPE, paramName);
@@ -266,7 +264,7 @@ public abstract class StateBasedNodeInstance extends ExtendedNodeInstanceImpl im
 	                replacements.put(paramName, variableValueString);
                 } else {
                 	try {
-                		Object variableValue = MVELSafeHelper.getEvaluator().eval(paramName, new NodeInstanceResolverFactory(this));
+                		Object variableValue = ProcessExpressionCache.get(this).evaluate(paramName, new NodeInstanceResolverFactory(this));
 	                	String variableValueString = variableValue == null ? "" : variableValue.toString();
 	                	replacements.put(paramName, variableValueString);
                 	} catch (Throwable t) {
@@ -277,9 +275,7 @@ public abstract class StateBasedNodeInstance extends ExtendedNodeInstanceImpl im
                 }
         	}
         }
-        for (Map.Entry<String, String> replacement: replacements.entrySet()) {
-        	s = s.replace("#{" + replacement.getKey() + "}", replacement.getValue());
-        }
+        s = template.resolve(replacements);
 
         return s;
     }
@@ -348,6 +344,7 @@ public abstract class StateBasedNodeInstance extends ExtendedNodeInstanceImpl im
 
 	public void internalSetTimerInstances(List<Long> timerInstances) {
 		this.timerInstances = timerInstances;
+		markProcessInstanceDirty();
 	}
 
     public void cancel() {
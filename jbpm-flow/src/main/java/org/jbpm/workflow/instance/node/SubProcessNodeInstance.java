@@ -21,10 +21,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
 
 import org.drools.core.common.InternalKnowledgeRuntime;
-import org.drools.core.util.MVELSafeHelper;
 import org.jbpm.process.core.Context;
 import org.jbpm.process.core.ContextContainer;
 import org.jbpm.process.core.context.exception.ExceptionScope;
@@ -40,7 +38,8 @@ import org.jbpm.process.instance.impl.ContextInstanceFactory;
 import org.jbpm.process.instance.impl.ContextInstanceFactoryRegistry;
 import org.jbpm.process.instance.impl.ProcessInstanceImpl;
 import org.jbpm.process.instance.impl.util.VariableUtil;
-import org.jbpm.util.PatternConstants;
+import org.jbpm.util.ParameterTemplate;
+import org.jbpm.util.ProcessExpressionCache;
 import org.jbpm.workflow.core.node.DataAssociation;
 import org.jbpm.workflow.core.node.SubProcessNode;
 import org.jbpm.workflow.core.node.Transformation;
@@ -115,7 +114,7 @@ public class SubProcessNodeInstance extends StateBasedNodeInstance implements Ev
 	                parameterValue = variableScopeInstance.getVariable(mapping.getSources().get(0));
 	            } else {
 	            	try {
-	            		parameterValue = MVELSafeHelper.getEvaluator().eval(mapping.getSources().get(0), new NodeInstanceResolverFactory(this));
+	            		parameterValue = ProcessExpressionCache.get(this).evaluate(mapping.getSources().get(0), new NodeInstanceResolverFactory(this));
 	            	} catch (Throwable t) {
 	            	    parameterValue = VariableUtil.resolveVariable(mapping.getSources().get(0), this);
 	                    if (parameterValue != null) {
@@ -139,9 +138,8 @@ public class SubProcessNodeInstance extends StateBasedNodeInstance implements Ev
         }
         // resolve processId if necessary
         Map<String, String> replacements = new HashMap<String, String>();
-		Matcher matcher = PatternConstants.PARAMETER_MATCHER.matcher(processId);
-        while (matcher.find()) {
-        	String paramName = matcher.group(1);
+		ParameterTemplate template = ProcessExpressionCache.get(this).getTemplate(processId);
+        for (String paramName : template.getParameterNames()) {
         	if (replacements.get(paramName) == null) {
             	VariableScopeInstance variableScopeInstance = (VariableScopeInstance)
                 	resolveContextInstance(VariableScope.VARIABLE_SCOPE, paramName);
@@ -151,7 +149,7 @@ public class SubProcessNodeInstance extends StateBasedNodeInstance implements Ev
 	                replacements.put(paramName, variableValueString);
                 } else {
                 	try {
-                		Object variableValue = MVELSafeHelper.getEvaluator().eval(paramName, new NodeInstanceResolverFactory(this));
+                		Object variableValue = ProcessExpressionCache.get(this).evaluate(paramName, new NodeInstanceResolverFactory(this));
 	                	String variableValueString = variableValue == null ? "" : variableValue.toString();
 	                	replacements.put(paramName, variableValueString);
                 	} catch (Throwable t) {
@@ -162,9 +160,7 @@ public class SubProcessNodeInstance extends StateBasedNodeInstance implements Ev
                 }
         	}
         }
-        for (Map.Entry<String, String> replacement: replacements.entrySet()) {
-        	processId = processId.replace("#{" + replacement.getKey() + "}", replacement.getValue());
-        }
+        processId = template.resolve(replacements);
         KieBase kbase = ((ProcessInstance) getProcessInstance()).getKnowledgeRuntime().getKieBase();
         // start process instance
         Process process = kbase.getProcess(processId);
@@ -363,7 +359,7 @@ public class SubProcessNodeInstance extends StateBasedNodeInstance implements Ev
 			        	Object value = subProcessVariableScopeInstance.getVariable(mapping.getSources().get(0));
 			        	if (value == null) {
 			        		try {
-			            		value = MVELSafeHelper.getEvaluator().eval(mapping.getSources().get(0), new VariableScopeResolverFactory(subProcessVariableScopeInstance));
+			            		value = ProcessExpressionCache.get(this).evaluate(mapping.getSources().get(0), new VariableScopeResolverFactory(subProcessVariableScopeInstance));
 			            	} catch (Throwable t) {
 			            		// do nothing
 			            	}
@@ -452,7 +448,7 @@ public class SubProcessNodeInstance extends StateBasedNodeInstance implements Ev
 	            parameterValue = variableScopeInstance.getVariable(sourceParam);
 	        } else {
 	            try {
-	                parameterValue = MVELSafeHelper.getEvaluator().eval(sourceParam, new NodeInstanceResolverFactory(this));
+	                parameterValue = ProcessExpressionCache.get(this).evaluate(sourceParam, new NodeInstanceResolverFactory(this));
 	            } catch (Throwable t) {
 	                logger.warn("Could not find variable scope for variable {}", sourceParam);
 	            }
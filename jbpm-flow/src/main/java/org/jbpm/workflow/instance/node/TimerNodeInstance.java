@@ -47,6 +47,7 @@ public class TimerNodeInstance extends StateBasedNodeInstance implements EventLi
     
     public void internalSetTimerId(long timerId) {
     	this.timerId = timerId;
+    	markProcessInstanceDirty();
     }
 
     public void internalTrigger(NodeInstance from, String type) {
@@ -17,12 +17,16 @@
 package org.jbpm.process.core.timer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.Properties;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 import org.kie.api.time.SessionPseudoClock;
@@ -336,6 +340,73 @@ public class BusinessCalendarImplTest extends AbstractBaseTest {
         BusinessCalendarImpl businessCal = new BusinessCalendarImpl(null);
     }
 
+    @Test
+    public void testCalculateDatesInBulk() {
+        Properties config = new Properties();
+        config.setProperty(BusinessCalendarImpl.HOLIDAYS, "2012-05-09");
+        SessionPseudoClock clock = new StaticPseudoClock(parseToDateWithTime("2012-05-04 13:45").getTime());
+
+        BusinessCalendarImpl businessCal = new BusinessCalendarImpl(config, clock);
+
+        List<String> expressions = Arrays.asList("3h", "7h", "3d", "3h", "P3D");
+        List<Date> results = businessCal.calculateBusinessTimeAsDates(expressions);
+
+        assertEquals(expressions.size(), results.size());
+        for (int i = 0; i < expressions.size(); i++) {
+            assertEquals(businessCal.calculateBusinessTimeAsDate(expressions.get(i)), results.get(i));
+        }
+        assertEquals("2012-05-04 16:45", formatDate("yyyy-MM-dd HH:mm", results.get(3)));
+        assertNotSame(results.get(0), results.get(3));
+    }
+
+    @Test
+    public void testIndexedCalculationMatchesDayByDay() {
+        String[] holidays = {null, "2012-05-09", "2012-12-24:2012-12-26,2013-01-01", "2012-07-01:2012-08-31,2012-08-15:2012-09-05",
+                "*-12-24:*-12-26,*-01-01"};
+        String[] weekendDays = {null, "1", "5,6,7"};
+        String[] timeExpressions = {"3h", "1d", "4d 3h", "30d", "45d 7h 10m", "1000h", "2w 3d", "250d", "P30D"};
+
+        Random random = new Random(7);
+        long dayByDayTime = 0;
+        long indexedTime = 0;
+        for (int i = 0; i < 500; i++) {
+            Properties config = new Properties();
+            if (holidays[i % holidays.length] != null) {
+                config.setProperty(BusinessCalendarImpl.HOLIDAYS, holidays[i % holidays.length]);
+            }
+            if (weekendDays[i % weekendDays.length] != null) {
+                config.setProperty(BusinessCalendarImpl.WEEKEND_DAYS, weekendDays[i % weekendDays.length]);
+            }
+            if (i % 2 == 0) {
+                config.setProperty(BusinessCalendarImpl.TIMEZONE, "America/New_York");
+            }
+            long time = parseToDateWithTime("2012-01-01 00:00").getTime() + (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(500));
+            SessionPseudoClock clock = new StaticPseudoClock(time);
+
+            BusinessCalendarImpl indexed = new BusinessCalendarImpl(config, clock);
+            BusinessCalendarImpl dayByDay = new BusinessCalendarImpl(config, clock) {
+                @Override
+                protected boolean isSkippingWorkingWeeks() {
+                    return false;
+                }
+            };
+
+            for (String timeExpression : timeExpressions) {
+                long start = System.nanoTime();
+                Date expected = dayByDay.calculateBusinessTimeAsDate(timeExpression);
+                dayByDayTime += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                Date result = indexed.calculateBusinessTimeAsDate(timeExpression);
+                indexedTime += System.nanoTime() - start;
+
+                assertEquals(config + " " + timeExpression + " at " + new Date(time), expected, result);
+            }
+        }
+        logger.info("Business calendar calculations - day by day: {} ms, indexed: {} ms",
+                TimeUnit.NANOSECONDS.toMillis(dayByDayTime), TimeUnit.NANOSECONDS.toMillis(indexedTime));
+    }
+
     private Date parseToDate(String dateString) {
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         
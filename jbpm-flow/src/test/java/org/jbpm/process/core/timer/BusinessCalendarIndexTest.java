@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.core.timer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+public class BusinessCalendarIndexTest {
+
+    @Test
+    public void testHolidayEndMatchesFirstConfiguredHoliday() {
+        Random random = new Random(11);
+        for (int run = 0; run < 50; run++) {
+            int count = random.nextInt(20);
+            long[] from = new long[count];
+            long[] to = new long[count];
+            for (int i = 0; i < count; i++) {
+                from[i] = random.nextInt(1000);
+                to[i] = from[i] + random.nextInt(100);
+            }
+            BusinessCalendarIndex index = new BusinessCalendarIndex(from, to, Arrays.asList(Calendar.SATURDAY, Calendar.SUNDAY));
+
+            for (long time = -10; time < 1200; time++) {
+                long expectedEnd = BusinessCalendarIndex.NO_HOLIDAY;
+                long expectedStart = Long.MAX_VALUE;
+                for (int i = 0; i < count; i++) {
+                    if (expectedEnd == BusinessCalendarIndex.NO_HOLIDAY && from[i] < time && time < to[i]) {
+                        expectedEnd = to[i];
+                    }
+                    if (from[i] < to[i] && to[i] > time) {
+                        expectedStart = Math.min(expectedStart, Math.max(from[i], time));
+                    }
+                }
+                assertEquals(expectedEnd, index.getHolidayEnd(time));
+                assertEquals(expectedStart, index.getNextHolidayStart(time));
+            }
+        }
+    }
+
+    @Test
+    public void testSkipWorkingWeeksStopsBeforeHoliday() {
+        Calendar c = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        c.clear();
+        c.set(2012, Calendar.MAY, 7, 10, 0);
+
+        Calendar holiday = (Calendar) c.clone();
+        holiday.add(Calendar.DAY_OF_YEAR, 20);
+        BusinessCalendarIndex index = new BusinessCalendarIndex(new long[]{holiday.getTimeInMillis()},
+                                                                new long[]{holiday.getTimeInMillis() + 1000},
+                                                                Arrays.asList(Calendar.SATURDAY, Calendar.SUNDAY));
+        assertEquals(5, index.getWorkingDaysPerWeek());
+        assertEquals(0, index.skipWorkingWeeks(c, 4));
+
+        assertEquals(10, index.skipWorkingWeeks(c, 23));
+        assertEquals(21, c.get(Calendar.DAY_OF_MONTH));
+        // next holiday is less than a week away
+        assertEquals(0, index.skipWorkingWeeks(c, 13));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.instance.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.drools.core.common.InternalKnowledgeRuntime;
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.impl.KnowledgeBaseFactory;
+import org.drools.core.runtime.process.ProcessRuntimeFactory;
+import org.drools.core.spi.ProcessContext;
+import org.jbpm.process.core.context.variable.Variable;
+import org.jbpm.process.core.datatype.impl.type.IntegerDataType;
+import org.jbpm.process.core.datatype.impl.type.StringDataType;
+import org.jbpm.process.instance.ProcessRuntimeFactoryServiceImpl;
+import org.jbpm.ruleflow.core.RuleFlowProcess;
+import org.jbpm.ruleflow.instance.RuleFlowProcessInstance;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.kie.api.runtime.KieSession;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class for tests of dialect specific actions and return value evaluators, which only need
+ * a process context of a process instance holding some variables.
+ */
+public abstract class AbstractEvaluatorTest extends AbstractBaseTest {
+
+    static {
+        ProcessRuntimeFactory.setProcessRuntimeFactoryService(new ProcessRuntimeFactoryServiceImpl());
+    }
+
+    public void addLogger() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    /**
+     * Builds name/value pairs of process variables, <code>null</code> values only declare the variable.
+     */
+    protected static Map<String, Object> variables(Object... namesAndValues) {
+        Map<String, Object> variables = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            variables.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return variables;
+    }
+
+    /**
+     * Creates process context of a new process instance of a process declaring given variables
+     * (integer values as integers, anything else as strings) in a new session.
+     */
+    protected ProcessContext createContext(String processName, Map<String, Object> values) {
+        KieSession ksession = KnowledgeBaseFactory.newKnowledgeBase().newKieSession();
+
+        RuleFlowProcess process = new RuleFlowProcess();
+        process.setId("org.jbpm." + processName);
+        process.setName(processName);
+        process.setPackageName("org.jbpm");
+        List<Variable> variables = new ArrayList<Variable>();
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            Variable variable = new Variable();
+            variable.setName(value.getKey());
+            variable.setType(value.getValue() instanceof Integer ? new IntegerDataType() : new StringDataType());
+            variables.add(variable);
+        }
+        process.getVariableScope().setVariables(variables);
+
+        RuleFlowProcessInstance processInstance = new RuleFlowProcessInstance();
+        processInstance.setProcess(process);
+        processInstance.setKnowledgeRuntime((InternalKnowledgeRuntime) ((InternalWorkingMemory) ksession).getKnowledgeRuntime());
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            if (value.getValue() != null) {
+                processInstance.setVariable(value.getKey(), value.getValue());
+            }
+        }
+
+        ProcessContext context = new ProcessContext(ksession);
+        context.setProcessInstance(processInstance);
+        return context;
+    }
+
+    /**
+     * Runs all tasks at once, each in its own thread, and returns the elapsed time in nanoseconds.
+     * Failure of any task fails the test.
+     */
+    protected long runConcurrently(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            long start = System.nanoTime();
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.instance.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import org.drools.core.spi.ProcessContext;
+import org.jbpm.process.core.context.variable.VariableScope;
+import org.jbpm.process.instance.context.variable.VariableScopeInstance;
+import org.jbpm.ruleflow.instance.RuleFlowProcessInstance;
+import org.junit.Test;
+
+public class JavaScriptEvaluatorTest extends AbstractEvaluatorTest {
+
+    private static final String ACTION = "kcontext.setVariable('greeting', 'Hello ' + name);";
+    private static final String CONSTRAINT = "age > 18 && greeting == 'Hello ' + name";
+
+    @Test
+    public void testActionAndConstraint() throws Exception {
+        ProcessContext context = createContext("john", 25);
+
+        new JavaScriptAction(ACTION).execute(context);
+        assertEquals("Hello john", context.getVariable("greeting"));
+        assertEquals(Boolean.TRUE, new JavaScriptReturnValueEvaluator(CONSTRAINT).evaluate(context));
+
+        context.setVariable("age", 10);
+        assertEquals(Boolean.FALSE, new JavaScriptReturnValueEvaluator(CONSTRAINT).evaluate(context));
+    }
+
+    @Test
+    public void testScriptStateNotShared() throws Exception {
+        ProcessContext context = createContext("john", 25);
+
+        JavaScriptEvaluator.eval("var local = name; leaked = age;", context);
+        assertEquals(Boolean.TRUE, JavaScriptEvaluator.eval("typeof local == 'undefined' && typeof leaked == 'undefined'", context));
+
+        // compiled script sees current values
+        assertEquals("john", JavaScriptEvaluator.eval("name", context));
+        context.setVariable("name", "mary");
+        assertEquals("mary", JavaScriptEvaluator.eval("name", context));
+    }
+
+    @Test
+    public void testEngineAndGlobalReused() throws Exception {
+        final ProcessContext context = createContext("john", 25);
+        final Object global = JavaScriptEvaluator.eval("this", context);
+        assertEquals(global, JavaScriptEvaluator.eval("this", context));
+
+        // names defined by a script are removed but the global object stays
+        JavaScriptEvaluator.eval("leaked = age;", context);
+        assertEquals(global, JavaScriptEvaluator.eval("this", context));
+
+        // idle engine is reused by other threads as well
+        final Object[] otherThreadGlobal = new Object[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    otherThreadGlobal[0] = JavaScriptEvaluator.eval("this", context);
+                } catch (ScriptException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        thread.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+        thread.start();
+        thread.join();
+        assertEquals(global, otherThreadGlobal[0]);
+    }
+
+    @Test
+    public void testClearReleasesEngines() throws Exception {
+        ProcessContext context = createContext("john", 25);
+        Object global = JavaScriptEvaluator.eval("this", context);
+
+        JavaScriptEvaluator.clear(Thread.currentThread().getContextClassLoader());
+        assertNotEquals(global, JavaScriptEvaluator.eval("this", context));
+    }
+
+    @Test(timeout = 300000)
+    public void testConcurrentEvaluation() throws Exception {
+        int threads = 4;
+        int iterations = 500;
+
+        // warm up both ways
+        runConcurrently(threads, 50, false);
+        runConcurrently(threads, 50, true);
+
+        long uncached = runConcurrently(threads, iterations, false);
+        long cached = runConcurrently(threads, iterations, true);
+
+        logger.info("{} threads x {} script tasks and gateways - new engine per evaluation: {} ms, cached engine and scripts: {} ms",
+                threads, iterations, TimeUnit.NANOSECONDS.toMillis(uncached), TimeUnit.NANOSECONDS.toMillis(cached));
+    }
+
+    private long runConcurrently(int threads, final int iterations, final boolean cached) throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < threads; i++) {
+            final String name = "user" + i;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    ProcessContext context = createContext(name, 25);
+                    for (int j = 0; j < iterations; j++) {
+                        Object result;
+                        if (cached) {
+                            new JavaScriptAction(ACTION).execute(context);
+                            result = new JavaScriptReturnValueEvaluator(CONSTRAINT).evaluate(context);
+                        } else {
+                            evalWithNewEngine(ACTION, context);
+                            result = evalWithNewEngine(CONSTRAINT, context);
+                        }
+                        assertEquals(Boolean.TRUE, result);
+                    }
+                    return null;
+                }
+            });
+        }
+        return runConcurrently(tasks);
+    }
+
+    // the way scripts were evaluated before engines and compiled scripts were cached
+    private Object evalWithNewEngine(String expr, ProcessContext context) throws Exception {
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName("JavaScript");
+        engine.put("kcontext", context);
+        VariableScopeInstance variableScope = (VariableScopeInstance) ((RuleFlowProcessInstance) context.getProcessInstance())
+                .getContextInstance(VariableScope.VARIABLE_SCOPE);
+        for (Map.Entry<String, Object> variable : variableScope.getVariables().entrySet()) {
+            engine.put(variable.getKey(), variable.getValue());
+        }
+        return engine.eval(expr);
+    }
+
+    private ProcessContext createContext(String name, int age) {
+        return createContext("JavaScript", variables("name", name, "greeting", null, "age", age));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.instance.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.core.spi.ProcessContext;
+import org.junit.Test;
+
+public class XPATHReturnValueEvaluatorTest extends AbstractEvaluatorTest {
+
+    private static final String CONSTRAINT = "$name = 'john' and bpmn2:getVariable('status') = 'active'";
+
+    @Test
+    public void testEvaluate() throws Exception {
+        XPATHReturnValueEvaluator evaluator = new XPATHReturnValueEvaluator(CONSTRAINT, null);
+
+        assertEquals(Boolean.TRUE, evaluator.evaluate(createContext("john", "active")));
+        // compiled expression resolves variables of the current context
+        assertEquals(Boolean.FALSE, evaluator.evaluate(createContext("mary", "active")));
+        assertEquals(Boolean.FALSE, evaluator.evaluate(createContext("john", "closed")));
+    }
+
+    @Test(timeout = 300000)
+    public void testConcurrentEvaluation() throws Exception {
+        final XPATHReturnValueEvaluator evaluator = new XPATHReturnValueEvaluator(CONSTRAINT, null);
+        int threads = 4;
+        final int iterations = 2000;
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < threads; i++) {
+            final boolean matching = i % 2 == 0;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    ProcessContext context = createContext(matching ? "john" : "mary", "active");
+                    for (int j = 0; j < iterations; j++) {
+                        assertEquals(matching, evaluator.evaluate(context));
+                    }
+                    return null;
+                }
+            });
+        }
+        long elapsed = runConcurrently(tasks);
+        logger.info("{} threads x {} XPath constraints evaluated in {} ms",
+                threads, iterations, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private ProcessContext createContext(String name, String status) {
+        return createContext("XPath", variables("name", name, "status", status));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+import org.junit.Test;
+
+public class ParameterTemplateTest {
+
+    @Test
+    public void testNoParameters() {
+        ParameterTemplate template = ParameterTemplate.parse("plain text");
+        assertFalse(template.hasParameters());
+        assertTrue(template.getParameterNames().isEmpty());
+        assertEquals("plain text", template.resolve(Collections.<String, String>emptyMap()));
+    }
+
+    @Test
+    public void testResolve() {
+        ParameterTemplate template = ParameterTemplate.parse("Hello #{name}, #{person.age} years, bye #{name}");
+        assertTrue(template.hasParameters());
+        assertEquals(Arrays.asList("name", "person.age"), template.getParameterNames());
+
+        Map<String, String> replacements = new HashMap<String, String>();
+        replacements.put("name", "john");
+        assertEquals("Hello john, #{person.age} years, bye john", template.resolve(replacements));
+        replacements.put("person.age", "");
+        assertEquals("Hello john,  years, bye john", template.resolve(replacements));
+    }
+
+    @Test
+    public void testSameParametersAsPattern() {
+        String[] values = new String[] {"#{a}", "x#{a}y#{b}z", "#{}", "#{}#{a}", "#{a", "#{a}#{", "#{a#{b}}",
+                "#{ spaced value }", "##{a}}", "#{a}#{a}", "}#{", ""};
+        for (String value : values) {
+            assertEquals(value, patternParameters(value), ParameterTemplate.parse(value).getParameterNames());
+        }
+    }
+
+    @Test
+    public void testSameResultAsReplace() {
+        Map<String, String> replacements = new HashMap<String, String>();
+        replacements.put("a", "1");
+        replacements.put("b", "22");
+        replacements.put("a#{b", "3");
+        String[] values = new String[] {"#{a}", "x#{a}y#{b}z", "#{}#{a}", "#{a#{b}}", "#{c}#{a}", "#{a"};
+        for (String value : values) {
+            String expected = value;
+            for (String name : patternParameters(value)) {
+                if (replacements.containsKey(name)) {
+                    expected = expected.replace("#{" + name + "}", replacements.get(name));
+                }
+            }
+            assertEquals(value, expected, ParameterTemplate.parse(value).resolve(replacements));
+        }
+    }
+
+    private List<String> patternParameters(String value) {
+        List<String> names = new ArrayList<String>();
+        Matcher matcher = PatternConstants.PARAMETER_MATCHER.matcher(value);
+        while (matcher.find()) {
+            if (!names.contains(matcher.group(1))) {
+                names.add(matcher.group(1));
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jbpm.ruleflow.core.RuleFlowProcess;
+import org.junit.Test;
+import org.mvel2.integration.impl.MapVariableResolverFactory;
+
+public class ProcessExpressionCacheTest {
+
+    @Test
+    public void testCacheKeptByProcess() {
+        RuleFlowProcess process = new RuleFlowProcess();
+        ProcessExpressionCache cache = ProcessExpressionCache.get(process);
+        assertSame(cache, ProcessExpressionCache.get(process));
+        assertSame(cache.getTemplate("#{a}"), cache.getTemplate("#{a}"));
+    }
+
+    @Test
+    public void testEvaluate() {
+        ProcessExpressionCache cache = new ProcessExpressionCache(10);
+        Map<String, Object> variables = new HashMap<String, Object>();
+        variables.put("person", new Person("john", 25));
+
+        assertEquals("john", cache.evaluate("person.name", new MapVariableResolverFactory(variables)));
+        assertEquals(26, cache.evaluate("person.age + 1", new MapVariableResolverFactory(variables)));
+        assertEquals(2, cache.size());
+
+        // same compiled expression used with different value type
+        Map<String, Object> other = new HashMap<String, Object>();
+        Map<String, Object> person = new HashMap<String, Object>();
+        person.put("name", "mary");
+        other.put("person", person);
+        assertEquals("mary", cache.evaluate("person.name", new MapVariableResolverFactory(other)));
+        assertEquals("john", cache.evaluate("person.name", new MapVariableResolverFactory(variables)));
+    }
+
+    @Test
+    public void testBoundedSize() {
+        ProcessExpressionCache cache = new ProcessExpressionCache(2);
+        Map<String, Object> variables = new HashMap<String, Object>();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, cache.evaluate(String.valueOf(i), new MapVariableResolverFactory(variables)));
+            cache.getTemplate("#{" + i + "}");
+        }
+        assertEquals(4, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testRuntimeErrorNotEvaluatedTwice() {
+        ProcessExpressionCache cache = new ProcessExpressionCache(10);
+        Map<String, Object> variables = new HashMap<String, Object>();
+        List<String> calls = new ArrayList<String>();
+        variables.put("calls", calls);
+        variables.put("person", new Person("john", 25));
+
+        try {
+            cache.evaluate("calls.add('called'); person.fail()", new MapVariableResolverFactory(variables));
+            fail("Evaluation should fail");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertEquals(1, calls.size());
+        assertEquals(1, cache.size());
+    }
+
+    public static class Person {
+
+        private final String name;
+        private final int age;
+
+        public Person(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+
+        public String fail() {
+            throw new IllegalStateException("Failed on purpose");
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workflow.core.impl;
+
+import java.util.List;
+
+import org.jbpm.process.core.event.BroadcastEventTypeFilter;
+import org.jbpm.process.core.event.EventTypeFilter;
+import org.jbpm.ruleflow.core.RuleFlowProcess;
+import org.jbpm.workflow.core.node.ActionNode;
+import org.jbpm.workflow.core.node.BoundaryEventNode;
+import org.jbpm.workflow.core.node.CompositeContextNode;
+import org.jbpm.workflow.core.node.EventNode;
+import org.jbpm.workflow.core.node.EventSubProcessNode;
+import org.junit.Test;
+import org.kie.api.definition.process.Node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventNodeIndexTest {
+
+    @Test
+    public void testStaticEventTypes() {
+        RuleFlowProcess process = new RuleFlowProcess();
+        process.setId("org.jbpm.event.index");
+
+        EventNode first = eventNode(1, "first");
+        process.addNode(first);
+        EventNode second = eventNode(2, "second");
+        process.addNode(second);
+        ActionNode actionNode = new ActionNode();
+        actionNode.setId(3);
+        process.addNode(actionNode);
+        BoundaryEventNode boundary = new BoundaryEventNode();
+        boundary.setId(4);
+        boundary.addEventFilter(filter("first"));
+        process.addNode(boundary);
+
+        List<Node> candidates = process.getEventNodes("first");
+        assertEquals(2, candidates.size());
+        assertEquals(first, candidates.get(0));
+        assertEquals(boundary, candidates.get(1));
+
+        candidates = process.getEventNodes("second");
+        assertEquals(1, candidates.size());
+        assertEquals(second, candidates.get(0));
+
+        assertTrue(process.getEventNodes("unknown").isEmpty());
+    }
+
+    @Test
+    public void testDynamicEventTypes() {
+        RuleFlowProcess process = new RuleFlowProcess();
+        process.setId("org.jbpm.event.index");
+
+        EventNode expression = eventNode(1, "signal-#{name}");
+        process.addNode(expression);
+        EventNode first = eventNode(2, "first");
+        process.addNode(first);
+        EventNode broadcast = new EventNode();
+        broadcast.setId(3);
+        BroadcastEventTypeFilter broadcastFilter = new BroadcastEventTypeFilter();
+        broadcastFilter.setType("broadcast");
+        broadcast.addEventFilter(broadcastFilter);
+        process.addNode(broadcast);
+
+        List<Node> candidates = process.getEventNodes("first");
+        assertEquals(3, candidates.size());
+        assertEquals(expression, candidates.get(0));
+        assertEquals(first, candidates.get(1));
+        assertEquals(broadcast, candidates.get(2));
+
+        candidates = process.getEventNodes("signal-john");
+        assertEquals(2, candidates.size());
+        assertEquals(expression, candidates.get(0));
+        assertEquals(broadcast, candidates.get(1));
+    }
+
+    @Test
+    public void testCompositeEventTypes() {
+        RuleFlowProcess process = new RuleFlowProcess();
+        process.setId("org.jbpm.event.index");
+
+        EventSubProcessNode eventSubProcess = new EventSubProcessNode();
+        eventSubProcess.setId(1);
+        eventSubProcess.addEvent(filter("subprocess"));
+        process.addNode(eventSubProcess);
+
+        CompositeContextNode compositeNode = new CompositeContextNode();
+        compositeNode.setId(2);
+        compositeNode.addNode(eventNode(1, "inner"));
+        process.addNode(compositeNode);
+
+        List<Node> candidates = process.getEventNodes("subprocess");
+        assertEquals(1, candidates.size());
+        assertEquals(eventSubProcess, candidates.get(0));
+
+        candidates = process.getEventNodes("inner");
+        assertEquals(1, candidates.size());
+        assertEquals(compositeNode, candidates.get(0));
+    }
+
+    @Test
+    public void testIndexRebuiltWhenNodesChange() {
+        RuleFlowProcess process = new RuleFlowProcess();
+        process.setId("org.jbpm.event.index");
+
+        EventNode first = eventNode(1, "first");
+        process.addNode(first);
+        assertEquals(1, process.getEventNodes("first").size());
+
+        EventNode another = eventNode(2, "first");
+        process.addNode(another);
+        assertEquals(2, process.getEventNodes("first").size());
+
+        process.removeNode(first);
+        List<Node> candidates = process.getEventNodes("first");
+        assertEquals(1, candidates.size());
+        assertEquals(another, candidates.get(0));
+    }
+
+    private EventNode eventNode(long id, String type) {
+        EventNode eventNode = new EventNode();
+        eventNode.setId(id);
+        eventNode.addEventFilter(filter(type));
+        return eventNode;
+    }
+
+    private EventTypeFilter filter(String type) {
+        EventTypeFilter filter = new EventTypeFilter();
+        filter.setType(type);
+        return filter;
+    }
+}
@@ -86,9 +86,9 @@ public class TaskJPAAuditService extends JPAAuditLogService {
 
 	@Override
     public void clear() {
-	    auditTaskDelete().build().execute();
+	    new AuditTaskDeleteBuilderImpl(this).buildChunked(CLEAR_RECORDS_PER_TRANSACTION).execute();
 
-        taskEventInstanceLogDelete().build().execute();
+        new TaskEventDeleteBuilderImpl(this).buildChunked(CLEAR_RECORDS_PER_TRANSACTION).execute();
 	    try {
     		super.clear();
     	} catch (Exception e) {
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.services.task.assignment.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.jbpm.services.task.assignment.UserTaskLoad;
+import org.kie.api.runtime.EnvironmentName;
+import org.kie.api.task.TaskContext;
+import org.kie.api.task.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Load calculator that counts active tasks of users like {@link TaskCountLoadCalculator} but takes
+ * the counts from {@link UserTaskLoadIndex} instead of querying the data base on every assignment.
+ * The index is reconciled with the data base at most once per interval given by system property
+ * <code>org.jbpm.task.assignment.loadbalance.reconcile.interval</code> (in milliseconds, 300000 by default).
+ * Reconciliation runs in background with its own entity manager so it never delays nor fails the assignment;
+ * failures are logged and reconciliation is attempted again after next interval.
+ */
+public class ActiveTaskCountLoadCalculator extends AbstractLoadCalculator {
+    private static final String IDENTIFIER = "ActiveTaskCountLoadCalculator";
+    private static final Logger logger = LoggerFactory.getLogger(ActiveTaskCountLoadCalculator.class);
+    private static final String ACTIVE_TASKS_QUERY =
+            "select t.id, t.taskData.actualOwner.id "
+            + "from TaskImpl t "
+            + "where t.taskData.actualOwner is not null and t.taskData.status in ('Reserved', 'InProgress', 'Suspended') ";
+
+    private static final ExecutorService RECONCILE_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jbpm-task-load-reconciler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final UserTaskLoadIndex index;
+    private final long reconcileInterval;
+    private final Executor reconcileExecutor;
+
+    public ActiveTaskCountLoadCalculator() {
+        this(UserTaskLoadIndex.get(), Long.parseLong(System.getProperty("org.jbpm.task.assignment.loadbalance.reconcile.interval", "300000")));
+    }
+
+    public ActiveTaskCountLoadCalculator(UserTaskLoadIndex index, long reconcileInterval) {
+        this(index, reconcileInterval, RECONCILE_EXECUTOR);
+    }
+
+    public ActiveTaskCountLoadCalculator(UserTaskLoadIndex index, long reconcileInterval, Executor reconcileExecutor) {
+        super(IDENTIFIER);
+        this.index = index;
+        this.reconcileInterval = reconcileInterval;
+        this.reconcileExecutor = reconcileExecutor;
+        this.index.setEnabled(true);
+    }
+
+    @Override
+    public UserTaskLoad getUserTaskLoad(User user, TaskContext context) {
+        reconcileIfNeeded(context);
+        return new UserTaskLoad(getIdentifier(), user, new Double(index.getActiveTaskCount(user.getId())));
+    }
+
+    @Override
+    public Collection<UserTaskLoad> getUserTaskLoads(List<User> users, TaskContext context) {
+        reconcileIfNeeded(context);
+        Collection<UserTaskLoad> userTaskLoads = new ArrayList<>(users.size());
+        for (User user : users) {
+            userTaskLoads.add(new UserTaskLoad(getIdentifier(), user, new Double(index.getActiveTaskCount(user.getId()))));
+        }
+        return userTaskLoads;
+    }
+
+    protected void reconcileIfNeeded(TaskContext context) {
+        if (context == null || !index.claimReconciliation(reconcileInterval)) {
+            return;
+        }
+        EntityManagerFactory emf = (EntityManagerFactory) ((org.jbpm.services.task.commands.TaskContext) context).get(EnvironmentName.ENTITY_MANAGER_FACTORY);
+        if (emf == null) {
+            logger.debug("No entity manager factory available, user task load index is not reconciled");
+            return;
+        }
+        try {
+            reconcileExecutor.execute(() -> reconcile(emf));
+        } catch (RuntimeException e) {
+            logger.warn("Unable to schedule reconciliation of user task load index", e);
+        }
+    }
+
+    protected void reconcile(EntityManagerFactory emf) {
+        index.startReconciliation();
+        try {
+            EntityManager em = emf.createEntityManager();
+            try {
+                logger.debug("DB query to be used for reconciling active tasks :: '{}'", ACTIVE_TASKS_QUERY);
+                @SuppressWarnings("unchecked")
+                List<Object[]> activeTasks = em.createQuery(ACTIVE_TASKS_QUERY).getResultList();
+                Map<Long, String> ownerByTask = new HashMap<>();
+                for (Object[] activeTask : activeTasks) {
+                    ownerByTask.put((Long) activeTask[0], (String) activeTask[1]);
+                }
+                index.reconcile(ownerByTask);
+                logger.debug("User task load index reconciled with {} active tasks", ownerByTask.size());
+            } finally {
+                em.close();
+            }
+        } catch (RuntimeException e) {
+            // keep the current counts, next attempt is made after the interval
+            index.cancelReconciliation();
+            logger.warn("Unable to reconcile user task load index with data base", e);
+        }
+    }
+}
@@ -23,27 +23,96 @@ import org.kie.api.task.TaskEvent;
 
 public class AssignmentTaskEventListener extends DefaultTaskEventListener {
 
+    private final UserTaskLoadIndex loadIndex = UserTaskLoadIndex.get();
+
     /*
      * following end state events are for information only
      */
     @Override
     public void afterTaskSkippedEvent(TaskEvent event) {
+        updateLoadIndex(event);
         AssignmentServiceProvider.get().onTaskDone(event.getTask(), event.getTaskContext());
     }
    
     @Override
     public void afterTaskCompletedEvent(TaskEvent event) {
+        updateLoadIndex(event);
         AssignmentServiceProvider.get().onTaskDone(event.getTask(), event.getTaskContext());
     }
 
     @Override
     public void afterTaskFailedEvent(TaskEvent event) {
+        updateLoadIndex(event);
         AssignmentServiceProvider.get().onTaskDone(event.getTask(), event.getTaskContext());
     }
 
     @Override
     public void afterTaskExitedEvent(TaskEvent event) {
+        updateLoadIndex(event);
         AssignmentServiceProvider.get().onTaskDone(event.getTask(), event.getTaskContext());
     }
 
+    /*
+     * following events might change actual owner or status of the task
+     */
+    @Override
+    public void afterTaskAddedEvent(TaskEvent event) {
+        updateLoadIndex(event);
+    }
+
+    @Override
+    public void afterTaskActivatedEvent(TaskEvent event) {
+        updateLoadIndex(event);
+    }
+
+    @Override
+    public void afterTaskClaimedEvent(TaskEvent event) {
+        updateLoadIndex(event);
+    }
+
+    @Override
+    public void afterTaskStartedEvent(TaskEvent event) {
+        updateLoadIndex(event);
+    }
+
+    @Override
+    public void afterTaskStoppedEvent(TaskEvent event) {
+        updateLoadIndex(event);
+    }
+
+    @Override
+    public void afterTaskReleasedEvent(TaskEvent event) {
+        updateLoadIndex(event);
+    }
+
+    @Override
+    public void afterTaskResumedEvent(TaskEvent event) {
+        updateLoadIndex(event);
+    }
+
+    @Override
+    public void afterTaskSuspendedEvent(TaskEvent event) {
+        updateLoadIndex(event);
+    }
+
+    @Override
+    public void afterTaskForwardedEvent(TaskEvent event) {
+        updateLoadIndex(event);
+    }
+
+    @Override
+    public void afterTaskDelegatedEvent(TaskEvent event) {
+        updateLoadIndex(event);
+    }
+
+    @Override
+    public void afterTaskNominatedEvent(TaskEvent event) {
+        updateLoadIndex(event);
+    }
+
+    protected void updateLoadIndex(TaskEvent event) {
+        if (loadIndex.isEnabled() && event.getTask() != null) {
+            loadIndex.taskChanged(event.getTask());
+        }
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.services.task.assignment.impl;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kie.api.task.model.Status;
+import org.kie.api.task.model.Task;
+import org.kie.api.task.model.User;
+
+/**
+ * In memory index of active (reserved, in progress or suspended) tasks per actual owner.
+ * It is maintained incrementally from task events (see {@link AssignmentTaskEventListener})
+ * and periodically reconciled with the data base by {@link ActiveTaskCountLoadCalculator}
+ * to catch up with changes made outside of this node or without events.
+ */
+public class UserTaskLoadIndex {
+
+    private static final UserTaskLoadIndex INSTANCE = new UserTaskLoadIndex();
+
+    static final Set<Status> ACTIVE_STATUSES = EnumSet.of(Status.Reserved, Status.InProgress, Status.Suspended);
+
+    private final Map<Long, String> ownerByTask = new HashMap<>();
+    private final Map<String, Integer> activeTasksByUser = new HashMap<>();
+    // changes made while the data base snapshot for reconciliation is read, null when not reconciling
+    private Map<Long, String> changedDuringReconciliation;
+
+    private volatile boolean enabled;
+    private final AtomicLong lastReconciliation = new AtomicLong();
+
+    public static UserTaskLoadIndex get() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Updates the index with current state of given task - it is counted for its actual owner
+     * only when it is active, otherwise it is removed from the index.
+     */
+    public synchronized void taskChanged(Task task) {
+        Long taskId = task.getId();
+        if (taskId == null || task.getTaskData() == null) {
+            return;
+        }
+        User owner = task.getTaskData().getActualOwner();
+        String newOwner = owner != null && ACTIVE_STATUSES.contains(task.getTaskData().getStatus()) ? owner.getId() : null;
+        String previousOwner = newOwner == null ? ownerByTask.remove(taskId) : ownerByTask.put(taskId, newOwner);
+        if (changedDuringReconciliation != null) {
+            changedDuringReconciliation.put(taskId, newOwner);
+        }
+        if (!Objects.equals(previousOwner, newOwner)) {
+            if (previousOwner != null) {
+                decrement(previousOwner);
+            }
+            if (newOwner != null) {
+                activeTasksByUser.merge(newOwner, 1, Integer::sum);
+            }
+        }
+    }
+
+    public synchronized int getActiveTaskCount(String userId) {
+        Integer count = activeTasksByUser.get(userId);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Starts tracking of task changes so that they are not lost by a reconciliation with a data base
+     * snapshot read after this call.
+     */
+    public synchronized void startReconciliation() {
+        changedDuringReconciliation = new HashMap<>();
+    }
+
+    public synchronized void cancelReconciliation() {
+        changedDuringReconciliation = null;
+    }
+
+    /**
+     * Replaces content of the index with given active tasks (task id to actual owner).
+     * Task changes seen since {@link #startReconciliation()} take precedence over the given tasks.
+     */
+    public synchronized void reconcile(Map<Long, String> activeTasks) {
+        ownerByTask.clear();
+        activeTasksByUser.clear();
+        ownerByTask.putAll(activeTasks);
+        if (changedDuringReconciliation != null) {
+            for (Map.Entry<Long, String> change : changedDuringReconciliation.entrySet()) {
+                if (change.getValue() == null) {
+                    ownerByTask.remove(change.getKey());
+                } else {
+                    ownerByTask.put(change.getKey(), change.getValue());
+                }
+            }
+            changedDuringReconciliation = null;
+        }
+        for (String owner : ownerByTask.values()) {
+            activeTasksByUser.merge(owner, 1, Integer::sum);
+        }
+        lastReconciliation.set(System.currentTimeMillis());
+    }
+
+    /**
+     * Returns true to exactly one caller once given interval since the last reconciliation elapsed.
+     */
+    boolean claimReconciliation(long interval) {
+        long now = System.currentTimeMillis();
+        long last = lastReconciliation.get();
+        return now - last >= interval && lastReconciliation.compareAndSet(last, now);
+    }
+
+    public synchronized void clear() {
+        ownerByTask.clear();
+        activeTasksByUser.clear();
+        changedDuringReconciliation = null;
+        lastReconciliation.set(0);
+    }
+
+    private void decrement(String userId) {
+        Integer count = activeTasksByUser.get(userId);
+        if (count == null || count <= 1) {
+            activeTasksByUser.remove(userId);
+        } else {
+            activeTasksByUser.put(userId, count - 1);
+        }
+    }
+}
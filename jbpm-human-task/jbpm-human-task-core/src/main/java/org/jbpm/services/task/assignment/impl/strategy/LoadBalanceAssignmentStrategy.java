@@ -17,8 +17,12 @@ package org.jbpm.services.task.assignment.impl.strategy;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -64,12 +68,17 @@ public class LoadBalanceAssignmentStrategy implements AssignmentStrategy {
 	@Override
 	public Assignment apply(Task task, TaskContext taskContext, String excludedUser) {
         UserInfo userInfo = (UserInfo) ((org.jbpm.services.task.commands.TaskContext)taskContext).get(EnvironmentName.TASK_USER_INFO);
-		List<OrganizationalEntity> excluded = (getExcludedEntities(task, userInfo));
+		Set<String> excluded = getExcludedEntities(task, userInfo).stream().map(OrganizationalEntity::getId).collect(Collectors.toCollection(HashSet::new));
+		if (excludedUser != null) {
+		    excluded.add(excludedUser);
+		}
 
         // Get the the users from the task's the potential owners, making sure that excluded users are not included
-        List<OrganizationalEntity> potentialOwners = task.getPeopleAssignments().getPotentialOwners().stream()
-                .filter(oe -> oe instanceof User && !excluded.contains(oe) && !oe.getId().equals(excludedUser))
-                .collect(Collectors.toList());
+        // hashed by id so that even large groups are expanded in linear time
+        Map<String, User> potentialOwners = new LinkedHashMap<>();
+        task.getPeopleAssignments().getPotentialOwners().stream()
+                .filter(oe -> oe instanceof User && !excluded.contains(oe.getId()))
+                .forEach(oe -> potentialOwners.putIfAbsent(oe.getId(), entityToUser.apply(oe)));
 
         // Get the users belonging to groups that are potential owners
         task.getPeopleAssignments().getPotentialOwners().stream().filter(oe -> oe instanceof Group)
@@ -77,14 +86,14 @@ public class LoadBalanceAssignmentStrategy implements AssignmentStrategy {
                     Iterator<OrganizationalEntity> groupUsers = userInfo.getMembersForGroup((Group)oe);
                     if (groupUsers != null) {
                         groupUsers.forEachRemaining(user -> {
-                            if (user != null && !excluded.contains(user) && !potentialOwners.contains(user) && !user.getId().equals(excludedUser)) {
-                                potentialOwners.add(user);
+                            if (user != null && !excluded.contains(user.getId())) {
+                                potentialOwners.putIfAbsent(user.getId(), entityToUser.apply(user));
                             }
                         });
                     }
                 });
-        logger.debug("Asking the load calculator [{}] for task loads for the users {}",calculator.getIdentifier(),potentialOwners);
-        List<User> users = potentialOwners.stream().map(entityToUser).collect(Collectors.toList());
+        logger.debug("Asking the load calculator [{}] for task loads for the users {}",calculator.getIdentifier(),potentialOwners.keySet());
+        List<User> users = new ArrayList<>(potentialOwners.values());
         Collection<UserTaskLoad> loads = calculator.getUserTaskLoads(users, taskContext);
         UserTaskLoad lightestLoad = loads.stream().min(UserTaskLoad::compareTo).orElse(null);
 		return lightestLoad != null ? new Assignment(lightestLoad.getUser().getId()):null;
@@ -18,6 +18,7 @@ package org.jbpm.services.task.commands;
 
 import org.drools.core.util.StringUtils;
 import org.jbpm.services.task.exception.CannotAddTaskException;
+import org.jbpm.services.task.utils.ClassUtil;
 import org.kie.api.runtime.Context;
 import org.kie.api.task.model.Attachment;
 import org.kie.api.task.model.Comment;
@@ -47,8 +48,11 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -65,6 +69,12 @@ public class UserGroupCallbackTaskCommand<T> extends TaskCommand<T> {
     private Map<String, Boolean> userGroupsMap = new HashMap<String, Boolean>();
     private static Set<String> restrictedGroups = new HashSet<String>(); 
     
+    // maximum number of ids in single IN clause when loading organizational entities 
+    private static final int ORG_ENTITY_QUERY_SIZE = 500;
+    // organizational entities known to exist (or not to exist - null value) in the persistence context the command runs in
+    private transient Map<String, OrganizationalEntity> knownOrgEntities;
+    private transient TaskPersistenceContext knownOrgEntitiesContext;
+    
     public UserGroupCallbackTaskCommand() {
     	
     }
@@ -123,9 +133,12 @@ public class UserGroupCallbackTaskCommand<T> extends TaskCommand<T> {
     }
 
     protected User addUserFromCallbackOperation(String userId, TaskContext context) {
-    	User user = context.getPersistenceContext().findUser(userId);
-        boolean userExists = user != null;
-        if (!StringUtils.isEmpty(userId) && !userExists) {
+        OrganizationalEntity orgEntity = findOrgEntity(userId, context);
+        if (orgEntity instanceof User) {
+            return (User) orgEntity;
+        }
+        User user = null;
+        if (!StringUtils.isEmpty(userId)) {
             user = TaskModelProvider.getFactory().newUser();
             ((InternalOrganizationalEntity) user).setId(userId);
             
@@ -136,14 +149,113 @@ public class UserGroupCallbackTaskCommand<T> extends TaskCommand<T> {
     }
     
     protected void persistIfNotExists(final OrganizationalEntity entity, TaskContext context) {
-    	TaskPersistenceContext tpc = context.getPersistenceContext();
-    	OrganizationalEntity orgEntity = tpc.findOrgEntity(entity.getId());
+    	OrganizationalEntity orgEntity = findOrgEntity(entity.getId(), context);
     	if( orgEntity == null
     	    || (orgEntity instanceof Group && entity instanceof User)  
     	    || (orgEntity instanceof User && entity instanceof Group) ) { 
-    	    tpc.persistOrgEntity(entity);
+    	    OrganizationalEntity persisted = context.getPersistenceContext().persistOrgEntity(entity);
+    	    if (!StringUtils.isEmpty(entity.getId())) {
+    	        getKnownOrgEntities(context).put(entity.getId(), persisted);
+    	    }
     	}
     }
+    
+    /**
+     * Finds organizational entity with given id, first among the entities already known to the current 
+     * persistence context and then in the data base.
+     */
+    protected OrganizationalEntity findOrgEntity(String orgEntityId, TaskContext context) {
+        Map<String, OrganizationalEntity> known = getKnownOrgEntities(context);
+        if (known.containsKey(orgEntityId)) {
+            return known.get(orgEntityId);
+        }
+        OrganizationalEntity orgEntity = context.getPersistenceContext().findOrgEntity(orgEntityId);
+        known.put(orgEntityId, orgEntity);
+        return orgEntity;
+    }
+    
+    /**
+     * Loads all given organizational entities that are not yet known to the current persistence context
+     * with as few queries as possible so that following callback operations do not need to look them up 
+     * one by one.
+     */
+    protected void loadOrgEntities(Collection<String> orgEntityIds, TaskContext context) {
+        Map<String, OrganizationalEntity> known = getKnownOrgEntities(context);
+        Set<String> unknownIds = new LinkedHashSet<String>();
+        for (String orgEntityId : orgEntityIds) {
+            if (!StringUtils.isEmpty(orgEntityId) && !known.containsKey(orgEntityId)) {
+                unknownIds.add(orgEntityId);
+            }
+        }
+        if (unknownIds.size() < 2) {
+            // single entity is cheaper to find by its primary key
+            return;
+        }
+        List<String> unknown = new ArrayList<String>(unknownIds);
+        TaskPersistenceContext tpc = context.getPersistenceContext();
+        for (int i = 0; i < unknown.size(); i += ORG_ENTITY_QUERY_SIZE) {
+            List<String> ids = unknown.subList(i, Math.min(i + ORG_ENTITY_QUERY_SIZE, unknown.size()));
+            List<OrganizationalEntity> found = tpc.queryWithParametersInTransaction("GetOrganizationalEntitiesByIds", 
+                    tpc.addParametersToMap("ids", new ArrayList<String>(ids)), 
+                    ClassUtil.<List<OrganizationalEntity>>castClass(List.class));
+            for (String id : ids) {
+                known.put(id, null);
+            }
+            if (found != null) {
+                for (OrganizationalEntity orgEntity : found) {
+                    known.put(orgEntity.getId(), orgEntity);
+                }
+            }
+        }
+        logger.debug("Loaded {} organizational entities in bulk", unknown.size());
+    }
+    
+    protected Map<String, OrganizationalEntity> getKnownOrgEntities(TaskContext context) {
+        TaskPersistenceContext tpc = context.getPersistenceContext();
+        if (knownOrgEntities == null || knownOrgEntitiesContext != tpc) {
+            knownOrgEntities = new HashMap<String, OrganizationalEntity>();
+            knownOrgEntitiesContext = tpc;
+        }
+        return knownOrgEntities;
+    }
+    
+    private static void collectIds(Collection<String> ids, List<? extends OrganizationalEntity> orgEntities) {
+        if (orgEntities != null) {
+            for (OrganizationalEntity orgEntity : orgEntities) {
+                if (orgEntity != null) {
+                    ids.add(orgEntity.getId());
+                }
+            }
+        }
+    }
+    
+    private static void collectIds(Collection<String> ids, Deadlines deadlines) {
+        List<Deadline> allDeadlines = new ArrayList<Deadline>();
+        if (deadlines.getStartDeadlines() != null) {
+            allDeadlines.addAll(deadlines.getStartDeadlines());
+        }
+        if (deadlines.getEndDeadlines() != null) {
+            allDeadlines.addAll(deadlines.getEndDeadlines());
+        }
+        for (Deadline deadline : allDeadlines) {
+            if (deadline.getEscalations() == null) {
+                continue;
+            }
+            for (Escalation escalation : deadline.getEscalations()) {
+                if (escalation.getNotifications() != null) {
+                    for (Notification notification : escalation.getNotifications()) {
+                        collectIds(ids, notification.getRecipients());
+                        collectIds(ids, notification.getBusinessAdministrators());
+                    }
+                }
+                if (escalation.getReassignments() != null) {
+                    for (Reassignment reassignment : escalation.getReassignments()) {
+                        collectIds(ids, reassignment.getPotentialOwners());
+                    }
+                }
+            }
+        }
+    }
 
     protected List<String> doCallbackGroupsOperation(String userId, List<String> groupIds, TaskContext context) {
 
@@ -152,6 +264,7 @@ public class UserGroupCallbackTaskCommand<T> extends TaskCommand<T> {
             if (groupIds != null && groupIds.size() > 0) {
 
                 List<String> userGroups = filterGroups(context.getUserGroupCallback().getGroupsForUser(userId));
+                loadOrgEntities(groupIds, context);
                 for (String groupId : groupIds) {
 
                     if (context.getUserGroupCallback().existsGroup(groupId) && userGroups != null && userGroups.contains(groupId)) {
@@ -162,6 +275,7 @@ public class UserGroupCallbackTaskCommand<T> extends TaskCommand<T> {
                 if (!(userGroupsMap.containsKey(userId) && userGroupsMap.get(userId).booleanValue())) {
                     List<String> userGroups = filterGroups(context.getUserGroupCallback().getGroupsForUser(userId));
                     if (userGroups != null && userGroups.size() > 0) {
+                        loadOrgEntities(userGroups, context);
                         for (String group : userGroups) {
                             addGroupFromCallbackOperation(group, context);
                         }
@@ -172,6 +286,7 @@ public class UserGroupCallbackTaskCommand<T> extends TaskCommand<T> {
             }
         } else {
             if (groupIds != null) {
+                loadOrgEntities(groupIds, context);
                 for (String groupId : groupIds) {
                     addGroupFromCallbackOperation(groupId, context);
                 }
@@ -183,10 +298,10 @@ public class UserGroupCallbackTaskCommand<T> extends TaskCommand<T> {
     }
 
     protected void addGroupFromCallbackOperation(String groupId, TaskContext context) {
-    	Group group = context.getPersistenceContext().findGroup(groupId);
-    	boolean groupExists = group != null;
+    	OrganizationalEntity orgEntity = findOrgEntity(groupId, context);
+    	boolean groupExists = orgEntity instanceof Group;
         if (!StringUtils.isEmpty(groupId) && !groupExists) {
-        	group = TaskModelProvider.getFactory().newGroup();
+        	Group group = TaskModelProvider.getFactory().newGroup();
             ((InternalOrganizationalEntity) group).setId(groupId);
             persistIfNotExists(group, context);
         }    
@@ -194,6 +309,10 @@ public class UserGroupCallbackTaskCommand<T> extends TaskCommand<T> {
 
     protected void doCallbackOperationForTaskData(InternalTaskData data, TaskContext context) {
 
+        if (data.getActualOwner() != null && data.getCreatedBy() != null) {
+            loadOrgEntities(Arrays.asList(data.getActualOwner().getId(), data.getCreatedBy().getId()), context);
+        }
+
         if (data.getActualOwner() != null) {
             boolean userExists = doCallbackUserOperation(data.getActualOwner().getId(), context);
             if (!userExists) {
@@ -217,6 +336,10 @@ public class UserGroupCallbackTaskCommand<T> extends TaskCommand<T> {
 
         List<OrganizationalEntity> nonExistingEntities = new ArrayList<OrganizationalEntity>();
 
+        Set<String> ids = new LinkedHashSet<String>();
+        collectIds(ids, potentialOwners);
+        loadOrgEntities(ids, context);
+
         for (OrganizationalEntity orgEntity : potentialOwners) {
             if (orgEntity instanceof User) {
                 boolean userExists = doCallbackUserOperation(orgEntity.getId(), context);
@@ -242,6 +365,17 @@ public class UserGroupCallbackTaskCommand<T> extends TaskCommand<T> {
         List<OrganizationalEntity> nonExistingEntities = new ArrayList<OrganizationalEntity>();
 
         if (assignments != null) {
+            Set<String> ids = new LinkedHashSet<String>();
+            collectIds(ids, assignments.getBusinessAdministrators());
+            collectIds(ids, assignments.getPotentialOwners());
+            if (assignments.getTaskInitiator() != null) {
+                ids.add(assignments.getTaskInitiator().getId());
+            }
+            collectIds(ids, assignments.getExcludedOwners());
+            collectIds(ids, assignments.getRecipients());
+            collectIds(ids, assignments.getTaskStakeholders());
+            loadOrgEntities(ids, context);
+
             List<? extends OrganizationalEntity> businessAdmins = assignments.getBusinessAdministrators();
             if (businessAdmins != null) {
                 for (OrganizationalEntity admin : businessAdmins) {
@@ -367,6 +501,10 @@ public class UserGroupCallbackTaskCommand<T> extends TaskCommand<T> {
     }
      protected void doCallbackOperationForTaskDeadlines(Deadlines deadlines, TaskContext context) {
         if(deadlines != null) {
+            Set<String> ids = new LinkedHashSet<String>();
+            collectIds(ids, deadlines);
+            loadOrgEntities(ids, context);
+
             if(deadlines.getStartDeadlines() != null) {
                 List<? extends Deadline> startDeadlines = deadlines.getStartDeadlines();
                 for(Deadline startDeadline : startDeadlines) {
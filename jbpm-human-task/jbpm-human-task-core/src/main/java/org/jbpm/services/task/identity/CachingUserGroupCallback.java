@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.identity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.kie.internal.task.api.UserGroupCallback;
+
+/**
+ * Decorator of any <code>UserGroupCallback</code> that keeps results of the delegate in a size bounded,
+ * time limited cache. Useful with remote backends (LDAP, data base) that would otherwise be asked for
+ * the same user on every task operation.
+ * <p>
+ * Configuration via system properties (all times in milliseconds):
+ * <ul>
+ *  <li>org.jbpm.ht.identity.cache.ttl - how long existing users/groups and group memberships are kept, default 60000</li>
+ *  <li>org.jbpm.ht.identity.cache.negative.ttl - how long negative results are kept, default 10000</li>
+ *  <li>org.jbpm.ht.identity.cache.size - maximum number of cached entries, default 1000</li>
+ * </ul>
+ * or via constructor arguments, e.g. when declared in deployment descriptor.
+ */
+public class CachingUserGroupCallback implements UserGroupCallback {
+
+    private static final String USER = "user";
+    private static final String GROUP = "group";
+    private static final String GROUPS_FOR_USER = "groups";
+
+    private final org.kie.api.task.UserGroupCallback delegate;
+    private final IdentityCache cache;
+
+    public CachingUserGroupCallback(org.kie.api.task.UserGroupCallback delegate) {
+        this(delegate, IdentityCache.DEFAULT_TTL, IdentityCache.DEFAULT_NEGATIVE_TTL, IdentityCache.DEFAULT_SIZE);
+    }
+
+    public CachingUserGroupCallback(org.kie.api.task.UserGroupCallback delegate, long ttl, long negativeTtl, int maxSize) {
+        this.delegate = delegate;
+        this.cache = new IdentityCache(ttl, negativeTtl, maxSize);
+    }
+
+    @Override
+    public boolean existsUser(String userId) {
+        String key = IdentityCache.key(USER, userId);
+        Boolean exists = (Boolean) cache.get(key);
+        if (exists == null) {
+            exists = delegate.existsUser(userId);
+            cache.put(key, exists, !exists);
+        }
+        return exists;
+    }
+
+    @Override
+    public boolean existsGroup(String groupId) {
+        String key = IdentityCache.key(GROUP, groupId);
+        Boolean exists = (Boolean) cache.get(key);
+        if (exists == null) {
+            exists = delegate.existsGroup(groupId);
+            cache.put(key, exists, !exists);
+        }
+        return exists;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<String> getGroupsForUser(String userId) {
+        String key = IdentityCache.key(GROUPS_FOR_USER, userId);
+        Object cached = cache.get(key);
+        if (cached != null) {
+            return IdentityCache.isNull(cached) ? null : new ArrayList<String>((List<String>) cached);
+        }
+        List<String> groups = delegate.getGroupsForUser(userId);
+        List<String> copy = groups == null ? null : Collections.unmodifiableList(new ArrayList<String>(groups));
+        cache.put(key, copy, copy == null || copy.isEmpty());
+        return groups;
+    }
+
+    /**
+     * Removes everything cached for given user or group.
+     */
+    public void invalidate(String id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public org.kie.api.task.UserGroupCallback getDelegate() {
+        return delegate;
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public double getHitRate() {
+        return cache.getHitRate();
+    }
+}
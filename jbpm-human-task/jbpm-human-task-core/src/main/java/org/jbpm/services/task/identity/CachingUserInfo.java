@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.identity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.kie.api.task.model.Group;
+import org.kie.api.task.model.OrganizationalEntity;
+import org.kie.internal.task.api.UserInfo;
+
+/**
+ * Decorator of any <code>UserInfo</code> that keeps results of the delegate in a size bounded,
+ * time limited cache. Uses the same configuration as {@link CachingUserGroupCallback}.
+ */
+public class CachingUserInfo implements UserInfo {
+
+    private static final String DISPLAY_NAME = "name";
+    private static final String MEMBERS = "members";
+    private static final String HAS_EMAIL = "hasEmail";
+    private static final String EMAIL = "email";
+    private static final String LANGUAGE = "language";
+
+    private final UserInfo delegate;
+    private final IdentityCache cache;
+
+    public CachingUserInfo(UserInfo delegate) {
+        this(delegate, IdentityCache.DEFAULT_TTL, IdentityCache.DEFAULT_NEGATIVE_TTL, IdentityCache.DEFAULT_SIZE);
+    }
+
+    public CachingUserInfo(UserInfo delegate, long ttl, long negativeTtl, int maxSize) {
+        this.delegate = delegate;
+        this.cache = new IdentityCache(ttl, negativeTtl, maxSize);
+    }
+
+    @Override
+    public String getDisplayName(OrganizationalEntity entity) {
+        String key = entityKey(DISPLAY_NAME, entity);
+        Object cached = cache.get(key);
+        if (cached != null) {
+            return IdentityCache.isNull(cached) ? null : (String) cached;
+        }
+        String displayName = delegate.getDisplayName(entity);
+        cache.put(key, displayName, displayName == null);
+        return displayName;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Iterator<OrganizationalEntity> getMembersForGroup(Group group) {
+        String key = IdentityCache.key(MEMBERS, group.getId());
+        Object cached = cache.get(key);
+        if (cached != null) {
+            return IdentityCache.isNull(cached) ? null : ((List<OrganizationalEntity>) cached).iterator();
+        }
+        Iterator<OrganizationalEntity> members = delegate.getMembersForGroup(group);
+        if (members == null) {
+            cache.put(key, null, true);
+            return null;
+        }
+        List<OrganizationalEntity> copy = new ArrayList<OrganizationalEntity>();
+        while (members.hasNext()) {
+            copy.add(members.next());
+        }
+        copy = Collections.unmodifiableList(copy);
+        cache.put(key, copy, copy.isEmpty());
+        return copy.iterator();
+    }
+
+    @Override
+    public boolean hasEmail(Group group) {
+        String key = IdentityCache.key(HAS_EMAIL, group.getId());
+        Boolean hasEmail = (Boolean) cache.get(key);
+        if (hasEmail == null) {
+            hasEmail = delegate.hasEmail(group);
+            cache.put(key, hasEmail, !hasEmail);
+        }
+        return hasEmail;
+    }
+
+    @Override
+    public String getEmailForEntity(OrganizationalEntity entity) {
+        String key = entityKey(EMAIL, entity);
+        Object cached = cache.get(key);
+        if (cached != null) {
+            return IdentityCache.isNull(cached) ? null : (String) cached;
+        }
+        String email = delegate.getEmailForEntity(entity);
+        cache.put(key, email, email == null);
+        return email;
+    }
+
+    @Override
+    public String getLanguageForEntity(OrganizationalEntity entity) {
+        String key = entityKey(LANGUAGE, entity);
+        Object cached = cache.get(key);
+        if (cached != null) {
+            return IdentityCache.isNull(cached) ? null : (String) cached;
+        }
+        String language = delegate.getLanguageForEntity(entity);
+        cache.put(key, language, language == null);
+        return language;
+    }
+
+    /*
+     * Users and groups may share the same id, so the key of entity specific data carries the entity type as well.
+     */
+    private static String entityKey(String kind, OrganizationalEntity entity) {
+        return IdentityCache.key(kind + (entity instanceof Group ? ".group" : ".user"), entity.getId());
+    }
+
+    /**
+     * Removes everything cached for given user or group.
+     */
+    public void invalidate(String id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public UserInfo getDelegate() {
+        return delegate;
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public double getHitRate() {
+        return cache.getHitRate();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.identity;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size bounded, time limited cache used by the caching identity decorators
+ * ({@link CachingUserGroupCallback} and {@link CachingUserInfo}).
+ * <p>
+ * Negative results (user or group that does not exist, no groups, no e-mail, etc.) are kept
+ * for their own - usually shorter - time so that newly created identities become visible quickly.
+ * Least recently used entries are evicted once the cache reaches its maximum size.
+ */
+class IdentityCache {
+
+    public static final String TTL_PROPERTY = "org.jbpm.ht.identity.cache.ttl";
+    public static final String NEGATIVE_TTL_PROPERTY = "org.jbpm.ht.identity.cache.negative.ttl";
+    public static final String SIZE_PROPERTY = "org.jbpm.ht.identity.cache.size";
+
+    static final long DEFAULT_TTL = Long.parseLong(System.getProperty(TTL_PROPERTY, "60000"));
+    static final long DEFAULT_NEGATIVE_TTL = Long.parseLong(System.getProperty(NEGATIVE_TTL_PROPERTY, "10000"));
+    static final int DEFAULT_SIZE = Integer.parseInt(System.getProperty(SIZE_PROPERTY, "1000"));
+
+    private static final Object NULL_VALUE = new Object();
+
+    private final long ttl;
+    private final long negativeTtl;
+    private final Map<String, CacheEntry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    IdentityCache(long ttl, long negativeTtl, final int maxSize) {
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns cached value for given key or marks a miss and returns <code>null</code>.
+     * Cached <code>null</code> values are returned as {@link #isNull(Object) null marker}.
+     */
+    synchronized Object get(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAt > System.currentTimeMillis()) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            entries.remove(key);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    synchronized void put(String key, Object value, boolean negative) {
+        long timeToLive = negative ? negativeTtl : ttl;
+        if (timeToLive <= 0) {
+            return;
+        }
+        entries.put(key, new CacheEntry(value == null ? NULL_VALUE : value, System.currentTimeMillis() + timeToLive));
+    }
+
+    static boolean isNull(Object value) {
+        return value == NULL_VALUE;
+    }
+
+    /**
+     * Removes all entries of given identity, regardless of the kind of information cached for it.
+     */
+    synchronized void invalidate(String id) {
+        Iterator<String> keys = entries.keySet().iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (key.substring(key.indexOf(':') + 1).equals(id)) {
+                keys.remove();
+            }
+        }
+    }
+
+    synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getMissCount() {
+        return misses.get();
+    }
+
+    double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    static String key(String kind, String id) {
+        return kind + ":" + id;
+    }
+
+    private static class CacheEntry {
+
+        private final Object value;
+        private final long expiresAt;
+
+        CacheEntry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.services.task.assignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+
+import org.drools.core.impl.EnvironmentFactory;
+import org.jbpm.services.task.assignment.impl.ActiveTaskCountLoadCalculator;
+import org.jbpm.services.task.assignment.impl.UserTaskLoadIndex;
+import org.jbpm.services.task.assignment.impl.strategy.LoadBalanceAssignmentStrategy;
+import org.jbpm.services.task.commands.TaskContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.EnvironmentName;
+import org.kie.api.task.model.Group;
+import org.kie.api.task.model.OrganizationalEntity;
+import org.kie.api.task.model.Status;
+import org.kie.api.task.model.Task;
+import org.kie.api.task.model.User;
+import org.kie.internal.task.api.TaskModelProvider;
+import org.kie.internal.task.api.UserInfo;
+import org.kie.internal.task.api.model.InternalPeopleAssignments;
+import org.kie.internal.task.api.model.InternalTask;
+import org.kie.internal.task.api.model.InternalTaskData;
+import org.kie.internal.task.api.assignment.Assignment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ActiveTaskCountLoadCalculatorTest {
+    private static final Logger logger = LoggerFactory.getLogger(ActiveTaskCountLoadCalculatorTest.class);
+    private static final int GROUP_SIZE = 10000;
+    private static final int ASSIGNMENTS = 1000;
+
+    private UserTaskLoadIndex index = UserTaskLoadIndex.get();
+
+    @Before
+    public void setUp() {
+        index.clear();
+        // mark as reconciled so that no data base is needed
+        index.reconcile(new HashMap<Long, String>());
+        System.setProperty("org.jbpm.task.assignment.loadbalance.calculator", ActiveTaskCountLoadCalculator.class.getName());
+        System.setProperty("org.jbpm.task.assignment.loadbalance.reconcile.interval", String.valueOf(TimeUnit.HOURS.toMillis(1)));
+    }
+
+    @After
+    public void clean() {
+        System.clearProperty("org.jbpm.task.assignment.loadbalance.calculator");
+        System.clearProperty("org.jbpm.task.assignment.loadbalance.reconcile.interval");
+        index.clear();
+        index.setEnabled(false);
+    }
+
+    @Test
+    public void testIndexFollowsTaskLifeCycle() {
+        Task task = createTask(1L, "john", Status.Reserved);
+        index.taskChanged(task);
+        index.taskChanged(task);
+        assertEquals(1, index.getActiveTaskCount("john"));
+
+        ((InternalTaskData) task.getTaskData()).setStatus(Status.InProgress);
+        index.taskChanged(task);
+        assertEquals(1, index.getActiveTaskCount("john"));
+
+        // delegated to mary
+        ((InternalTaskData) task.getTaskData()).setActualOwner(TaskModelProvider.getFactory().newUser("mary"));
+        index.taskChanged(task);
+        assertEquals(0, index.getActiveTaskCount("john"));
+        assertEquals(1, index.getActiveTaskCount("mary"));
+
+        index.taskChanged(createTask(2L, "mary", Status.Reserved));
+        assertEquals(2, index.getActiveTaskCount("mary"));
+
+        ((InternalTaskData) task.getTaskData()).setStatus(Status.Completed);
+        index.taskChanged(task);
+        assertEquals(1, index.getActiveTaskCount("mary"));
+
+        // released task has no actual owner
+        Task released = createTask(2L, null, Status.Ready);
+        index.taskChanged(released);
+        assertEquals(0, index.getActiveTaskCount("mary"));
+    }
+
+    @Test
+    public void testReconcileReplacesCounts() {
+        index.taskChanged(createTask(1L, "john", Status.Reserved));
+        Map<Long, String> activeTasks = new HashMap<>();
+        activeTasks.put(2L, "mary");
+        activeTasks.put(3L, "mary");
+        index.reconcile(activeTasks);
+
+        assertEquals(0, index.getActiveTaskCount("john"));
+        assertEquals(2, index.getActiveTaskCount("mary"));
+
+        index.taskChanged(createTask(3L, "mary", Status.Completed));
+        assertEquals(1, index.getActiveTaskCount("mary"));
+    }
+
+    @Test
+    public void testCalculatorUsesIndex() {
+        ActiveTaskCountLoadCalculator calculator = new ActiveTaskCountLoadCalculator(index, TimeUnit.HOURS.toMillis(1));
+        index.reconcile(new HashMap<Long, String>());
+        index.taskChanged(createTask(1L, "john", Status.Reserved));
+
+        List<User> users = Arrays.asList(TaskModelProvider.getFactory().newUser("john"), TaskModelProvider.getFactory().newUser("mary"));
+        Collection<UserTaskLoad> loads = calculator.getUserTaskLoads(users, null);
+        Iterator<UserTaskLoad> iterator = loads.iterator();
+        assertEquals(Double.valueOf(1), iterator.next().getCalculatedLoad());
+        assertEquals(Double.valueOf(0), iterator.next().getCalculatedLoad());
+        assertEquals(Double.valueOf(1), calculator.getUserTaskLoad(users.get(0), null).getCalculatedLoad());
+    }
+
+    @Test
+    public void testReconcileKeepsChangesMadeDuringSnapshot() {
+        index.taskChanged(createTask(1L, "john", Status.Reserved));
+        index.startReconciliation();
+        // snapshot read before task 1 was completed and task 3 was claimed
+        Map<Long, String> activeTasks = new HashMap<>();
+        activeTasks.put(1L, "john");
+        activeTasks.put(2L, "mary");
+        index.taskChanged(createTask(1L, "john", Status.Completed));
+        index.taskChanged(createTask(3L, "mary", Status.Reserved));
+        index.reconcile(activeTasks);
+
+        assertEquals(0, index.getActiveTaskCount("john"));
+        assertEquals(2, index.getActiveTaskCount("mary"));
+    }
+
+    @Test
+    public void testReconcileFailureDoesNotFailAssignment() {
+        index.clear();
+        index.taskChanged(createTask(1L, "john", Status.Reserved));
+        EntityManagerFactory emf = mock(EntityManagerFactory.class);
+        when(emf.createEntityManager()).thenThrow(new PersistenceException("data base not available"));
+        ActiveTaskCountLoadCalculator calculator = new ActiveTaskCountLoadCalculator(index, TimeUnit.HOURS.toMillis(1), Runnable::run);
+
+        TaskContext context = createContext(new ArrayList<OrganizationalEntity>());
+        context.set(EnvironmentName.ENTITY_MANAGER_FACTORY, emf);
+        User john = TaskModelProvider.getFactory().newUser("john");
+        assertEquals(Double.valueOf(1), calculator.getUserTaskLoad(john, context).getCalculatedLoad());
+        // next attempt only after the interval
+        assertEquals(Double.valueOf(1), calculator.getUserTaskLoad(john, context).getCalculatedLoad());
+        verify(emf, times(1)).createEntityManager();
+    }
+
+    @Test(timeout = 60000)
+    public void testLargeGroupAssignment() throws Exception {
+        LoadBalanceAssignmentStrategy strategy = new LoadBalanceAssignmentStrategy();
+        index.reconcile(new HashMap<Long, String>());
+
+        List<OrganizationalEntity> members = new ArrayList<>();
+        for (int i = 0; i < GROUP_SIZE; i++) {
+            members.add(TaskModelProvider.getFactory().newUser("user" + i));
+        }
+        TaskContext context = createContext(members);
+
+        long taskId = 1;
+        // users without any task are picked in order of group members
+        long start = System.nanoTime();
+        for (int i = 0; i < ASSIGNMENTS; i++) {
+            Assignment assignment = assign(strategy, context, taskId++);
+            assertEquals("user" + i, assignment.getUser());
+        }
+        long elapsed = System.nanoTime() - start;
+        for (int i = 0; i < ASSIGNMENTS; i++) {
+            assertEquals(1, index.getActiveTaskCount("user" + i));
+        }
+
+        // completing a task makes its owner the first lightest loaded user again
+        index.taskChanged(createTask(501L, "user500", Status.Completed));
+        assertEquals("user500", assign(strategy, context, taskId++).getUser());
+
+        logger.info("{} tasks assigned within group of {} users in {} ms", ASSIGNMENTS, GROUP_SIZE, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        assertTrue(elapsed > 0);
+    }
+
+    private Assignment assign(LoadBalanceAssignmentStrategy strategy, TaskContext context, long taskId) {
+        Task task = createTask(taskId, null, Status.Ready);
+        List<OrganizationalEntity> potentialOwners = new ArrayList<>();
+        potentialOwners.add(TaskModelProvider.getFactory().newGroup("large"));
+        ((InternalPeopleAssignments) task.getPeopleAssignments()).setPotentialOwners(potentialOwners);
+
+        Assignment assignment = strategy.apply(task, context, null);
+        ((InternalTaskData) task.getTaskData()).setActualOwner(TaskModelProvider.getFactory().newUser(assignment.getUser()));
+        ((InternalTaskData) task.getTaskData()).setStatus(Status.Reserved);
+        index.taskChanged(task);
+        return assignment;
+    }
+
+    private TaskContext createContext(List<OrganizationalEntity> members) {
+        Environment environment = EnvironmentFactory.newEnvironment();
+        environment.set(EnvironmentName.TASK_USER_INFO, new GroupOnlyUserInfo(members));
+        return new TaskContext(null, environment, null);
+    }
+
+    private static Task createTask(Long id, String owner, Status status) {
+        Task task = TaskModelProvider.getFactory().newTask();
+        ((InternalTask) task).setId(id);
+        InternalTaskData taskData = (InternalTaskData) TaskModelProvider.getFactory().newTaskData();
+        if (owner != null) {
+            taskData.setActualOwner(TaskModelProvider.getFactory().newUser(owner));
+        }
+        taskData.setStatus(status);
+        ((InternalTask) task).setTaskData(taskData);
+        InternalPeopleAssignments peopleAssignments = (InternalPeopleAssignments) TaskModelProvider.getFactory().newPeopleAssignments();
+        peopleAssignments.setExcludedOwners(new ArrayList<OrganizationalEntity>());
+        ((InternalTask) task).setPeopleAssignments(peopleAssignments);
+        return task;
+    }
+
+    private static class GroupOnlyUserInfo implements UserInfo {
+
+        private final List<OrganizationalEntity> members;
+
+        GroupOnlyUserInfo(List<OrganizationalEntity> members) {
+            this.members = members;
+        }
+
+        @Override
+        public String getDisplayName(OrganizationalEntity entity) {
+            return entity.getId();
+        }
+
+        @Override
+        public Iterator<OrganizationalEntity> getMembersForGroup(Group group) {
+            return members.iterator();
+        }
+
+        @Override
+        public boolean hasEmail(Group group) {
+            return false;
+        }
+
+        @Override
+        public String getEmailForEntity(OrganizationalEntity entity) {
+            return null;
+        }
+
+        @Override
+        public String getLanguageForEntity(OrganizationalEntity entity) {
+            return null;
+        }
+    }
+}
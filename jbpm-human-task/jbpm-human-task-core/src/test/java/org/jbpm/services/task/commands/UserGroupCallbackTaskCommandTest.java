@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.naming.InitialContext;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.transaction.UserTransaction;
+
+import org.drools.core.impl.EnvironmentFactory;
+import org.jbpm.services.task.HumanTaskServicesBaseTest;
+import org.jbpm.services.task.persistence.JPATaskPersistenceContext;
+import org.jbpm.test.util.PoolingDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.EnvironmentName;
+import org.kie.api.task.model.Group;
+import org.kie.api.task.model.OrganizationalEntity;
+import org.kie.api.task.model.User;
+import org.kie.internal.task.api.TaskModelProvider;
+import org.kie.internal.task.api.TaskPersistenceContext;
+import org.kie.internal.task.api.UserGroupCallback;
+import org.kie.internal.task.api.model.InternalPeopleAssignments;
+
+public class UserGroupCallbackTaskCommandTest extends HumanTaskServicesBaseTest {
+
+    private PoolingDataSource pds;
+    private EntityManagerFactory emf;
+
+    @Before
+    public void setup() {
+        pds = setupPoolingDataSource();
+        emf = Persistence.createEntityManagerFactory("org.jbpm.services.task");
+    }
+
+    @After
+    public void clean() {
+        if (emf != null) {
+            emf.close();
+        }
+        if (pds != null) {
+            pds.close();
+        }
+    }
+
+    @Test
+    public void testPeopleAssignmentsSynchronizedInBulk() throws Exception {
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        ut.begin();
+        EntityManager em = emf.createEntityManager();
+        em.joinTransaction();
+        for (int i = 0; i < 10; i++) {
+            em.persist(TaskModelProvider.getFactory().newGroup("existing" + i));
+        }
+        ut.commit();
+        em.close();
+
+        InternalPeopleAssignments assignments = (InternalPeopleAssignments) TaskModelProvider.getFactory().newPeopleAssignments();
+        List<OrganizationalEntity> potentialOwners = new ArrayList<OrganizationalEntity>();
+        for (int i = 0; i < 10; i++) {
+            potentialOwners.add(TaskModelProvider.getFactory().newGroup("existing" + i));
+            potentialOwners.add(TaskModelProvider.getFactory().newGroup("new" + i));
+        }
+        assignments.setPotentialOwners(potentialOwners);
+        List<OrganizationalEntity> businessAdministrators = new ArrayList<OrganizationalEntity>();
+        businessAdministrators.add(TaskModelProvider.getFactory().newUser("Administrator"));
+        assignments.setBusinessAdministrators(businessAdministrators);
+
+        ut.begin();
+        em = emf.createEntityManager();
+        em.joinTransaction();
+        Map<String, Integer> invocations = new HashMap<String, Integer>();
+        TaskContext context = createContext(em, invocations);
+
+        UserGroupCallbackTaskCommand<Void> command = new UserGroupCallbackTaskCommand<Void>();
+        command.doCallbackOperationForPeopleAssignments(assignments, context);
+        // second pass within the same persistence context is served from known entities
+        command.doCallbackOperationForPeopleAssignments(assignments, context);
+        ut.commit();
+        em.close();
+
+        assertEquals(Integer.valueOf(1), invocations.get("queryWithParametersInTransaction"));
+        assertEquals(Integer.valueOf(11), invocations.get("persistOrgEntity"));
+        assertTrue(!invocations.containsKey("findOrgEntity"));
+        assertTrue(!invocations.containsKey("findUser"));
+        assertTrue(!invocations.containsKey("findGroup"));
+
+        em = emf.createEntityManager();
+        try {
+            TaskPersistenceContext tpc = new JPATaskPersistenceContext(em);
+            for (int i = 0; i < 10; i++) {
+                assertNotNull(tpc.findGroup("existing" + i));
+                assertNotNull(tpc.findGroup("new" + i));
+            }
+            assertNotNull(tpc.findUser("Administrator"));
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    public void testSingleEntityFoundByPrimaryKey() throws Exception {
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        ut.begin();
+        EntityManager em = emf.createEntityManager();
+        em.joinTransaction();
+        Map<String, Integer> invocations = new HashMap<String, Integer>();
+        TaskContext context = createContext(em, invocations);
+
+        UserGroupCallbackTaskCommand<Void> command = new UserGroupCallbackTaskCommand<Void>();
+        User user = command.doCallbackAndReturnUserOperation("john", context);
+        assertEquals("john", user.getId());
+        assertTrue(command.doCallbackUserOperation("john", context));
+        ut.commit();
+        em.close();
+
+        assertTrue(!invocations.containsKey("queryWithParametersInTransaction"));
+        assertEquals(Integer.valueOf(1), invocations.get("findOrgEntity"));
+        assertEquals(Integer.valueOf(1), invocations.get("persistOrgEntity"));
+    }
+
+    private TaskContext createContext(EntityManager em, final Map<String, Integer> invocations) {
+        final TaskPersistenceContext delegate = new JPATaskPersistenceContext(em);
+        TaskPersistenceContext counting = (TaskPersistenceContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{TaskPersistenceContext.class}, new InvocationHandler() {
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        Integer count = invocations.get(method.getName());
+                        invocations.put(method.getName(), count == null ? 1 : count + 1);
+                        try {
+                            return method.invoke(delegate, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+
+        Environment environment = EnvironmentFactory.newEnvironment();
+        environment.set(EnvironmentName.TASK_USER_GROUP_CALLBACK, new AllowAllUserGroupCallback());
+        TaskContext context = new TaskContext(null, environment, null);
+        context.setPersistenceContext(counting);
+        return context;
+    }
+
+    private static class AllowAllUserGroupCallback implements UserGroupCallback {
+
+        @Override
+        public boolean existsUser(String userId) {
+            return true;
+        }
+
+        @Override
+        public boolean existsGroup(String groupId) {
+            return true;
+        }
+
+        @Override
+        public List<String> getGroupsForUser(String userId) {
+            return new ArrayList<String>();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.kie.api.task.model.Group;
+import org.kie.api.task.model.OrganizationalEntity;
+import org.kie.api.task.model.User;
+import org.kie.internal.task.api.TaskModelProvider;
+import org.kie.internal.task.api.UserGroupCallback;
+import org.kie.internal.task.api.UserInfo;
+
+public class CachingUserGroupCallbackTest {
+
+    private static final User JOHN = TaskModelProvider.getFactory().newUser("john");
+    private static final User MARY = TaskModelProvider.getFactory().newUser("mary");
+    private static final Group HR = TaskModelProvider.getFactory().newGroup("HR");
+
+    @Test
+    public void testBurstOfTaskQueriesHitsBackendOnce() {
+        CountingUserGroupCallback backend = new CountingUserGroupCallback();
+        CachingUserGroupCallback callback = new CachingUserGroupCallback(backend, 60000, 60000, 100);
+
+        // every task list query resolves user and its groups
+        for (int i = 0; i < 1000; i++) {
+            for (String userId : Arrays.asList("john", "mary")) {
+                assertTrue(callback.existsUser(userId));
+                assertEquals(Arrays.asList("HR", "PM"), callback.getGroupsForUser(userId));
+            }
+        }
+        assertEquals(4, backend.calls.get());
+        assertEquals(4, callback.getMissCount());
+        assertEquals(3996, callback.getHitCount());
+        assertTrue(callback.getHitRate() > 0.99);
+    }
+
+    @Test
+    public void testNegativeResultsExpireSooner() throws Exception {
+        CountingUserGroupCallback backend = new CountingUserGroupCallback();
+        CachingUserGroupCallback callback = new CachingUserGroupCallback(backend, 60000, 50, 100);
+
+        assertFalse(callback.existsUser("unknown"));
+        assertFalse(callback.existsUser("unknown"));
+        assertTrue(callback.existsGroup("HR"));
+        assertEquals(2, backend.calls.get());
+
+        Thread.sleep(100);
+        assertFalse(callback.existsUser("unknown"));
+        assertTrue(callback.existsGroup("HR"));
+        assertEquals(3, backend.calls.get());
+    }
+
+    @Test
+    public void testInvalidate() {
+        CountingUserGroupCallback backend = new CountingUserGroupCallback();
+        CachingUserGroupCallback callback = new CachingUserGroupCallback(backend, 60000, 60000, 100);
+
+        callback.existsUser("john");
+        callback.getGroupsForUser("john");
+        callback.existsUser("mary");
+        assertEquals(3, backend.calls.get());
+
+        callback.invalidate("john");
+        callback.existsUser("john");
+        callback.getGroupsForUser("john");
+        callback.existsUser("mary");
+        assertEquals(5, backend.calls.get());
+
+        callback.invalidateAll();
+        callback.existsUser("mary");
+        assertEquals(6, backend.calls.get());
+    }
+
+    @Test
+    public void testMaxSize() {
+        CountingUserGroupCallback backend = new CountingUserGroupCallback();
+        CachingUserGroupCallback callback = new CachingUserGroupCallback(backend, 60000, 60000, 2);
+
+        callback.existsUser("john");
+        callback.existsUser("mary");
+        callback.existsUser("peter");
+        assertEquals(3, backend.calls.get());
+
+        // least recently used entry was evicted
+        callback.existsUser("john");
+        assertEquals(4, backend.calls.get());
+        callback.existsUser("peter");
+        assertEquals(4, backend.calls.get());
+    }
+
+    @Test
+    public void testCachedGroupsNotModifiedByCaller() {
+        CachingUserGroupCallback callback = new CachingUserGroupCallback(new CountingUserGroupCallback(), 60000, 60000, 100);
+
+        callback.getGroupsForUser("john").add("admin");
+        List<String> groups = callback.getGroupsForUser("john");
+        assertEquals(Arrays.asList("HR", "PM"), groups);
+        groups.add("admin");
+        assertEquals(Arrays.asList("HR", "PM"), callback.getGroupsForUser("john"));
+    }
+
+    @Test
+    public void testUserInfo() {
+        CountingUserInfo backend = new CountingUserInfo();
+        CachingUserInfo userInfo = new CachingUserInfo(backend, 60000, 60000, 100);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("John Doe", userInfo.getDisplayName(JOHN));
+            assertNull(userInfo.getEmailForEntity(MARY));
+            assertEquals("en-UK", userInfo.getLanguageForEntity(JOHN));
+            assertTrue(userInfo.hasEmail(HR));
+
+            Iterator<OrganizationalEntity> members = userInfo.getMembersForGroup(HR);
+            assertEquals(JOHN, members.next());
+            assertEquals(MARY, members.next());
+            assertFalse(members.hasNext());
+        }
+        assertEquals(5, backend.calls.get());
+        assertEquals(495, userInfo.getHitCount());
+
+        userInfo.invalidate("HR");
+        userInfo.getMembersForGroup(HR);
+        userInfo.getDisplayName(JOHN);
+        assertEquals(6, backend.calls.get());
+    }
+
+    @Test
+    public void testUserAndGroupWithSameId() {
+        CountingUserInfo backend = new CountingUserInfo();
+        CachingUserInfo userInfo = new CachingUserInfo(backend, 60000, 60000, 100);
+        User hrUser = TaskModelProvider.getFactory().newUser("HR");
+
+        assertEquals("hr@groups.jbpm.org", userInfo.getEmailForEntity(HR));
+        assertNull(userInfo.getEmailForEntity(hrUser));
+        assertEquals("HR group", userInfo.getDisplayName(HR));
+        assertNull(userInfo.getDisplayName(hrUser));
+        assertEquals(4, backend.calls.get());
+
+        // both stay cached separately and are removed together
+        assertEquals("hr@groups.jbpm.org", userInfo.getEmailForEntity(HR));
+        assertNull(userInfo.getEmailForEntity(hrUser));
+        assertEquals(4, backend.calls.get());
+
+        userInfo.invalidate("HR");
+        userInfo.getEmailForEntity(HR);
+        userInfo.getEmailForEntity(hrUser);
+        assertEquals(6, backend.calls.get());
+    }
+
+    private static class CountingUserGroupCallback implements UserGroupCallback {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public boolean existsUser(String userId) {
+            calls.incrementAndGet();
+            return "john".equals(userId) || "mary".equals(userId) || "peter".equals(userId);
+        }
+
+        @Override
+        public boolean existsGroup(String groupId) {
+            calls.incrementAndGet();
+            return "HR".equals(groupId) || "PM".equals(groupId);
+        }
+
+        @Override
+        public List<String> getGroupsForUser(String userId) {
+            calls.incrementAndGet();
+            if (existsUserQuietly(userId)) {
+                return new ArrayList<String>(Arrays.asList("HR", "PM"));
+            }
+            return Collections.emptyList();
+        }
+
+        private boolean existsUserQuietly(String userId) {
+            return "john".equals(userId) || "mary".equals(userId);
+        }
+    }
+
+    private static class CountingUserInfo implements UserInfo {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public String getDisplayName(OrganizationalEntity entity) {
+            calls.incrementAndGet();
+            if (entity instanceof Group) {
+                return entity.getId() + " group";
+            }
+            return "john".equals(entity.getId()) ? "John Doe" : null;
+        }
+
+        @Override
+        public Iterator<OrganizationalEntity> getMembersForGroup(Group group) {
+            calls.incrementAndGet();
+            return Arrays.<OrganizationalEntity>asList(JOHN, MARY).iterator();
+        }
+
+        @Override
+        public boolean hasEmail(Group group) {
+            calls.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public String getEmailForEntity(OrganizationalEntity entity) {
+            calls.incrementAndGet();
+            if (entity instanceof Group) {
+                return entity.getId().toLowerCase() + "@groups.jbpm.org";
+            }
+            return "john".equals(entity.getId()) ? "john@jbpm.org" : null;
+        }
+
+        @Override
+        public String getLanguageForEntity(OrganizationalEntity entity) {
+            calls.incrementAndGet();
+            return "en-UK";
+        }
+    }
+}
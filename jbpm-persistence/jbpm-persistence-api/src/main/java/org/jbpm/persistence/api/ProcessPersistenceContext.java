@@ -16,6 +16,7 @@
 
 package org.jbpm.persistence.api;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.drools.persistence.api.PersistenceContext;
@@ -30,6 +31,23 @@ public interface ProcessPersistenceContext
     PersistentCorrelationKey persist(PersistentCorrelationKey correlationKeyInfo);
     
     PersistentProcessInstance findProcessInstanceInfo(Long processId);
+
+    /**
+     * Finds process instance infos for all given ids at once. Ids that do not exist are silently skipped
+     * and the order of returned instances is not guaranteed.
+     * @param processIds ids of process instances to be loaded
+     * @return list of found process instance infos
+     */
+    default List<PersistentProcessInstance> findProcessInstanceInfos(List<Long> processIds) {
+        List<PersistentProcessInstance> result = new ArrayList<PersistentProcessInstance>();
+        for (Long processId : processIds) {
+            PersistentProcessInstance processInstanceInfo = findProcessInstanceInfo(processId);
+            if (processInstanceInfo != null) {
+                result.add(processInstanceInfo);
+            }
+        }
+        return result;
+    }
     
     void remove(PersistentProcessInstance processInstanceInfo);
 
@@ -70,6 +70,23 @@ public class JpaProcessPersistenceContext extends JpaPersistenceContext
         return em.find( ProcessInstanceInfo.class, processId );
     }
 
+    /**
+     * Loads all given process instance infos with single query so they become managed by the entity manager
+     * and subsequent {@link #findProcessInstanceInfo(Long)} calls for them do not hit the data base again.
+     */
+    @Override
+    public List<PersistentProcessInstance> findProcessInstanceInfos(List<Long> processIds) {
+        if (processIds == null || processIds.isEmpty()) {
+            return new ArrayList<PersistentProcessInstance>();
+        }
+        Query processInstancesByIds = getEntityManager().createNamedQuery( "ProcessInstancesByIds" );
+        processInstancesByIds.setParameter( "ids", processIds );
+        if( this.pessimisticLocking ) {
+            processInstancesByIds.setLockMode( LockModeType.PESSIMISTIC_FORCE_INCREMENT );
+        }
+        return (List<PersistentProcessInstance>) processInstancesByIds.getResultList();
+    }
+
     public void remove(PersistentProcessInstance processInstanceInfo) {
         getEntityManager().remove( processInstanceInfo );
         TransactionManagerHelper.removeFromUpdatableSet(txm, processInstanceInfo);
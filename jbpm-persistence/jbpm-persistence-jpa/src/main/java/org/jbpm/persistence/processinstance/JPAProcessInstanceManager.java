@@ -19,6 +19,7 @@ package org.jbpm.persistence.processinstance;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.Map;
@@ -31,13 +32,19 @@ import org.jbpm.persistence.api.ProcessPersistenceContext;
 import org.jbpm.persistence.api.ProcessPersistenceContextManager;
 import org.jbpm.persistence.correlation.CorrelationKeyInfo;
 import org.jbpm.persistence.correlation.CorrelationPropertyInfo;
+import org.jbpm.process.core.context.variable.VariableScope;
+import org.jbpm.process.instance.ContextInstance;
+import org.jbpm.process.instance.ContextInstanceContainer;
 import org.jbpm.process.instance.InternalProcessRuntime;
 import org.jbpm.process.instance.ProcessInstanceManager;
+import org.jbpm.process.instance.context.variable.VariableScopeInstance;
 import org.jbpm.process.instance.impl.ProcessInstanceImpl;
 import org.jbpm.process.instance.timer.TimerManager;
+import org.jbpm.workflow.instance.NodeInstance;
 import org.jbpm.workflow.instance.impl.WorkflowProcessInstanceImpl;
 import org.jbpm.workflow.instance.node.StateBasedNodeInstance;
 import org.jbpm.workflow.instance.node.TimerNodeInstance;
+import org.jbpm.workflow.instance.node.WorkItemNodeInstance;
 import org.kie.api.definition.process.Process;
 import org.kie.api.runtime.EnvironmentName;
 import org.kie.api.runtime.KieSession;
@@ -64,6 +71,10 @@ public class JPAProcessInstanceManager
     //   lazy initialization is more costly than eager initialization
     // Added volatile so that if something happens, we can figure out what
     private volatile transient Map<Long, ProcessInstance> processInstances = new ConcurrentHashMap<Long, ProcessInstance>();
+    // process instance infos loaded or created within current transaction, candidates for ProcessInstanceCache
+    private transient Map<Long, ProcessInstanceInfo> processInstanceInfos = new ConcurrentHashMap<Long, ProcessInstanceInfo>();
+    private volatile transient boolean rolledBack = false;
+    private transient ProcessInstanceCache cache = ProcessInstanceCache.get();
 
     
     public void setKnowledgeRuntime(InternalKnowledgeRuntime kruntime) {
@@ -90,6 +101,9 @@ public class JPAProcessInstanceManager
         correlationKeyInfo.setProcessInstanceId(processInstanceInfo.getId());
         context.persist(correlationKeyInfo);
         internalAddProcessInstance(processInstance);
+        if (cache.isEnabled()) {
+            processInstanceInfos.put(processInstanceInfo.getId(), processInstanceInfo);
+        }
     }
     
     public void internalAddProcessInstance(ProcessInstance processInstance) {
@@ -141,6 +155,16 @@ public class JPAProcessInstanceManager
         if ( processInstanceInfo == null ) {
             return null;
         }
+        if (!readOnly && cache.isEnabled()) {
+            // cached instance is only valid for the process definition currently in the kie base
+            processInstance = (org.jbpm.process.instance.ProcessInstance)
+                cache.checkout(getCacheOwner(), id, processInstanceInfo.getVersion(),
+                        kruntime.getKieBase().getProcess(processInstanceInfo.getProcessId()));
+            if (processInstance != null && processInstanceInfo.processInstance == null) {
+                processInstanceInfo.attachProcessInstance(processInstance, this.kruntime.getEnvironment());
+            }
+            processInstanceInfos.put(id, processInstanceInfo);
+        }
         processInstance = (org.jbpm.process.instance.ProcessInstance)
         	processInstanceInfo.getProcessInstance(kruntime, this.kruntime.getEnvironment(), readOnly);
         if (!readOnly) {
@@ -181,6 +205,8 @@ public class JPAProcessInstanceManager
             context.remove( processInstanceInfo );
         }
         internalRemoveProcessInstance(processInstance);
+        processInstanceInfos.remove(processInstance.getId());
+        cache.invalidate(getCacheOwner(), processInstance.getId());
     }
 
     public void internalRemoveProcessInstance(ProcessInstance processInstance) {
@@ -188,12 +214,99 @@ public class JPAProcessInstanceManager
     }
     
     public void clearProcessInstances() {
+        List<ProcessInstanceInfo> cacheable = collectCacheableProcessInstances();
+        // process definitions are dropped on disconnect
+        Map<Long, Process> definitions = new HashMap<Long, Process>();
+        for (ProcessInstanceInfo processInstanceInfo : cacheable) {
+            WorkflowProcessInstanceImpl processInstance = (WorkflowProcessInstanceImpl) processInstanceInfo.processInstance;
+            definitions.put(processInstanceInfo.getId(), processInstance.getProcess());
+            resetWorkItems(processInstance);
+        }
         for (ProcessInstance processInstance: new ArrayList<ProcessInstance>(processInstances.values())) {
             ((ProcessInstanceImpl) processInstance).disconnect();
         }
+        for (ProcessInstanceInfo processInstanceInfo : cacheable) {
+            ProcessInstance processInstance = processInstanceInfo.processInstance;
+            if (((ProcessInstanceImpl) processInstance).getKnowledgeRuntime() == null) {
+                cache.checkin(getCacheOwner(), processInstanceInfo.getId(), processInstanceInfo.getVersion(),
+                        definitions.get(processInstanceInfo.getId()), processInstance,
+                        processInstanceInfo.getProcessInstanceByteArray().length);
+            }
+        }
+    }
+
+    /*
+     * Process instances can be cached only when the transaction was committed and they were stored
+     * in exactly the state they are in now; instances holding mutable variable values are never cached
+     * as these values could have been handed out and modified after the process instance was stored
+     */
+    protected List<ProcessInstanceInfo> collectCacheableProcessInstances() {
+        List<ProcessInstanceInfo> cacheable = new ArrayList<ProcessInstanceInfo>();
+        if (!cache.isEnabled()) {
+            return cacheable;
+        }
+        if (!rolledBack) {
+            for (ProcessInstanceInfo processInstanceInfo : processInstanceInfos.values()) {
+                ProcessInstance processInstance = processInstanceInfo.processInstance;
+                if (processInstance instanceof WorkflowProcessInstanceImpl
+                        && processInstanceInfo.getProcessInstanceByteArray() != null
+                        && isCacheable((WorkflowProcessInstanceImpl) processInstance)) {
+                    cacheable.add(processInstanceInfo);
+                }
+            }
+        } else {
+            for (Long processInstanceId : processInstanceInfos.keySet()) {
+                cache.invalidate(getCacheOwner(), processInstanceId);
+            }
+        }
+        processInstanceInfos.clear();
+        rolledBack = false;
+        return cacheable;
+    }
+
+    protected boolean isCacheable(WorkflowProcessInstanceImpl processInstance) {
+        if (processInstance.getState() != ProcessInstance.STATE_ACTIVE || !processInstance.isPersisted()
+                || processInstance.isDirty() || processInstance.getKnowledgeRuntime() == null) {
+            return false;
+        }
+        if (hasMutableVariables(processInstance.getContextInstance(VariableScope.VARIABLE_SCOPE))) {
+            return false;
+        }
+        for (NodeInstance nodeInstance : processInstance.getNodeInstances(true)) {
+            if (nodeInstance instanceof ContextInstanceContainer) {
+                List<ContextInstance> variableScopes = ((ContextInstanceContainer) nodeInstance).getContextInstances(VariableScope.VARIABLE_SCOPE);
+                if (variableScopes != null) {
+                    for (ContextInstance variableScope : variableScopes) {
+                        if (hasMutableVariables(variableScope)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    protected void resetWorkItems(WorkflowProcessInstanceImpl processInstance) {
+        for (NodeInstance nodeInstance : processInstance.getNodeInstances(true)) {
+            if (nodeInstance instanceof WorkItemNodeInstance) {
+                // work item is loaded again on demand, same as for freshly unmarshalled process instance
+                ((WorkItemNodeInstance) nodeInstance).internalSetWorkItem(null);
+            }
+        }
+    }
+
+    private boolean hasMutableVariables(ContextInstance variableScope) {
+        return variableScope instanceof VariableScopeInstance && ((VariableScopeInstance) variableScope).hasMutableValues();
+    }
+
+    protected Object getCacheOwner() {
+        return this.kruntime.getEnvironment().get(EnvironmentName.ENTITY_MANAGER_FACTORY);
     }
 
     public void clearProcessInstancesState() {
+        // invoked when transaction was rolled back, in memory state of process instances must not be reused
+        rolledBack = true;
         try {
             // at this point only timers are considered as state that needs to be cleared
             TimerManager timerManager = ((InternalProcessRuntime)kruntime.getProcessRuntime()).getTimerManager();
@@ -16,6 +16,7 @@
 
 package org.jbpm.persistence.processinstance;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.drools.core.common.InternalKnowledgeRuntime;
@@ -30,10 +31,22 @@ import org.kie.api.runtime.manager.RuntimeManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Signal manager that loads all process instances waiting for given signal before it is delivered.
+ * <p>
+ * Process instances are fetched in batches (<code>org.jbpm.signal.batch.size</code>, 100 by default) with single
+ * query per batch so that each of them is not loaded separately. Asynchronous signals (prefixed with <code>ASYNC-</code>)
+ * are scheduled as executor jobs, by default one per process instance. Setting <code>org.jbpm.signal.async.batch.size</code>
+ * to a value greater than 1 schedules one job per batch of process instances instead; each of them is signaled
+ * separately within the job and failures are reported per process instance.
+ */
 public class JPASignalManager extends DefaultSignalManager {
     private static final String ASYNC_SIGNAL_PREFIX = "ASYNC-";
     private static final Logger logger = LoggerFactory.getLogger(JPASignalManager.class);
 
+    private static final int BATCH_SIZE = Integer.parseInt(System.getProperty("org.jbpm.signal.batch.size", "100"));
+    private static final int ASYNC_BATCH_SIZE = Integer.parseInt(System.getProperty("org.jbpm.signal.async.batch.size", "1"));
+
     public JPASignalManager(InternalKnowledgeRuntime kruntime) {
         super(kruntime);
     }
@@ -51,6 +64,18 @@ public class JPASignalManager extends DefaultSignalManager {
             ExecutorService executorService = (ExecutorService) getKnowledgeRuntime().getEnvironment().get("ExecutorService");
             if (runtimeManager != null && executorService != null) {
                 
+                if (ASYNC_BATCH_SIZE > 1) {
+                    for (List<Long> batch : partition(processInstancesToSignalList, ASYNC_BATCH_SIZE)) {
+                        CommandContext ctx = new CommandContext();
+                        ctx.setData("deploymentId", runtimeManager.getIdentifier());
+                        ctx.setData("processInstanceIds", new ArrayList<Long>(batch));
+                        ctx.setData("Signal", actualSignalType);
+                        ctx.setData("Event", event);
+
+                        executorService.scheduleRequest(AsyncSignalEventCommand.class.getName(), ctx);
+                    }
+                    return;
+                }
                 for (Long processInstanceId : processInstancesToSignalList) {
                     CommandContext ctx = new CommandContext();
                     ctx.setData("deploymentId", runtimeManager.getIdentifier());
@@ -68,19 +93,51 @@ public class JPASignalManager extends DefaultSignalManager {
         }
         
         
-        for ( long id : processInstancesToSignalList ) {
-            try {
-                getKnowledgeRuntime().getProcessInstance( id );
-            } catch (IllegalStateException e) {
-                // IllegalStateException can be thrown when using RuntimeManager
-                // and invalid ksession was used for given context
-            } catch (RuntimeException e) {
-                logger.warn("Exception when loading process instance for signal '{}', instance with id {} will not be signaled",
-                        e.getMessage(), id);
+        int failed = 0;
+        for ( List<Long> batch : partition(processInstancesToSignalList, BATCH_SIZE) ) {
+            prefetchProcessInstances(context, batch);
+            for ( long id : batch ) {
+                try {
+                    getKnowledgeRuntime().getProcessInstance( id );
+                } catch (IllegalStateException e) {
+                    // IllegalStateException can be thrown when using RuntimeManager
+                    // and invalid ksession was used for given context
+                } catch (RuntimeException e) {
+                    failed++;
+                    logger.warn("Exception when loading process instance for signal '{}', instance with id {} will not be signaled",
+                            e.getMessage(), id);
+                }
             }
         }
+        logger.debug("Loaded {} out of {} process instances waiting for signal '{}'",
+                processInstancesToSignalList.size() - failed, processInstancesToSignalList.size(), actualSignalType);
         super.signalEvent( actualSignalType,
                            event );
     }
 
+    /*
+     * Loads process instance infos of the whole batch with single query, they are then found in the persistence
+     * context when individual process instances are requested from the knowledge runtime
+     */
+    protected void prefetchProcessInstances(ProcessPersistenceContext context, List<Long> processInstanceIds) {
+        if (processInstanceIds.size() < 2) {
+            return;
+        }
+        try {
+            context.findProcessInstanceInfos(processInstanceIds);
+        } catch (RuntimeException e) {
+            // not fatal, process instances are then loaded one by one
+            logger.debug("Unable to prefetch process instances {} due to {}", processInstanceIds, e.getMessage());
+        }
+    }
+
+    protected static List<List<Long>> partition(List<Long> ids, int batchSize) {
+        List<List<Long>> batches = new ArrayList<List<Long>>();
+        int size = Math.max(1, batchSize);
+        for (int i = 0; i < ids.size(); i += size) {
+            batches.add(ids.subList(i, Math.min(i + size, ids.size())));
+        }
+        return batches;
+    }
+
 }
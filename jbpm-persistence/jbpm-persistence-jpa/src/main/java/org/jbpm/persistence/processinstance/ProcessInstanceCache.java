@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.processinstance;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kie.api.runtime.process.ProcessInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded LRU cache of disconnected, already unmarshalled process instances.
+ * <p>
+ * Entries are keyed by the owner of the data (usually entity manager factory) and process instance id and
+ * carry the version of the {@link ProcessInstanceInfo} they were stored with as well as the process definition
+ * the process instance was bound to. An entry is only used when its version matches the version of the process
+ * instance info that was loaded and its definition is the one currently available in the kie base (it changes
+ * when the kie base is updated), otherwise the process instance is unmarshalled as usual. Process instances are checked out of the cache exclusively so they are never shared
+ * by concurrent commands.
+ * <p>
+ * The cache is disabled by default, it is enabled by setting <code>org.jbpm.pi.cache.size</code> to maximum number
+ * of cached process instances. Total size of the cached process instances (estimated by size of their marshalled
+ * form) is bounded by <code>org.jbpm.pi.cache.max.bytes</code>, 64MB by default.
+ */
+public class ProcessInstanceCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessInstanceCache.class);
+
+    private static final ProcessInstanceCache INSTANCE = new ProcessInstanceCache(
+            Integer.parseInt(System.getProperty("org.jbpm.pi.cache.size", "0")),
+            Long.parseLong(System.getProperty("org.jbpm.pi.cache.max.bytes", String.valueOf(64 * 1024 * 1024))));
+
+    private final int maxEntries;
+    private final long maxBytes;
+
+    private final LinkedHashMap<CacheKey, CacheEntry> entries = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true);
+    private long currentBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public static ProcessInstanceCache get() {
+        return INSTANCE;
+    }
+
+    public ProcessInstanceCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * Removes process instance from the cache and returns it if it was stored with given version.
+     * @return cached process instance or null if there is no valid entry
+     */
+    public ProcessInstance checkout(Object owner, Long processInstanceId, int version) {
+        return checkout(owner, processInstanceId, version, null);
+    }
+
+    /**
+     * Removes process instance from the cache and returns it if it was stored with given version and
+     * process definition (compared by identity).
+     * @return cached process instance or null if there is no valid entry
+     */
+    public ProcessInstance checkout(Object owner, Long processInstanceId, int version, Object definition) {
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.remove(new CacheKey(owner, processInstanceId));
+            if (entry != null) {
+                currentBytes -= entry.size;
+            }
+        }
+        if (entry != null && entry.version == version && entry.definition == definition) {
+            hits.incrementAndGet();
+            return entry.processInstance;
+        }
+        misses.incrementAndGet();
+        if (entry != null) {
+            logger.debug("Cached process instance {} has version {} while {} is stored or its process definition changed, ignoring it",
+                    processInstanceId, entry.version, version);
+        }
+        return null;
+    }
+
+    /**
+     * Stores disconnected process instance in the cache, evicting least recently used entries when needed.
+     * @param size estimated size of the process instance, usually size of its marshalled form
+     */
+    public void checkin(Object owner, Long processInstanceId, int version, ProcessInstance processInstance, long size) {
+        checkin(owner, processInstanceId, version, null, processInstance, size);
+    }
+
+    /**
+     * Stores disconnected process instance bound to given process definition in the cache, evicting least recently
+     * used entries when needed.
+     * @param size estimated size of the process instance, usually size of its marshalled form
+     */
+    public void checkin(Object owner, Long processInstanceId, int version, Object definition, ProcessInstance processInstance, long size) {
+        if (!isEnabled() || size > maxBytes) {
+            return;
+        }
+        synchronized (entries) {
+            CacheEntry previous = entries.put(new CacheKey(owner, processInstanceId), new CacheEntry(version, definition, processInstance, size));
+            if (previous != null) {
+                currentBytes -= previous.size;
+            }
+            currentBytes += size;
+            Iterator<CacheEntry> iterator = entries.values().iterator();
+            while ((entries.size() > maxEntries || currentBytes > maxBytes) && iterator.hasNext()) {
+                CacheEntry eldest = iterator.next();
+                iterator.remove();
+                currentBytes -= eldest.size;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public void invalidate(Object owner, Long processInstanceId) {
+        synchronized (entries) {
+            CacheEntry entry = entries.remove(new CacheKey(owner, processInstanceId));
+            if (entry != null) {
+                currentBytes -= entry.size;
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            currentBytes = 0;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getSizeInBytes() {
+        synchronized (entries) {
+            return currentBytes;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessInstanceCache [size=" + size() + ", bytes=" + getSizeInBytes() + ", hits=" + getHits()
+                + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+
+    private static class CacheKey {
+
+        private final Object owner;
+        private final Long processInstanceId;
+
+        CacheKey(Object owner, Long processInstanceId) {
+            this.owner = owner;
+            this.processInstanceId = processInstanceId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(owner) + processInstanceId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return owner == other.owner && processInstanceId.equals(other.processInstanceId);
+        }
+    }
+
+    private static class CacheEntry {
+
+        private final int version;
+        private final Object definition;
+        private final ProcessInstance processInstance;
+        private final long size;
+
+        CacheEntry(int version, Object definition, ProcessInstance processInstance, long size) {
+            this.version = version;
+            this.definition = definition;
+            this.processInstance = processInstance;
+            this.size = size;
+        }
+    }
+}
@@ -62,6 +62,13 @@ import org.kie.api.runtime.process.ProcessInstance;
 @SequenceGenerator(name="processInstanceInfoIdSeq", sequenceName="PROCESS_INSTANCE_INFO_ID_SEQ")
 public class ProcessInstanceInfo implements PersistentProcessInstance {
 
+    // when enabled, process instances that were not modified since they were loaded are not marshalled again,
+    // opt-in as it relies on every modification of persistent state marking the process instance dirty
+    // (reads of mutable variable values do so too, see VariableScopeInstance.getVariable),
+    // can be overridden per environment by entry of the same name
+    public static final String DIRTY_TRACKING_PROPERTY = "org.jbpm.pi.dirty.tracking";
+    private static final boolean DIRTY_TRACKING = Boolean.parseBoolean(System.getProperty(DIRTY_TRACKING_PROPERTY, "false"));
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO, generator="processInstanceInfoIdSeq")
     @Column(name = "InstanceId")
@@ -186,6 +193,8 @@ public class ProcessInstanceInfo implements PersistentProcessInstance {
             	context.wm = ((StatefulKnowledgeSessionImpl) kruntime).getInternalWorkingMemory();
                 processInstance = marshaller.readProcessInstance(context);
                 ((WorkflowProcessInstanceImpl) processInstance).setPersisted(false);
+                // freshly loaded process instance is in sync with the stored byte array
+                ((WorkflowProcessInstanceImpl) processInstance).clearDirty();
                 if (readOnly) {
                     ((WorkflowProcessInstanceImpl) processInstance).disconnect();
                 }
@@ -199,12 +208,31 @@ public class ProcessInstanceInfo implements PersistentProcessInstance {
         return processInstance;
     }
    
+    /*
+     * Attaches already unmarshalled process instance (taken from ProcessInstanceCache) that corresponds to
+     * the stored byte array so it does not need to be unmarshalled again
+     */
+    void attachProcessInstance(ProcessInstance processInstance, Environment env) {
+        this.env = env;
+        this.processInstance = processInstance;
+        ((WorkflowProcessInstanceImpl) processInstance).setPersisted(false);
+        ((WorkflowProcessInstanceImpl) processInstance).clearDirty();
+    }
+
     private ProcessInstanceMarshaller getMarshallerFromContext(MarshallerReaderContext context) throws IOException {
         ObjectInputStream stream = context.stream;
         String processInstanceType = stream.readUTF();
         return ProcessMarshallerRegistry.INSTANCE.getMarshaller( processInstanceType );
     }
 
+    private boolean isDirtyTracking() {
+        Object dirtyTracking = env == null ? null : env.get(DIRTY_TRACKING_PROPERTY);
+        if (dirtyTracking == null) {
+            return DIRTY_TRACKING;
+        }
+        return Boolean.parseBoolean(dirtyTracking.toString());
+    }
+
     private void saveProcessInstanceType(MarshallerWriteContext context,
                                          ProcessInstance processInstance,
                                          String processInstanceType) throws IOException {
@@ -217,6 +245,14 @@ public class ProcessInstanceInfo implements PersistentProcessInstance {
 //    	if (processInstance == null) {
 //    		return;
 //    	}
+        if (isDirtyTracking() && processInstanceByteArray != null
+                && !((ProcessInstanceImpl) processInstance).isDirty()) {
+            // nothing has changed since the process instance was loaded or stored, only event types
+            // might differ as they depend on listeners registered on reconnect
+            updateEventTypes();
+            ((WorkflowProcessInstanceImpl) processInstance).setPersisted(true);
+            return;
+        }
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         boolean variablesChanged = false;
         try {
@@ -263,6 +299,18 @@ public class ProcessInstanceInfo implements PersistentProcessInstance {
     		this.processId = processInstance.getProcessId();
     	}
         ((WorkflowProcessInstanceImpl) processInstance).setPersisted(true);
+        ((ProcessInstanceImpl) processInstance).clearDirty();
+    }
+
+    private void updateEventTypes() {
+        Set<String> currentEventTypes = new HashSet<String>();
+        for ( String type : processInstance.getEventTypes() ) {
+            currentEventTypes.add( type );
+        }
+        if ( !currentEventTypes.equals( eventTypes ) ) {
+            this.eventTypes.clear();
+            this.eventTypes.addAll( currentEventTypes );
+        }
     }
 
 
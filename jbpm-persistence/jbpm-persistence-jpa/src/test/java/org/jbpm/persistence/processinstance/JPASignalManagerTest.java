@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.processinstance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class JPASignalManagerTest {
+
+    @Test
+    public void testPartitionIntoBatches() {
+        List<Long> ids = new ArrayList<Long>();
+        for (long i = 1; i <= 250; i++) {
+            ids.add(i);
+        }
+        List<List<Long>> batches = JPASignalManager.partition(ids, 100);
+        assertEquals(3, batches.size());
+        assertEquals(100, batches.get(0).size());
+        assertEquals(100, batches.get(1).size());
+        assertEquals(50, batches.get(2).size());
+        assertEquals(Long.valueOf(1), batches.get(0).get(0));
+        assertEquals(Long.valueOf(250), batches.get(2).get(49));
+    }
+
+    @Test
+    public void testPartitionWithInvalidBatchSize() {
+        List<List<Long>> batches = JPASignalManager.partition(Arrays.asList(1L, 2L), 0);
+        assertEquals(2, batches.size());
+
+        assertTrue(JPASignalManager.partition(new ArrayList<Long>(), 10).isEmpty());
+    }
+}
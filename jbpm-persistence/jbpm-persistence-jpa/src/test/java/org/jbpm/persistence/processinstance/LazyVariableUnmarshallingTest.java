@@ -0,0 +1,274 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.processinstance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.impl.StatefulKnowledgeSessionImpl;
+import org.drools.core.marshalling.impl.ClassObjectMarshallingStrategyAcceptor;
+import org.drools.core.marshalling.impl.MarshallerReaderContext;
+import org.drools.core.marshalling.impl.ProtobufMarshaller;
+import org.drools.core.marshalling.impl.SerializablePlaceholderResolverStrategy;
+import org.jbpm.marshalling.impl.ProcessInstanceMarshaller;
+import org.jbpm.marshalling.impl.ProcessMarshallerRegistry;
+import org.jbpm.process.core.context.variable.Variable;
+import org.jbpm.process.core.datatype.impl.type.ObjectDataType;
+import org.jbpm.process.core.event.EventTypeFilter;
+import org.jbpm.ruleflow.core.RuleFlowProcess;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.jbpm.workflow.core.Node;
+import org.jbpm.workflow.core.impl.ConnectionImpl;
+import org.jbpm.workflow.core.node.EndNode;
+import org.jbpm.workflow.core.node.EventNode;
+import org.jbpm.workflow.core.node.StartNode;
+import org.jbpm.workflow.instance.impl.WorkflowProcessInstanceImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.marshalling.ObjectMarshallingStrategy;
+import org.kie.api.runtime.EnvironmentName;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.process.ProcessInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class LazyVariableUnmarshallingTest extends AbstractBaseTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LazyVariableUnmarshallingTest.class);
+
+    private static final int VARIABLES = 50;
+    private static final int VARIABLE_SIZE = 64 * 1024;
+
+    private KieSession ksession;
+    private CountingStrategy strategy;
+
+    @Before
+    public void setUp() {
+        ksession = createKieBase(createProcess()).newKieSession();
+        strategy = new CountingStrategy();
+        ksession.getEnvironment().set(EnvironmentName.OBJECT_MARSHALLING_STRATEGIES, new ObjectMarshallingStrategy[]{
+                strategy, new SerializablePlaceholderResolverStrategy(ClassObjectMarshallingStrategyAcceptor.DEFAULT)});
+    }
+
+    @Test
+    public void testUntouchedVariablesNotUnmarshalled() throws Exception {
+        byte[] stored = store(startProcess());
+        assertEquals(VARIABLES, strategy.marshalled);
+
+        strategy.reset();
+        WorkflowProcessInstanceImpl processInstance = load(stored);
+        assertEquals(0, strategy.unmarshalled);
+        assertEquals(new Payload(7), processInstance.getVariable("var7"));
+        assertEquals(1, strategy.unmarshalled);
+        // loaded only once
+        processInstance.getVariable("var7");
+        assertEquals(1, strategy.unmarshalled);
+
+        processInstance.setVariable("var8", new Payload(100));
+        // old value is needed for the variable change events
+        assertEquals(2, strategy.unmarshalled);
+
+        byte[] updated = store(processInstance);
+        // untouched variables are written back as they were read
+        assertEquals(2, strategy.marshalled);
+        assertEquals(2, strategy.unmarshalled);
+
+        WorkflowProcessInstanceImpl reloaded = load(updated);
+        Map<String, Object> variables = reloaded.getVariables();
+        assertEquals(VARIABLES, variables.size());
+        for (int i = 0; i < VARIABLES; i++) {
+            assertEquals(new Payload(i == 8 ? 100 : i), variables.get("var" + i));
+        }
+    }
+
+    @Test
+    public void testLoadCost() throws Exception {
+        byte[] stored = store(startProcess());
+
+        int iterations = 200;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            assertEquals(new Payload(1), load(stored).getVariable("var1"));
+        }
+        long single = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            assertEquals(VARIABLES, load(stored).getVariables().size());
+        }
+        long all = System.nanoTime() - start;
+
+        logger.info("Loading process instance with {} variables of {} bytes {} times: {} ms accessing one variable, {} ms accessing all",
+                VARIABLES, VARIABLE_SIZE, iterations, single / 1000000, all / 1000000);
+        assertTrue(strategy.unmarshalled > 0);
+    }
+
+    private WorkflowProcessInstanceImpl startProcess() {
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        for (int i = 0; i < VARIABLES; i++) {
+            parameters.put("var" + i, new Payload(i));
+        }
+        ProcessInstance processInstance = ksession.startProcess("org.jbpm.persistence.lazy", parameters);
+        assertEquals(ProcessInstance.STATE_ACTIVE, processInstance.getState());
+        return (WorkflowProcessInstanceImpl) processInstance;
+    }
+
+    private byte[] store(WorkflowProcessInstanceImpl processInstance) {
+        processInstance.markDirty();
+        ProcessInstanceInfo info = new ProcessInstanceInfo(processInstance, ksession.getEnvironment());
+        info.transform();
+        return info.getProcessInstanceByteArray();
+    }
+
+    private WorkflowProcessInstanceImpl load(byte[] data) throws IOException {
+        MarshallerReaderContext context = new MarshallerReaderContext(new ByteArrayInputStream(data),
+                (InternalKnowledgeBase) ksession.getKieBase(), null, null, ProtobufMarshaller.TIMER_READERS, ksession.getEnvironment());
+        context.wm = ((StatefulKnowledgeSessionImpl) ksession).getInternalWorkingMemory();
+        ProcessInstanceMarshaller marshaller = ProcessMarshallerRegistry.INSTANCE.getMarshaller(context.stream.readUTF());
+        ProcessInstance processInstance = marshaller.readProcessInstance(context);
+        context.close();
+        return (WorkflowProcessInstanceImpl) processInstance;
+    }
+
+    private RuleFlowProcess createProcess() {
+        RuleFlowProcess process = new RuleFlowProcess();
+        process.setId("org.jbpm.persistence.lazy");
+        process.setName("Lazy Variables Process");
+        process.setPackageName("org.jbpm.persistence");
+
+        List<Variable> variables = new ArrayList<Variable>();
+        for (int i = 0; i < VARIABLES; i++) {
+            Variable variable = new Variable();
+            variable.setName("var" + i);
+            variable.setType(new ObjectDataType(Payload.class.getName()));
+            variables.add(variable);
+        }
+        process.getVariableScope().setVariables(variables);
+
+        StartNode startNode = new StartNode();
+        startNode.setName("Start");
+        startNode.setId(1);
+        process.addNode(startNode);
+
+        EventNode eventNode = new EventNode();
+        EventTypeFilter eventFilter = new EventTypeFilter();
+        eventFilter.setType("go");
+        eventNode.addEventFilter(eventFilter);
+        eventNode.setName("Wait");
+        eventNode.setId(2);
+        process.addNode(eventNode);
+        new ConnectionImpl(startNode, Node.CONNECTION_DEFAULT_TYPE, eventNode, Node.CONNECTION_DEFAULT_TYPE);
+
+        EndNode endNode = new EndNode();
+        endNode.setName("End");
+        endNode.setId(3);
+        process.addNode(endNode);
+        new ConnectionImpl(eventNode, Node.CONNECTION_DEFAULT_TYPE, endNode, Node.CONNECTION_DEFAULT_TYPE);
+
+        return process;
+    }
+
+    public static class Payload implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] data;
+
+        public Payload(int seed) {
+            data = new byte[VARIABLE_SIZE];
+            Arrays.fill(data, (byte) seed);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Payload && Arrays.equals(data, ((Payload) obj).data);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(data);
+        }
+    }
+
+    /*
+     * self contained java serialization of payloads that counts (un)marshalling
+     */
+    private static class CountingStrategy implements ObjectMarshallingStrategy {
+
+        private int marshalled;
+        private int unmarshalled;
+
+        void reset() {
+            marshalled = 0;
+            unmarshalled = 0;
+        }
+
+        @Override
+        public boolean accept(Object object) {
+            return object instanceof Payload;
+        }
+
+        @Override
+        public void write(ObjectOutputStream os, Object object) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object read(ObjectInputStream os) throws IOException, ClassNotFoundException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public byte[] marshal(Context context, ObjectOutputStream os, Object object) throws IOException {
+            marshalled++;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(object);
+            out.close();
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public Object unmarshal(Context context, ObjectInputStream is, byte[] object, ClassLoader classloader) throws IOException, ClassNotFoundException {
+            unmarshalled++;
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(object));
+            try {
+                return in.readObject();
+            } finally {
+                in.close();
+            }
+        }
+
+        @Override
+        public Context createContext() {
+            return null;
+        }
+    }
+}
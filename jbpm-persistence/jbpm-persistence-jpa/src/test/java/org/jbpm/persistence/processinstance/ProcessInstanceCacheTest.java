@@ -0,0 +1,205 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.processinstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jbpm.ruleflow.instance.RuleFlowProcessInstance;
+import org.junit.Test;
+import org.kie.api.runtime.process.ProcessInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ProcessInstanceCacheTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessInstanceCacheTest.class);
+
+    private final Object owner = new Object();
+
+    @Test
+    public void testDisabledByDefault() {
+        ProcessInstanceCache cache = new ProcessInstanceCache(0, 1024);
+        assertFalse(cache.isEnabled());
+
+        cache.checkin(owner, 1L, 0, processInstance(1), 10);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCheckoutValidatesVersion() {
+        ProcessInstanceCache cache = new ProcessInstanceCache(10, 1024);
+        assertTrue(cache.isEnabled());
+
+        ProcessInstance processInstance = processInstance(1);
+        cache.checkin(owner, 1L, 3, processInstance, 10);
+        assertSame(processInstance, cache.checkout(owner, 1L, 3));
+        assertEquals(1, cache.getHits());
+        // checked out exclusively
+        assertNull(cache.checkout(owner, 1L, 3));
+
+        cache.checkin(owner, 1L, 3, processInstance, 10);
+        assertNull(cache.checkout(owner, 1L, 4));
+        // stale entry is dropped
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getSizeInBytes());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testCheckoutValidatesDefinition() {
+        ProcessInstanceCache cache = new ProcessInstanceCache(10, 1024);
+        Object definition = new Object();
+
+        ProcessInstance processInstance = processInstance(1);
+        cache.checkin(owner, 1L, 0, definition, processInstance, 10);
+        assertSame(processInstance, cache.checkout(owner, 1L, 0, definition));
+
+        // process definition was replaced by kie base update
+        cache.checkin(owner, 1L, 0, definition, processInstance, 10);
+        assertNull(cache.checkout(owner, 1L, 0, new Object()));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEntriesSeparatedByOwner() {
+        ProcessInstanceCache cache = new ProcessInstanceCache(10, 1024);
+
+        cache.checkin(owner, 1L, 0, processInstance(1), 10);
+        assertNull(cache.checkout(new Object(), 1L, 0));
+        assertTrue(cache.checkout(owner, 1L, 0) != null);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvictedByCount() {
+        ProcessInstanceCache cache = new ProcessInstanceCache(2, 1024);
+
+        cache.checkin(owner, 1L, 0, processInstance(1), 10);
+        cache.checkin(owner, 2L, 0, processInstance(2), 10);
+        ProcessInstance first = cache.checkout(owner, 1L, 0);
+        cache.checkin(owner, 1L, 1, first, 10);
+        cache.checkin(owner, 3L, 0, processInstance(3), 10);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.checkout(owner, 2L, 0));
+        assertSame(first, cache.checkout(owner, 1L, 1));
+    }
+
+    @Test
+    public void testEvictedBySize() {
+        ProcessInstanceCache cache = new ProcessInstanceCache(10, 100);
+
+        cache.checkin(owner, 1L, 0, processInstance(1), 40);
+        cache.checkin(owner, 2L, 0, processInstance(2), 40);
+        assertEquals(80, cache.getSizeInBytes());
+
+        cache.checkin(owner, 3L, 0, processInstance(3), 40);
+        assertEquals(2, cache.size());
+        assertEquals(80, cache.getSizeInBytes());
+        assertEquals(1, cache.getEvictions());
+
+        // larger than the whole cache, never stored
+        cache.checkin(owner, 4L, 0, processInstance(4), 200);
+        assertEquals(2, cache.size());
+        assertNull(cache.checkout(owner, 4L, 0));
+    }
+
+    @Test
+    public void testInvalidateAndClear() {
+        ProcessInstanceCache cache = new ProcessInstanceCache(10, 1024);
+
+        cache.checkin(owner, 1L, 0, processInstance(1), 10);
+        cache.checkin(owner, 2L, 0, processInstance(2), 10);
+        cache.invalidate(owner, 1L);
+        assertEquals(1, cache.size());
+        assertEquals(10, cache.getSizeInBytes());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getSizeInBytes());
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentCheckoutAndCheckin() throws Exception {
+        final int threads = 8;
+        final int instancesPerThread = 50;
+        final int iterations = 20000;
+        final ProcessInstanceCache cache = new ProcessInstanceCache(threads * instancesPerThread, Long.MAX_VALUE);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                final long base = t * instancesPerThread;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        int[] versions = new int[instancesPerThread];
+                        int hits = 0;
+                        for (int i = 0; i < iterations; i++) {
+                            int index = i % instancesPerThread;
+                            long id = base + index;
+                            ProcessInstance processInstance = cache.checkout(owner, id, versions[index]);
+                            if (processInstance != null) {
+                                hits++;
+                            } else {
+                                processInstance = processInstance(id);
+                            }
+                            // every command bumps the version of the process instance info
+                            versions[index]++;
+                            cache.checkin(owner, id, versions[index], processInstance, 100);
+                        }
+                        return hits;
+                    }
+                }));
+            }
+            int hits = 0;
+            for (Future<Integer> result : results) {
+                hits += result.get();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            assertEquals(threads * (iterations - instancesPerThread), hits);
+            assertEquals(hits, cache.getHits());
+            assertEquals(threads * instancesPerThread, cache.getMisses());
+            logger.info("{} checkout/checkin pairs on {} threads took {} ms, {}", threads * iterations, threads,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), cache);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ProcessInstance processInstance(long id) {
+        RuleFlowProcessInstance processInstance = new RuleFlowProcessInstance();
+        processInstance.setId(id);
+        return processInstance;
+    }
+}
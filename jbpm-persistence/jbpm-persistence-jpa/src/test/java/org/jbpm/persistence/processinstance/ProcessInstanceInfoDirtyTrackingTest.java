@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.processinstance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jbpm.process.core.context.swimlane.SwimlaneContext;
+import org.jbpm.process.core.context.variable.Variable;
+import org.jbpm.process.core.datatype.impl.type.StringDataType;
+import org.jbpm.process.core.event.EventTypeFilter;
+import org.jbpm.process.instance.context.swimlane.SwimlaneContextInstance;
+import org.jbpm.ruleflow.core.RuleFlowProcess;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.jbpm.workflow.core.Node;
+import org.jbpm.workflow.core.impl.ConnectionImpl;
+import org.jbpm.workflow.core.node.EndNode;
+import org.jbpm.workflow.core.node.EventNode;
+import org.jbpm.workflow.core.node.StartNode;
+import org.jbpm.workflow.instance.impl.WorkflowProcessInstanceImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.process.ProcessInstance;
+
+public class ProcessInstanceInfoDirtyTrackingTest extends AbstractBaseTest {
+
+    private KieSession ksession;
+
+    @Before
+    public void setUp() {
+        ksession = createKieBase(createProcess()).newKieSession();
+        ksession.getEnvironment().set(ProcessInstanceInfo.DIRTY_TRACKING_PROPERTY, true);
+    }
+
+    @After
+    public void tearDown() {
+        ksession.dispose();
+    }
+
+    @Test
+    public void testTransformSkippedWhenNotModified() {
+        WorkflowProcessInstanceImpl processInstance = startProcess();
+
+        ProcessInstanceInfo info = new ProcessInstanceInfo(processInstance, ksession.getEnvironment());
+        info.transform();
+        byte[] stored = info.getProcessInstanceByteArray();
+        assertNotNull(stored);
+        assertFalse(processInstance.isDirty());
+
+        // read only access does not require the process instance to be marshalled again
+        assertEquals("john", processInstance.getVariable("name"));
+        processInstance.getVariables();
+        assertFalse(processInstance.isDirty());
+        info.transform();
+        assertSame(stored, info.getProcessInstanceByteArray());
+
+        processInstance.setVariable("name", "mary");
+        assertTrue(processInstance.isDirty());
+        info.transform();
+        assertNotSame(stored, info.getProcessInstanceByteArray());
+        assertFalse(processInstance.isDirty());
+    }
+
+    @Test
+    public void testModificationsMarkProcessInstanceDirty() {
+        WorkflowProcessInstanceImpl processInstance = startProcess();
+
+        processInstance.clearDirty();
+        processInstance.setVariable("list", new ArrayList<String>());
+        assertTrue(processInstance.isDirty());
+
+        // mutable values might be modified in place by the caller
+        processInstance.clearDirty();
+        processInstance.getVariable("list");
+        assertTrue(processInstance.isDirty());
+
+        processInstance.clearDirty();
+        ksession.signalEvent("go", null, processInstance.getId());
+        assertTrue(processInstance.isDirty());
+        assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
+    }
+
+    @Test
+    public void testContextModificationsMarkProcessInstanceDirty() {
+        WorkflowProcessInstanceImpl processInstance = startProcess();
+
+        processInstance.clearDirty();
+        SwimlaneContextInstance swimlaneContextInstance = (SwimlaneContextInstance)
+                processInstance.getContextInstance(SwimlaneContext.SWIMLANE_SCOPE);
+        swimlaneContextInstance.setActorId("approvers", "john");
+        assertTrue(processInstance.isDirty());
+
+        ProcessInstanceInfo info = new ProcessInstanceInfo(processInstance, ksession.getEnvironment());
+        info.transform();
+        byte[] stored = info.getProcessInstanceByteArray();
+        swimlaneContextInstance.setActorId("approvers", "mary");
+        info.transform();
+        assertNotSame(stored, info.getProcessInstanceByteArray());
+    }
+
+    @Test
+    public void testTransformNotSkippedWhenTrackingDisabled() {
+        ksession.getEnvironment().set(ProcessInstanceInfo.DIRTY_TRACKING_PROPERTY, false);
+        WorkflowProcessInstanceImpl processInstance = startProcess();
+
+        ProcessInstanceInfo info = new ProcessInstanceInfo(processInstance, ksession.getEnvironment());
+        info.transform();
+        byte[] stored = info.getProcessInstanceByteArray();
+        assertFalse(processInstance.isDirty());
+        info.transform();
+        assertNotSame(stored, info.getProcessInstanceByteArray());
+    }
+
+    private WorkflowProcessInstanceImpl startProcess() {
+        ProcessInstance processInstance = ksession.startProcess("org.jbpm.persistence.dirty",
+                Collections.<String, Object>singletonMap("name", "john"));
+        assertEquals(ProcessInstance.STATE_ACTIVE, processInstance.getState());
+        return (WorkflowProcessInstanceImpl) processInstance;
+    }
+
+    private RuleFlowProcess createProcess() {
+        RuleFlowProcess process = new RuleFlowProcess();
+        process.setId("org.jbpm.persistence.dirty");
+        process.setName("Dirty Tracking Process");
+        process.setPackageName("org.jbpm.persistence");
+
+        List<Variable> variables = new ArrayList<Variable>();
+        Variable variable = new Variable();
+        variable.setName("name");
+        variable.setType(new StringDataType());
+        variables.add(variable);
+        process.getVariableScope().setVariables(variables);
+
+        StartNode startNode = new StartNode();
+        startNode.setName("Start");
+        startNode.setId(1);
+        process.addNode(startNode);
+
+        EventNode eventNode = new EventNode();
+        EventTypeFilter eventFilter = new EventTypeFilter();
+        eventFilter.setType("go");
+        eventNode.addEventFilter(eventFilter);
+        eventNode.setName("Wait");
+        eventNode.setId(2);
+        process.addNode(eventNode);
+        new ConnectionImpl(startNode, Node.CONNECTION_DEFAULT_TYPE, eventNode, Node.CONNECTION_DEFAULT_TYPE);
+
+        EndNode endNode = new EndNode();
+        endNode.setName("End");
+        endNode.setId(3);
+        process.addNode(endNode);
+        new ConnectionImpl(eventNode, Node.CONNECTION_DEFAULT_TYPE, endNode, Node.CONNECTION_DEFAULT_TYPE);
+
+        return process;
+    }
+}
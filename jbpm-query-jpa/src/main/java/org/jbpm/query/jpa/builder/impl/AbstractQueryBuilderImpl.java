@@ -16,6 +16,7 @@
 
 package org.jbpm.query.jpa.builder.impl;
 
+import org.jbpm.query.jpa.data.QueryContinuation;
 import org.jbpm.query.jpa.data.QueryWhere;
 import org.kie.internal.query.data.QueryData;
 
@@ -144,4 +145,29 @@ public abstract class AbstractQueryBuilderImpl<T> {
         this.queryWhere.setOffset(offset);
         return (T) this;
     }
+
+    /**
+     * Continues the query after the entity with the given order-by field value and id (keyset or "seek" pagination):
+     * unlike {@link #offset(int)}, the cost of retrieving a page does not depend on how deep in the result it is.
+     * </p>
+     * The query builder interfaces (defined outside of jBPM) do not declare this method yet, so the builder has to be
+     * cast to its implementation to use it.
+     * @param lastSortKey the value of the order-by field of the last seen entity (null when no ordering was specified)
+     * @param lastId the id of the last seen entity
+     */
+    public final T seekAfter( Object lastSortKey, Object lastId ) {
+        this.queryWhere.setSeekAfter(new QueryContinuation(lastSortKey, lastId).toToken());
+        return (T) this;
+    }
+
+    /**
+     * Continues the query after the position described by the given continuation token
+     * (see {@link QueryContinuation#toToken()}).
+     */
+    public final T seekAfter( String continuationToken ) {
+        // validate the token
+        QueryContinuation.fromToken(continuationToken);
+        this.queryWhere.setSeekAfter(continuationToken);
+        return (T) this;
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.query.jpa.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Position in an ordered query result - the sort key and the id of the last seen entity - used to retrieve
+ * the following page by "seeking" (<code>WHERE (sortKey, id) > (lastSortKey, lastId)</code>) instead of skipping
+ * the given number of rows (offset).
+ * </p>
+ * The position can be passed around as an opaque (URL safe) continuation token, see {@link #toToken()} and {@link #fromToken(String)}.
+ * Supported key types are {@link String}, {@link Long}, {@link Integer}, {@link Short}, {@link Boolean}, {@link Date} and enums.
+ */
+public class QueryContinuation {
+
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte INTEGER = 2;
+    private static final byte SHORT = 3;
+    private static final byte STRING = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte DATE = 6;
+    private static final byte ENUM = 7;
+
+    private final Object sortKey;
+    private final Object id;
+
+    public QueryContinuation(Object sortKey, Object id) {
+        if( id == null ) {
+            throw new IllegalArgumentException("The id of the last seen entity is required to continue a query.");
+        }
+        this.sortKey = sortKey;
+        this.id = id;
+    }
+
+    /**
+     * @return the value of the order-by field of the last seen entity, null if the query is not ordered
+     */
+    public Object getSortKey() {
+        return sortKey;
+    }
+
+    /**
+     * @return the id of the last seen entity
+     */
+    public Object getId() {
+        return id;
+    }
+
+    public String toToken() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            writeValue(out, sortKey);
+            writeValue(out, id);
+            out.flush();
+        } catch( IOException e ) {
+            throw new IllegalStateException("Unable to create continuation token", e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    public static QueryContinuation fromToken(String token) {
+        if( token == null || token.isEmpty() ) {
+            throw new IllegalArgumentException("A null or empty continuation token is invalid.");
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)));
+            Object sortKey = readValue(in);
+            Object id = readValue(in);
+            return new QueryContinuation(sortKey, id);
+        } catch( IOException | IllegalArgumentException | ClassNotFoundException e ) {
+            throw new IllegalArgumentException("Invalid continuation token [" + token + "]", e);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if( value == null ) {
+            out.writeByte(NULL);
+        } else if( value instanceof Long ) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if( value instanceof Integer ) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if( value instanceof Short ) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if( value instanceof String ) {
+            out.writeByte(STRING);
+            out.writeUTF((String) value);
+        } else if( value instanceof Boolean ) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if( value instanceof Date ) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if( value instanceof Enum ) {
+            out.writeByte(ENUM);
+            out.writeUTF(((Enum<?>) value).getDeclaringClass().getName());
+            out.writeUTF(((Enum<?>) value).name());
+        } else {
+            throw new IllegalArgumentException("Unsupported continuation key type: " + value.getClass().getName());
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object readValue(DataInputStream in) throws IOException, ClassNotFoundException {
+        byte type = in.readByte();
+        switch( type ) {
+        case NULL:
+            return null;
+        case LONG:
+            return in.readLong();
+        case INTEGER:
+            return in.readInt();
+        case SHORT:
+            return in.readShort();
+        case STRING:
+            return in.readUTF();
+        case BOOLEAN:
+            return in.readBoolean();
+        case DATE:
+            return new Date(in.readLong());
+        case ENUM:
+            Class enumClass = Class.forName(in.readUTF(), false, QueryContinuation.class.getClassLoader());
+            return Enum.valueOf(enumClass, in.readUTF());
+        default:
+            throw new IOException("Unknown continuation key type " + type);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "QueryContinuation [sortKey=" + sortKey + ", id=" + id + "]";
+    }
+}
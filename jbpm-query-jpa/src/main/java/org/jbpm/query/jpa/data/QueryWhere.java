@@ -87,6 +87,9 @@ public class QueryWhere {
     @XmlElement
     private Integer offset = null;
 
+    @XmlElement
+    private String seekAfter = null;
+
     @JsonIgnore
     private transient boolean union = true;
 
@@ -260,6 +263,19 @@ public class QueryWhere {
         return this.offset;
     }
 
+    /**
+     * Sets the continuation token (see {@link QueryContinuation}) of the last seen entity: only entities that follow it
+     * (in the order of the query) are returned.
+     * @param continuationToken the continuation token, or null to return results from the beginning
+     */
+    public void setSeekAfter( String continuationToken ) {
+        this.seekAfter = continuationToken;
+    }
+
+    public String getSeekAfter() {
+        return this.seekAfter;
+    }
+
     public QueryCriteriaType getCriteriaType() {
        return this.type;
     }
@@ -320,6 +336,7 @@ public class QueryWhere {
 
         this.maxResults = null;
         this.offset = null;
+        this.seekAfter = null;
         this.orderByListId = null;
         this.ascOrDesc = null;
 
@@ -336,6 +353,7 @@ public class QueryWhere {
        this.orderByListId = queryWhere.orderByListId;
        this.maxResults = queryWhere.maxResults;
        this.offset = queryWhere.offset;
+       this.seekAfter = queryWhere.seekAfter;
 
        this.joinPredicates = queryWhere.joinPredicates;
     }
@@ -41,9 +41,11 @@ import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
 import javax.persistence.metamodel.PluralAttribute;
 import javax.persistence.metamodel.SingularAttribute;
 
+import org.jbpm.query.jpa.data.QueryContinuation;
 import org.jbpm.query.jpa.data.QueryCriteria;
 import org.jbpm.query.jpa.data.QueryWhere;
 import org.jbpm.query.jpa.data.QueryWhere.QueryCriteriaType;
@@ -126,7 +128,8 @@ public abstract class QueryCriteriaUtil {
      * <li>The tables being selected from are defined in the query.</li>
      * <li>The {@link CriteriaQuery} instance is filled using the criteria in the {@link QueryWhere} instance</li>
      * <li>A JPA {@link Query} instance is created</li>
-     * <li>The meta criteria (max results, offset) are applied to the query</li>
+     * <li>The meta criteria (max results, offset) are applied to the query, the continuation (see {@link QueryWhere#getSeekAfter()})
+     * is applied as criteria in the previous step</li>
      * <li>The results are retrieved and returned</li>
      * </ol>
      * @param queryWhere a {@link QueryWhere} instance containing the query criteria
@@ -162,22 +165,98 @@ public abstract class QueryCriteriaUtil {
 
         Predicate queryPredicate = createPredicateFromCriteriaList(query, builder, queryType, queryWhere.getCriteria(), queryWhere );
 
+        Expression orderByPath = null;
+        boolean orderByNullable = false;
+        if( queryWhere.getAscOrDesc() != null ) {
+            String orderByListId = queryWhere.getOrderByListId();
+            assert orderByListId != null : "Ascending boolean is set but no order by list Id has been specified!";
+            orderByPath = getOrderByExpression(query, queryType, orderByListId);
+            orderByNullable = isOrderByNullable(queryType, orderByListId);
+        }
+        boolean ascending = queryWhere.getAscOrDesc() == null || queryWhere.getAscOrDesc();
+
+        if( queryWhere.getSeekAfter() != null ) {
+            // keyset pagination: the entity id makes the order (and so the position) unique
+            Expression idPath = getIdExpression(query, queryType);
+            Predicate seekPredicate = createSeekPredicate(builder, orderByPath, orderByNullable, idPath, ascending,
+                    QueryContinuation.fromToken(queryWhere.getSeekAfter()));
+            queryPredicate = queryPredicate == null ? seekPredicate : builder.and(queryPredicate, seekPredicate);
+
+            List<Order> orders = new ArrayList<Order>(3);
+            if( orderByPath != null ) {
+                if( orderByNullable ) {
+                    // databases differ in where they put null values, so make the order explicit (nulls first when ascending)
+                    // - such order can not be served by an index, so it is only used for fields that can be null
+                    Expression nonNull = builder.selectCase().when(builder.isNull(orderByPath), 0).otherwise(1);
+                    orders.add(ascending ? builder.asc(nonNull) : builder.desc(nonNull));
+                }
+                orders.add(ascending ? builder.asc(orderByPath) : builder.desc(orderByPath));
+            }
+            orders.add(ascending ? builder.asc(idPath) : builder.desc(idPath));
+            query.orderBy(orders);
+        } else if( orderByPath != null ) {
+            query.orderBy(ascending ? builder.asc(orderByPath) : builder.desc(orderByPath));
+        }
+
         if( queryPredicate != null ) {
             query.where(queryPredicate);
         }
+    }
 
-        if( queryWhere.getAscOrDesc() != null ) {
-            String orderByListId = queryWhere.getOrderByListId();
-            assert orderByListId != null : "Ascending boolean is set but no order by list Id has been specified!";
-            Expression orderByPath = getOrderByExpression(query, queryType, orderByListId);
-            Order order;
-            if( queryWhere.getAscOrDesc() ) {
-               order = builder.asc(orderByPath);
-            } else {
-               order = builder.desc(orderByPath);
+    /**
+     * Creates the <code>(sortKey, id) > (lastSortKey, lastId)</code> (or <code>&lt;</code> when descending) predicate.
+     * </p>
+     * JPA does not support row value comparisons, so the predicate is expanded to
+     * <code>sortKey > lastSortKey OR (sortKey = lastSortKey AND id > lastId)</code>.
+     * When the order-by field can be null, null sort keys come before all other values (after them when descending),
+     * matching the order created in {@link #fillCriteriaQuery(CriteriaQuery, QueryWhere, CriteriaBuilder, Class)}.
+     */
+    @SuppressWarnings("unchecked")
+    private static Predicate createSeekPredicate(CriteriaBuilder builder, Expression orderByPath, boolean nullable, Expression idPath, boolean ascending, QueryContinuation continuation) {
+        Comparable lastId = (Comparable) continuation.getId();
+        Predicate idPredicate = ascending ? builder.greaterThan(idPath, lastId) : builder.lessThan(idPath, lastId);
+        if( orderByPath == null ) {
+            return idPredicate;
+        }
+        Comparable lastSortKey = (Comparable) continuation.getSortKey();
+        if( lastSortKey == null ) {
+            if( !nullable ) {
+                throw new IllegalArgumentException("The continuation of an ordered query requires the order-by field value of the last seen entity.");
             }
-            query.orderBy(order);
+            Predicate samePosition = builder.and(builder.isNull(orderByPath), idPredicate);
+            return ascending ? builder.or(samePosition, builder.isNotNull(orderByPath)) : samePosition;
+        }
+        Predicate sortKeyPredicate = ascending ? builder.greaterThan(orderByPath, lastSortKey) : builder.lessThan(orderByPath, lastSortKey);
+        Predicate samePosition = builder.and(builder.equal(orderByPath, lastSortKey), idPredicate);
+        if( ascending || !nullable ) {
+            return builder.or(sortKeyPredicate, samePosition);
+        }
+        return builder.or(sortKeyPredicate, samePosition, builder.isNull(orderByPath));
+    }
+
+    /**
+     * Tells whether the order-by field can be null according to the JPA metamodel (optional, not primitive attribute).
+     * Fields that are not found in the metamodel are treated as nullable.
+     */
+    protected <T> boolean isOrderByNullable(Class<T> queryType, String orderByListId) {
+        Map<String, Attribute> attributes = getCriteriaAttributes().get(queryType);
+        Attribute field = attributes == null ? null : attributes.get(orderByListId);
+        if( field instanceof SingularAttribute ) {
+            return ((SingularAttribute) field).isOptional() && !field.getJavaType().isPrimitive();
         }
+        return true;
+    }
+
+    /**
+     * Retrieves the id (primary key) field of the main {@link Root} of the query, used to make the order unique when seeking.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T,R> Expression getIdExpression(CriteriaQuery<R> query, Class<T> queryType) {
+        Root table = getRoot(query, queryType);
+        assert table != null : "Unable to find proper table (Root) instance in query for result type " + queryType.getSimpleName();
+        EntityType model = table.getModel();
+        SingularAttribute idAttr = model.getId(model.getIdType().getJavaType());
+        return table.get(idAttr);
     }
 
     /**
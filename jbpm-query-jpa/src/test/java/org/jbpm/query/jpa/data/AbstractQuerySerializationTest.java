@@ -118,4 +118,18 @@ public abstract class AbstractQuerySerializationTest {
 
        QueryWhere copyWhere = testRoundTrip(queryWhere);
     }
+
+    @Test
+    public void querySeekAfterTest() throws Exception {
+       QueryWhere queryWhere = new QueryWhere();
+       queryWhere.addParameter(QueryParameterIdentifiers.PROCESS_ID_LIST, "org.jbpm.seek");
+       queryWhere.setAscending(QueryParameterIdentifiers.PROCESS_INSTANCE_ID_LIST);
+       queryWhere.setCount(10);
+       queryWhere.setSeekAfter(new QueryContinuation(23l, 42l).toToken());
+
+       QueryWhere copyWhere = testRoundTrip(queryWhere);
+
+       assertEquals( "seek after", queryWhere.getSeekAfter(), copyWhere.getSeekAfter() );
+       assertEquals( "count", queryWhere.getCount(), copyWhere.getCount() );
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.query.jpa.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.junit.Test;
+import org.kie.api.task.model.Status;
+
+public class QueryContinuationTest {
+
+    @Test
+    public void testTokenRoundTrip() {
+        Object [] keys = { null, 42l, 23, (short) 7, "process \u017elu\u0165ou\u010dk\u00fd", true, new Date(), Status.InProgress };
+        for( Object key : keys ) {
+            String token = new QueryContinuation(key, 1001l).toToken();
+            assertTrue(token, token.matches("[A-Za-z0-9_-]+"));
+
+            QueryContinuation continuation = QueryContinuation.fromToken(token);
+            assertEquals(key, continuation.getSortKey());
+            assertEquals(1001l, continuation.getId());
+        }
+    }
+
+    @Test
+    public void testTimestampKeyIsDate() {
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+        QueryContinuation continuation = QueryContinuation.fromToken(new QueryContinuation(timestamp, 1l).toToken());
+        assertEquals(Date.class, continuation.getSortKey().getClass());
+        assertEquals(timestamp.getTime(), ((Date) continuation.getSortKey()).getTime());
+    }
+
+    @Test
+    public void testNoSortKey() {
+        QueryContinuation continuation = QueryContinuation.fromToken(new QueryContinuation(null, "task-1").toToken());
+        assertNull(continuation.getSortKey());
+        assertEquals("task-1", continuation.getId());
+    }
+
+    @Test
+    public void testInvalidToken() {
+        for( String token : new String [] { "", "not a token", "AQ" } ) {
+            try {
+                QueryContinuation.fromToken(token);
+                fail("Token [" + token + "] should be rejected");
+            } catch( IllegalArgumentException e ) {
+                // expected
+            }
+        }
+        try {
+            new QueryContinuation(1l, null);
+            fail("Continuation without id should be rejected");
+        } catch( IllegalArgumentException e ) {
+            // expected
+        }
+    }
+}
@@ -31,6 +31,7 @@ import org.drools.persistence.api.TransactionSynchronization;
 import org.jbpm.process.core.timer.GlobalSchedulerService;
 import org.jbpm.process.core.timer.TimerServiceRegistry;
 import org.jbpm.process.core.timer.impl.GlobalTimerService;
+import org.jbpm.process.instance.impl.JavaScriptEvaluator;
 import org.jbpm.runtime.manager.api.SchedulerProvider;
 import org.jbpm.runtime.manager.impl.deploy.DeploymentDescriptorManager;
 import org.jbpm.runtime.manager.impl.error.DefaultExecutionErrorStorage;
@@ -223,6 +224,8 @@ public abstract class AbstractRuntimeManager implements InternalRuntimeManager {
     	cacheManager.dispose();
         environment.close();
         registry.remove(identifier);
+        // release script engines holding on to the class loader of the closed runtime manager
+        JavaScriptEvaluator.clear(environment.getClassLoader());
         TimerService timerService = TimerServiceRegistry.getInstance().get(getIdentifier() + TimerServiceRegistry.TIMER_SERVICE_SUFFIX);
         if (timerService != null) {
             try {
@@ -16,6 +16,8 @@
 
 package org.jbpm.runtime.manager.impl.identity;
 
+import org.jbpm.services.task.identity.CachingUserGroupCallback;
+import org.jbpm.services.task.identity.CachingUserInfo;
 import org.jbpm.services.task.identity.DBUserGroupCallbackImpl;
 import org.jbpm.services.task.identity.DBUserInfoImpl;
 import org.jbpm.services.task.identity.DefaultUserInfo;
@@ -56,6 +58,12 @@ import org.kie.internal.task.api.UserInfo;
  * 	<li>custom - custom implementation that requires to have additional system property set (FQCN of the implementation) - org.jbpm.ht.custom.userinfo</li>
  * </ul>
  * </li>
+ * 	<li>
+ * org.jbpm.ht.identity.cache - when set to true both UserGroupCallback and UserInfo are wrapped with caching decorators
+ * (see CachingUserGroupCallback for cache configuration). The decorated instances are created once and shared by all
+ * callers, use <code>invalidateIdentityCache</code> to drop cached data and <code>getCachingUserGroupCallback</code>,
+ * <code>getCachingUserInfo</code> to monitor the caches.
+ * </li>
  * </ul>
  *
  */
@@ -67,8 +75,83 @@ public class UserDataServiceProvider {
 	private static final String CUSTOM_USER_CALLBACK_IMPL = System.getProperty("org.jbpm.ht.custom.callback");
 	private static final String CUSTOM_USER_INFO_IMPL = System.getProperty("org.jbpm.ht.custom.userinfo");
 	
+	private static final boolean IDENTITY_CACHE = Boolean.parseBoolean(System.getProperty("org.jbpm.ht.identity.cache", "false"));
+	
+	private static volatile CachingUserGroupCallback cachingUserGroupCallback;
+	private static volatile CachingUserInfo cachingUserInfo;
 
 	public static UserGroupCallback getUserGroupCallback() {
+		if (IDENTITY_CACHE) {
+			return getCachingUserGroupCallback();
+		}
+		return createUserGroupCallback();
+	}
+	
+	public static UserInfo getUserInfo() {
+		if (IDENTITY_CACHE) {
+			return getCachingUserInfo();
+		}
+		return createUserInfo();
+	}
+	
+	/**
+	 * Returns shared caching user group callback, null when identity cache is not enabled.
+	 */
+	public static CachingUserGroupCallback getCachingUserGroupCallback() {
+		if (!IDENTITY_CACHE) {
+			return null;
+		}
+		if (cachingUserGroupCallback == null) {
+			synchronized (UserDataServiceProvider.class) {
+				if (cachingUserGroupCallback == null) {
+					cachingUserGroupCallback = new CachingUserGroupCallback(createUserGroupCallback());
+				}
+			}
+		}
+		return cachingUserGroupCallback;
+	}
+	
+	/**
+	 * Returns shared caching user info, null when identity cache is not enabled.
+	 */
+	public static CachingUserInfo getCachingUserInfo() {
+		if (!IDENTITY_CACHE) {
+			return null;
+		}
+		if (cachingUserInfo == null) {
+			synchronized (UserDataServiceProvider.class) {
+				if (cachingUserInfo == null) {
+					cachingUserInfo = new CachingUserInfo(createUserInfo());
+				}
+			}
+		}
+		return cachingUserInfo;
+	}
+	
+	/**
+	 * Removes everything cached for given user or group, all cached data when id is null.
+	 */
+	public static void invalidateIdentityCache(String id) {
+		CachingUserGroupCallback callback = cachingUserGroupCallback;
+		CachingUserInfo userInfo = cachingUserInfo;
+		if (id == null) {
+			if (callback != null) {
+				callback.invalidateAll();
+			}
+			if (userInfo != null) {
+				userInfo.invalidateAll();
+			}
+		} else {
+			if (callback != null) {
+				callback.invalidate(id);
+			}
+			if (userInfo != null) {
+				userInfo.invalidate(id);
+			}
+		}
+	}
+
+	protected static UserGroupCallback createUserGroupCallback() {
 		
 		UserGroupCallback callback = new MvelUserGroupCallbackImpl(true);
 		if ("ldap".equalsIgnoreCase(USER_CALLBACK_IMPL)) {
@@ -88,11 +171,10 @@ public class UserDataServiceProvider {
 				throw new RuntimeException("Unable to create instance of custom user group callback impl", e);
 			}
 		}
-		
 		return callback;
 	}
 	
-	public static UserInfo getUserInfo() {
+	protected static UserInfo createUserInfo() {
 		UserInfo userInfo = new DefaultUserInfo(true);
 		
 		if ("ldap".equalsIgnoreCase(USER_INFO_IMPL)) {
@@ -108,7 +190,6 @@ public class UserDataServiceProvider {
 				throw new RuntimeException("Unable to create instance of custom user info impl", e);
 			}
 		}
-		
 		return userInfo;
 	}
 }
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor;
+
+import java.util.List;
+
+import org.kie.api.executor.RequestInfo;
+
+public interface BatchProcessingAware {
+
+	/**
+	 * Locks up to given number of <code>RequestInfo</code> instances that are due for execution and marks
+	 * them as running in a single transaction so they can be processed without further locking.
+	 * @param batchSize maximum number of requests to be claimed
+	 * @return claimed requests, never null
+	 */
+	List<RequestInfo> getRequestsForProcessing(int batchSize);
+}
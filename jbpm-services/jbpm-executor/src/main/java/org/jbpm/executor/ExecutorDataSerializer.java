@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.executor;
+
+import java.io.IOException;
+
+/**
+ * Responsible for converting executor data - <code>CommandContext</code> and <code>ExecutionResults</code> - to
+ * and from its binary form as stored in request and response data of the <code>RequestInfo</code>.
+ * Implementations can be provided via ServiceLoader, see <code>ExecutorDataSerializerProvider</code>.
+ */
+public interface ExecutorDataSerializer {
+
+    /**
+     * Checks if given data was produced by this serializer (e.g. by inspecting its header) and thus can be read by it.
+     * @param data serialized data
+     * @return true if this serializer is capable of reading given data
+     */
+    boolean accept(byte[] data);
+
+    /**
+     * Serializes given executor data
+     * @param data instance of <code>CommandContext</code> or <code>ExecutionResults</code>
+     * @return serialized form of the data
+     * @throws IOException in case data cannot be serialized
+     */
+    byte[] serialize(Object data) throws IOException;
+
+    /**
+     * Restores executor data from its serialized form
+     * @param data serialized form of the data
+     * @param classLoader class loader to be used to load classes of the data
+     * @return instance of <code>CommandContext</code> or <code>ExecutionResults</code>
+     * @throws IOException in case data cannot be read
+     * @throws ClassNotFoundException in case classes referenced by the data cannot be found
+     */
+    Object deserialize(byte[] data, ClassLoader classLoader) throws IOException, ClassNotFoundException;
+}
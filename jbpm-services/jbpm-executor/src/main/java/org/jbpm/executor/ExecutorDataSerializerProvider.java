@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.executor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import org.jbpm.executor.impl.serialization.CompactExecutorDataSerializer;
+import org.jbpm.executor.impl.serialization.JavaExecutorDataSerializer;
+
+/**
+ * Responsible for discovery and delivery of <code>ExecutorDataSerializer</code> implementations.
+ * Serializer used for writing can be given by its class name via system property org.kie.executor.serializer,
+ * otherwise it is discovered via ServiceLoader and if none is found Java serialization is used, as in previous versions.
+ * Compact serializer is opt-in (<code>-Dorg.kie.executor.serializer=org.jbpm.executor.impl.serialization.CompactExecutorDataSerializer</code>).
+ * Data is always read by the serializer that accepts it so data written in either format remains readable.
+ */
+public class ExecutorDataSerializerProvider {
+
+    private static final ServiceLoader<ExecutorDataSerializer> serializers = ServiceLoader.load(ExecutorDataSerializer.class);
+    private static ExecutorDataSerializerProvider INSTANCE = new ExecutorDataSerializerProvider();
+    
+    private ExecutorDataSerializer serializer;
+    private List<ExecutorDataSerializer> readers = new ArrayList<ExecutorDataSerializer>();
+    
+    private ExecutorDataSerializerProvider() {
+        discover();
+    }
+    
+    private synchronized void discover() {
+        String serializerClass = System.getProperty("org.kie.executor.serializer");
+        if (serializerClass != null) {
+            try {
+                serializer = (ExecutorDataSerializer) Class.forName(serializerClass).newInstance();
+            } catch (Exception e) {
+                throw new RuntimeException("Unable to create executor data serializer " + serializerClass, e);
+            }
+        } else {
+            for (ExecutorDataSerializer foundSerializer : serializers) {
+                if (serializer != null) {                
+                    throw new RuntimeException("Ambiguous ExecutorDataSerializer discovery, found more than one implementation");
+                }
+                serializer = foundSerializer;
+            }
+        }
+        
+        if (serializer == null) {
+            serializer = new JavaExecutorDataSerializer();
+        }
+        
+        readers.add(serializer);
+        if (!(serializer instanceof CompactExecutorDataSerializer)) {
+            readers.add(new CompactExecutorDataSerializer());
+        }
+        if (!(serializer instanceof JavaExecutorDataSerializer)) {
+            readers.add(new JavaExecutorDataSerializer());
+        }
+    }
+    
+    public static ExecutorDataSerializerProvider get() {
+        return INSTANCE;
+    }
+    
+    public ExecutorDataSerializer getSerializer() {
+        return INSTANCE.serializer;
+    }
+    
+    public byte[] serialize(Object data) throws IOException {
+        return serializer.serialize(data);
+    }
+    
+    public Object deserialize(byte[] data, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        for (ExecutorDataSerializer reader : readers) {
+            if (reader.accept(data)) {
+                return reader.deserialize(data, classLoader);
+            }
+        }
+        throw new IOException("Unknown format of executor data, no serializer accepts it");
+    }
+}
@@ -18,10 +18,13 @@ package org.jbpm.executor.commands;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
 
 import javax.persistence.EntityManagerFactory;
 
 import org.jbpm.executor.impl.jpa.ExecutorJPAAuditService;
+import org.jbpm.process.audit.query.AbstractAuditDeleteBuilderImpl;
+import org.jbpm.process.audit.query.ChunkedAuditDelete;
 import org.jbpm.process.core.timer.DateTimeUtils;
 import org.jbpm.runtime.manager.impl.jpa.EntityManagerFactoryManager;
 import org.kie.api.executor.Command;
@@ -30,6 +33,7 @@ import org.kie.api.executor.ExecutionResults;
 import org.kie.api.executor.Reoccurring;
 import org.kie.api.executor.STATUS;
 import org.kie.api.runtime.process.ProcessInstance;
+import org.kie.internal.runtime.manager.audit.query.AuditDeleteBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,12 +59,17 @@ import org.slf4j.LoggerFactory;
  * 	<li>OlderThanPeriod - indicated what logs should be deleted older than given time expression (valid time expression e.g. 1d, 5h, etc)</li>
  * 	<li>ForProcess - indicates logs to be deleted only for given process definition</li>
  * 	<li>ForDeployment - indicates logs to be deleted that are from given deployment id</li>
+ * 	<li>RecordsPerTransaction - indicates how many records should be deleted in single transaction, when not given all matching records
+ * 	of a table are deleted with single statement</li>
+ * 	<li>MaxRunTime - limits how long single execution can run (valid time expression e.g. 30m, 1h, etc) - records left are deleted by next
+ * 	execution that continues from where the previous stopped; if RecordsPerTransaction is not given, 1000 records per transaction are deleted</li>
  * </ul>
  */
 public class LogCleanupCommand implements Command, Reoccurring {
 	
 	private static final Logger logger = LoggerFactory.getLogger(LogCleanupCommand.class);
 	private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
+	private static final int DEFAULT_RECORDS_PER_TRANSACTION = 1000;
 	
 	private long nextScheduleTimeAdd = 24 * 60 * 60 * 1000; // one day in milliseconds
 
@@ -123,82 +132,88 @@ public class LogCleanupCommand implements Command, Reoccurring {
 			olderThan = formatToUse.format(olderThanDate);
 		}
 		
+		Date olderThanDate = olderThan == null ? null : formatToUse.parse(olderThan);
+		
+		int recordsPerTransaction = 0;
+		String recordsPerTransactionParam = (String)ctx.getData("RecordsPerTransaction");
+		if (recordsPerTransactionParam != null) {
+			recordsPerTransaction = Integer.parseInt(recordsPerTransactionParam);
+		}
+		long deadline = Long.MAX_VALUE;
+		String maxRunTime = (String)ctx.getData("MaxRunTime");
+		if (maxRunTime != null) {
+			deadline = System.currentTimeMillis() + DateTimeUtils.parseDateAsDuration(maxRunTime);
+			if (recordsPerTransaction <= 0) {
+				recordsPerTransaction = DEFAULT_RECORDS_PER_TRANSACTION;
+			}
+		}
+		
+		long start = System.currentTimeMillis();
+		boolean completed = true;
         
         if (!skipTaskLog) {
             // task tables
-            long taLogsRemoved = 0l;
-            taLogsRemoved = auditLogService.auditTaskDelete()
+            completed = cleanup("TaskAuditLog", auditLogService.auditTaskDelete()
             .processId(forProcess)      
-            .dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))
-            .deploymentId(forDeployment)
-            .build()
-            .execute();
-            logger.info("TaskAuditLogRemoved {}", taLogsRemoved);
-            executionResults.setData("TaskAuditLogRemoved", taLogsRemoved);
+            .dateRangeEnd(olderThanDate)
+            .deploymentId(forDeployment), recordsPerTransaction, deadline, ctx, executionResults);
             
-            long teLogsRemoved = 0l;
-            teLogsRemoved = auditLogService.taskEventInstanceLogDelete()
-            .dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))        
-            .build()
-            .execute();
-            logger.info("TaskEventLogRemoved {}", teLogsRemoved);
-            executionResults.setData("TaskEventLogRemoved", teLogsRemoved);
+            if (completed) {
+                completed = cleanup("TaskEventLog", auditLogService.taskEventInstanceLogDelete()
+                .dateRangeEnd(olderThanDate), recordsPerTransaction, deadline, ctx, executionResults);
+            }
         }		
 		
-		if (!skipProcessLog) {
+		if (!skipProcessLog && completed) {
 		// process tables			
-			long niLogsRemoved = 0l;
-			niLogsRemoved = auditLogService.nodeInstanceLogDelete()
+			completed = cleanup("NodeInstanceLog", auditLogService.nodeInstanceLogDelete()
 			.processId(forProcess)
-			.dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))
-			.externalId(forDeployment)
-			.build()
-			.execute();
-			logger.info("NodeInstanceLogRemoved {}", niLogsRemoved);
-			executionResults.setData("NodeInstanceLogRemoved", niLogsRemoved);
+			.dateRangeEnd(olderThanDate)
+			.externalId(forDeployment), recordsPerTransaction, deadline, ctx, executionResults);
 			
-			long viLogsRemoved = 0l;
-			viLogsRemoved = auditLogService.variableInstanceLogDelete()
-			.processId(forProcess)
-			.dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))
-			.externalId(forDeployment)
-			.build()
-			.execute();
-			logger.info("VariableInstanceLogRemoved {}", viLogsRemoved);
-			executionResults.setData("VariableInstanceLogRemoved", viLogsRemoved);
+			if (completed) {
+				completed = cleanup("VariableInstanceLog", auditLogService.variableInstanceLogDelete()
+				.processId(forProcess)
+				.dateRangeEnd(olderThanDate)
+				.externalId(forDeployment), recordsPerTransaction, deadline, ctx, executionResults);
+			}
 			
-			long piLogsRemoved = 0l;        
-            piLogsRemoved = auditLogService.processInstanceLogDelete()
-            .processId(forProcess)
-            .status(ProcessInstance.STATE_COMPLETED, ProcessInstance.STATE_ABORTED)
-            .endDateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))
-            .externalId(forDeployment)
-            .build()
-            .execute();
-            logger.info("ProcessInstanceLogRemoved {}", piLogsRemoved);
-            executionResults.setData("ProcessInstanceLogRemoved", piLogsRemoved);
+			// process instance logs go last as other tables select completed instances through them
+			if (completed) {
+				completed = cleanup("ProcessInstanceLog", auditLogService.processInstanceLogDelete()
+				.processId(forProcess)
+				.status(ProcessInstance.STATE_COMPLETED, ProcessInstance.STATE_ABORTED)
+				.endDateRangeEnd(olderThanDate)
+				.externalId(forDeployment), recordsPerTransaction, deadline, ctx, executionResults);
+			}
 		}
 
 		
-		if (!skipExecutorLog) {
+		if (!skipExecutorLog && completed) {
 			// executor tables	
-			long errorInfoLogsRemoved = 0l;
-			errorInfoLogsRemoved = auditLogService.errorInfoLogDeleteBuilder()		
-			.dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))
-			.build()
-			.execute();
-			logger.info("ErrorInfoLogsRemoved {}", errorInfoLogsRemoved);
-			executionResults.setData("ErrorInfoLogsRemoved", errorInfoLogsRemoved);
+			completed = cleanup("ErrorInfoLogs", auditLogService.errorInfoLogDeleteBuilder()		
+			.dateRangeEnd(olderThanDate), recordsPerTransaction, deadline, ctx, executionResults);
 			
-			long requestInfoLogsRemoved = 0l;
-			requestInfoLogsRemoved = auditLogService.requestInfoLogDeleteBuilder()
-			.dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))
-			.status(STATUS.CANCELLED, STATUS.DONE, STATUS.ERROR)
-			.build()
-			.execute();
-			logger.info("RequestInfoLogsRemoved {}", requestInfoLogsRemoved);
-			executionResults.setData("RequestInfoLogsRemoved", requestInfoLogsRemoved);
+			if (completed) {
+				completed = cleanup("RequestInfoLogs", auditLogService.requestInfoLogDeleteBuilder()
+				.dateRangeEnd(olderThanDate)
+				.status(STATUS.CANCELLED, STATUS.DONE, STATUS.ERROR), recordsPerTransaction, deadline, ctx, executionResults);
+			}
+		}
+		
+		long totalRemoved = 0;
+		for (Map.Entry<String, Object> entry : executionResults.getData().entrySet()) {
+			if (entry.getKey().endsWith("Removed")) {
+				totalRemoved += (Long) entry.getValue();
+			}
 		}
+		long rowsPerSecond = totalRemoved * 1000 / Math.max(System.currentTimeMillis() - start, 1);
+		if (!completed) {
+			logger.info("Log clean up stopped after {} removed entries ({} rows/s) as it exceeded max run time {}, will continue with next run",
+					totalRemoved, rowsPerSecond, maxRunTime);
+		}
+		executionResults.setData("RowsPerSecond", rowsPerSecond);
+		executionResults.setData("Completed", completed);
 		
 		// bam tables
 		long bamLogsRemoved = 0l;
@@ -207,5 +222,43 @@ public class LogCleanupCommand implements Command, Reoccurring {
 		
         return executionResults;
 	}
+	
+	/*
+	 * Runs given delete builder either as single bulk delete or in chunks (JPA based builders only),
+	 * resuming from and storing the checkpoint (last removed id) in the context.
+	 * Returns false when the max run time was exceeded before all matching entries were removed.
+	 */
+	protected boolean cleanup(String name, AuditDeleteBuilder<?> builder, int recordsPerTransaction, long deadline, CommandContext ctx, ExecutionResults executionResults) {
+		String checkpointKey = name + "Checkpoint";
+		
+		long removed;
+		long duration;
+		boolean completed = true;
+		if (recordsPerTransaction > 0 && builder instanceof AbstractAuditDeleteBuilderImpl) {
+			Object checkpoint = ctx.getData(checkpointKey);
+			ChunkedAuditDelete delete = ((AbstractAuditDeleteBuilderImpl<?>) builder).buildChunked(recordsPerTransaction)
+					.resumeAfter(checkpoint == null ? null : Long.valueOf(checkpoint.toString()))
+					.deadline(deadline);
+			delete.execute();
+			
+			removed = delete.getDeleted();
+			duration = delete.getDuration();
+			completed = delete.isCompleted();
+			if (delete.getLastId() == null) {
+				ctx.getData().remove(checkpointKey);
+			} else {
+				ctx.setData(checkpointKey, delete.getLastId());
+			}
+		} else {
+			long start = System.currentTimeMillis();
+			removed = builder.build().execute();
+			duration = System.currentTimeMillis() - start;
+		}
+		logger.info("{}Removed {} ({} rows/s){}", name, removed, removed * 1000 / Math.max(duration, 1),
+				completed ? "" : ", stopped after id " + ctx.getData(checkpointKey));
+		executionResults.setData(name + "Removed", removed);
+		
+		return completed;
+	}
 
 }
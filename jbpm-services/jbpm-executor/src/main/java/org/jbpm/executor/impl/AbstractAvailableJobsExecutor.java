@@ -16,19 +16,19 @@
 
 package org.jbpm.executor.impl;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import org.apache.commons.io.input.ClassLoaderObjectInputStream;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.jbpm.executor.AsyncJobException;
+import org.jbpm.executor.ExecutorDataSerializerProvider;
 import org.jbpm.executor.entities.ErrorInfo;
 import org.jbpm.executor.entities.RequestInfo;
 import org.jbpm.executor.impl.event.ExecutorEventSupport;
@@ -55,6 +55,7 @@ import org.slf4j.LoggerFactory;
 public abstract class AbstractAvailableJobsExecutor {
 
     private static final Logger logger = LoggerFactory.getLogger(AbstractAvailableJobsExecutor.class);
+    private static final long EVICTION_INTERVAL = Long.parseLong(System.getProperty("org.kie.executor.classcache.eviction.interval", "60000"));
     protected int retries = Integer.parseInt(System.getProperty("org.kie.executor.retry.count", "3"));
 
     protected Map<String, Object> contextData = new HashMap<String, Object>();
@@ -66,6 +67,10 @@ public abstract class AbstractAvailableJobsExecutor {
     protected ExecutorStoreService executorStoreService;
     
     protected ExecutorEventSupport eventSupport = new ExecutorEventSupport();
+    
+    // class loaders of deployments seen by this executor, used to evict cached commands of undeployed deployments
+    private final ConcurrentMap<String, WeakReference<ClassLoader>> deploymentClassLoaders = new ConcurrentHashMap<String, WeakReference<ClassLoader>>();
+    private volatile long lastEviction = System.currentTimeMillis();
 
     public void setEventSupport(ExecutorEventSupport eventSupport) {
         this.eventSupport = eventSupport;
@@ -100,17 +105,11 @@ public abstract class AbstractAvailableJobsExecutor {
                     logger.debug("Processing Request Id: {}, status {} command {}", request.getId(), request.getStatus(), request.getCommandName());
                     byte[] reqData = request.getRequestData();
                     if (reqData != null) {
-                        ObjectInputStream in = null;
                         try {
-                            in = new ClassLoaderObjectInputStream(cl, new ByteArrayInputStream(reqData));
-                            ctx = (CommandContext) in.readObject();
+                            ctx = (CommandContext) ExecutorDataSerializerProvider.get().deserialize(reqData, cl);
                         } catch (IOException e) {                        
                             logger.warn("Exception while serializing context data", e);
                             return;
-                        } finally {
-                            if (in != null) {
-                                in.close();
-                            }
                         }
                     }
                     if (request.getResponseData() == null) {                        
@@ -130,10 +129,7 @@ public abstract class AbstractAvailableJobsExecutor {
                             results = new ExecutionResults();
                         }
                         try {
-                            ByteArrayOutputStream bout = new ByteArrayOutputStream();
-                            ObjectOutputStream out = new ObjectOutputStream(bout);
-                            out.writeObject(results);
-                            byte[] respData = bout.toByteArray();
+                            byte[] respData = ExecutorDataSerializerProvider.get().serialize(results);
                             request.setResponseData(respData);
                         } catch (IOException e) {
                             request.setResponseData(null);
@@ -148,17 +144,11 @@ public abstract class AbstractAvailableJobsExecutor {
                         logger.debug("Job was already successfully executed, retrying callbacks only...");
                         byte[] resData = request.getResponseData();
                         if (resData != null) {
-                            ObjectInputStream in = null;
                             try {
-                                in = new ClassLoaderObjectInputStream(cl, new ByteArrayInputStream(resData));
-                                results = (ExecutionResults) in.readObject();
+                                results = (ExecutionResults) ExecutorDataSerializerProvider.get().deserialize(resData, cl);
                             } catch (IOException e) {                        
                                 logger.warn("Exception while serializing response data", e);
                                 return;
-                            } finally {
-                                if (in != null) {
-                                    in.close();
-                                }
                             }
                         }
                         request.setStatus(STATUS.DONE);
@@ -204,11 +194,43 @@ public abstract class AbstractAvailableJobsExecutor {
         InternalRuntimeManager manager = ((InternalRuntimeManager)RuntimeManagerRegistry.get().getManager(deploymentId));
         if (manager != null && manager.getEnvironment().getClassLoader() != null) {            
             cl = manager.getEnvironment().getClassLoader();
+            trackClassLoader(deploymentId, cl);
         }
+        evictUndeployed();
         
         return cl;
     }
     
+    protected void trackClassLoader(String deploymentId, ClassLoader cl) {
+        WeakReference<ClassLoader> tracked = deploymentClassLoaders.get(deploymentId);
+        ClassLoader previous = tracked == null ? null : tracked.get();
+        if (previous == cl) {
+            return;
+        }
+        deploymentClassLoaders.put(deploymentId, new WeakReference<ClassLoader>(cl));
+        if (previous != null && classCacheManager != null) {
+            logger.debug("Deployment {} was redeployed, evicting commands of its previous class loader", deploymentId);
+            classCacheManager.evict(previous);
+        }
+    }
+    
+    protected void evictUndeployed() {
+        long now = System.currentTimeMillis();
+        if (classCacheManager == null || now - lastEviction < EVICTION_INTERVAL) {
+            return;
+        }
+        lastEviction = now;
+        Iterator<Map.Entry<String, WeakReference<ClassLoader>>> it = deploymentClassLoaders.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, WeakReference<ClassLoader>> entry = it.next();
+            if (RuntimeManagerRegistry.get().getManager(entry.getKey()) == null) {
+                logger.debug("Deployment {} is not available any more, evicting its commands", entry.getKey());
+                it.remove();
+                classCacheManager.evict(entry.getValue().get());
+            }
+        }
+    }
+    
     public void addContextData(String name, Object data) {
     	this.contextData.put(name, data);
     }
@@ -291,10 +313,7 @@ public abstract class AbstractAvailableJobsExecutor {
                         // remove transient data
                         ctx.getData().remove("ClassLoader");
                         
-                        ByteArrayOutputStream bout = new ByteArrayOutputStream();
-                        ObjectOutputStream oout = new ObjectOutputStream(bout);
-                        oout.writeObject(ctx);
-                        requestInfo.setRequestData(bout.toByteArray());
+                        requestInfo.setRequestData(ExecutorDataSerializerProvider.get().serialize(ctx));
                     } catch (IOException e) {
                         logger.warn("Error serializing context data", e);
                         requestInfo.setRequestData(null);
@@ -16,6 +16,13 @@
 
 package org.jbpm.executor.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.jbpm.executor.BatchProcessingAware;
 import org.jbpm.executor.entities.RequestInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +48,56 @@ public class AvailableJobsExecutor extends AbstractAvailableJobsExecutor {
             logger.warn("Unexpected error while processin executor's job {}", e.getMessage(), e);
         }
     }
+    
+    /**
+     * Claims up to <code>batchSize</code> jobs at once and executes them either directly or on given worker pool.
+     * Continues claiming as long as full batches are found so throughput does not depend on the poll interval.
+     * Falls back to single job execution when query service does not support batch processing.
+     * @param batchSize maximum number of jobs claimed in single transaction
+     * @param workers optional pool that jobs should be executed on, if null jobs are executed on calling thread
+     */
+    public void executeJobs(int batchSize, ExecutorService workers) {
+        if (batchSize <= 1 || !(queryService instanceof BatchProcessingAware)) {
+            executeJob();
+            return;
+        }
+        logger.debug("Executor Thread {} Waking Up to process jobs in batches of {}", this.toString(), batchSize);
+        try {
+            List<org.kie.api.executor.RequestInfo> requests = null;
+            do {
+                requests = ((BatchProcessingAware) queryService).getRequestsForProcessing(batchSize);
+                logger.debug("Claimed {} jobs for processing", requests.size());
+                if (workers == null) {
+                    for (org.kie.api.executor.RequestInfo request : requests) {
+                        executeGivenJob((RequestInfo) request);
+                    }
+                } else {
+                    List<Future<?>> executions = new ArrayList<Future<?>>(requests.size());
+                    for (final org.kie.api.executor.RequestInfo request : requests) {
+                        executions.add(workers.submit(new Runnable() {
+                            
+                            @Override
+                            public void run() {
+                                executeGivenJob((RequestInfo) request);
+                            }
+                        }));
+                    }
+                    // wait for the batch to be completed to not claim more than can be processed
+                    for (Future<?> execution : executions) {
+                        try {
+                            execution.get();
+                        } catch (ExecutionException e) {
+                            logger.warn("Unexpected error while processin executor's job {}", e.getMessage(), e);
+                        }
+                    }
+                }
+            } while (requests.size() == batchSize && !Thread.currentThread().isInterrupted());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Unexpected error while processin executor's jobs {}", e.getMessage(), e);
+        }
+    }
 
 
 }
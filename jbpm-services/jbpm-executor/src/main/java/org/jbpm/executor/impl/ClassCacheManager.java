@@ -16,11 +16,14 @@
 
 package org.jbpm.executor.impl;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.kie.api.executor.Command;
 import org.kie.api.executor.CommandCallback;
@@ -32,15 +35,25 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Simple cache to keep classes of commands and callback to not attempt to load them every time.
- *
+ * Instances are cached per class name and class loader so different deployments can use classes
+ * with the same name without replacing each other's instances. Lookups do not require any locking.
+ * <p>
+ * The cache does not keep class loaders reachable - loaders are referenced weakly and instances are
+ * attached to their classes (via <code>ClassValue</code>) so they live only as long as the class itself.
+ * Instances of a class loader are closed when it is evicted - on {@link #evict(ClassLoader)} (called when
+ * deployment is undeployed or redeployed), on {@link #dispose()} or once the class loader was garbage collected.
  */
 
 public class ClassCacheManager {
     
     private static final Logger logger = LoggerFactory.getLogger(ClassCacheManager.class);
     
-    private final Map<String, Command> commandCache = new HashMap<String, Command>();
-    private final Map<String, CommandCallback> callbackCache = new HashMap<String, CommandCallback>();  
+    private final ConcurrentMap<LoaderKey, LoaderEntry> loaders = new ConcurrentHashMap<LoaderKey, LoaderEntry>();
+    
+    private final InstancesByLoader commands = new InstancesByLoader();
+    private final InstancesByLoader callbacks = new InstancesByLoader();
+    
+    private final ReferenceQueue<ClassLoader> collectedClassLoaders = new ReferenceQueue<ClassLoader>();
 
     /**
      * Finds command by FQCN and if not found loads the class and store the instance in
@@ -49,33 +62,9 @@ public class ClassCacheManager {
      * @return initialized class instance
      */
     public Command findCommand(String name, ClassLoader cl) {
-        synchronized (commandCache) {
-            
-            if (!commandCache.containsKey(name)) {
-                
-                try {
-                    Command commandInstance = (Command) Class.forName(name, true, cl).newInstance();
-                    commandCache.put(name, commandInstance);
-                } catch (Exception ex) {
-                    throw new IllegalArgumentException("Unknown Command implementation with name '" + name + "'");
-                }
-    
-            } else {
-                Command cmd = commandCache.get(name);
-                if (!cmd.getClass().getClassLoader().equals(cl)) {
-                    commandCache.remove(name);
-                    try {
-                        Command commandInstance = (Command) Class.forName(name, true, cl).newInstance();
-                        commandCache.put(name, commandInstance);
-                    } catch (Exception ex) {
-                        throw new IllegalArgumentException("Unknown Command implementation with name '" + name + "'");
-                    } 
-                }
-            }
-
-       
-        }
-        return commandCache.get(name);
+        cl = normalize(cl);
+        LoaderEntry entry = getEntry(cl);
+        return findInstance(commands, entry.commandClasses, entry, name, cl);
     }
 
     /**
@@ -85,32 +74,9 @@ public class ClassCacheManager {
      * @return initialized class instance
      */
     public CommandCallback findCommandCallback(String name, ClassLoader cl) {
-        synchronized (callbackCache) {
-            
-            if (!callbackCache.containsKey(name)) {
-                try {
-                    CommandCallback commandCallbackInstance = (CommandCallback) Class.forName(name, true, cl).newInstance();
-                    return commandCallbackInstance;
-                    //                            callbackCache.put(name, commandCallbackInstance);
-                } catch (Exception ex) {
-                    throw new IllegalArgumentException("Unknown Command implementation with name '" + name + "'");
-                }
-
-            } else {
-                CommandCallback cmdCallback = callbackCache.get(name);
-                if (!cmdCallback.getClass().getClassLoader().equals(cl)) {
-                    callbackCache.remove(name);
-                    try {
-                        CommandCallback commandCallbackInstance = (CommandCallback) Class.forName(name, true, cl).newInstance();
-                        callbackCache.put(name, commandCallbackInstance);
-                    } catch (Exception ex) {
-                        throw new IllegalArgumentException("Unknown Command implementation with name '" + name + "'");
-                    }
-                }
-            }
-
-        }
-        return callbackCache.get(name);
+        cl = normalize(cl);
+        LoaderEntry entry = getEntry(cl);
+        return findInstance(callbacks, entry.callbackClasses, entry, name, cl);
     }
 
     /**
@@ -120,18 +86,112 @@ public class ClassCacheManager {
      */
     public List<CommandCallback> buildCommandCallback(CommandContext ctx, ClassLoader cl) {
         List<CommandCallback> callbackList = new ArrayList<CommandCallback>();
-        if (ctx != null && ctx.getData("callbacks") != null) {
-            logger.debug("Callback: {}", ctx.getData("callbacks"));
-            String[] callbacksArray = ((String) ctx.getData("callbacks")).split(",");
-            List<String> callbacks = (List<String>) Arrays.asList(callbacksArray);
-            for (String callbackName : callbacks) {
-                CommandCallback handler = findCommandCallback(callbackName.trim(), cl);
-                callbackList.add(handler);
-            }
+        if (ctx == null || ctx.getData("callbacks") == null) {
+            return callbackList;
+        }
+        String callbacks = (String) ctx.getData("callbacks");
+        logger.debug("Callback: {}", callbacks);
+        for (String callbackName : callbacks.split(",")) {
+            CommandCallback handler = findCommandCallback(callbackName.trim(), cl);
+            callbackList.add(handler);
         }
         return callbackList;
     }
     
+    /**
+     * Removes all instances created for given class loader from the cache and closes them.
+     * Should be called when the deployment that owns the class loader is undeployed.
+     * @param cl class loader to be evicted
+     */
+    public void evict(ClassLoader cl) {
+        if (cl == null) {
+            return;
+        }
+        LoaderEntry entry = loaders.remove(new LoaderKey(cl));
+        if (entry != null) {
+            logger.debug("Evicting cached commands and callbacks of class loader {}", cl);
+            release(entry);
+        }
+    }
+    
+    protected LoaderEntry getEntry(ClassLoader cl) {
+        LoaderEntry entry = loaders.get(new LoaderKey(cl));
+        if (entry == null) {
+            expungeCollected();
+            entry = new LoaderEntry(new LoaderKey(cl, collectedClassLoaders));
+            LoaderEntry existing = loaders.putIfAbsent(entry.key, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        return entry;
+    }
+    
+    @SuppressWarnings("unchecked")
+    protected <T> T findInstance(InstancesByLoader instances, ConcurrentMap<String, WeakReference<Class<?>>> classes, LoaderEntry entry, String name, ClassLoader cl) {
+        WeakReference<Class<?>> reference = classes.get(name);
+        Class<?> type = reference == null ? null : reference.get();
+        if (type == null) {
+            type = loadClass(name, cl);
+            classes.put(name, new WeakReference<Class<?>>(type));
+        }
+        ConcurrentMap<LoaderKey, Object> instancesOfType = instances.get(type);
+        Object instance = instancesOfType.get(entry.key);
+        if (instance == null) {
+            try {
+                instance = type.newInstance();
+            } catch (Exception ex) {
+                throw new IllegalArgumentException("Unknown Command implementation with name '" + name + "'");
+            }
+            Object existing = instancesOfType.putIfAbsent(entry.key, instance);
+            if (existing != null) {
+                // other thread was faster, use its instance to keep single instance per class loader
+                instance = existing;
+            }
+        }
+        return (T) instance;
+    }
+    
+    protected Class<?> loadClass(String name, ClassLoader cl) {
+        try {
+            return Class.forName(name, true, cl);
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Unknown Command implementation with name '" + name + "'");
+        }
+    }
+    
+    protected void release(LoaderEntry entry) {
+        release(commands, entry.commandClasses, entry.key);
+        release(callbacks, entry.callbackClasses, entry.key);
+    }
+    
+    protected void release(InstancesByLoader instances, Map<String, WeakReference<Class<?>>> classes, LoaderKey key) {
+        for (WeakReference<Class<?>> reference : classes.values()) {
+            Class<?> type = reference.get();
+            if (type != null) {
+                closeInstance(instances.get(type).remove(key));
+            }
+        }
+        classes.clear();
+    }
+    
+    protected void expungeCollected() {
+        Reference<? extends ClassLoader> collected = null;
+        while ((collected = collectedClassLoaders.poll()) != null) {
+            LoaderEntry entry = loaders.remove(collected);
+            if (entry != null) {
+                release(entry);
+            }
+        }
+    }
+    
+    protected ClassLoader normalize(ClassLoader cl) {
+        if (cl == null) {
+            return ClassCacheManager.class.getClassLoader();
+        }
+        return cl;
+    }
+    
     protected void closeInstance(Object instance) {
     	if (instance == null) {
     		return;
@@ -145,17 +205,73 @@ public class ClassCacheManager {
     }
         
     public void dispose() {
-    	if (commandCache != null) {
-    		for (Object command : commandCache.values()) {
-    			closeInstance(command);
-    		}
-    	}
-    	
-    	if (callbackCache != null) {
-    		for (Object callback : callbackCache.values()) {
-    			closeInstance(callback);
-    		}
-    	}
+        for (LoaderKey key : loaders.keySet()) {
+            LoaderEntry entry = loaders.remove(key);
+            if (entry != null) {
+                release(entry);
+            }
+        }
+    }
+    
+    /*
+     * Classes resolved by single class loader, classes are referenced weakly to not keep the class loader reachable
+     */
+    protected static class LoaderEntry {
+        
+        private final LoaderKey key;
+        private final ConcurrentMap<String, WeakReference<Class<?>>> commandClasses = new ConcurrentHashMap<String, WeakReference<Class<?>>>();
+        private final ConcurrentMap<String, WeakReference<Class<?>>> callbackClasses = new ConcurrentHashMap<String, WeakReference<Class<?>>>();
+        
+        LoaderEntry(LoaderKey key) {
+            this.key = key;
+        }
+    }
+    
+    /*
+     * Instances of a class per class loader that requested them, kept with the class itself so they do not
+     * outlive it; class loader that defined the class might be a parent of the requesting one
+     */
+    protected static class InstancesByLoader extends ClassValue<ConcurrentMap<LoaderKey, Object>> {
+
+        @Override
+        protected ConcurrentMap<LoaderKey, Object> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<LoaderKey, Object>();
+        }
+    }
+    
+    /*
+     * Weakly referenced class loader, keys are equal only when they refer to the very same class loader instance
+     */
+    protected static class LoaderKey extends WeakReference<ClassLoader> {
+        
+        private final int hash;
+        
+        LoaderKey(ClassLoader cl) {
+            super(cl);
+            this.hash = System.identityHashCode(cl);
+        }
+        
+        LoaderKey(ClassLoader cl, ReferenceQueue<ClassLoader> queue) {
+            super(cl, queue);
+            this.hash = System.identityHashCode(cl);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof LoaderKey)) {
+                return false;
+            }
+            ClassLoader cl = get();
+            return cl != null && cl == ((LoaderKey) obj).get();
+        }
     }
 
 }
@@ -16,17 +16,15 @@
 
 package org.jbpm.executor.impl;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
@@ -41,8 +39,11 @@ import javax.jms.Session;
 import javax.jms.TextMessage;
 import javax.naming.InitialContext;
 
-import org.apache.commons.io.input.ClassLoaderObjectInputStream;
 import org.drools.core.time.TimeUtils;
+import org.drools.persistence.api.TransactionManager;
+import org.drools.persistence.api.TransactionManagerFactory;
+import org.drools.persistence.api.TransactionSynchronization;
+import org.jbpm.executor.ExecutorDataSerializerProvider;
 import org.jbpm.executor.ExecutorNotStartedException;
 import org.jbpm.executor.entities.RequestInfo;
 import org.jbpm.executor.impl.event.ExecutorEventSupport;
@@ -64,6 +65,8 @@ import org.slf4j.LoggerFactory;
  *  <li>thread pool size - default 1 - use system property org.kie.executor.pool.size</li>
  *  <li>retry count - default 3 retries - use system property org.kie.executor.retry.count</li>
  *  <li>execution interval - default 3 seconds - use system property org.kie.executor.interval</li>
+ *  <li>batch size - default 1 - number of jobs claimed at once by single poll - use system property org.kie.executor.batch.size</li>
+ *  <li>worker pool size - default same as thread pool size - number of threads executing claimed jobs when batch size is greater than 1 - use system property org.kie.executor.batch.workers</li>
  * </ul>
  * Additionally executor can be disable to not start at all when system property org.kie.executor.disabled is 
  * set to true
@@ -77,6 +80,10 @@ import org.slf4j.LoggerFactory;
  *  <li>org.kie.executor.jms.cf - JNDI name of connection factory to be used for sending messages</li>
  *  <li>org.kie.executor.jms.queue - JNDI name for destination (usually a queue) to be used to send messages to</li>
  * </ul>
+ * When JMS support is not active, executor can notify its own threads about jobs scheduled for immediate execution
+ * as soon as the transaction that scheduled them is committed, instead of waiting for next poll. Polling is then
+ * only needed for jobs scheduled by other nodes. Enabled by system property org.kie.executor.local.dispatch - 
+ * default set to false.
  */
 public class ExecutorImpl implements Executor {
 
@@ -94,6 +101,8 @@ public class ExecutorImpl implements Executor {
     private int interval = Integer.parseInt(System.getProperty("org.kie.executor.interval", "3"));
     private int initialDelay = Integer.parseInt(System.getProperty("org.kie.executor.initial.delay", "100"));
     private TimeUnit timeunit = TimeUnit.valueOf(System.getProperty("org.kie.executor.timeunit", "SECONDS"));
+    private int batchSize = Integer.parseInt(System.getProperty("org.kie.executor.batch.size", "1"));
+    private int workerPoolSize = Integer.parseInt(System.getProperty("org.kie.executor.batch.workers", String.valueOf(threadPoolSize)));
     
     
     // jms related instances
@@ -103,8 +112,13 @@ public class ExecutorImpl implements Executor {
     private boolean transacted = Boolean.parseBoolean(System.getProperty("org.kie.executor.jms.transacted", "false"));
     private ConnectionFactory connectionFactory;
     private Queue queue;
+    
+    // local (in JVM) dispatch of immediate jobs when JMS is not available
+    private boolean useLocalDispatch = Boolean.parseBoolean(System.getProperty("org.kie.executor.local.dispatch", "false"));
+    private Runnable localDispatcher;
 
 	private ScheduledExecutorService scheduler;
+	private ExecutorService workerPool;
 	
 	private ExecutorEventSupport eventSupport = new ExecutorEventSupport();
 
@@ -162,6 +176,16 @@ public class ExecutorImpl implements Executor {
     public void setQueue(Queue queue) {
         this.queue = queue;
     }
+    
+    
+    public boolean isUseLocalDispatch() {
+        return useLocalDispatch;
+    }
+    
+    
+    public void setUseLocalDispatch(boolean useLocalDispatch) {
+        this.useLocalDispatch = useLocalDispatch;
+    }
 
     /**
      * {@inheritDoc}
@@ -218,6 +242,22 @@ public class ExecutorImpl implements Executor {
 	public void setTimeunit(TimeUnit timeunit) {
 		this.timeunit = timeunit;
 	}
+	
+	public int getBatchSize() {
+	    return batchSize;
+	}
+	
+	public void setBatchSize(int batchSize) {
+	    this.batchSize = batchSize;
+	}
+	
+	public int getWorkerPoolSize() {
+	    return workerPoolSize;
+	}
+	
+	public void setWorkerPoolSize(int workerPoolSize) {
+	    this.workerPoolSize = workerPoolSize;
+	}
 
     /**
      * {@inheritDoc}
@@ -225,17 +265,20 @@ public class ExecutorImpl implements Executor {
     public void init() {
         if (!"true".equalsIgnoreCase(System.getProperty("org.kie.executor.disabled"))) {
             logger.info("Starting Executor Component ...\n" + " \t - Thread Pool Size: {}" + "\n"
-                    + " \t - Interval: {} {} \n" + " \t - Retries per Request: {}\n",
-                    threadPoolSize, interval, timeunit.toString(), retries);
+                    + " \t - Interval: {} {} \n" + " \t - Retries per Request: {}\n" + " \t - Batch Size: {}\n",
+                    threadPoolSize, interval, timeunit.toString(), retries, batchSize);
             
             int delayIncremental = 0;
             
             scheduler = Executors.newScheduledThreadPool(threadPoolSize);
+            if (batchSize > 1 && workerPoolSize > 0) {
+                workerPool = Executors.newFixedThreadPool(workerPoolSize);
+            }
             for (int i = 0; i < threadPoolSize; i++) {
                 long delay = 2000 + delayIncremental;
                 long interval = TimeUnit.MILLISECONDS.convert(this.interval, timeunit);
                 logger.debug("Starting executor thread with initial delay {} interval {} and time unit {}", delay, interval, TimeUnit.MILLISECONDS);
-                handle.add(scheduler.scheduleAtFixedRate(executorStoreService.buildExecutorRunnable(), delay, interval, TimeUnit.MILLISECONDS));
+                handle.add(scheduler.scheduleAtFixedRate(buildExecutorRunnable(), delay, interval, TimeUnit.MILLISECONDS));
                                
                 delayIncremental += this.initialDelay;
                 
@@ -258,6 +301,11 @@ public class ExecutorImpl implements Executor {
                     useJMS = false;
                 }
             }
+            
+            if (!useJMS && useLocalDispatch) {
+                localDispatcher = buildExecutorRunnable();
+                logger.info("Executor local dispatch of jobs activated");
+            }
         } else {
         	throw new ExecutorNotStartedException();
         }
@@ -266,21 +314,30 @@ public class ExecutorImpl implements Executor {
     public void init(ThreadFactory threadFactory) {
         if (!"true".equalsIgnoreCase(System.getProperty("org.kie.executor.disabled"))) {
             logger.info("Starting Executor Component ...\n" + " \t - Thread Pool Size: {}" + "\n"
-                    + " \t - Interval: {}" + " Seconds\n" + " \t - Retries per Request: {}\n",
-                    threadPoolSize, interval, retries);
+                    + " \t - Interval: {}" + " Seconds\n" + " \t - Retries per Request: {}\n" + " \t - Batch Size: {}\n",
+                    threadPoolSize, interval, retries, batchSize);
             
             int delayIncremental = 0;
             
             scheduler = Executors.newScheduledThreadPool(threadPoolSize, threadFactory);
+            if (batchSize > 1 && workerPoolSize > 0) {
+                workerPool = Executors.newFixedThreadPool(workerPoolSize, threadFactory);
+            }
             for (int i = 0; i < threadPoolSize; i++) {
                 
                 long delay = 2000 + delayIncremental;
                 long interval = TimeUnit.MILLISECONDS.convert(this.interval, timeunit);
                 logger.debug("Starting executor thread with initial delay {} interval {} and time unit {}", delay, interval, TimeUnit.MILLISECONDS);
-                handle.add(scheduler.scheduleAtFixedRate(executorStoreService.buildExecutorRunnable(), delay, interval, TimeUnit.MILLISECONDS));
+                handle.add(scheduler.scheduleAtFixedRate(buildExecutorRunnable(), delay, interval, TimeUnit.MILLISECONDS));
                 
                 delayIncremental += this.initialDelay;
             }
+            
+            // jms resources are given explicitly in this mode, local dispatch is only used when jms is disabled
+            if (!useJMS && useLocalDispatch) {
+                localDispatcher = buildExecutorRunnable();
+                logger.info("Executor local dispatch of jobs activated");
+            }
         } else {
         	throw new ExecutorNotStartedException();
         }
@@ -291,6 +348,7 @@ public class ExecutorImpl implements Executor {
      */
     public void destroy() {
         logger.info(" >>>>> Destroying Executor !!!");
+        localDispatcher = null;
         if (handle != null) {
         	for (ScheduledFuture<?> h : handle) {
         		h.cancel(false);
@@ -311,6 +369,26 @@ public class ExecutorImpl implements Executor {
                 
             }            
         }
+        if (workerPool != null) {
+            workerPool.shutdown();
+            try {
+                if (!workerPool.awaitTermination(60, TimeUnit.SECONDS)) {
+                    workerPool.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                
+            }
+            workerPool = null;
+        }
+    }
+    
+    protected Runnable buildExecutorRunnable() {
+        Runnable runnable = executorStoreService.buildExecutorRunnable();
+        if (batchSize > 1 && runnable instanceof ExecutorRunnable) {
+            ((ExecutorRunnable) runnable).setBatchSize(batchSize);
+            ((ExecutorRunnable) runnable).setWorkerPool(workerPool);
+        }
+        return runnable;
     }
 
     /**
@@ -374,10 +452,7 @@ public class ExecutorImpl implements Executor {
         
         if (ctx != null) {
             try {
-                ByteArrayOutputStream bout = new ByteArrayOutputStream();
-                ObjectOutputStream oout = new ObjectOutputStream(bout);
-                oout.writeObject(ctx);
-                requestInfo.setRequestData(bout.toByteArray());
+                requestInfo.setRequestData(ExecutorDataSerializerProvider.get().serialize(ctx));
             } catch (IOException e) {
                 logger.warn("Error serializing context data", e);
                 requestInfo.setRequestData(null);
@@ -398,6 +473,8 @@ public class ExecutorImpl implements Executor {
                 } else {
                     logger.debug("JMS message not sent for job {} as the job should not be executed immediately but at {}", requestInfo.getId(), date);
                 }
+            } else if (localDispatcher != null && System.currentTimeMillis() >= date.getTime()) {
+                dispatchAfterCompletion(requestInfo.getId());
             }
             
             logger.debug("Scheduled request for Command: {} - requestId: {} with {} retries", commandId, requestInfo.getId(), requestInfo.getRetries());
@@ -426,6 +503,48 @@ public class ExecutorImpl implements Executor {
     }
 
     
+    protected void dispatchAfterCompletion(final Long requestId) {
+        try {
+            TransactionManager tm = TransactionManagerFactory.get().newTransactionManager();
+            if (tm != null && tm.getStatus() != TransactionManager.STATUS_NO_TRANSACTION
+                    && tm.getStatus() != TransactionManager.STATUS_ROLLEDBACK
+                    && tm.getStatus() != TransactionManager.STATUS_COMMITTED) {
+                // job can only be picked up once it is visible to other transactions
+                tm.registerTransactionSynchronization(new TransactionSynchronization() {
+                    
+                    @Override
+                    public void beforeCompletion() {        
+                    }
+                    
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status == TransactionManager.STATUS_COMMITTED) {
+                            dispatch(requestId);
+                        }
+                    }
+                });
+            } else {            
+                dispatch(requestId);
+            }
+        } catch (Exception e) {
+            logger.debug("Unable to dispatch job {} locally, it will be picked up by next poll", requestId, e);
+        }
+    }
+    
+    protected void dispatch(Long requestId) {
+        Runnable dispatcher = localDispatcher;
+        ScheduledExecutorService executor = scheduler;
+        if (dispatcher == null || executor == null || executor.isShutdown()) {
+            return;
+        }
+        logger.debug("Dispatching job {} for immediate execution", requestId);
+        try {
+            executor.execute(dispatcher);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Job {} was not dispatched as executor is shutting down", requestId);
+        }
+    }
+    
     protected void sendMessage(String messageBody, int priority) {
         if (connectionFactory == null && queue == null) {
             throw new IllegalStateException("ConnectionFactory and Queue cannot be null");
@@ -489,16 +608,10 @@ public class ExecutorImpl implements Executor {
             logger.debug("Processing Request Id: {}, status {} command {}", request.getId(), request.getStatus(), request.getCommandName());
             byte[] reqData = request.getRequestData();
             if (reqData != null) {
-                ObjectInputStream in = null;
                 try {
-                    in = new ClassLoaderObjectInputStream(cl, new ByteArrayInputStream(reqData));
-                    ctx = (CommandContext) in.readObject();
+                    ctx = (CommandContext) ExecutorDataSerializerProvider.get().deserialize(reqData, cl);
                 } catch (IOException e) {                        
                     logger.warn("Exception while serializing context data", e);
-                } finally {
-                    if (in != null) {
-                        in.close();
-                    }
                 }
             }
         } catch (Exception e) {
@@ -524,10 +637,7 @@ public class ExecutorImpl implements Executor {
         }
         
         try {
-            ByteArrayOutputStream bout = new ByteArrayOutputStream();
-            ObjectOutputStream oout = new ObjectOutputStream(bout);
-            oout.writeObject(ctx);
-            request.setRequestData(bout.toByteArray());
+            request.setRequestData(ExecutorDataSerializerProvider.get().serialize(ctx));
         } catch (IOException e) {
             throw new RuntimeException("Unable to save updated request data", e);
         }
@@ -16,6 +16,8 @@
 
 package org.jbpm.executor.impl;
 
+import java.util.concurrent.ExecutorService;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,15 +33,31 @@ public class ExecutorRunnable implements Runnable {
 
     private AvailableJobsExecutor availableJobsExecutor;       
     
+    private int batchSize = 1;
+    
+    private ExecutorService workerPool;
+    
     public void setAvailableJobsExecutor(AvailableJobsExecutor availableJobsExecutor) {
 		this.availableJobsExecutor = availableJobsExecutor;
 	}
+    
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+    
+    public void setWorkerPool(ExecutorService workerPool) {
+        this.workerPool = workerPool;
+    }
 
     public void run() {
     	try {
     		logger.debug("About to execute jobs...");
     		
-    		this.availableJobsExecutor.executeJob();
+    		if (batchSize > 1) {
+    		    this.availableJobsExecutor.executeJobs(batchSize, workerPool);
+    		} else {
+    		    this.availableJobsExecutor.executeJob();
+    		}
     	} catch (Exception e) {
     		logger.warn("Error while executing jobs due to {}", e.getMessage(), e);
     	}
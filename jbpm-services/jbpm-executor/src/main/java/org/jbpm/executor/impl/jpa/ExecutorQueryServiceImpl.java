@@ -26,6 +26,7 @@ import java.util.Map;
 import javax.persistence.NoResultException;
 
 import org.drools.core.command.impl.ExecutableCommand;
+import org.jbpm.executor.BatchProcessingAware;
 import org.jbpm.shared.services.impl.JpaPersistenceContext;
 import org.jbpm.shared.services.impl.QueryManager;
 import org.kie.api.executor.ErrorInfo;
@@ -45,7 +46,7 @@ import org.kie.internal.runtime.manager.RuntimeManagerRegistry;
  * IMPORTANT: please keep all classes from package org.jbpm.shared.services.impl as FQCN
  * inside method body to avoid exception logged by CDI when used with in memory mode
  */
-public class ExecutorQueryServiceImpl implements ExecutorQueryService {
+public class ExecutorQueryServiceImpl implements ExecutorQueryService, BatchProcessingAware {
 
     private CommandExecutor commandService;
     
@@ -226,6 +227,18 @@ public class ExecutorQueryServiceImpl implements ExecutorQueryService {
         return request;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RequestInfo> getRequestsForProcessing(int batchSize) {
+        
+        // claim all requests of the batch in one transaction, skipping these locked by other executors
+        List<RequestInfo> requests = commandService.execute(new LockAndUpdateRequestInfoBatchCommand(batchSize));
+        
+        return requests;
+    }
+
     private class LockAndUpdateRequestInfoCommand implements ExecutableCommand<RequestInfo> {
 
 		private static final long serialVersionUID = 8670412133363766161L;
@@ -257,6 +270,59 @@ public class ExecutorQueryServiceImpl implements ExecutorQueryService {
 
         
     	
+    }
+    
+    private class LockAndUpdateRequestInfoBatchCommand implements ExecutableCommand<List<RequestInfo>> {
+
+        private static final long serialVersionUID = -2178375419547206438L;
+        
+        private int batchSize;
+        
+        LockAndUpdateRequestInfoBatchCommand(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public List<RequestInfo> execute(Context context) {
+            Date now = new Date();
+            Map<String, Object> params = new HashMap<String, Object>();
+            params.put("now", now);
+            params.put("firstResult", 0);
+            params.put("maxResults", batchSize);
+            params.put("owner", ExecutorService.EXECUTOR_ID);
+            params.put("deploymentId", getDeploymentIds());
+            params.put(JpaPersistenceContext.SKIP_LOCKED, Boolean.TRUE);
+            
+            org.jbpm.shared.services.impl.JpaPersistenceContext ctx = (org.jbpm.shared.services.impl.JpaPersistenceContext) context;
+            List<RequestInfo> requests = ctx.queryAndLockWithParametersInTransaction("PendingRequestsForProcessing",params, false, List.class);
+            if (requests == null || requests.isEmpty()) {
+                return new ArrayList<RequestInfo>();
+            }
+            List<Long> ids = new ArrayList<Long>(requests.size());
+            for (RequestInfo request : requests) {
+                ids.add(request.getId());
+            }
+            // mark all of them as running with single statement instead of merging one by one
+            Map<String, Object> updateParams = new HashMap<String, Object>();
+            updateParams.put("status", STATUS.RUNNING);
+            updateParams.put("time", now);
+            updateParams.put("ids", ids);
+            ctx.executeUpdateString("update RequestInfo r set r.status = :status, r.time = :time where r.id in (:ids)", updateParams);
+            
+            List<RequestInfo> claimed = new ArrayList<RequestInfo>(requests.size());
+            for (RequestInfo request : requests) {
+                // reflect the bulk update on returned instances
+                org.jbpm.executor.entities.RequestInfo claimedRequest = (org.jbpm.executor.entities.RequestInfo) request; 
+                ctx.detach(claimedRequest);
+                claimedRequest.setStatus(STATUS.RUNNING);
+                claimedRequest.setTime(now);
+                claimed.add(claimedRequest);
+            }
+            
+            return claimed;
+        }
+        
     }
     
     private class LockAndUpdateRequestInfoByIdCommand implements ExecutableCommand<RequestInfo> {
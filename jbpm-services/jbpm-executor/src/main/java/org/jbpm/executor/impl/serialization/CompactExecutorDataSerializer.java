@@ -0,0 +1,270 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.executor.impl.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.drools.core.process.instance.impl.WorkItemImpl;
+import org.jbpm.executor.ExecutorDataSerializer;
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutionResults;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * Compact binary serializer of executor data. Uses protobuf variable length encoding (the same as process instance
+ * marshalling) for well known types - strings, numbers, dates, lists, maps and work items - and falls back to
+ * Java serialization only for other values. Data is prefixed with a header that carries format version so it can
+ * be recognized when read.
+ */
+public class CompactExecutorDataSerializer implements ExecutorDataSerializer {
+
+    private static final byte[] HEADER = new byte[] {'K', 'E', 'D'};
+    private static final byte VERSION = 1;
+    
+    private static final int COMMAND_CONTEXT = 1;
+    private static final int EXECUTION_RESULTS = 2;
+    
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int INTEGER = 2;
+    private static final int LONG = 3;
+    private static final int BOOLEAN = 4;
+    private static final int DOUBLE = 5;
+    private static final int FLOAT = 6;
+    private static final int DATE = 7;
+    private static final int LIST = 8;
+    private static final int MAP = 9;
+    private static final int WORK_ITEM = 10;
+    private static final int BYTES = 11;
+    private static final int SERIALIZED = 12;
+    
+    private JavaExecutorDataSerializer fallback = new JavaExecutorDataSerializer();
+
+    @Override
+    public boolean accept(byte[] data) {
+        if (data == null || data.length <= HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if (data[i] != HEADER[i]) {
+                return false;
+            }
+        }
+        return data[HEADER.length] == VERSION;
+    }
+
+    @Override
+    public byte[] serialize(Object data) throws IOException {
+        Map<String, Object> entries = null;
+        int type;
+        if (data instanceof CommandContext) {
+            type = COMMAND_CONTEXT;
+            entries = ((CommandContext) data).getData();
+        } else if (data instanceof ExecutionResults) {
+            type = EXECUTION_RESULTS;
+            entries = ((ExecutionResults) data).getData();
+        } else {
+            throw new IllegalArgumentException("Unsupported executor data type " + data);
+        }
+        
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        bout.write(HEADER);
+        bout.write(VERSION);
+        CodedOutputStream out = CodedOutputStream.newInstance(bout);
+        out.writeUInt32NoTag(type);
+        writeMap(out, entries);
+        out.flush();
+        
+        return bout.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] data, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        if (!accept(data)) {
+            throw new IOException("Data is not in compact executor data format");
+        }
+        CodedInputStream in = CodedInputStream.newInstance(data, HEADER.length + 1, data.length - HEADER.length - 1);
+        in.setSizeLimit(Integer.MAX_VALUE);
+        int type = in.readUInt32();
+        Map<String, Object> entries = readMap(in, classLoader);
+        
+        switch (type) {
+            case COMMAND_CONTEXT:
+                CommandContext ctx = new CommandContext();
+                for (Entry<String, Object> entry : entries.entrySet()) {
+                    ctx.setData(entry.getKey(), entry.getValue());
+                }
+                return ctx;
+            case EXECUTION_RESULTS:
+                ExecutionResults results = new ExecutionResults();
+                for (Entry<String, Object> entry : entries.entrySet()) {
+                    results.setData(entry.getKey(), entry.getValue());
+                }
+                return results;
+            default:
+                throw new IOException("Unknown executor data type " + type);
+        }
+    }
+    
+    protected void writeMap(CodedOutputStream out, Map<String, Object> map) throws IOException {
+        out.writeUInt32NoTag(map.size());
+        for (Entry<String, Object> entry : map.entrySet()) {
+            out.writeStringNoTag(entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+    
+    protected Map<String, Object> readMap(CodedInputStream in, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        int size = in.readUInt32();
+        Map<String, Object> map = new HashMap<String, Object>();
+        for (int i = 0; i < size; i++) {
+            String key = in.readString();
+            map.put(key, readValue(in, classLoader));
+        }
+        return map;
+    }
+    
+    @SuppressWarnings("unchecked")
+    protected void writeValue(CodedOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeUInt32NoTag(NULL);
+            return;
+        }
+        // only exact types are encoded natively so the very same type is restored when reading
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            out.writeUInt32NoTag(STRING);
+            out.writeStringNoTag((String) value);
+        } else if (type == Integer.class) {
+            out.writeUInt32NoTag(INTEGER);
+            out.writeSInt32NoTag((Integer) value);
+        } else if (type == Long.class) {
+            out.writeUInt32NoTag(LONG);
+            out.writeSInt64NoTag((Long) value);
+        } else if (type == Boolean.class) {
+            out.writeUInt32NoTag(BOOLEAN);
+            out.writeBoolNoTag((Boolean) value);
+        } else if (type == Double.class) {
+            out.writeUInt32NoTag(DOUBLE);
+            out.writeDoubleNoTag((Double) value);
+        } else if (type == Float.class) {
+            out.writeUInt32NoTag(FLOAT);
+            out.writeFloatNoTag((Float) value);
+        } else if (type == Date.class) {
+            out.writeUInt32NoTag(DATE);
+            out.writeSInt64NoTag(((Date) value).getTime());
+        } else if (type == byte[].class) {
+            out.writeUInt32NoTag(BYTES);
+            out.writeByteArrayNoTag((byte[]) value);
+        } else if (type == ArrayList.class) {
+            List<Object> list = (List<Object>) value;
+            out.writeUInt32NoTag(LIST);
+            out.writeUInt32NoTag(list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else if (type == HashMap.class && hasStringKeysOnly((Map<?, ?>) value)) {
+            out.writeUInt32NoTag(MAP);
+            writeMap(out, (Map<String, Object>) value);
+        } else if (type == WorkItemImpl.class) {
+            WorkItemImpl workItem = (WorkItemImpl) value;
+            out.writeUInt32NoTag(WORK_ITEM);
+            out.writeSInt64NoTag(workItem.getId());
+            out.writeSInt64NoTag(workItem.getProcessInstanceId());
+            writeValue(out, workItem.getName());
+            out.writeSInt32NoTag(workItem.getState());
+            writeValue(out, workItem.getDeploymentId());
+            out.writeSInt64NoTag(workItem.getNodeId());
+            out.writeSInt64NoTag(workItem.getNodeInstanceId());
+            writeMap(out, workItem.getParameters());
+            writeMap(out, workItem.getResults());
+        } else if (value instanceof Serializable) {
+            out.writeUInt32NoTag(SERIALIZED);
+            out.writeByteArrayNoTag(fallback.serialize(value));
+        } else {
+            throw new IOException("Value " + value + " of type " + type.getName() + " cannot be serialized");
+        }
+    }
+    
+    protected Object readValue(CodedInputStream in, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        int type = in.readUInt32();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return in.readString();
+            case INTEGER:
+                return in.readSInt32();
+            case LONG:
+                return in.readSInt64();
+            case BOOLEAN:
+                return in.readBool();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case DATE:
+                return new Date(in.readSInt64());
+            case BYTES:
+                return in.readByteArray();
+            case LIST:
+                int size = in.readUInt32();
+                List<Object> list = new ArrayList<Object>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in, classLoader));
+                }
+                return list;
+            case MAP:
+                return readMap(in, classLoader);
+            case WORK_ITEM:
+                WorkItemImpl workItem = new WorkItemImpl();
+                workItem.setId(in.readSInt64());
+                workItem.setProcessInstanceId(in.readSInt64());
+                workItem.setName((String) readValue(in, classLoader));
+                workItem.setState(in.readSInt32());
+                workItem.setDeploymentId((String) readValue(in, classLoader));
+                workItem.setNodeId(in.readSInt64());
+                workItem.setNodeInstanceId(in.readSInt64());
+                workItem.setParameters(readMap(in, classLoader));
+                workItem.setResults(readMap(in, classLoader));
+                return workItem;
+            case SERIALIZED:
+                return fallback.deserialize(in.readByteArray(), classLoader);
+            default:
+                throw new IOException("Unknown value type " + type + " in executor data");
+        }
+    }
+    
+    private boolean hasStringKeysOnly(Map<?, ?> map) {
+        for (Object key : map.keySet()) {
+            if (!(key instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.executor.impl.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.apache.commons.io.input.ClassLoaderObjectInputStream;
+import org.jbpm.executor.ExecutorDataSerializer;
+
+/**
+ * Serializer based on Java serialization as used by previous versions of executor, accepts data 
+ * that starts with Java serialization stream header.
+ */
+public class JavaExecutorDataSerializer implements ExecutorDataSerializer {
+
+    private static final byte STREAM_MAGIC_FIRST = (byte) 0xAC;
+    private static final byte STREAM_MAGIC_SECOND = (byte) 0xED;
+
+    @Override
+    public boolean accept(byte[] data) {
+        return data != null && data.length > 1 && data[0] == STREAM_MAGIC_FIRST && data[1] == STREAM_MAGIC_SECOND;
+    }
+
+    @Override
+    public byte[] serialize(Object data) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ObjectOutputStream oout = new ObjectOutputStream(bout);
+        oout.writeObject(data);
+        oout.close();
+        return bout.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] data, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        ObjectInputStream in = null;
+        try {
+            in = new ClassLoaderObjectInputStream(classLoader, new ByteArrayInputStream(data));
+            return in.readObject();
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.jbpm.executor.impl.ExecutorServiceImpl;
+import org.jbpm.executor.impl.jpa.ExecutorQueryServiceImpl;
+import org.jbpm.executor.test.CountDownAsyncJobListener;
+import org.jbpm.shared.services.impl.TransactionalCommandService;
+import org.jbpm.test.util.ExecutorTestUtil;
+import org.jbpm.test.util.PoolingDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutorService;
+import org.kie.api.executor.RequestInfo;
+import org.kie.api.executor.STATUS;
+import org.kie.api.runtime.query.QueryContext;
+
+
+public class BatchedExecutorTest {
+    
+    protected ExecutorService executorService;
+    
+    private PoolingDataSource pds;
+    private EntityManagerFactory emf = null;
+    
+    @Before
+    public void setUp() {
+        System.setProperty("org.kie.executor.batch.size", "10");
+        System.setProperty("org.kie.executor.batch.workers", "4");
+        pds = ExecutorTestUtil.setupPoolingDataSource();
+        emf = Persistence.createEntityManagerFactory("org.jbpm.executor");
+
+        executorService = ExecutorServiceFactory.newExecutorService(emf);
+        executorService.setThreadPoolSize(1);
+        executorService.setInterval(10);
+        executorService.setTimeunit(TimeUnit.SECONDS);
+    }
+    
+    @After
+    public void tearDown() {
+        System.clearProperty("org.kie.executor.batch.size");
+        System.clearProperty("org.kie.executor.batch.workers");
+        executorService.clearAllRequests();
+        executorService.clearAllErrors();
+        
+        executorService.destroy();
+        // executor might not be started by all tests so make sure it is not reused
+        ExecutorServiceFactory.resetExecutorService(executorService);
+        if (emf != null) {
+            emf.close();
+        }
+        pds.close();
+    }
+    
+    protected CountDownAsyncJobListener configureListener(int threads) {
+        CountDownAsyncJobListener countDownListener = new CountDownAsyncJobListener(threads);
+        ((ExecutorServiceImpl) executorService).addAsyncJobListener(countDownListener);
+        
+        return countDownListener;
+    }
+    
+    @Test
+    public void claimRequestsInBatchTest() {
+        ExecutorQueryServiceImpl queryService = new ExecutorQueryServiceImpl(true);
+        queryService.setCommandService(new TransactionalCommandService(emf));
+        
+        for (int i = 0; i < 15; i++) {
+            CommandContext ctxCMD = new CommandContext();
+            ctxCMD.setData("businessKey", UUID.randomUUID().toString());
+            executorService.scheduleRequest("org.jbpm.executor.commands.PrintOutCommand", ctxCMD);
+        }
+        
+        List<RequestInfo> claimed = queryService.getRequestsForProcessing(10);
+        assertEquals(10, claimed.size());
+        for (RequestInfo request : claimed) {
+            assertEquals(STATUS.RUNNING, request.getStatus());
+        }
+        assertEquals(10, executorService.getRunningRequests(new QueryContext()).size());
+        
+        claimed = queryService.getRequestsForProcessing(10);
+        assertEquals(5, claimed.size());
+        
+        claimed = queryService.getRequestsForProcessing(10);
+        assertEquals(0, claimed.size());
+        assertEquals(15, executorService.getRunningRequests(new QueryContext()).size());
+    }
+   
+    @Test(timeout=10000)
+    public void batchedExecutionTest() throws InterruptedException {
+        CountDownAsyncJobListener countDownListener = configureListener(25);
+        for (int i = 0; i < 25; i++) {
+            CommandContext ctxCMD = new CommandContext();
+            ctxCMD.setData("businessKey", UUID.randomUUID().toString());
+            executorService.scheduleRequest("org.jbpm.executor.commands.PrintOutCommand", ctxCMD);
+        }
+        // all jobs are expected to be processed within the first poll as full batches are drained
+        executorService.init();
+
+        countDownListener.waitTillCompleted();
+
+        List<RequestInfo> inErrorRequests = executorService.getInErrorRequests(new QueryContext());
+        assertEquals(0, inErrorRequests.size());
+        List<RequestInfo> queuedRequests = executorService.getQueuedRequests(new QueryContext());
+        assertEquals(0, queuedRequests.size());
+        List<RequestInfo> executedRequests = executorService.getCompletedRequests(new QueryContext());
+        assertEquals(25, executedRequests.size());
+    }   
+}
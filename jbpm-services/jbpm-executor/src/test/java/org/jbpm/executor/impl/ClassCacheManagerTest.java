@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.kie.api.executor.Command;
+import org.kie.api.executor.CommandCallback;
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutionResults;
+import org.kie.internal.runtime.Closeable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ClassCacheManagerTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ClassCacheManagerTest.class);
+    
+    private static final String COMMAND = "org.jbpm.executor.commands.PrintOutCommand";
+    private static final String CALLBACKS = "org.jbpm.executor.SimpleIncrementCallback, org.jbpm.executor.test.CustomCallback";
+
+    @Test
+    public void testInstancesCachedPerClassLoader() {
+        ClassCacheManager classCacheManager = new ClassCacheManager();
+        ClassLoader first = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        ClassLoader second = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        
+        Command firstCommand = classCacheManager.findCommand(COMMAND, first);
+        Command secondCommand = classCacheManager.findCommand(COMMAND, second);
+        assertNotSame(firstCommand, secondCommand);
+        
+        // alternating deployments must not evict each other
+        for (int i = 0; i < 10; i++) {
+            assertSame(firstCommand, classCacheManager.findCommand(COMMAND, first));
+            assertSame(secondCommand, classCacheManager.findCommand(COMMAND, second));
+        }
+        
+        CommandCallback callback = classCacheManager.findCommandCallback("org.jbpm.executor.SimpleIncrementCallback", first);
+        assertSame(callback, classCacheManager.findCommandCallback("org.jbpm.executor.SimpleIncrementCallback", first));
+    }
+    
+    @Test
+    public void testCallbackListCached() {
+        ClassCacheManager classCacheManager = new ClassCacheManager();
+        CommandContext ctx = new CommandContext();
+        ctx.setData("callbacks", CALLBACKS);
+        
+        List<CommandCallback> callbacks = classCacheManager.buildCommandCallback(ctx, getClass().getClassLoader());
+        assertEquals(2, callbacks.size());
+        List<CommandCallback> cached = classCacheManager.buildCommandCallback(ctx, getClass().getClassLoader());
+        assertSame(callbacks.get(0), cached.get(0));
+        assertSame(callbacks.get(1), cached.get(1));
+        
+        assertEquals(0, classCacheManager.buildCommandCallback(new CommandContext(), getClass().getClassLoader()).size());
+    }
+    
+    @Test
+    public void testEvictClosesInstances() {
+        ClassCacheManager classCacheManager = new ClassCacheManager();
+        ClassLoader first = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        ClassLoader second = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        
+        CloseableCommand firstCommand = (CloseableCommand) classCacheManager.findCommand(CloseableCommand.class.getName(), first);
+        CloseableCommand secondCommand = (CloseableCommand) classCacheManager.findCommand(CloseableCommand.class.getName(), second);
+        
+        classCacheManager.evict(first);
+        assertTrue(firstCommand.isClosed());
+        assertFalse(secondCommand.isClosed());
+        assertNotSame(firstCommand, classCacheManager.findCommand(CloseableCommand.class.getName(), first));
+        assertSame(secondCommand, classCacheManager.findCommand(CloseableCommand.class.getName(), second));
+        
+        classCacheManager.dispose();
+        assertTrue(secondCommand.isClosed());
+    }
+    
+    @Test(timeout=60000)
+    public void testConcurrentLookups() throws Exception {
+        final ClassCacheManager classCacheManager = new ClassCacheManager();
+        final ClassLoader[] classLoaders = new ClassLoader[] {
+                new URLClassLoader(new URL[0], getClass().getClassLoader()),
+                new URLClassLoader(new URL[0], getClass().getClassLoader()),
+                new URLClassLoader(new URL[0], getClass().getClassLoader()),
+                new URLClassLoader(new URL[0], getClass().getClassLoader())};
+        final CommandContext ctx = new CommandContext();
+        ctx.setData("callbacks", CALLBACKS);
+        
+        int threads = 16;
+        final int iterations = 100000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> results = new ArrayList<Future<Long>>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(new Callable<Long>() {
+
+                @Override
+                public Long call() throws Exception {
+                    long found = 0;
+                    for (int i = 0; i < iterations; i++) {
+                        ClassLoader cl = classLoaders[i % classLoaders.length];
+                        if (classCacheManager.findCommand(COMMAND, cl) != null) {
+                            found++;
+                        }
+                        found += classCacheManager.buildCommandCallback(ctx, cl).size();
+                    }
+                    return found;
+                }
+            }));
+        }
+        long total = 0;
+        for (Future<Long> result : results) {
+            total += result.get();
+        }
+        long duration = System.nanoTime() - start;
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        logger.info("{} threads performed {} lookups in {} ms", threads, threads * iterations * 2, duration / 1000000);
+        
+        assertEquals((long) threads * iterations * 3, total);
+        for (ClassLoader cl : classLoaders) {
+            assertSame(classCacheManager.findCommand(COMMAND, cl), classCacheManager.findCommand(COMMAND, cl));
+        }
+    }
+    
+    public static class CloseableCommand implements Command, Closeable {
+        
+        private boolean closed;
+
+        @Override
+        public ExecutionResults execute(CommandContext ctx) throws Exception {
+            return new ExecutionResults();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+        
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+}
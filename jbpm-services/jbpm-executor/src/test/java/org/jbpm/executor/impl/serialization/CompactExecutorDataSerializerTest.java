@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.drools.core.process.instance.impl.WorkItemImpl;
+import org.jbpm.executor.ExecutorDataSerializerProvider;
+import org.junit.Test;
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutionResults;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class CompactExecutorDataSerializerTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CompactExecutorDataSerializerTest.class);
+    
+    private CompactExecutorDataSerializer compact = new CompactExecutorDataSerializer();
+    private JavaExecutorDataSerializer java = new JavaExecutorDataSerializer();
+
+    @Test
+    public void testRoundTripWorkItemContext() throws Exception {
+        CommandContext ctx = buildWorkItemContext();
+        
+        byte[] data = compact.serialize(ctx);
+        assertTrue(compact.accept(data));
+        assertFalse(java.accept(data));
+        
+        CommandContext restored = (CommandContext) compact.deserialize(data, getClass().getClassLoader());
+        assertEquals(ctx.getData("businessKey"), restored.getData("businessKey"));
+        assertEquals(ctx.getData("processInstanceId"), restored.getData("processInstanceId"));
+        assertEquals(ctx.getData("retries"), restored.getData("retries"));
+        assertEquals(ctx.getData("retryDelay"), restored.getData("retryDelay"));
+        assertEquals(ctx.getData("scheduled"), restored.getData("scheduled"));
+        assertEquals(ctx.getData("amount"), restored.getData("amount"));
+        
+        WorkItemImpl workItem = (WorkItemImpl) ctx.getData("workItem");
+        WorkItemImpl restoredWorkItem = (WorkItemImpl) restored.getData("workItem");
+        assertEquals(workItem.getId(), restoredWorkItem.getId());
+        assertEquals(workItem.getName(), restoredWorkItem.getName());
+        assertEquals(workItem.getProcessInstanceId(), restoredWorkItem.getProcessInstanceId());
+        assertEquals(workItem.getDeploymentId(), restoredWorkItem.getDeploymentId());
+        assertEquals(workItem.getNodeInstanceId(), restoredWorkItem.getNodeInstanceId());
+        assertEquals(workItem.getParameters(), restoredWorkItem.getParameters());
+    }
+    
+    @Test
+    public void testRoundTripExecutionResults() throws Exception {
+        ExecutionResults results = new ExecutionResults();
+        results.setData("Result", "done");
+        results.setData("count", 10);
+        results.setData("items", new ArrayList<String>(Arrays.asList("one", "two")));
+        
+        byte[] data = compact.serialize(results);
+        ExecutionResults restored = (ExecutionResults) compact.deserialize(data, getClass().getClassLoader());
+        assertEquals(results.getData(), restored.getData());
+    }
+    
+    @Test
+    public void testReadLegacyJavaSerializedData() throws Exception {
+        CommandContext ctx = buildWorkItemContext();
+        
+        byte[] legacy = java.serialize(ctx);
+        assertTrue(java.accept(legacy));
+        assertFalse(compact.accept(legacy));
+        
+        CommandContext restored = (CommandContext) ExecutorDataSerializerProvider.get().deserialize(legacy, getClass().getClassLoader());
+        assertEquals(ctx.getData("businessKey"), restored.getData("businessKey"));
+        assertEquals(((WorkItemImpl) ctx.getData("workItem")).getParameters(), ((WorkItemImpl) restored.getData("workItem")).getParameters());
+    }
+    
+    @Test
+    public void testJavaSerializationUsedByDefault() throws Exception {
+        assertTrue(ExecutorDataSerializerProvider.get().getSerializer() instanceof JavaExecutorDataSerializer);
+
+        // data written by the opt-in compact serializer is still readable
+        CommandContext ctx = buildWorkItemContext();
+        CommandContext restored = (CommandContext) ExecutorDataSerializerProvider.get().deserialize(compact.serialize(ctx), getClass().getClassLoader());
+        assertEquals(ctx.getData("businessKey"), restored.getData("businessKey"));
+    }
+
+    @Test
+    public void testCompactPayloadSize() throws Exception {
+        CommandContext ctx = buildWorkItemContext();
+        
+        int iterations = 10000;
+        byte[] compactData = null;
+        byte[] javaData = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            compactData = compact.serialize(ctx);
+            compact.deserialize(compactData, getClass().getClassLoader());
+        }
+        long compactTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            javaData = java.serialize(ctx);
+            java.deserialize(javaData, getClass().getClassLoader());
+        }
+        long javaTime = System.nanoTime() - start;
+        logger.info("Compact serializer {} bytes in {} ms, Java serialization {} bytes in {} ms for {} iterations",
+                compactData.length, compactTime / 1000000, javaData.length, javaTime / 1000000, iterations);
+        
+        assertTrue(compactData.length < javaData.length);
+    }
+    
+    private CommandContext buildWorkItemContext() {
+        WorkItemImpl workItem = new WorkItemImpl();
+        workItem.setId(10);
+        workItem.setName("async");
+        workItem.setProcessInstanceId(5);
+        workItem.setDeploymentId("org.jbpm:test:1.0");
+        workItem.setNodeInstanceId(3);
+        workItem.setNodeId(2);
+        workItem.setParameter("CommandClass", "org.jbpm.executor.commands.PrintOutCommand");
+        workItem.setParameter("name", "john");
+        workItem.setParameter("age", 25);
+        
+        Map<String, Object> nested = new HashMap<String, Object>();
+        nested.put("street", "Main");
+        nested.put("number", 1L);
+        workItem.setParameter("address", nested);
+        
+        List<Long> retryDelay = new ArrayList<Long>();
+        retryDelay.add(1000L);
+        retryDelay.add(5000L);
+        
+        CommandContext ctx = new CommandContext();
+        ctx.setData("businessKey", UUID.randomUUID().toString());
+        ctx.setData("workItem", workItem);
+        ctx.setData("processInstanceId", 5L);
+        ctx.setData("deploymentId", "org.jbpm:test:1.0");
+        ctx.setData("retries", 3);
+        ctx.setData("retryDelay", retryDelay);
+        ctx.setData("scheduled", new Date());
+        ctx.setData("amount", new BigDecimal("1250.75"));
+        
+        return ctx;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.kie.services.impl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of class path scan results (names of classes found by the scan) keyed by checksum of the
+ * scanned class path. The checksum covers location, size and modification time of every entry, so
+ * redeploying an unchanged kjar with unchanged dependencies reuses the previous result.
+ * <p>
+ * Results are always kept in memory, in addition they are stored in directory given by system property
+ * <code>org.jbpm.deploy.scan.cache.dir</code> (when set) to survive restarts.
+ */
+public class DeploymentScanCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeploymentScanCache.class);
+
+    private static final DeploymentScanCache INSTANCE = new DeploymentScanCache(System.getProperty("org.jbpm.deploy.scan.cache.dir"));
+
+    private final ConcurrentMap<String, List<String>> results = new ConcurrentHashMap<String, List<String>>();
+    private final File directory;
+
+    public static DeploymentScanCache get() {
+        return INSTANCE;
+    }
+
+    public DeploymentScanCache(String directory) {
+        this.directory = directory == null ? null : new File(directory);
+    }
+
+    /**
+     * Computes checksum of given class path, returns null if any of the entries cannot be checked
+     * (e.g. is not a local file) and thus must not be cached.
+     */
+    public String checksum(URL[] urls) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (URL url : urls) {
+                if (!"file".equals(url.getProtocol())) {
+                    return null;
+                }
+                File file = new File(url.toURI());
+                digest.update(file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+                if (file.isDirectory()) {
+                    // content of exploded directories might change without changing the directory itself
+                    return null;
+                }
+                digest.update(Long.toString(file.length()).getBytes(StandardCharsets.UTF_8));
+                digest.update(Long.toString(file.lastModified()).getBytes(StandardCharsets.UTF_8));
+            }
+            StringBuilder checksum = new StringBuilder();
+            for (byte b : digest.digest()) {
+                checksum.append(String.format("%02x", b));
+            }
+            return checksum.toString();
+        } catch (NoSuchAlgorithmException | URISyntaxException | IllegalArgumentException e) {
+            logger.debug("Unable to compute checksum of class path due to {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public Collection<String> getClassNames(String checksum) {
+        if (checksum == null) {
+            return null;
+        }
+        List<String> classNames = results.get(checksum);
+        if (classNames == null && directory != null) {
+            File file = new File(directory, checksum);
+            if (file.isFile()) {
+                try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    classNames = new ArrayList<String>();
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.isEmpty()) {
+                            classNames.add(line);
+                        }
+                    }
+                    classNames = Collections.unmodifiableList(classNames);
+                    results.putIfAbsent(checksum, classNames);
+                } catch (IOException e) {
+                    logger.warn("Unable to read class path scan cache {} due to {}", file, e.getMessage());
+                    return null;
+                }
+            }
+        }
+        return classNames;
+    }
+
+    public void putClassNames(String checksum, Collection<String> classNames) {
+        if (checksum == null) {
+            return;
+        }
+        List<String> names = Collections.unmodifiableList(new ArrayList<String>(classNames));
+        results.put(checksum, names);
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory.toPath());
+                File tmp = File.createTempFile(checksum, ".tmp", directory);
+                try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                    for (String name : names) {
+                        writer.write(name);
+                        writer.newLine();
+                    }
+                }
+                Files.move(tmp.toPath(), new File(directory, checksum).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                logger.warn("Unable to store class path scan cache in {} due to {}", directory, e.getMessage());
+            }
+        }
+    }
+
+    public void clear() {
+        results.clear();
+    }
+}
@@ -21,12 +21,22 @@ import java.io.UnsupportedEncodingException;
 import java.lang.annotation.Annotation;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.persistence.EntityManagerFactory;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlType;
@@ -35,7 +45,6 @@ import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
-import org.apache.commons.codec.binary.Base64;
 import org.drools.compiler.kie.builder.impl.InternalKieModule;
 import org.drools.compiler.kie.builder.impl.KieContainerImpl;
 import org.appformer.maven.support.DependencyFilter;
@@ -46,6 +55,7 @@ import org.drools.core.util.StringUtils;
 import org.jbpm.kie.services.impl.bpmn2.ProcessDescriptor;
 import org.jbpm.kie.services.impl.model.ProcessAssetDesc;
 import org.jbpm.process.audit.event.AuditEventBuilder;
+import org.jbpm.process.core.impl.ProcessImpl;
 import org.jbpm.runtime.manager.impl.KModuleRegisterableItemsFactory;
 import org.jbpm.runtime.manager.impl.deploy.DeploymentDescriptorImpl;
 import org.jbpm.runtime.manager.impl.deploy.DeploymentDescriptorManager;
@@ -62,6 +72,7 @@ import org.kie.api.KieServices;
 import org.kie.api.builder.ReleaseId;
 import org.kie.api.builder.model.KieBaseModel;
 import org.kie.api.executor.ExecutorService;
+import org.kie.api.io.Resource;
 import org.kie.api.marshalling.ObjectMarshallingStrategy;
 import org.kie.api.remote.Remotable;
 import org.kie.api.runtime.EnvironmentName;
@@ -102,6 +113,18 @@ public class KModuleDeploymentService extends AbstractDeploymentService {
 
     protected XPathExpression processIdXPathExpression;
 
+    protected boolean parallelDeployment = Boolean.parseBoolean(System.getProperty("org.jbpm.deploy.parallel", "true"));
+
+    protected int parallelDeploymentThreads = Integer.parseInt(System.getProperty("org.jbpm.deploy.parallel.threads",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+    // executor used to prepare deployment resources, when not given (e.g. container managed) an own bounded pool is created
+    protected Executor deploymentExecutor;
+
+    private ThreadPoolExecutor ownDeploymentExecutor;
+
+    protected DeploymentScanCache scanCache = DeploymentScanCache.get();
+
     public KModuleDeploymentService() {
         try {
             processIdXPathExpression = XPathFactory.newInstance().newXPath().compile(PROCESS_ID_XPATH);
@@ -160,14 +183,21 @@ public class KModuleDeploymentService extends AbstractDeploymentService {
 
             KieBase kbase = kieContainer.getKieBase(kbaseName);
             Map<String, ProcessDescriptor> processDescriptors = new HashMap<String, ProcessDescriptor>();
+            Map<String, String> processIdsByPath = new HashMap<String, String>();
             for (org.kie.api.definition.process.Process process : kbase.getProcesses()) {
                 processDescriptors.put(process.getId(), (ProcessDescriptor) process.getMetaData().get("ProcessDescriptor"));
+                if (process instanceof ProcessImpl) {
+                    Resource resource = ((ProcessImpl) process).getResource();
+                    if (resource != null && resource.getSourcePath() != null) {
+                        processIdsByPath.put(resource.getSourcePath(), process.getId());
+                    }
+                }
             }
 
             // TODO: add forms data?
             Collection<String> files = module.getFileNames();
 
-            processResources(module, files, kieContainer, kmoduleUnit, deployedUnit, releaseId, processDescriptors);
+            processResources(module, files, kieContainer, kmoduleUnit, deployedUnit, releaseId, processDescriptors, processIdsByPath);
 
             // process the files in the deployment
             if (module.getKieDependencies() != null) {
@@ -177,7 +207,7 @@ public class KModuleDeploymentService extends AbstractDeploymentService {
     	        	logger.debug("Processing dependency module " + depModule.getReleaseId());
     	        	files = depModule.getFileNames();
 
-    	        	processResources(depModule, files, kieContainer, kmoduleUnit, deployedUnit, depModule.getReleaseId(), processDescriptors);
+    	        	processResources(depModule, files, kieContainer, kmoduleUnit, deployedUnit, depModule.getReleaseId(), processDescriptors, processIdsByPath);
     	        }
             }
             Collection<ReleaseId> dependencies = module.getJarDependencies(new DependencyFilter.ExcludeScopeFilter("test", "provided"));
@@ -354,50 +384,112 @@ public class KModuleDeploymentService extends AbstractDeploymentService {
      */
 	protected void processResources(InternalKieModule module, Collection<String> files,
     		KieContainer kieContainer, DeploymentUnit unit, DeployedUnitImpl deployedUnit, ReleaseId releaseId, Map<String, ProcessDescriptor> processes) {
-        for (String fileName : files) {
-            if(fileName.matches(".+bpmn[2]?$")) {
-                ProcessAssetDesc process;
+	    processResources(module, files, kieContainer, unit, deployedUnit, releaseId, processes, Collections.<String, String>emptyMap());
+	}
+
+    /**
+     * Goes through all files in a deployment, and processes them so that they are then ready
+     * for use after deployment.
+     * </p>
+     * Files are read and classes loaded in parallel (unless disabled with <code>org.jbpm.deploy.parallel</code>
+     * system property) on the deployment executor, results are then registered in the order of given files.
+     *
+     * @param module The {@link InternalKieModule}, necessary to get form content
+     * @param files The {@link List} of file (names) to process.
+     * @param kieContainer The {@link KieContainer}, necesary in order to load classes
+     * @param deploymentUnit The {@link DeploymentUnit}, necessary to get the deployment id
+     * @param deployedUnit The {@link DeployedUnit}, which contains the results of actions here
+     * @param processIdsByPath process ids of processes in the kbase by their resource path, processes not found
+     * there are resolved from their source
+     */
+    protected void processResources(InternalKieModule module, Collection<String> files,
+            KieContainer kieContainer, DeploymentUnit unit, DeployedUnitImpl deployedUnit, ReleaseId releaseId,
+            Map<String, ProcessDescriptor> processes, Map<String, String> processIdsByPath) {
+        List<DeploymentResource> resources = new ArrayList<DeploymentResource>(files.size());
+        if (parallelDeployment && files.size() > 1) {
+            Executor executor = getDeploymentExecutor();
+            List<CompletableFuture<DeploymentResource>> futures = new ArrayList<CompletableFuture<DeploymentResource>>(files.size());
+            for (String fileName : files) {
+                futures.add(CompletableFuture.supplyAsync(() -> prepareResource(module, fileName, kieContainer, processes, processIdsByPath), executor));
+            }
+            try {
+                for (CompletableFuture<DeploymentResource> future : futures) {
+                    resources.add(future.join());
+                }
+            } catch (CompletionException e) {
+                futures.forEach(future -> future.cancel(false));
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                } else if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        } else {
+            for (String fileName : files) {
+                resources.add(prepareResource(module, fileName, kieContainer, processes, processIdsByPath));
+            }
+        }
+        resources.removeIf(resource -> resource == null);
+
+        for (DeploymentResource resource : resources) {
+            if (resource.processDescriptor != null) {
+                ProcessAssetDesc process = resource.processDescriptor.getProcess();
+                String fileName = resource.fileName;
+                // encoded source is loaded on demand to not keep another copy of the process in memory
+                process.setProcessSourceSupplier(() -> module.getBytes(fileName));
+                process.setDeploymentId(unit.getIdentifier());
+
+                deployedUnit.addAssetLocation(process.getId(), process);
+                bpmn2Service.addProcessDefinition(unit.getIdentifier(), process.getId(), resource.processDescriptor, kieContainer);
+            } else if (resource.formContent != null) {
+                String formName = resource.fileName;
+                if (formName.indexOf( "/" ) != -1) formName = formName.substring( formName.lastIndexOf( "/" ) + 1);
+                formManagerService.registerForm(unit.getIdentifier(), formName, resource.formContent);
+            } else if (resource.deploymentClass != null) {
+                // Classes 1: classes from deployment added
+                addClassToDeployedUnit(resource.deploymentClass, deployedUnit);
+            }
+        }
+    }
+
+    protected DeploymentResource prepareResource(InternalKieModule module, String fileName, KieContainer kieContainer,
+            Map<String, ProcessDescriptor> processes, Map<String, String> processIdsByPath) {
+        if(fileName.matches(".+bpmn[2]?$")) {
+            String processId = processIdsByPath.get(fileName);
+            if (processId == null) {
                 try {
-                    String processString = new String(module.getBytes(fileName), "UTF-8");
-                    String processId = getProcessId(processString);
-                    ProcessDescriptor processDesriptor = processes.get(processId);
-                    if (processDesriptor != null) {
-                        process = processDesriptor.getProcess();
-                        if (process == null) {
-                            throw new IllegalArgumentException("Unable to read process " + fileName);
-                        }
-                        process.setEncodedProcessSource(Base64.encodeBase64String(processString.getBytes()));
-                        process.setDeploymentId(unit.getIdentifier());
-
-                        deployedUnit.addAssetLocation(process.getId(), process);
-                        bpmn2Service.addProcessDefinition(unit.getIdentifier(), processId, processDesriptor, kieContainer);
-                    }
+                    processId = getProcessId(new String(module.getBytes(fileName), "UTF-8"));
                 } catch (UnsupportedEncodingException e) {
                     throw new IllegalArgumentException("Unsupported encoding while processing process " + fileName);
                 }
-            } else if (fileName.matches(".+ftl$") || fileName.matches(".+form$") || fileName.matches( ".+frm$" )) {
-                try {
-                    String formContent = new String(module.getBytes(fileName), "UTF-8");
-                    if (fileName.indexOf( "/" ) != -1) fileName = fileName.substring( fileName.lastIndexOf( "/" ) + 1);
-                    formManagerService.registerForm(unit.getIdentifier(), fileName, formContent);
-                } catch (UnsupportedEncodingException e) {
-                	throw new IllegalArgumentException("Unsupported encoding while processing form " + fileName);
+            }
+            ProcessDescriptor processDesriptor = processes.get(processId);
+            if (processDesriptor != null) {
+                if (processDesriptor.getProcess() == null) {
+                    throw new IllegalArgumentException("Unable to read process " + fileName);
                 }
-            } else if( fileName.matches(".+class$")) {
-                // Classes 1: classes from deployment added
-                String className = fileName.replaceAll("/", ".");
-                className = className.substring(0, fileName.length() - ".class".length());
-                Class deploymentClass = null;
-                try {
-                    deploymentClass = kieContainer.getClassLoader().loadClass(className);
-                } catch (ClassNotFoundException cnfe) {
-                    throw new IllegalArgumentException("Class " + className + " not found in the project");
-                } catch (NoClassDefFoundError e) {
-                	throw new IllegalArgumentException("Class " + className + " not found in the project");
-				}
-                addClassToDeployedUnit(deploymentClass, deployedUnit);
+                return new DeploymentResource(fileName, processDesriptor, null, null);
             }
+        } else if (fileName.matches(".+ftl$") || fileName.matches(".+form$") || fileName.matches( ".+frm$" )) {
+            try {
+                String formContent = new String(module.getBytes(fileName), "UTF-8");
+                return new DeploymentResource(fileName, null, formContent, null);
+            } catch (UnsupportedEncodingException e) {
+            	throw new IllegalArgumentException("Unsupported encoding while processing form " + fileName);
+            }
+        } else if( fileName.matches(".+class$")) {
+            String className = fileName.replaceAll("/", ".");
+            className = className.substring(0, fileName.length() - ".class".length());
+            try {
+                return new DeploymentResource(fileName, null, null, kieContainer.getClassLoader().loadClass(className));
+            } catch (ClassNotFoundException cnfe) {
+                throw new IllegalArgumentException("Class " + className + " not found in the project");
+            } catch (NoClassDefFoundError e) {
+            	throw new IllegalArgumentException("Class " + className + " not found in the project");
+			}
         }
+        return null;
     }
 
 	protected void addClassToDeployedUnit(Class deploymentClass, DeployedUnitImpl deployedUnit) {
@@ -433,21 +525,40 @@ public class KModuleDeploymentService extends AbstractDeploymentService {
 				if (urls == null || urls.length == 0) {
 					return;
 				}
-				ConfigurationBuilder builder = new ConfigurationBuilder();
-				builder.addUrls(urls);
-				builder.addClassLoader(kieContainer.getClassLoader());
-
-				Reflections reflections = new Reflections(builder);
-
-				Set<Class<?>> xmlRootElemClasses = reflections.getTypesAnnotatedWith(XmlRootElement.class);
-				Set<Class<?>> xmlTypeClasses = reflections.getTypesAnnotatedWith(XmlType.class);
-				Set<Class<?>> remoteableClasses = reflections.getTypesAnnotatedWith(Remotable.class);
-
+				String checksum = scanCache.checksum(urls);
+				Collection<String> cachedClassNames = scanCache.getClassNames(checksum);
 				Set<Class<?>> allClasses = new HashSet<Class<?>>();
-				for( Set<Class<?>> classesToAdd : new Set[] { xmlRootElemClasses, xmlTypeClasses, remoteableClasses } ) {
-				   if( classesToAdd != null ) {
-				       allClasses.addAll(classesToAdd);
-				   }
+				if (cachedClassNames != null) {
+				    logger.debug("Using cached class path scan results for deployment {}", deployedUnit.getDeploymentUnit().getIdentifier());
+				    for (String className : cachedClassNames) {
+				        try {
+				            allClasses.add(kieContainer.getClassLoader().loadClass(className));
+				        } catch (ClassNotFoundException | NoClassDefFoundError e) {
+				            logger.debug("Class {} found by previous scan is not available, ignoring", className);
+				        }
+				    }
+				} else {
+					ConfigurationBuilder builder = new ConfigurationBuilder();
+					builder.addUrls(urls);
+					builder.addClassLoader(kieContainer.getClassLoader());
+
+					Reflections reflections = new Reflections(builder);
+
+					Set<Class<?>> xmlRootElemClasses = reflections.getTypesAnnotatedWith(XmlRootElement.class);
+					Set<Class<?>> xmlTypeClasses = reflections.getTypesAnnotatedWith(XmlType.class);
+					Set<Class<?>> remoteableClasses = reflections.getTypesAnnotatedWith(Remotable.class);
+
+					for( Set<Class<?>> classesToAdd : new Set[] { xmlRootElemClasses, xmlTypeClasses, remoteableClasses } ) {
+					   if( classesToAdd != null ) {
+					       allClasses.addAll(classesToAdd);
+					   }
+					}
+
+					List<String> classNames = new ArrayList<String>(allClasses.size());
+					for (Class<?> clazz : allClasses) {
+					    classNames.add(clazz.getName());
+					}
+					scanCache.putClassNames(checksum, classNames);
 				}
 
 				for (Class<?> clazz : allClasses) {
@@ -507,6 +618,47 @@ public class KModuleDeploymentService extends AbstractDeploymentService {
         }
     }
 
+    public void setParallelDeployment(boolean parallelDeployment) {
+        this.parallelDeployment = parallelDeployment;
+    }
+
+    /**
+     * Sets executor used to prepare deployment resources in parallel, usually a container managed one.
+     * When not set a bounded pool of <code>org.jbpm.deploy.parallel.threads</code> threads is created on demand
+     * and shut down together with this service.
+     */
+    public void setDeploymentExecutor(Executor deploymentExecutor) {
+        this.deploymentExecutor = deploymentExecutor;
+    }
+
+    protected synchronized Executor getDeploymentExecutor() {
+        if (deploymentExecutor == null) {
+            ownDeploymentExecutor = new ThreadPoolExecutor(parallelDeploymentThreads, parallelDeploymentThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new DeploymentThreadFactory());
+            ownDeploymentExecutor.allowCoreThreadTimeOut(true);
+            deploymentExecutor = ownDeploymentExecutor;
+        }
+        return deploymentExecutor;
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        synchronized (this) {
+            if (ownDeploymentExecutor != null) {
+                ownDeploymentExecutor.shutdownNow();
+                if (deploymentExecutor == ownDeploymentExecutor) {
+                    deploymentExecutor = null;
+                }
+                ownDeploymentExecutor = null;
+            }
+        }
+    }
+
+    public void setScanCache(DeploymentScanCache scanCache) {
+        this.scanCache = scanCache;
+    }
+
 	public void setBpmn2Service(DefinitionService bpmn2Service) {
 	    this.bpmn2Service = bpmn2Service;
 	}
@@ -554,13 +706,43 @@ public class KModuleDeploymentService extends AbstractDeploymentService {
 
 	    try {
 	        InputSource inputSource = new InputSource(new StringReader(processSource));
-	        String processId = (String) processIdXPathExpression.evaluate(inputSource, XPathConstants.STRING);
-
-            return processId;
+	        // XPath expressions are not thread safe and resources are processed in parallel
+	        synchronized (processIdXPathExpression) {
+	            return (String) processIdXPathExpression.evaluate(inputSource, XPathConstants.STRING);
+	        }
         } catch (XPathExpressionException e) {
             logger.error("Unable to find process id from process source due to {}", e.getMessage());
             return null;
         }
 	}
 
+    /**
+     * Result of reading single file of the deployment - either a process, form or class.
+     */
+    protected static class DeploymentResource {
+
+        private final String fileName;
+        private final ProcessDescriptor processDescriptor;
+        private final String formContent;
+        private final Class<?> deploymentClass;
+
+        protected DeploymentResource(String fileName, ProcessDescriptor processDescriptor, String formContent, Class<?> deploymentClass) {
+            this.fileName = fileName;
+            this.processDescriptor = processDescriptor;
+            this.formContent = formContent;
+            this.deploymentClass = deploymentClass;
+        }
+    }
+
+    private static class DeploymentThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "jbpm-deployment-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
@@ -0,0 +1,427 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.kie.services.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.jbpm.kie.services.impl.model.ProcessAssetDesc;
+import org.jbpm.services.api.model.ProcessDefinition;
+import org.kie.api.runtime.query.QueryContext;
+
+/**
+ * In memory catalog of deployed process definitions used by <code>RuntimeDataServiceImpl</code>.
+ * <p>
+ * Definitions are indexed by deployment id, process id, role and by trigrams of (lower cased) process id and name
+ * to serve filter queries. Sorted views for supported orderings (<code>ProcessName</code>, <code>ProcessVersion</code>
+ * and <code>Project</code>) are built on first use and kept until the catalog changes, so pages are taken directly
+ * from them without copying or sorting the whole result.
+ * <p>
+ * Active state and roles are evaluated at query time, thus activation of a deployment does not require any update.
+ */
+public class ProcessDefinitionCatalog {
+
+    private static final int GRAM_SIZE = 3;
+    private static final String REGEX_CHARACTERS = "\\[]{}()*+?.^$|";
+
+    private static final Map<String, Function<ProcessAssetDesc, String>> SORT_KEYS = new HashMap<String, Function<ProcessAssetDesc, String>>();
+    static {
+        SORT_KEYS.put("ProcessName", ProcessAssetDesc::getName);
+        SORT_KEYS.put("ProcessVersion", ProcessAssetDesc::getVersion);
+        SORT_KEYS.put("Project", ProcessAssetDesc::getDeploymentId);
+    }
+    private static final String INSERTION_ORDER = "";
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Set<Entry> entries = new LinkedHashSet<Entry>();
+    private final Map<String, List<Entry>> byDeploymentId = new HashMap<String, List<Entry>>();
+    private final Map<String, List<Entry>> byProcessId = new HashMap<String, List<Entry>>();
+    private final Map<String, Set<Entry>> byRole = new HashMap<String, Set<Entry>>();
+    private final Set<Entry> unrestricted = new HashSet<Entry>();
+    private final Map<String, Set<Entry>> byGram = new HashMap<String, Set<Entry>>();
+    private final Map<String, List<Entry>> sortedViews = new ConcurrentHashMap<String, List<Entry>>();
+
+    private long sequence;
+
+    public void add(ProcessAssetDesc process) {
+        lock.writeLock().lock();
+        try {
+            Entry existing = find(process.getDeploymentId(), process.getId());
+            if (existing != null) {
+                remove(existing);
+            }
+            Entry entry = new Entry(process, sequence++);
+            entries.add(entry);
+            byDeploymentId.computeIfAbsent(process.getDeploymentId(), k -> new ArrayList<Entry>()).add(entry);
+            byProcessId.computeIfAbsent(process.getId(), k -> new ArrayList<Entry>()).add(entry);
+            if (entry.roles.isEmpty()) {
+                unrestricted.add(entry);
+            }
+            for (String role : entry.roles) {
+                byRole.computeIfAbsent(role, k -> new HashSet<Entry>()).add(entry);
+            }
+            for (String gram : entry.grams()) {
+                byGram.computeIfAbsent(gram, k -> new HashSet<Entry>()).add(entry);
+            }
+            sortedViews.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all definitions of given deployment.
+     * @param deploymentId deployment whose definitions should be removed
+     * @return removed definitions
+     */
+    public Collection<ProcessAssetDesc> removeByDeploymentId(String deploymentId) {
+        lock.writeLock().lock();
+        try {
+            List<Entry> removed = byDeploymentId.get(deploymentId);
+            if (removed == null) {
+                return Collections.emptyList();
+            }
+            List<ProcessAssetDesc> processes = new ArrayList<ProcessAssetDesc>(removed.size());
+            for (Entry entry : new ArrayList<Entry>(removed)) {
+                remove(entry);
+                processes.add(entry.process);
+            }
+            return processes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Collection<ProcessAssetDesc> getByDeploymentId(String deploymentId) {
+        lock.readLock().lock();
+        try {
+            List<Entry> found = byDeploymentId.getOrDefault(deploymentId, Collections.<Entry>emptyList());
+            List<ProcessAssetDesc> processes = new ArrayList<ProcessAssetDesc>(found.size());
+            for (Entry entry : found) {
+                processes.add(entry.process);
+            }
+            return processes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns active definitions visible to given roles.
+     */
+    public Collection<ProcessDefinition> getProcesses(List<String> roles, QueryContext queryContext) {
+        lock.readLock().lock();
+        try {
+            return page(candidatesForRoles(roles), visible(roles), queryContext);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns active definitions of given deployment visible to given roles.
+     */
+    public Collection<ProcessDefinition> getProcessesByDeploymentId(String deploymentId, List<String> roles, QueryContext queryContext) {
+        lock.readLock().lock();
+        try {
+            return page(byDeploymentId.getOrDefault(deploymentId, Collections.<Entry>emptyList()), visible(roles), queryContext);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns active definitions with given process id (from all deployments) visible to given roles.
+     */
+    public Collection<ProcessDefinition> getProcessesById(String processId, List<String> roles) {
+        lock.readLock().lock();
+        try {
+            return page(byProcessId.getOrDefault(processId, Collections.<Entry>emptyList()), visible(roles), null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns definition of given deployment and process id visible to given roles regardless of its active state.
+     */
+    public ProcessDefinition getProcess(String deploymentId, String processId, List<String> roles) {
+        lock.readLock().lock();
+        try {
+            Entry entry = find(deploymentId, processId);
+            if (entry != null && hasRole(entry, roles)) {
+                return entry.process;
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns active definitions visible to given roles whose id or name contains given filter (case insensitive).
+     * Filters containing regular expression characters are evaluated as regular expressions.
+     */
+    public Collection<ProcessDefinition> getProcessesByFilter(String filter, List<String> roles, QueryContext queryContext) {
+        lock.readLock().lock();
+        try {
+            Predicate<Entry> visible = visible(roles);
+            if (isRegularExpression(filter)) {
+                Pattern pattern = Pattern.compile("(?i)^.*" + filter + ".*$");
+                return page(candidatesForRoles(roles),
+                        visible.and(entry -> pattern.matcher(entry.process.getId()).matches() || pattern.matcher(entry.process.getName()).matches()),
+                        queryContext);
+            }
+            String lowerCaseFilter = filter.toLowerCase(Locale.ROOT);
+            Collection<Entry> candidates = lowerCaseFilter.length() >= GRAM_SIZE ? candidatesForFilter(lowerCaseFilter) : candidatesForRoles(roles);
+
+            return page(candidates, visible.and(entry -> entry.contains(lowerCaseFilter)), queryContext);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns ids of active definitions of given deployment.
+     */
+    public Collection<String> getProcessIds(String deploymentId, QueryContext queryContext) {
+        lock.readLock().lock();
+        try {
+            List<String> processIds = new ArrayList<String>();
+            int offset = queryContext == null ? 0 : queryContext.getOffset();
+            int count = queryContext == null ? Integer.MAX_VALUE : queryContext.getCount();
+            for (Entry entry : byDeploymentId.getOrDefault(deploymentId, Collections.<Entry>emptyList())) {
+                if (processIds.size() >= count) {
+                    break;
+                }
+                if (entry.process.isActive()) {
+                    if (offset > 0) {
+                        offset--;
+                    } else {
+                        processIds.add(entry.process.getId());
+                    }
+                }
+            }
+            return Collections.unmodifiableCollection(processIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry);
+        removeFrom(byDeploymentId, entry.process.getDeploymentId(), entry);
+        removeFrom(byProcessId, entry.process.getId(), entry);
+        unrestricted.remove(entry);
+        for (String role : entry.roles) {
+            removeFrom(byRole, role, entry);
+        }
+        for (String gram : entry.grams()) {
+            removeFrom(byGram, gram, entry);
+        }
+        sortedViews.clear();
+    }
+
+    private static <C extends Collection<Entry>> void removeFrom(Map<String, C> index, String key, Entry entry) {
+        C indexed = index.get(key);
+        if (indexed != null) {
+            indexed.remove(entry);
+            if (indexed.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private Entry find(String deploymentId, String processId) {
+        for (Entry entry : byProcessId.getOrDefault(processId, Collections.<Entry>emptyList())) {
+            if (entry.process.getDeploymentId().equals(deploymentId)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * returns null when all definitions must be checked
+     */
+    private Collection<Entry> candidatesForRoles(List<String> roles) {
+        if (roles == null || roles.isEmpty()) {
+            return null;
+        }
+        int size = unrestricted.size();
+        for (String role : roles) {
+            size += byRole.getOrDefault(role, Collections.<Entry>emptySet()).size();
+        }
+        if (size >= entries.size() / 2) {
+            // not selective enough, sorted view is cheaper
+            return null;
+        }
+        Set<Entry> candidates = new HashSet<Entry>(unrestricted);
+        for (String role : roles) {
+            candidates.addAll(byRole.getOrDefault(role, Collections.<Entry>emptySet()));
+        }
+        return candidates;
+    }
+
+    private Collection<Entry> candidatesForFilter(String lowerCaseFilter) {
+        Set<Entry> smallest = null;
+        for (int i = 0; i + GRAM_SIZE <= lowerCaseFilter.length(); i++) {
+            Set<Entry> found = byGram.get(lowerCaseFilter.substring(i, i + GRAM_SIZE));
+            if (found == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || found.size() < smallest.size()) {
+                smallest = found;
+            }
+        }
+        // remaining grams are verified by the filter itself
+        return smallest;
+    }
+
+    private Collection<ProcessDefinition> page(Collection<Entry> candidates, Predicate<Entry> predicate, QueryContext queryContext) {
+        List<Entry> ordered;
+        if (candidates == null) {
+            ordered = sortedView(orderBy(queryContext));
+        } else if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        } else {
+            // candidates are already narrowed down by an index so sorting them is cheap
+            ordered = new ArrayList<Entry>(candidates);
+            ordered.sort(comparator(orderBy(queryContext)));
+        }
+        boolean descending = queryContext != null && queryContext.getOrderBy() != null && !queryContext.getOrderBy().isEmpty()
+                && !queryContext.isAscending();
+        int offset = queryContext == null ? 0 : queryContext.getOffset();
+        int count = queryContext == null ? Integer.MAX_VALUE : queryContext.getCount();
+
+        List<ProcessDefinition> result = new ArrayList<ProcessDefinition>(Math.min(count, ordered.size()));
+        ListIterator<Entry> iterator = ordered.listIterator(descending ? ordered.size() : 0);
+        while (result.size() < count && (descending ? iterator.hasPrevious() : iterator.hasNext())) {
+            Entry entry = descending ? iterator.previous() : iterator.next();
+            if (predicate.test(entry)) {
+                if (offset > 0) {
+                    offset--;
+                } else {
+                    result.add(entry.process);
+                }
+            }
+        }
+        return Collections.unmodifiableCollection(result);
+    }
+
+    private List<Entry> sortedView(String orderBy) {
+        return sortedViews.computeIfAbsent(orderBy, key -> {
+            List<Entry> view = new ArrayList<Entry>(entries);
+            view.sort(comparator(key));
+            return Collections.unmodifiableList(view);
+        });
+    }
+
+    private static String orderBy(QueryContext queryContext) {
+        if (queryContext == null || queryContext.getOrderBy() == null || !SORT_KEYS.containsKey(queryContext.getOrderBy())) {
+            return INSERTION_ORDER;
+        }
+        return queryContext.getOrderBy();
+    }
+
+    private static Comparator<Entry> comparator(String orderBy) {
+        Comparator<Entry> insertionOrder = Comparator.comparingLong(entry -> entry.sequence);
+        Function<ProcessAssetDesc, String> key = SORT_KEYS.get(orderBy);
+        if (key == null) {
+            return insertionOrder;
+        }
+        Comparator<Entry> byKey = (o1, o2) -> key.apply(o1.process).compareTo(key.apply(o2.process));
+        return byKey.thenComparing(insertionOrder);
+    }
+
+    private static Predicate<Entry> visible(List<String> roles) {
+        return entry -> entry.process.isActive() && hasRole(entry, roles);
+    }
+
+    private static boolean hasRole(Entry entry, List<String> roles) {
+        if (roles == null || roles.isEmpty() || entry.roles.isEmpty()) {
+            return true;
+        }
+        return !Collections.disjoint(roles, entry.roles);
+    }
+
+    private static boolean isRegularExpression(String filter) {
+        for (int i = 0; i < filter.length(); i++) {
+            if (REGEX_CHARACTERS.indexOf(filter.charAt(i)) != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Entry {
+
+        private final ProcessAssetDesc process;
+        private final long sequence;
+        private final List<String> roles;
+        private final String lowerCaseId;
+        private final String lowerCaseName;
+
+        private Entry(ProcessAssetDesc process, long sequence) {
+            this.process = process;
+            this.sequence = sequence;
+            this.roles = process.getRoles() == null ? Collections.<String>emptyList() : new ArrayList<String>(process.getRoles());
+            this.lowerCaseId = process.getId().toLowerCase(Locale.ROOT);
+            this.lowerCaseName = process.getName().toLowerCase(Locale.ROOT);
+        }
+
+        private boolean contains(String lowerCaseFilter) {
+            return lowerCaseId.contains(lowerCaseFilter) || lowerCaseName.contains(lowerCaseFilter);
+        }
+
+        private Set<String> grams() {
+            Set<String> grams = new HashSet<String>();
+            for (String value : new String[]{lowerCaseId, lowerCaseName}) {
+                for (int i = 0; i + GRAM_SIZE <= value.length(); i++) {
+                    grams.add(value.substring(i, i + GRAM_SIZE));
+                }
+            }
+            return grams;
+        }
+    }
+}
@@ -29,13 +29,10 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.collections.Predicate;
 import org.jbpm.kie.services.api.DeploymentIdResolver;
 import org.jbpm.kie.services.impl.model.ProcessAssetDesc;
 import org.jbpm.kie.services.impl.security.DeploymentRolesManager;
@@ -76,7 +73,7 @@ public class RuntimeDataServiceImpl implements RuntimeDataService, DeploymentEve
     private static final String TASK_NOT_FOUND ="No task found with id {0}";
 
     protected Set<String> deploymentIds = new HashSet<String>();
-    protected Set<ProcessDefinition> availableProcesses = new HashSet<ProcessDefinition>();
+    protected ProcessDefinitionCatalog processCatalog = new ProcessDefinitionCatalog();
 
     private TransactionalCommandService commandService;
 
@@ -135,19 +132,10 @@ public class RuntimeDataServiceImpl implements RuntimeDataService, DeploymentEve
     }
 
     private void addProcessDefinition( ProcessAssetDesc asset) {
-       availableProcesses.add(asset);
+       processCatalog.add(asset);
        deploymentIds.add(asset.getDeploymentId());
     }
 
-    private void removeAllProcessDefinitions( Collection<ProcessAssetDesc> assets) {
-        Iterator<ProcessAssetDesc> iter = assets.iterator();
-        while( iter.hasNext() ) {
-            ProcessAssetDesc asset = iter.next();
-            availableProcesses.remove(asset);
-            deploymentIds.remove(asset.getDeploymentId());
-        }
-    }
-
     private String getLatestDeploymentId(String deploymentId) {
         String matched = deploymentId;
         if (deploymentId != null && deploymentId.toLowerCase().endsWith("latest")) {
@@ -179,20 +167,15 @@ public class RuntimeDataServiceImpl implements RuntimeDataService, DeploymentEve
     }
 
     public void onUnDeploy(DeploymentEvent event) {
-        Collection<ProcessAssetDesc> outputCollection = new HashSet<ProcessAssetDesc>();
-        CollectionUtils.select(availableProcesses, new UnsecureByDeploymentIdPredicate(event.getDeploymentId()), outputCollection);
-
-        removeAllProcessDefinitions(outputCollection);
+        processCatalog.removeByDeploymentId(event.getDeploymentId());
+        deploymentIds.remove(event.getDeploymentId());
         deploymentRolesManager.removeRolesForDeployment(event.getDeploymentId());
     }
 
 
 	@Override
 	public void onActivate(DeploymentEvent event) {
-		Collection<ProcessAssetDesc> outputCollection = new HashSet<ProcessAssetDesc>();
-        CollectionUtils.select(availableProcesses, new UnsecureByDeploymentIdPredicate(event.getDeploymentId()), outputCollection);
-
-        for (ProcessAssetDesc process : outputCollection) {
+        for (ProcessAssetDesc process : processCatalog.getByDeploymentId(event.getDeploymentId())) {
         	process.setActive(true);
         }
 
@@ -200,10 +183,7 @@ public class RuntimeDataServiceImpl implements RuntimeDataService, DeploymentEve
 
 	@Override
 	public void onDeactivate(DeploymentEvent event) {
-		Collection<ProcessAssetDesc> outputCollection = new HashSet<ProcessAssetDesc>();
-        CollectionUtils.select(availableProcesses, new UnsecureByDeploymentIdPredicate(event.getDeploymentId()), outputCollection);
-
-        for (ProcessAssetDesc process : outputCollection) {
+        for (ProcessAssetDesc process : processCatalog.getByDeploymentId(event.getDeploymentId())) {
         	process.setActive(false);
         }
 	}
@@ -289,31 +269,17 @@ public class RuntimeDataServiceImpl implements RuntimeDataService, DeploymentEve
 	public Collection<ProcessDefinition> getProcessesByDeploymentId(String deploymentId, QueryContext queryContext) {
 	    deploymentId = getLatestDeploymentId(requireNonNull(deploymentId, DEPLOYMENT_ID_MUST_NOT_BE_NULL));
 
-        List<ProcessDefinition> outputCollection = new ArrayList<ProcessDefinition>();
-        CollectionUtils.select(availableProcesses, new ByDeploymentIdPredicate(deploymentId, identityProvider.getRoles()), outputCollection);
-
-        applySorting(outputCollection, queryContext);
-        return applyPaginition(outputCollection, queryContext);
+        return processCatalog.getProcessesByDeploymentId(deploymentId, identityProvider.getRoles(), queryContext);
     }
 
     public ProcessDefinition getProcessesByDeploymentIdProcessId(String deploymentId, String processId) {
 	    deploymentId = getLatestDeploymentId(requireNonNull(deploymentId, DEPLOYMENT_ID_MUST_NOT_BE_NULL));
 
-    	List<ProcessDefinition> outputCollection = new ArrayList<ProcessDefinition>();
-        CollectionUtils.select(availableProcesses, new ByDeploymentIdProcessIdPredicate(deploymentId, processId, identityProvider.getRoles(), true), outputCollection);
-
-        if (!outputCollection.isEmpty()) {
-            return outputCollection.iterator().next();
-        }
-        return null;
+        return processCatalog.getProcess(deploymentId, processId, identityProvider.getRoles());
     }
 
     public Collection<ProcessDefinition> getProcessesByFilter(String filter, QueryContext queryContext) {
-    	List<ProcessDefinition> outputCollection = new ArrayList<ProcessDefinition>();
-        CollectionUtils.select(availableProcesses, new RegExPredicate("(?i)^.*"+filter+".*$", identityProvider.getRoles()), outputCollection);
-
-        applySorting(outputCollection, queryContext);
-        return applyPaginition(outputCollection, queryContext);
+        return processCatalog.getProcessesByFilter(filter, identityProvider.getRoles(), queryContext);
     }
 
     @Deprecated
@@ -330,34 +296,21 @@ public class RuntimeDataServiceImpl implements RuntimeDataService, DeploymentEve
 
     public Collection<ProcessDefinition> getProcessesById(String processId){
 
-        Collection<ProcessDefinition> outputCollection = new HashSet<ProcessDefinition>();
-        CollectionUtils.select(availableProcesses, new ByProcessIdPredicate(processId, identityProvider.getRoles()), outputCollection);
-
-        return outputCollection;
+        return processCatalog.getProcessesById(processId, identityProvider.getRoles());
     }
 
     public Collection<ProcessDefinition> getProcesses(QueryContext queryContext) {
-    	List<ProcessDefinition> outputCollection = new ArrayList<ProcessDefinition>();
-    	CollectionUtils.select(availableProcesses, new SecurePredicate(identityProvider.getRoles(), false), outputCollection);
-
-    	applySorting(outputCollection, queryContext);
-    	return applyPaginition(outputCollection, queryContext);
+    	return processCatalog.getProcesses(identityProvider.getRoles(), queryContext);
     }
 
     @Override
     public Collection<String> getProcessIds(String deploymentId, QueryContext queryContext) {
 	    deploymentId = getLatestDeploymentId(requireNonNull(deploymentId, DEPLOYMENT_ID_MUST_NOT_BE_NULL));
 
-        List<String> processIds = new ArrayList<String>(availableProcesses.size());
         if( deploymentId == null || deploymentId.isEmpty() ) {
-            return processIds;
+            return new ArrayList<String>();
         }
-        for( ProcessDefinition procAssetDesc : availableProcesses ) {
-            if( ((ProcessAssetDesc)procAssetDesc).getDeploymentId().equals(deploymentId) && ((ProcessAssetDesc)procAssetDesc).isActive()) {
-                processIds.add(procAssetDesc.getId());
-            }
-        }
-        return applyPaginition(processIds, queryContext);
+        return processCatalog.getProcessIds(deploymentId, queryContext);
     }
     /*
      * end
@@ -1130,190 +1083,6 @@ public class RuntimeDataServiceImpl implements RuntimeDataService, DeploymentEve
     *  task audit queries
     */
 
-    /*
-     * start
-     * predicates for collection filtering
-     */
-
-    private class RegExPredicate extends SecurePredicate {
-        private String pattern;
-
-        private RegExPredicate(String pattern, List<String> roles) {
-        	super(roles, false);
-            this.pattern = pattern;
-        }
-
-        @Override
-        public boolean evaluate(Object object) {
-            if (object instanceof ProcessAssetDesc) {
-                ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-                boolean hasAccess = super.evaluate(object);
-                if (!hasAccess) {
-                	return false;
-                }
-                if (pDesc.getId().matches(pattern)
-                        || pDesc.getName().matches(pattern)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-    }
-
-    private class ByDeploymentIdPredicate extends SecurePredicate {
-        private String deploymentId;
-
-        private ByDeploymentIdPredicate(String deploymentId, List<String> roles) {
-        	super(roles, false);
-            this.deploymentId = deploymentId;
-        }
-
-        @Override
-        public boolean evaluate(Object object) {
-            if (object instanceof ProcessAssetDesc) {
-                ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-                boolean hasAccess = super.evaluate(object);
-                if (!hasAccess) {
-                	return false;
-                }
-                if (pDesc.getDeploymentId().equals(deploymentId)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-    }
-
-    private class ByProcessIdPredicate extends SecurePredicate {
-        private String processId;
-
-        private ByProcessIdPredicate(String processId, List<String> roles) {
-        	super(roles, false);
-            this.processId = processId;
-        }
-
-        @Override
-        public boolean evaluate(Object object) {
-            if (object instanceof ProcessAssetDesc) {
-                ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-                boolean hasAccess = super.evaluate(object);
-                if (!hasAccess) {
-                	return false;
-                }
-                if (pDesc.getId().equals(processId)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-    }
-
-    private class ByDeploymentIdProcessIdPredicate extends SecurePredicate {
-        private String processId;
-        private String depoymentId;
-
-        private ByDeploymentIdProcessIdPredicate(String depoymentId, String processId, List<String> roles) {
-            super(roles, false);
-        	this.depoymentId = depoymentId;
-            this.processId = processId;
-        }
-
-        private ByDeploymentIdProcessIdPredicate(String depoymentId, String processId, List<String> roles, boolean skipActiveCheck) {
-            super(roles, skipActiveCheck);
-        	this.depoymentId = depoymentId;
-            this.processId = processId;
-        }
-
-        @Override
-        public boolean evaluate(Object object) {
-            if (object instanceof ProcessAssetDesc) {
-                ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-                boolean hasAccess = super.evaluate(object);
-                if (!hasAccess) {
-                	return false;
-                }
-                if (pDesc.getId().equals(processId) && pDesc.getDeploymentId().equals(depoymentId)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-    }
-
-    private class SecurePredicate extends ActiveOnlyPredicate {
-    	private List<String> roles;
-    	private boolean skipActivCheck;
-
-    	private SecurePredicate(List<String> roles, boolean skipActivCheck) {
-    		this.roles = roles;
-    		this.skipActivCheck = skipActivCheck;
-    	}
-
-    	public boolean evaluate(Object object) {
-    		if (!skipActivCheck) {
-	    		boolean isActive = super.evaluate(object);
-	    		if (!isActive) {
-	    			return false;
-    		}
-    		}
-    		ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-    		if (this.roles == null || this.roles.isEmpty() || pDesc.getRoles() == null || pDesc.getRoles().isEmpty()) {
-    			return true;
-    		}
-
-
-    		return CollectionUtils.containsAny(roles, pDesc.getRoles());
-    	}
-    }
-
-
-    private class UnsecureByDeploymentIdPredicate implements Predicate {
-        private String deploymentId;
-
-        private UnsecureByDeploymentIdPredicate(String deploymentId) {
-            this.deploymentId = deploymentId;
-        }
-
-        @Override
-        public boolean evaluate(Object object) {
-            if (object instanceof ProcessAssetDesc) {
-                ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-                if (pDesc.getDeploymentId().equals(deploymentId)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-    }
-
-    private class ActiveOnlyPredicate implements Predicate {
-
-        private ActiveOnlyPredicate() {
-        }
-
-        @Override
-        public boolean evaluate(Object object) {
-            if (object instanceof ProcessAssetDesc) {
-                ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-                if (pDesc.isActive()) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-    }
-
-
-    /*
-     * end
-     * predicates for collection filtering
-     */
-
      protected void applyQueryFilter(Map<String, Object> params, QueryFilter queryFilter) {
     	if (queryFilter != null) {
     	    applyQueryContext(params, queryFilter);
@@ -15,13 +15,17 @@
  */
 package org.jbpm.kie.services.impl.model;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
+import org.apache.commons.codec.binary.Base64;
 import org.jbpm.services.api.model.ProcessDefinition;
 
 /**
@@ -41,6 +45,7 @@ public class ProcessAssetDesc implements ProcessDefinition {
     private String originalPath;
     private String deploymentId;
     private String encodedProcessSource;
+    private transient Supplier<byte[]> processSourceSupplier;
     private Map<String, String> forms = new HashMap<String, String>();
     private List<String> roles = new ArrayList<String>();
     private Collection<String> signals = Collections.emptyList();
@@ -227,6 +232,13 @@ public class ProcessAssetDesc implements ProcessDefinition {
     }
 
     public String getEncodedProcessSource() {
+        if (encodedProcessSource == null && processSourceSupplier != null) {
+            // encoded on every request to not keep another copy of the process source in memory
+            byte[] processSource = processSourceSupplier.get();
+            if (processSource != null) {
+                return Base64.encodeBase64String(processSource);
+            }
+        }
         return encodedProcessSource;
     }
 
@@ -235,6 +247,15 @@ public class ProcessAssetDesc implements ProcessDefinition {
         this.encodedProcessSource = processString;
     }
 
+    /**
+     * Sets supplier of the raw process source that is used to load encoded process source on demand
+     * instead of keeping it resident.
+     * @param processSourceSupplier supplier of the process source bytes
+     */
+    public void setProcessSourceSupplier(Supplier<byte[]> processSourceSupplier) {
+        this.processSourceSupplier = processSourceSupplier;
+    }
+
 
     public Map<String, String> getForms() {
         return forms;
@@ -287,7 +308,7 @@ public class ProcessAssetDesc implements ProcessDefinition {
         result = prime * result + (active ? 1231 : 1237);
         result = prime * result + ((associatedEntities == null) ? 0 : associatedEntities.hashCode());
         result = prime * result + ((deploymentId == null) ? 0 : deploymentId.hashCode());
-        result = prime * result + ((encodedProcessSource == null) ? 0 : encodedProcessSource.hashCode());
+        // process source is left out as it might need to be loaded, equals still compares it
         result = prime * result + ((forms == null) ? 0 : forms.hashCode());
         result = prime * result + ((id == null) ? 0 : id.hashCode());
         result = prime * result + ((knowledgeType == null) ? 0 : knowledgeType.hashCode());
@@ -327,11 +348,6 @@ public class ProcessAssetDesc implements ProcessDefinition {
                 return false;
         } else if (!deploymentId.equals(other.deploymentId))
             return false;
-        if (encodedProcessSource == null) {
-            if (other.encodedProcessSource != null)
-                return false;
-        } else if (!encodedProcessSource.equals(other.encodedProcessSource))
-            return false;
         if (forms == null) {
             if (other.forms != null)
                 return false;
@@ -405,8 +421,21 @@ public class ProcessAssetDesc implements ProcessDefinition {
         if (dynamic != other.dynamic) {
             return false;
         }
+        // compared last as it might need to be loaded
+        String encodedProcessSource = getEncodedProcessSource();
+        if (encodedProcessSource == null) {
+            if (other.getEncodedProcessSource() != null)
+                return false;
+        } else if (!encodedProcessSource.equals(other.getEncodedProcessSource()))
+            return false;
         return true;
     }
 
-
-}
\ No newline at end of file
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // supplier is not serializable so the source must be materialized
+        if (encodedProcessSource == null) {
+            encodedProcessSource = getEncodedProcessSource();
+        }
+        out.defaultWriteObject();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.kie.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.binary.Base64;
+import org.jbpm.kie.services.impl.model.ProcessAssetDesc;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DeploymentScanCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testChecksumChangesWithContent() throws Exception {
+        File jar = folder.newFile("test.jar");
+        Files.write(jar.toPath(), new byte[]{1, 2, 3});
+        URL[] urls = new URL[]{jar.toURI().toURL()};
+
+        DeploymentScanCache cache = new DeploymentScanCache(null);
+        String checksum = cache.checksum(urls);
+        assertNotNull(checksum);
+        assertEquals(checksum, cache.checksum(urls));
+
+        Files.write(jar.toPath(), new byte[]{1, 2, 3, 4});
+        assertNotEquals(checksum, cache.checksum(urls));
+
+        // directories are not cached as their content can change
+        assertNull(cache.checksum(new URL[]{folder.getRoot().toURI().toURL()}));
+    }
+
+    @Test
+    public void testClassNamesStoredPersistently() throws Exception {
+        File jar = folder.newFile("test.jar");
+        URL[] urls = new URL[]{jar.toURI().toURL()};
+        String directory = folder.newFolder("cache").getAbsolutePath();
+
+        DeploymentScanCache cache = new DeploymentScanCache(directory);
+        String checksum = cache.checksum(urls);
+        assertNull(cache.getClassNames(checksum));
+        cache.putClassNames(checksum, Arrays.asList("org.jbpm.A", "org.jbpm.B"));
+        assertEquals(Arrays.asList("org.jbpm.A", "org.jbpm.B"), cache.getClassNames(checksum));
+
+        // new instance simulates restart
+        DeploymentScanCache restarted = new DeploymentScanCache(directory);
+        assertEquals(Arrays.asList("org.jbpm.A", "org.jbpm.B"), restarted.getClassNames(checksum));
+        assertNull(restarted.getClassNames(null));
+    }
+
+    @Test
+    public void testProcessSourceEncodedOnDemand() throws Exception {
+        byte[] source = "<definitions><process id=\"test\"/></definitions>".getBytes(StandardCharsets.UTF_8);
+        AtomicInteger loaded = new AtomicInteger();
+
+        ProcessAssetDesc process = new ProcessAssetDesc("test", "test", "1.0", "org.jbpm", "RuleFlow", "PROCESS", "org.jbpm", "deployment");
+        process.setProcessSourceSupplier(() -> {
+            loaded.incrementAndGet();
+            return source;
+        });
+        assertEquals(0, loaded.get());
+        assertEquals(Base64.encodeBase64String(source), process.getEncodedProcessSource());
+        assertEquals(1, loaded.get());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(process);
+        out.close();
+        ProcessAssetDesc copy = (ProcessAssetDesc) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(Base64.encodeBase64String(source), copy.getEncodedProcessSource());
+        assertEquals(process, copy);
+    }
+}
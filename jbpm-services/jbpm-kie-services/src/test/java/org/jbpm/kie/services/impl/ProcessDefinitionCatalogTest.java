@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.kie.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.jbpm.kie.services.impl.model.ProcessAssetDesc;
+import org.jbpm.services.api.model.ProcessDefinition;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.runtime.query.QueryContext;
+
+public class ProcessDefinitionCatalogTest {
+
+    private ProcessDefinitionCatalog catalog;
+
+    @Before
+    public void setUp() {
+        catalog = new ProcessDefinitionCatalog();
+        catalog.add(process("org.jbpm.evaluation", "Evaluation", "1.0", "deployment-b"));
+        catalog.add(process("org.jbpm.hiring", "Hiring", "2.0", "deployment-a"));
+        catalog.add(process("org.jbpm.approval", "Approval", "1.5", "deployment-a", "managers"));
+        catalog.add(process("org.jbpm.evaluation", "Evaluation", "2.0", "deployment-a"));
+    }
+
+    @Test
+    public void testSortingAndPaging() {
+        assertEquals(Arrays.asList("Approval", "Evaluation", "Evaluation", "Hiring"),
+                names(catalog.getProcesses(Collections.<String>emptyList(), new QueryContext(0, 10, "ProcessName", true))));
+        assertEquals(Arrays.asList("Hiring", "Evaluation"),
+                names(catalog.getProcesses(Collections.<String>emptyList(), new QueryContext(0, 2, "ProcessName", false))));
+        assertEquals(Arrays.asList("Evaluation", "Approval"),
+                names(catalog.getProcesses(Collections.<String>emptyList(), new QueryContext(2, 2, "ProcessName", false))));
+        assertTrue(catalog.getProcesses(Collections.<String>emptyList(), new QueryContext(10, 2)).isEmpty());
+
+        Collection<ProcessDefinition> byProject = catalog.getProcessesByDeploymentId("deployment-a",
+                Collections.<String>emptyList(), new QueryContext(0, 10, "ProcessVersion", true));
+        assertEquals(Arrays.asList("1.5", "2.0", "2.0"), versions(byProject));
+        assertTrue(catalog.getProcessesByDeploymentId("unknown", Collections.<String>emptyList(), new QueryContext(0, 10)).isEmpty());
+    }
+
+    @Test
+    public void testRolesAndActiveState() {
+        assertEquals(3, catalog.getProcesses(Arrays.asList("employees"), null).size());
+        assertEquals(4, catalog.getProcesses(Arrays.asList("managers"), null).size());
+        assertNull(catalog.getProcess("deployment-a", "org.jbpm.approval", Arrays.asList("employees")));
+        assertNotNull(catalog.getProcess("deployment-a", "org.jbpm.approval", Arrays.asList("managers")));
+
+        for (ProcessAssetDesc process : catalog.getByDeploymentId("deployment-a")) {
+            process.setActive(false);
+        }
+        assertEquals(1, catalog.getProcesses(Collections.<String>emptyList(), null).size());
+        assertEquals(1, catalog.getProcessesById("org.jbpm.evaluation", Collections.<String>emptyList()).size());
+        assertTrue(catalog.getProcessIds("deployment-a", null).isEmpty());
+        // inactive definitions are still available by deployment and process id
+        assertNotNull(catalog.getProcess("deployment-a", "org.jbpm.hiring", Collections.<String>emptyList()));
+    }
+
+    @Test
+    public void testFilter() {
+        assertEquals(Arrays.asList("org.jbpm.evaluation", "org.jbpm.evaluation"),
+                ids(catalog.getProcessesByFilter("EVAL", Collections.<String>emptyList(), null)));
+        assertEquals(Arrays.asList("org.jbpm.hiring"), ids(catalog.getProcessesByFilter("hi", Collections.<String>emptyList(), null)));
+        assertEquals(4, catalog.getProcessesByFilter("org.jbpm", Collections.<String>emptyList(), null).size());
+        assertEquals(2, catalog.getProcessesByFilter("(Hiring|Approval)", Collections.<String>emptyList(), null).size());
+        assertEquals(1, catalog.getProcessesByFilter("(Hiring|Approval)", Arrays.asList("employees"), null).size());
+        assertTrue(catalog.getProcessesByFilter("missing", Collections.<String>emptyList(), null).isEmpty());
+    }
+
+    @Test
+    public void testIncrementalUpdates() {
+        Collection<ProcessAssetDesc> removed = catalog.removeByDeploymentId("deployment-a");
+        assertEquals(3, removed.size());
+        assertEquals(1, catalog.size());
+        assertTrue(catalog.getProcessesByFilter("hiring", Collections.<String>emptyList(), null).isEmpty());
+        assertEquals(Arrays.asList("deployment-b"),
+                deployments(catalog.getProcesses(Collections.<String>emptyList(), new QueryContext(0, 10, "Project", true))));
+
+        // same process of the same deployment replaces the previous one
+        catalog.add(process("org.jbpm.evaluation", "Evaluation v2", "1.1", "deployment-b"));
+        assertEquals(1, catalog.size());
+        assertEquals("1.1", catalog.getProcess("deployment-b", "org.jbpm.evaluation", null).getVersion());
+    }
+
+    private static ProcessAssetDesc process(String id, String name, String version, String deploymentId, String... roles) {
+        ProcessAssetDesc process = new ProcessAssetDesc(id, name, version, "org.jbpm", "RuleFlow", "PROCESS", "org.jbpm", deploymentId);
+        process.setRoles(new ArrayList<String>(Arrays.asList(roles)));
+        return process;
+    }
+
+    private static List<String> names(Collection<ProcessDefinition> processes) {
+        List<String> names = new ArrayList<String>();
+        processes.forEach(process -> names.add(process.getName()));
+        return names;
+    }
+
+    private static List<String> ids(Collection<ProcessDefinition> processes) {
+        List<String> ids = new ArrayList<String>();
+        processes.forEach(process -> ids.add(process.getId()));
+        return ids;
+    }
+
+    private static List<String> versions(Collection<ProcessDefinition> processes) {
+        List<String> versions = new ArrayList<String>();
+        processes.forEach(process -> versions.add(process.getVersion()));
+        return versions;
+    }
+
+    private static List<String> deployments(Collection<ProcessDefinition> processes) {
+        List<String> deployments = new ArrayList<String>();
+        processes.forEach(process -> deployments.add(process.getDeploymentId()));
+        return deployments;
+    }
+}
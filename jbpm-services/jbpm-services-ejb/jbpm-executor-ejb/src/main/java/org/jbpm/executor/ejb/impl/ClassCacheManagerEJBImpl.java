@@ -20,12 +20,15 @@ package org.jbpm.executor.ejb.impl;
 import javax.annotation.PreDestroy;
 import javax.ejb.ConcurrencyManagement;
 import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
 import javax.ejb.Singleton;
 
 import org.jbpm.executor.impl.ClassCacheManager;
 
 @Singleton
 @ConcurrencyManagement(ConcurrencyManagementType.CONTAINER)
+@Lock(LockType.READ)
 public class ClassCacheManagerEJBImpl extends ClassCacheManager {
 
 	@Override
@@ -16,6 +16,7 @@
 
 package org.jbpm.executor.ejb.impl.jpa;
 
+import org.jbpm.executor.BatchProcessingAware;
 import org.jbpm.executor.impl.jpa.ExecutorQueryServiceImpl;
 import org.kie.api.executor.ExecutorQueryService;
 import org.kie.api.runtime.CommandExecutor;
@@ -25,7 +26,7 @@ import javax.ejb.Stateless;
 
 
 @Stateless
-public class ExecutorQueryServiceEJBImpl extends ExecutorQueryServiceImpl implements ExecutorQueryService {
+public class ExecutorQueryServiceEJBImpl extends ExecutorQueryServiceImpl implements ExecutorQueryService, BatchProcessingAware {
 
 	public ExecutorQueryServiceEJBImpl() {
 		super(true);
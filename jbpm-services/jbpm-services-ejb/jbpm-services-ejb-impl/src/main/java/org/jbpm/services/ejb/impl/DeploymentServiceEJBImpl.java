@@ -16,6 +16,8 @@
 
 package org.jbpm.services.ejb.impl;
 
+import java.util.concurrent.Executor;
+
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
@@ -28,6 +30,8 @@ import javax.ejb.LockType;
 import javax.ejb.Singleton;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceUnit;
 
@@ -60,6 +64,7 @@ import org.kie.internal.runtime.conf.DeploymentDescriptor;
 public class DeploymentServiceEJBImpl extends KModuleDeploymentService implements ListenerSupport, DeploymentService, DeploymentServiceEJBLocal, DeploymentServiceEJBRemote {
 
 	private static final String EXECUTOR_EJB_JNDI_NAME = System.getProperty("org.jbpm.executor.service.ejb-jndi", "jndi:java:module/ExecutorServiceEJBImpl");
+	private static final String DEPLOYMENT_EXECUTOR_JNDI_NAME = System.getProperty("org.jbpm.deploy.executor.jndi", "java:comp/DefaultManagedExecutorService");
 
     @Inject
 	private Instance<IdentityProvider> identityProvider;
@@ -78,6 +83,12 @@ public class DeploymentServiceEJBImpl extends KModuleDeploymentService implement
 			setIdentityProvider(identityProvider.get());
 		}
 		setManagerFactory(new RuntimeManagerFactoryImpl());
+		// prefer container managed executor for parallel deployment, falls back to bounded pool of the service
+		try {
+			setDeploymentExecutor(InitialContext.doLookup(DEPLOYMENT_EXECUTOR_JNDI_NAME));
+		} catch (NamingException | ClassCastException e) {
+			logger.debug("No managed executor found under {}, deployment will use own bounded pool", DEPLOYMENT_EXECUTOR_JNDI_NAME);
+		}
 		super.onInit();
 	}
 	
@@ -28,6 +28,15 @@ public class JpaPersistenceContext implements Context {
 
 	public final static String FIRST_RESULT = "firstResult";
     public final static String MAX_RESULTS = "maxResults";
+    /**
+     * Control parameter that instructs pessimistic lock queries to skip rows that are already locked by
+     * other transactions instead of waiting for them - honored only by dialects that support it
+     * (e.g. <code>SKIP LOCKED</code>), others fall back to regular lock semantics.
+     */
+    public final static String SKIP_LOCKED = "skipLocked";
+    
+    // value of lock timeout hint that maps to skip locked (LockOptions.SKIP_LOCKED)
+    private final static int SKIP_LOCKED_TIMEOUT = -2;
 	
 	private EntityManager em;
 	
@@ -164,6 +173,12 @@ public class JpaPersistenceContext implements Context {
 		check();
 		return this.em.merge(entity);
 	}
+	
+	public <T> T detach(T entity) {
+		check();
+		this.em.detach(entity);
+		return entity;
+	}
 
 	@SuppressWarnings("unchecked")
 	private <T> T queryStringWithParameters(Map<String, Object> params, boolean singleResult, LockModeType lockMode,
@@ -184,6 +199,12 @@ public class JpaPersistenceContext implements Context {
 					}
 					continue;
 				} 
+				else if (SKIP_LOCKED.equals(name)) {
+				    if (Boolean.TRUE.equals(params.get(name)) && lockMode == LockModeType.PESSIMISTIC_WRITE) {
+				        query.setHint("javax.persistence.lock.timeout", SKIP_LOCKED_TIMEOUT);
+				    }
+				    continue;
+				}
 				// skip control parameters
 				else if (QueryManager.ASCENDING_KEY.equals(name) 
 						|| QueryManager.DESCENDING_KEY.equals(name)
@@ -26,7 +26,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.http.Consts;
@@ -58,18 +63,31 @@ import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.params.CoreConnectionPNames;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.util.EntityUtils;
+import org.drools.core.process.instance.impl.WorkItemImpl;
 import org.drools.core.util.StringUtils;
+import org.drools.persistence.api.TransactionManager;
+import org.drools.persistence.api.TransactionManagerFactory;
+import org.drools.persistence.api.TransactionSynchronization;
+import org.jbpm.bpmn2.handler.WorkItemHandlerRuntimeException;
 import org.jbpm.process.workitem.core.AbstractLogOrThrowWorkItemHandler;
+import org.kie.api.runtime.manager.RuntimeEngine;
+import org.kie.api.runtime.manager.RuntimeManager;
 import org.kie.api.runtime.process.WorkItem;
+import org.kie.api.runtime.process.WorkItemHandler;
 import org.kie.api.runtime.process.WorkItemManager;
+import org.kie.internal.runtime.Closeable;
+import org.kie.internal.runtime.manager.RuntimeManagerRegistry;
+import org.kie.internal.runtime.manager.context.ProcessInstanceIdContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -98,8 +116,21 @@ import org.slf4j.LoggerFactory;
  * if not given string format will be returned</li>
  * <li>AcceptHeader - accept header value</li>
  * </ul>
+ * When http client 4.3 api is available, requests of a handler share single pooled http client so connections
+ * (including TLS sessions) are kept alive and reused. Each request still gets its own cookie store and authentication
+ * state, so requests behave the same as with a dedicated client. The pool is configured with system properties
+ * or with the corresponding setters:
+ * <ul>
+ * <li>org.jbpm.workitem.rest.pool.enabled - use the shared pooled client - defaults to true</li>
+ * <li>org.jbpm.workitem.rest.pool.max.total - maximum number of pooled connections - defaults to 100</li>
+ * <li>org.jbpm.workitem.rest.pool.max.per.route - maximum number of pooled connections per host - defaults to 20</li>
+ * <li>org.jbpm.workitem.rest.pool.idle.timeout - time in milliseconds after which idle connections are closed - defaults to 60 seconds</li>
+ * </ul>
+ * Optionally requests can be executed without blocking the caller (see {@link #setAsyncExecutor(Executor)}) in which
+ * case request is sent once the current transaction commits and work item is completed through the runtime manager
+ * of its deployment once the response is received.
  */
-public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
+public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(RESTWorkItemHandler.class);
 
@@ -123,6 +154,22 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
 
     private ClassLoader classLoader;
 
+    private boolean pooled = Boolean.parseBoolean(System.getProperty("org.jbpm.workitem.rest.pool.enabled", "true"));
+    private int maxConnections = Integer.parseInt(System.getProperty("org.jbpm.workitem.rest.pool.max.total", "100"));
+    private int maxConnectionsPerRoute = Integer.parseInt(System.getProperty("org.jbpm.workitem.rest.pool.max.per.route", "20"));
+    private long idleTimeout = Long.parseLong(System.getProperty("org.jbpm.workitem.rest.pool.idle.timeout", "60000"));
+
+    private volatile CloseableHttpClient pooledHttpClient;
+    private volatile PoolingHttpClientConnectionManager connectionManager;
+    private volatile long lastIdleCheck = System.currentTimeMillis();
+
+    private Executor asyncExecutor;
+    private int pendingRequests;
+    private boolean closeRequested;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConcurrentMap<Class<?>, JAXBContext> jaxbContexts = new ConcurrentHashMap<Class<?>, JAXBContext>();
+
     // protected for test purpose
     protected static boolean HTTP_CLIENT_API_43 = true;
 
@@ -221,8 +268,101 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
         return authUrl;
     }
 
-    public void executeWorkItem(WorkItem workItem,
-                                WorkItemManager manager) {
+    public void executeWorkItem(final WorkItem workItem,
+                                final WorkItemManager manager) {
+        String urlStr = (String) workItem.getParameter("Url");
+        if (urlStr == null) {
+            throw new IllegalArgumentException("Url is a required parameter");
+        }
+        if (asyncExecutor == null) {
+            executeRequest(workItem,
+                           manager);
+            return;
+        }
+        final WorkItemManager completionManager = new RuntimeManagerWorkItemManager(workItem,
+                                                                                    manager);
+        final Runnable request = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    try {
+                        executeRequest(workItem,
+                                       completionManager);
+                    } catch (WorkItemHandlerRuntimeException e) {
+                        throw e;
+                    } catch (RuntimeException e) {
+                        // failures outside of the request itself are handled the same way
+                        handleException(e);
+                    }
+                } catch (WorkItemHandlerRuntimeException e) {
+                    // there is no caller to propagate to, work item stays active
+                    logger.error("REST request of work item {} failed, work item was not completed",
+                                 workItem.getId(),
+                                 e);
+                    throw e;
+                } finally {
+                    requestDone();
+                }
+            }
+        };
+        synchronized (this) {
+            pendingRequests++;
+        }
+        dispatchAfterCompletion(request);
+    }
+
+    /**
+     * Submits request to the async executor once the current transaction (if any) is committed,
+     * so the work item it completes is visible to the runtime manager. Request is dropped on rollback.
+     */
+    protected void dispatchAfterCompletion(final Runnable request) {
+        TransactionManager tm = null;
+        try {
+            tm = TransactionManagerFactory.get().newTransactionManager();
+        } catch (Exception e) {
+            logger.debug("No transaction manager available, request will be sent right away", e);
+        }
+        if (tm != null && tm.getStatus() != TransactionManager.STATUS_NO_TRANSACTION
+                && tm.getStatus() != TransactionManager.STATUS_ROLLEDBACK
+                && tm.getStatus() != TransactionManager.STATUS_COMMITTED) {
+            tm.registerTransactionSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == TransactionManager.STATUS_COMMITTED) {
+                        submit(request);
+                    } else {
+                        requestDone();
+                    }
+                }
+            });
+        } else {
+            submit(request);
+        }
+    }
+
+    protected void submit(Runnable request) {
+        try {
+            asyncExecutor.execute(request);
+        } catch (RuntimeException e) {
+            requestDone();
+            handleException(e);
+        }
+    }
+
+    private synchronized void requestDone() {
+        pendingRequests--;
+        if (pendingRequests == 0 && closeRequested) {
+            close();
+        }
+    }
+
+    protected void executeRequest(WorkItem workItem,
+                                  WorkItemManager manager) {
         boolean handleException = false;
         // extract required parameters
         String urlStr = (String) workItem.getParameter("Url");
@@ -265,6 +405,11 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
                                                urlStr,
                                                params,
                                                acceptHeader);
+        if (HTTP_CLIENT_API_43) {
+            // timeouts are given per work item while the client might be shared
+            ((RequestBuilder) methodObject).setConfig(createRequestConfig(readTimeout,
+                                                                          connectTimeout));
+        }
         try {
             HttpResponse response = doRequestWithAuthorization(httpClient,
                                                                methodObject,
@@ -417,12 +562,10 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
                                       String contentType) {
         try {
             if (contentType.toLowerCase().contains("application/json")) {
-                ObjectMapper mapper = new ObjectMapper();
-
-                return mapper.writeValueAsString(data);
+                return objectMapper.writeValueAsString(data);
             } else if (contentType.toLowerCase().contains("application/xml")) {
                 StringWriter stringRep = new StringWriter();
-                JAXBContext jaxbContext = JAXBContext.newInstance(new Class[]{data.getClass()});
+                JAXBContext jaxbContext = getJAXBContext(data.getClass());
 
                 jaxbContext.createMarshaller().marshal(data,
                                                        stringRep);
@@ -441,13 +584,11 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
                                      String content) throws Exception {
 
         if (contentType.toLowerCase().contains("application/json")) {
-            ObjectMapper mapper = new ObjectMapper();
-
-            return mapper.readValue(content,
-                                    clazz);
+            return objectMapper.readValue(content,
+                                          clazz);
         } else if (contentType.toLowerCase().contains("application/xml")) {
             StringReader result = new StringReader(content);
-            JAXBContext jaxbContext = JAXBContext.newInstance(new Class[]{clazz});
+            JAXBContext jaxbContext = getJAXBContext(clazz);
 
             return jaxbContext.createUnmarshaller().unmarshal(result);
         }
@@ -458,6 +599,16 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
         return content;
     }
 
+    protected JAXBContext getJAXBContext(Class<?> clazz) throws JAXBException {
+        JAXBContext jaxbContext = jaxbContexts.get(clazz);
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(new Class[]{clazz});
+            jaxbContexts.putIfAbsent(clazz,
+                                     jaxbContext);
+        }
+        return jaxbContext;
+    }
+
     protected HttpResponse doRequestWithAuthorization(HttpClient httpclient,
                                                       Object method,
                                                       Map<String, Object> params,
@@ -494,7 +645,8 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
         if (type == null || type == AuthenticationType.NONE) {
             HttpUriRequest request = requestBuilder.build();
             try {
-                return httpclient.execute(request);
+                return httpclient.execute(request,
+                                          createClientContext());
             } catch (Exception e) {
                 throw new RuntimeException("Could not execute request [" + request.getMethod() + "] " + request.getURI(),
                                            e);
@@ -531,7 +683,7 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
                           basicAuth);
 
             // - add AuthCache to the execution context:
-            HttpClientContext clientContext = HttpClientContext.create();
+            HttpClientContext clientContext = createClientContext();
             CredentialsProvider credsProvider = new BasicCredentialsProvider();
             credsProvider.setCredentials(
                     // specify host and port, since that is safer/more secure
@@ -557,11 +709,15 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
         } else if (type == AuthenticationType.FORM_BASED) {
             // form auth
 
+            // all requests share the cookie store holding the authenticated session
+            HttpClientContext clientContext = createClientContext();
+
             // 1. do initial request to trigger authentication
             HttpUriRequest request = requestBuilder.build();
             int statusCode = -1;
             try {
-                HttpResponse initialResponse = httpclient.execute(request);
+                HttpResponse initialResponse = httpclient.execute(request,
+                                                                  clientContext);
                 statusCode = initialResponse.getStatusLine().getStatusCode();
             } catch (IOException e) {
                 throw new RuntimeException("Could not execute request for form-based authentication",
@@ -602,7 +758,8 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
             }
             authMethod.setEntity(formEntity);
             try {
-                httpclient.execute(authMethod);
+                httpclient.execute(authMethod,
+                                   clientContext);
             } catch (IOException e) {
                 throw new RuntimeException("Could not initialize form-based authentication",
                                            e);
@@ -613,7 +770,8 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
             // 3. rebuild request and execute
             request = requestBuilder.build();
             try {
-                return httpclient.execute(request);
+                return httpclient.execute(request,
+                                          clientContext);
             } catch (Exception e) {
                 throw new RuntimeException("Could not execute request [" + request.getMethod() + "] " + request.getURI(),
                                            e);
@@ -740,11 +898,11 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
                                        Integer connectTimeout) {
 
         if (HTTP_CLIENT_API_43) {
-            RequestConfig config = RequestConfig.custom()
-                    .setSocketTimeout(readTimeout)
-                    .setConnectTimeout(connectTimeout)
-                    .setConnectionRequestTimeout(connectTimeout)
-                    .build();
+            if (pooled) {
+                return getPooledHttpClient();
+            }
+            RequestConfig config = createRequestConfig(readTimeout,
+                                                       connectTimeout);
 
             HttpClientBuilder clientBuilder = HttpClientBuilder.create()
                     .setDefaultRequestConfig(config);
@@ -763,10 +921,106 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
         }
     }
 
+    protected RequestConfig createRequestConfig(Integer readTimeout,
+                                                Integer connectTimeout) {
+        return RequestConfig.custom()
+                .setSocketTimeout(readTimeout)
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectTimeout)
+                .build();
+    }
+
+    protected HttpClientContext createClientContext() {
+        HttpClientContext clientContext = HttpClientContext.create();
+        // cookies are never shared between requests of different work items
+        clientContext.setCookieStore(new BasicCookieStore());
+        return clientContext;
+    }
+
+    protected CloseableHttpClient getPooledHttpClient() {
+        CloseableHttpClient httpClient = pooledHttpClient;
+        if (httpClient == null) {
+            synchronized (this) {
+                httpClient = pooledHttpClient;
+                if (httpClient == null) {
+                    connectionManager = new PoolingHttpClientConnectionManager();
+                    connectionManager.setMaxTotal(maxConnections);
+                    connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+                    httpClient = HttpClientBuilder.create()
+                            .setConnectionManager(connectionManager)
+                            .build();
+                    pooledHttpClient = httpClient;
+                    logger.debug("Created pooled http client with max {} connections ({} per route)",
+                                 maxConnections,
+                                 maxConnectionsPerRoute);
+                }
+            }
+        }
+        // no background eviction thread, idle connections are closed by requests themselves
+        long now = System.currentTimeMillis();
+        PoolingHttpClientConnectionManager manager = connectionManager;
+        if (manager != null && now - lastIdleCheck > Math.min(idleTimeout, 5000)) {
+            lastIdleCheck = now;
+            manager.closeExpiredConnections();
+            manager.closeIdleConnections(idleTimeout,
+                                         TimeUnit.MILLISECONDS);
+        }
+        return httpClient;
+    }
+
+    /**
+     * Closes pooled http client of this handler, if any. When async requests are still pending the client is
+     * closed once the last of them is done. Handler can still be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (pendingRequests > 0) {
+            closeRequested = true;
+            return;
+        }
+        closeRequested = false;
+        if (pooledHttpClient != null) {
+            try {
+                pooledHttpClient.close();
+            } catch (IOException e) {
+                logger.debug("Error when closing pooled http client", e);
+            }
+            pooledHttpClient = null;
+            connectionManager = null;
+        }
+    }
+
+    public void setPooled(boolean pooled) {
+        this.pooled = pooled;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Executor used to execute requests without blocking the caller, work items are then completed
+     * by executor threads through the runtime manager of their deployment, or through the work item manager
+     * given on execution when there is no runtime manager. Requests are executed by the caller when not set (default).
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
     protected void close(HttpClient httpClient,
                          Object httpMethod) throws IOException {
         if (HTTP_CLIENT_API_43) {
-            ((CloseableHttpClient) httpClient).close();
+            if (httpClient != pooledHttpClient) {
+                ((CloseableHttpClient) httpClient).close();
+            }
         } else {
             ((HttpRequestBase) httpMethod).releaseConnection();
         }
@@ -829,4 +1083,82 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
             return theMethod;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Completes work items of async requests through the runtime manager of their deployment, as the engine
+     * that executed the work item is usually already disposed by the time the response is received.
+     */
+    private static class RuntimeManagerWorkItemManager implements WorkItemManager {
+
+        private final String deploymentId;
+        private final long processInstanceId;
+        private final WorkItemManager fallback;
+
+        RuntimeManagerWorkItemManager(WorkItem workItem,
+                                      WorkItemManager fallback) {
+            this.deploymentId = workItem instanceof WorkItemImpl ? ((WorkItemImpl) workItem).getDeploymentId() : null;
+            this.processInstanceId = workItem.getProcessInstanceId();
+            this.fallback = fallback;
+        }
+
+        @Override
+        public void completeWorkItem(long id,
+                                     Map<String, Object> results) {
+            RuntimeManager runtimeManager = getRuntimeManager();
+            if (runtimeManager == null) {
+                // in case there is no RuntimeManager available use the given work item manager,
+                // as it might be used without runtime manager at all
+                fallback.completeWorkItem(id,
+                                          results);
+                return;
+            }
+            RuntimeEngine engine = runtimeManager.getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId));
+            try {
+                engine.getKieSession().getWorkItemManager().completeWorkItem(id,
+                                                                             results);
+            } finally {
+                runtimeManager.disposeRuntimeEngine(engine);
+            }
+        }
+
+        @Override
+        public void abortWorkItem(long id) {
+            RuntimeManager runtimeManager = getRuntimeManager();
+            if (runtimeManager == null) {
+                fallback.abortWorkItem(id);
+                return;
+            }
+            RuntimeEngine engine = runtimeManager.getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId));
+            try {
+                engine.getKieSession().getWorkItemManager().abortWorkItem(id);
+            } finally {
+                runtimeManager.disposeRuntimeEngine(engine);
+            }
+        }
+
+        @Override
+        public void registerWorkItemHandler(String workItemName,
+                                            WorkItemHandler handler) {
+            RuntimeManager runtimeManager = getRuntimeManager();
+            if (runtimeManager == null) {
+                fallback.registerWorkItemHandler(workItemName,
+                                                 handler);
+                return;
+            }
+            RuntimeEngine engine = runtimeManager.getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId));
+            try {
+                engine.getKieSession().getWorkItemManager().registerWorkItemHandler(workItemName,
+                                                                                    handler);
+            } finally {
+                runtimeManager.disposeRuntimeEngine(engine);
+            }
+        }
+
+        private RuntimeManager getRuntimeManager() {
+            if (deploymentId == null) {
+                return null;
+            }
+            return RuntimeManagerRegistry.get().getManager(deploymentId);
+        }
+    }
+}
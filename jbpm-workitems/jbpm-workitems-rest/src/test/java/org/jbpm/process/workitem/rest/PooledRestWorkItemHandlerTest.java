@@ -0,0 +1,314 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.workitem.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.drools.core.process.instance.impl.WorkItemImpl;
+import org.jbpm.bpmn2.handler.WorkItemHandlerRuntimeException;
+import org.jbpm.process.workitem.core.TestWorkItemManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.jbpm.process.workitem.rest.RESTWorkItemHandler.PARAM_RESULT;
+import static org.jbpm.process.workitem.rest.RESTWorkItemHandler.PARAM_STATUS;
+import static org.junit.Assert.*;
+
+public class PooledRestWorkItemHandlerTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String serverURL;
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+    private final List<String> cookies = new CopyOnWriteArrayList<String>();
+
+    @Before
+    public void startServer() throws Exception {
+        RESTWorkItemHandler.HTTP_CLIENT_API_43 = true;
+
+        server = HttpServer.create(new InetSocketAddress("localhost",
+                                                         0),
+                                   0);
+        server.createContext("/hello",
+                             new HttpHandler() {
+                                 @Override
+                                 public void handle(HttpExchange exchange) throws IOException {
+                                     record(exchange);
+                                     exchange.getResponseHeaders().add("Set-Cookie",
+                                                                       "JSESSIONID=stub");
+                                     respond(exchange,
+                                             "text/plain",
+                                             "Hello from stub");
+                                 }
+                             });
+        server.createContext("/person",
+                             new HttpHandler() {
+                                 @Override
+                                 public void handle(HttpExchange exchange) throws IOException {
+                                     record(exchange);
+                                     respond(exchange,
+                                             "application/json",
+                                             "{\"name\":\"john\",\"age\":25}");
+                                 }
+                             });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        serverURL = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testConnectionReused() {
+        RESTWorkItemHandler handler = new RESTWorkItemHandler();
+        try {
+            for (int i = 0; i < 10; i++) {
+                assertEquals("Hello from stub",
+                             execute(handler,
+                                     "/hello").get(PARAM_RESULT));
+            }
+            assertEquals(1,
+                         clientPorts.size());
+        } finally {
+            handler.close();
+        }
+    }
+
+    @Test
+    public void testNotPooled() {
+        RESTWorkItemHandler handler = new RESTWorkItemHandler();
+        handler.setPooled(false);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Hello from stub",
+                         execute(handler,
+                                 "/hello").get(PARAM_RESULT));
+        }
+        assertEquals(10,
+                     clientPorts.size());
+    }
+
+    @Test
+    public void testCookiesNotShared() {
+        RESTWorkItemHandler handler = new RESTWorkItemHandler();
+        try {
+            execute(handler,
+                    "/hello");
+            execute(handler,
+                    "/hello");
+            assertEquals(2,
+                         cookies.size());
+            assertNull(cookies.get(0));
+            assertNull(cookies.get(1));
+        } finally {
+            handler.close();
+        }
+    }
+
+    @Test
+    public void testResultTransformedWithCachedMapper() {
+        RESTWorkItemHandler handler = new RESTWorkItemHandler();
+        try {
+            for (int i = 0; i < 2; i++) {
+                WorkItemImpl workItem = new WorkItemImpl();
+                workItem.setParameter("Url",
+                                      serverURL + "/person");
+                workItem.setParameter("ResultClass",
+                                      Person.class.getName());
+                TestWorkItemManager manager = new TestWorkItemManager();
+                handler.executeWorkItem(workItem,
+                                        manager);
+
+                Person result = (Person) manager.getResults(workItem.getId()).get(PARAM_RESULT);
+                assertEquals("john",
+                             result.getName());
+                assertEquals(Integer.valueOf(25),
+                             result.getAge());
+            }
+        } finally {
+            handler.close();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testAsyncCompletion() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        RESTWorkItemHandler handler = new RESTWorkItemHandler();
+        handler.setAsyncExecutor(executor);
+        try {
+            int requests = 20;
+            final CountDownLatch completed = new CountDownLatch(requests);
+            TestWorkItemManager manager = new TestWorkItemManager() {
+                @Override
+                public synchronized void completeWorkItem(long id,
+                                                          Map<String, Object> results) {
+                    super.completeWorkItem(id,
+                                           results);
+                    completed.countDown();
+                }
+            };
+            for (int i = 0; i < requests; i++) {
+                WorkItemImpl workItem = new WorkItemImpl();
+                workItem.setId(i);
+                workItem.setParameter("Url",
+                                      serverURL + "/hello");
+                handler.executeWorkItem(workItem,
+                                        manager);
+            }
+            assertTrue(completed.await(20,
+                                       TimeUnit.SECONDS));
+            for (Map<String, Object> results : manager.getResults().values()) {
+                assertEquals(200,
+                             results.get(PARAM_STATUS));
+                assertEquals("Hello from stub",
+                             results.get(PARAM_RESULT));
+            }
+            assertTrue(clientPorts.size() <= 4);
+        } finally {
+            executor.shutdownNow();
+            handler.close();
+        }
+    }
+
+    @Test
+    public void testCloseDeferredUntilAsyncRequestDone() {
+        final List<Runnable> requests = new CopyOnWriteArrayList<Runnable>();
+        RESTWorkItemHandler handler = new RESTWorkItemHandler();
+        handler.setAsyncExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                requests.add(command);
+            }
+        });
+        execute(handler,
+                "/hello");
+
+        WorkItemImpl workItem = new WorkItemImpl();
+        workItem.setParameter("Url",
+                              serverURL + "/hello");
+        TestWorkItemManager manager = new TestWorkItemManager();
+        handler.executeWorkItem(workItem,
+                                manager);
+        handler.close();
+        assertEquals(1,
+                     requests.size());
+        requests.get(0).run();
+        assertEquals("Hello from stub",
+                     manager.getResults(workItem.getId()).get(PARAM_RESULT));
+        // pooled connection was still used by the pending request
+        assertEquals(1,
+                     clientPorts.size());
+
+        // and closed afterwards
+        execute(handler,
+                "/hello");
+        handler.close();
+        assertEquals(2,
+                     clientPorts.size());
+    }
+
+    @Test
+    public void testAsyncFailureHandled() {
+        final List<Runnable> requests = new CopyOnWriteArrayList<Runnable>();
+        RESTWorkItemHandler handler = new RESTWorkItemHandler();
+        handler.setAsyncExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                requests.add(command);
+            }
+        });
+        try {
+            WorkItemImpl workItem = new WorkItemImpl();
+            // nothing listens on port 1 so the connection is refused
+            workItem.setParameter("Url",
+                                  "http://localhost:1/hello");
+            TestWorkItemManager manager = new TestWorkItemManager();
+            handler.executeWorkItem(workItem,
+                                    manager);
+            try {
+                requests.get(0).run();
+                fail("Request should fail as the connection is refused");
+            } catch (WorkItemHandlerRuntimeException e) {
+                assertEquals(RESTWorkItemHandler.class.getSimpleName(),
+                             e.getInformationMap().get(WorkItemHandlerRuntimeException.WORKITEMHANDLERTYPE));
+            }
+            assertNull(manager.getResults(workItem.getId()));
+
+            handler.setLogThrownException(true);
+            handler.executeWorkItem(workItem,
+                                    manager);
+            requests.get(1).run();
+            assertNull(manager.getResults(workItem.getId()));
+        } finally {
+            handler.close();
+        }
+    }
+
+    private Map<String, Object> execute(RESTWorkItemHandler handler,
+                                        String path) {
+        WorkItemImpl workItem = new WorkItemImpl();
+        workItem.setParameter("Url",
+                              serverURL + path);
+        TestWorkItemManager manager = new TestWorkItemManager();
+        handler.executeWorkItem(workItem,
+                                manager);
+        return manager.getResults(workItem.getId());
+    }
+
+    private void record(HttpExchange exchange) {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        cookies.add(exchange.getRequestHeaders().getFirst("Cookie"));
+    }
+
+    private void respond(HttpExchange exchange,
+                         String contentType,
+                         String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type",
+                                          contentType);
+        exchange.sendResponseHeaders(200,
+                                     bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+}